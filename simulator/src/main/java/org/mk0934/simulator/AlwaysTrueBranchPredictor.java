@@ -11,6 +11,11 @@ public class AlwaysTrueBranchPredictor implements BranchPredictor {
 
     private final Processor processor;
 
+    /**
+     * Result of the last prediction, reused by the next one
+     */
+    private final BranchPredictorResult result = new BranchPredictorResult();
+
     public AlwaysTrueBranchPredictor(Processor processor) {
         this.processor = processor;
     }
@@ -22,12 +27,10 @@ public class AlwaysTrueBranchPredictor implements BranchPredictor {
      */
     @Override
     public BranchPredictorResult predictBranch(BranchInstruction branchInstruction) {
-        BranchPredictorResult result = new BranchPredictorResult();
-
-        final Memory mainMemory = this.processor.getMemory();
+        BranchPredictorResult result = this.result;
 
         int addressToBranch = branchInstruction.getAddressToJump(),
-                currentAddress = mainMemory.getInstructionAddress(branchInstruction),
+                currentAddress = branchInstruction.getInstructionAddress(),
                 alternativeAddress = currentAddress + 0x4;
 
         // Take it
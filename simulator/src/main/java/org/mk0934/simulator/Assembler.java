@@ -0,0 +1,361 @@
+package org.mk0934.simulator;
+
+import org.mk0934.simulator.instructions.EncodedInstruction;
+import org.mk0934.simulator.instructions.Operand;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Two-pass assembler
+ *
+ * First pass tokenizes program lines, assigns addresses and builds the symbol table.
+ * Second pass resolves symbols and emits binary encoded instructions and data words.
+ * The second pass doesn't modify the assembler, so many memories can be loaded from one instance.
+ *
+ * @author Maciej Kumorek
+ */
+public class Assembler {
+
+    private static final Pattern registerPattern = Pattern.compile("[rR]([0-9]+)");
+
+    /**
+     * Tokenized line of the program, either an instruction or a data word
+     */
+    private static class Statement {
+
+        /**
+         * Line in the source, for error messages
+         */
+        private final int lineNumber;
+
+        /**
+         * Operand, null for data words
+         */
+        private final Operand operand;
+
+        /**
+         * Mnemonic as written in the source
+         */
+        private final String mnemonic;
+
+        /**
+         * Arguments as written in the source, including whitespace
+         */
+        private final String[] rawArguments;
+
+        /**
+         * Trimmed arguments
+         */
+        private final String[] arguments;
+
+        /**
+         * Value of a data word
+         */
+        private final int value;
+
+        private String label;
+        private int address;
+
+        private Statement(int lineNumber, int value) {
+            this.lineNumber = lineNumber;
+            this.value = value;
+            this.operand = null;
+            this.mnemonic = null;
+            this.rawArguments = null;
+            this.arguments = null;
+        }
+
+        private Statement(int lineNumber, Operand operand, String mnemonic, String[] rawArguments) {
+            this.lineNumber = lineNumber;
+            this.value = 0;
+            this.operand = operand;
+            this.mnemonic = mnemonic;
+            this.rawArguments = rawArguments;
+            this.arguments = new String[rawArguments.length];
+
+            for(int i = 0; i < rawArguments.length; i++) {
+                this.arguments[i] = rawArguments[i].trim();
+            }
+        }
+
+        private boolean isData() {
+            return this.operand == null;
+        }
+    }
+
+    /**
+     * Labels and their addresses
+     */
+    private final HashMap<String, Integer> symbolTable = new HashMap<>();
+
+    /**
+     * Statements in program order
+     */
+    private final ArrayList<Statement> statements = new ArrayList<>();
+
+    /**
+     * Address after the last statement
+     */
+    private int programSize;
+
+    /**
+     * Runs the first pass over the program
+     * @param program Program to assemble
+     */
+    public Assembler(Program program) {
+
+        int address = 0x0;
+        int lineNumber = 0;
+
+        // Labels waiting for the next statement
+        ArrayList<String> pendingLabels = new ArrayList<>();
+
+        for(String line : program.getLines()) {
+
+            lineNumber++;
+
+            String text = stripComment(line);
+
+            // Labels are followed by a colon, statement can be on the same line or next ones
+            int indexOfColon;
+            while((indexOfColon = text.indexOf(':')) >= 0) {
+
+                String label = text.substring(0, indexOfColon).trim();
+
+                if(label.isEmpty()) {
+                    throw new RuntimeException(String.format("Empty label on line %d", lineNumber));
+                }
+
+                if(this.symbolTable.containsKey(label)) {
+                    throw new RuntimeException(String.format("Label %s on line %d is already defined", label, lineNumber));
+                }
+
+                this.symbolTable.put(label, address);
+                pendingLabels.add(label);
+
+                text = text.substring(indexOfColon + 1).trim();
+            }
+
+            // Ignore empty and comment lines
+            if(text.isEmpty()) {
+                continue;
+            }
+
+            Statement statement = tokenize(text, lineNumber);
+            statement.address = address;
+
+            if(!pendingLabels.isEmpty()) {
+                statement.label = pendingLabels.get(0);
+                pendingLabels.clear();
+            }
+
+            this.statements.add(statement);
+
+            address += 0x4;
+        }
+
+        if(!pendingLabels.isEmpty()) {
+            throw new RuntimeException("No instruction after label " + pendingLabels.get(0));
+        }
+
+        this.programSize = address;
+    }
+
+    /**
+     * Runs the second pass, emitting the program into memory
+     * @param memory Memory to load the program into
+     */
+    public void assemble(Memory memory) {
+
+        int wordCount = this.programSize / 0x4;
+
+        EncodedInstruction[] instructions = new EncodedInstruction[wordCount];
+        int[] instructionSegment = new int[wordCount * EncodedInstruction.ENCODED_WORDS];
+
+        for(Statement statement : this.statements) {
+
+            if(statement.isData()) {
+                memory.storeWord(statement.address, statement.value);
+                continue;
+            }
+
+            int index = statement.address / 0x4;
+            int offset = index * EncodedInstruction.ENCODED_WORDS;
+
+            encode(statement, this.symbolTable, instructionSegment, offset);
+
+            EncodedInstruction instruction = statement.label == null
+                    ? new EncodedInstruction(this.getResolvedText(statement))
+                    : new EncodedInstruction(this.getResolvedText(statement), statement.label);
+
+            instruction.setAddress(statement.address);
+            instruction.setEncoding(instructionSegment, offset);
+
+            instructions[index] = instruction;
+        }
+
+        memory.loadInstructions(instructions, new HashMap<String, Integer>(this.symbolTable));
+    }
+
+    /**
+     * Assemble a single instruction, no symbols can be used
+     * @param text Instruction text
+     * @param segment Instruction segment to write the encoding to
+     * @param offset Index of the first word of the instruction in the segment
+     */
+    public static void assemble(String text, int[] segment, int offset) {
+
+        Statement statement = tokenize(text, 1);
+
+        if(statement.isData()) {
+            throw new RuntimeException("Not an instruction: " + text);
+        }
+
+        encode(statement, null, segment, offset);
+    }
+
+    /**
+     * @return Labels and their addresses
+     */
+    public Map<String, Integer> getSymbolTable() {
+        return this.symbolTable;
+    }
+
+    /**
+     * @return Size of the assembled program in bytes
+     */
+    public int getProgramSize() {
+        return this.programSize;
+    }
+
+    private static String stripComment(String line) {
+
+        int indexOfSemicolon = line.indexOf(';');
+
+        if(indexOfSemicolon >= 0) {
+            line = line.substring(0, indexOfSemicolon);
+        }
+
+        return line.trim();
+    }
+
+    private static Statement tokenize(String text, int lineNumber) {
+
+        // Data word
+        Integer value = Memory.tryParse(text);
+
+        if(value != null) {
+            return new Statement(lineNumber, value);
+        }
+
+        // Mnemonic is followed by comma separated arguments
+        int end = 0;
+        while(end < text.length() && !Character.isWhitespace(text.charAt(end))) {
+            end++;
+        }
+
+        String mnemonic = text.substring(0, end);
+        String rest = text.substring(end);
+
+        Operand operand;
+
+        try {
+            operand = Operand.valueOf(mnemonic.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new RuntimeException(String.format("Unknown operand %s on line %d", mnemonic, lineNumber));
+        }
+
+        String[] rawArguments = rest.trim().isEmpty() ? new String[0] : rest.split(",", -1);
+
+        if(rawArguments.length > EncodedInstruction.ARGUMENT_SLOTS) {
+            throw new RuntimeException(String.format("Too many arguments on line %d: %s", lineNumber, text));
+        }
+
+        return new Statement(lineNumber, operand, mnemonic, rawArguments);
+    }
+
+    private static void encode(Statement statement, Map<String, Integer> symbols, int[] segment, int offset) {
+
+        int header = EncodedInstruction.encodeOperand(statement.operand);
+
+        for(int slot = 0; slot < EncodedInstruction.ARGUMENT_SLOTS; slot++) {
+
+            segment[offset + 1 + slot] = 0;
+
+            if(slot >= statement.arguments.length) {
+                continue;
+            }
+
+            String argument = statement.arguments[slot];
+
+            if(argument.isEmpty()) {
+                throw new RuntimeException(
+                        String.format("Missing argument %d on line %d", slot + 1, statement.lineNumber));
+            }
+
+            Matcher matcher = registerPattern.matcher(argument);
+
+            if(matcher.matches()) {
+
+                String number = matcher.group(1);
+
+                // Encoding has room for more registers than the register file has
+                if(number.length() > 2 || Integer.parseInt(number) >= RegisterFile.REGISTER_COUNT) {
+                    throw new RuntimeException(String.format("Invalid register %s on line %d, there are only r0 to r%d",
+                            argument, statement.lineNumber, RegisterFile.REGISTER_COUNT - 1));
+                }
+
+                header |= EncodedInstruction.encodeRegister(slot, Integer.parseInt(number));
+                continue;
+            }
+
+            // Label or numeric immediate value
+            Integer immediate = symbols != null ? symbols.get(argument) : null;
+
+            if(immediate == null) {
+                immediate = Memory.tryParse(argument);
+            }
+
+            if(immediate == null) {
+                throw new RuntimeException(
+                        String.format("Unknown symbol %s on line %d", argument, statement.lineNumber));
+            }
+
+            header |= EncodedInstruction.encodeImmediate(slot);
+            segment[offset + 1 + slot] = immediate;
+        }
+
+        segment[offset] = header;
+    }
+
+    /**
+     * Instruction text with labels replaced by their addresses
+     */
+    private String getResolvedText(Statement statement) {
+
+        StringBuilder sb = new StringBuilder(statement.mnemonic);
+
+        for(int i = 0; i < statement.rawArguments.length; i++) {
+
+            if(i > 0) {
+                sb.append(',');
+            }
+
+            String rawArgument = statement.rawArguments[i];
+            Integer address = this.symbolTable.get(statement.arguments[i]);
+
+            if(address != null) {
+                rawArgument = rawArgument.replace(statement.arguments[i], "0x" + Integer.toHexString(address));
+            }
+
+            sb.append(rawArgument);
+        }
+
+        return sb.toString();
+    }
+}
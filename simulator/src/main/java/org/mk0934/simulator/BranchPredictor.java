@@ -7,6 +7,10 @@ import org.mk0934.simulator.instructions.BranchInstruction;
  */
 public interface BranchPredictor {
 
+    /**
+     * @param branchInstruction Branch to predict
+     * @return Prediction, only valid until the next call as predictors reuse the result
+     */
     BranchPredictorResult predictBranch(BranchInstruction branchInstruction);
     void updatePredictor(BranchInstruction branchInstruction, boolean wasTaken);
 }
@@ -0,0 +1,153 @@
+package org.mk0934.simulator;
+
+import org.mk0934.simulator.instructions.DecodedInstruction;
+
+/**
+ * Forwarding paths from execution units back to decode
+ *
+ * Execution units publish results of finished instructions, so a dependent
+ * instruction can be decoded before the producer is written back. Every path
+ * has its own latency, the number of cycles after execution the result reaches decode.
+ *
+ * @author Maciej Kumorek
+ */
+public class BypassNetwork {
+
+    /**
+     * Latency of each path indexed by ordinal, negative if the path is disabled
+     */
+    private final int[] latencies;
+
+    /**
+     * Instruction whose result is on the network, for each register
+     */
+    private final DecodedInstruction[] producers;
+
+    /**
+     * First cycle the result can be used in decode, for each register
+     */
+    private final int[] readyCycles;
+
+    public BypassNetwork(SimulatorConfig config, int registerCount) {
+
+        SimulatorConfig.BypassPath[] paths = SimulatorConfig.BypassPath.values();
+
+        this.latencies = new int[paths.length];
+
+        for(SimulatorConfig.BypassPath path : paths) {
+            this.latencies[path.ordinal()] = config.getBypassLatency(path);
+        }
+
+        this.producers = new DecodedInstruction[registerCount];
+        this.readyCycles = new int[registerCount];
+    }
+
+    /**
+     * Put results of an executed instruction on the network
+     * @param instruction Instruction that finished execution
+     * @param path Path from the unit that executed it
+     * @param cycle Current cycle
+     */
+    public void publish(DecodedInstruction instruction, SimulatorConfig.BypassPath path, int cycle) {
+
+        int latency = this.latencies[path.ordinal()];
+
+        if(latency < 0) {
+            return;
+        }
+
+        int mask = instruction.getDestinationRegisterMask();
+
+        while(mask != 0) {
+            int registerNumber = Integer.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+
+            this.producers[registerNumber] = instruction;
+            this.readyCycles[registerNumber] = cycle + latency;
+        }
+    }
+
+    /**
+     * Try to resolve hazards of a decoded instruction with forwarded results.
+     *
+     * Every register the instruction waits for has to be last written by
+     * an instruction whose result is on the network already. Source values
+     * are replaced by forwarded ones, so the instruction can be issued.
+     * @param instruction Instruction with a hazard
+     * @param scoreboard Registers with pending writes
+     * @param cycle Current cycle
+     * @return one of the producers if all hazards are resolved, null otherwise
+     */
+    public DecodedInstruction forward(DecodedInstruction instruction, Scoreboard scoreboard, int cycle) {
+
+        int blockedMask = scoreboard.getBlockedRegisterMask(instruction);
+        int mask = blockedMask;
+
+        while(mask != 0) {
+            int registerNumber = Integer.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+
+            DecodedInstruction producer = this.producers[registerNumber];
+
+            // Youngest writer has to be the one on the network
+            if(producer == null
+                    || producer != scoreboard.getPendingWriter(registerNumber)
+                    || this.readyCycles[registerNumber] > cycle) {
+                return null;
+            }
+        }
+
+        // Write after write needs no value, the producer writes back first
+        mask = blockedMask & instruction.getSourceRegisterMask();
+
+        while(mask != 0) {
+            int registerNumber = Integer.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+
+            int value = this.producers[registerNumber].getResult(registerNumber);
+
+            if(!instruction.forwardSourceValue(registerNumber, value)) {
+                return null;
+            }
+        }
+
+        return this.producers[Integer.numberOfTrailingZeros(blockedMask)];
+    }
+
+    /**
+     * @param cycle Current cycle
+     * @return Number of next cycles in which no result on the network becomes usable,
+     *         Integer.MAX_VALUE if all of them are usable already
+     */
+    public int getIdleCycles(int cycle) {
+
+        int idleCycles = Integer.MAX_VALUE;
+
+        for(int registerNumber = 0; registerNumber < this.producers.length; registerNumber++) {
+
+            if(this.producers[registerNumber] != null && this.readyCycles[registerNumber] > cycle) {
+                idleCycles = Math.min(idleCycles, this.readyCycles[registerNumber] - cycle - 1);
+            }
+        }
+
+        return idleCycles;
+    }
+
+    /**
+     * Remove results of an instruction that was written back
+     * @param instruction Instruction to remove
+     */
+    public void release(DecodedInstruction instruction) {
+
+        int mask = instruction.getDestinationRegisterMask();
+
+        while(mask != 0) {
+            int registerNumber = Integer.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+
+            if(this.producers[registerNumber] == instruction) {
+                this.producers[registerNumber] = null;
+            }
+        }
+    }
+}
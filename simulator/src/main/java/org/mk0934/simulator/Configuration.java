@@ -1,22 +1,75 @@
 package org.mk0934.simulator;
 
+import org.mk0934.simulator.cache.CacheConfig;
+import org.mk0934.simulator.cache.CacheLevel;
+import org.mk0934.simulator.cache.PrefetchConfig;
+import org.mk0934.simulator.cache.PrefetcherType;
+import org.mk0934.simulator.dram.DramConfig;
+import org.mk0934.simulator.instructions.Operand;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
 /**
  * Simulator configuration options
+ *
+ * Collects options, e.g. from the command line, and builds SimulatorConfig out of them.
  */
 public class Configuration {
 
+    private int aluUnits = 2;
+    private int multiplierUnits = 0;
+    private int memoryUnits = 2;
+    private int vectorUnits = 1;
+    private int fetchWidth = 2;
+    private int decodeWidth = 2;
+    private int issueWidth = -1;
+    private int commitWidth = 2;
+    private int fetchDepth = 1;
+    private int decodeDepth = 1;
+    private int fetchBufferSize = -1;
+    private int executeQueueCapacity = 16;
+    private int memoryOutstanding = -1;
+    private int storeBufferSize = 0;
+    private int storeBufferLatency = 1;
+    private SimulatorConfig.PredictorType predictorType = SimulatorConfig.PredictorType.DYNAMIC;
+    private boolean isVerbose = false;
+    private boolean isInteractive = false;
+    private String traceFile = null;
+    private int missRatioLineSize = 0;
+    private final int[] latencies = newOperandTable();
+    private final int[] initiationIntervals = newOperandTable();
+    private SimulatorConfig.CoreType coreType = SimulatorConfig.CoreType.IN_ORDER;
+    private int reorderBufferSize = 32;
+    private int reservationStationSize = 8;
+    private int physicalRegisterCount = 64;
+    private final int[] bypassLatencies = new int[SimulatorConfig.BypassPath.values().length];
+    private boolean isCycleSkipping = true;
+    private final CacheConfig[] caches = new CacheConfig[CacheLevel.values().length];
+    private PrefetchConfig prefetch = null;
+    private DramConfig dram = null;
+    private int memoryLatency = 100;
+
     public void parseConfigurationOption(String arg)
     {
         if(arg == null || arg.isEmpty()) {
             throw new IllegalArgumentException("arg");
         }
+
+        String value = arg.indexOf('=') >= 0 ? arg.substring(arg.indexOf('=') + 1) : "";
         arg = arg.toLowerCase();
 
         if(arg.equals("-v")) {
-            Globals.IsVerbose = true;
+            this.isVerbose = true;
         } else if(arg.equals("-i")) {
-            Globals.IsInteractive = true;
-            Globals.IsVerbose = true;
+            this.isInteractive = true;
+            this.isVerbose = true;
         } else if(arg.startsWith("-e")) {
             int executionUnitNumber = Integer.parseInt(arg.replace("-e", ""));
             if(executionUnitNumber != 1
@@ -27,23 +80,540 @@ public class Configuration {
                                 "Invalid option: %s. Execution unit number can be only 1, 2 or 4. Using 2 (default)",
                                 arg));
             } else {
-                Globals.execution_units_num = executionUnitNumber;
-                System.out.println(String.format("Using %d execution units", Globals.execution_units_num));
+                this.setExecutionUnits(executionUnitNumber);
+                System.out.println(String.format("Using %d execution units", executionUnitNumber));
             }
+        } else if(arg.startsWith("-fetchdepth=")) {
+            this.fetchDepth = Integer.parseInt(value.trim());
+        } else if(arg.startsWith("-decodedepth=")) {
+            this.decodeDepth = Integer.parseInt(value.trim());
+        } else if(arg.startsWith("-fetchbuffer=")) {
+            this.setFetchBufferSize(Integer.parseInt(value.trim()));
+        } else if(arg.startsWith("-machine=")) {
+            this.loadMachineDescription(value);
+            System.out.println(String.format("Using machine description %s", value));
+        } else if(arg.startsWith("-trace=")) {
+            this.traceFile = value;
+            System.out.println(String.format("Writing trace to %s", this.traceFile));
+        } else if(arg.equals("-missratios")) {
+            this.setMissRatioLineSize(64);
+        } else if(arg.startsWith("-missratios=")) {
+            this.setMissRatioLineSize(Integer.parseInt(value.trim()));
+        } else if(arg.equals("-ooo")) {
+            this.coreType = SimulatorConfig.CoreType.OUT_OF_ORDER;
+            System.out.println("Using out-of-order core");
+        } else if(arg.startsWith("-rob=")) {
+            this.reorderBufferSize = Integer.parseInt(value.trim());
+        } else if(arg.startsWith("-rs=")) {
+            this.reservationStationSize = Integer.parseInt(value.trim());
+        } else if(arg.startsWith("-prf=")) {
+            this.physicalRegisterCount = Integer.parseInt(value.trim());
+        } else if(arg.startsWith("-bypass=")) {
+            this.parseBypassLatencies(value.trim().toLowerCase());
+        } else if(arg.startsWith("-latency=")) {
+            parseOperandTable(value, this.latencies, 0);
+        } else if(arg.startsWith("-ii=")) {
+            parseOperandTable(value, this.initiationIntervals, 1);
+        } else if(arg.equals("-cache=on")) {
+            this.setCaches(true);
+            System.out.println("Using caches");
+        } else if(arg.equals("-cache=off")) {
+            this.setCaches(false);
+        } else if(arg.equals("-prefetch=off")) {
+            this.setPrefetch(null);
+        } else if(arg.startsWith("-prefetch=")) {
+            this.setPrefetch(PrefetchConfig.getDefault(PrefetcherType.valueOf(value.trim().toUpperCase())));
+            System.out.println(String.format("Using %s prefetcher", value.trim()));
+        } else if(arg.equals("-dram=on")) {
+            this.setDram(DramConfig.getDefault());
+            System.out.println("Using DRAM model");
+        } else if(arg.equals("-dram=off")) {
+            this.setDram(null);
+        } else if(arg.startsWith("-memlatency=")) {
+            this.memoryLatency = Integer.parseInt(value.trim());
+        } else if(arg.startsWith("-storebuffer=")) {
+            this.setStoreBufferSize(Integer.parseInt(value.trim()));
+        } else if(arg.equals("-skip=off")) {
+            this.isCycleSkipping = false;
+            System.out.println("Simulating every cycle");
         } else if(arg.startsWith("-predictor")) {
 
             if(arg.contains("static")) {
-                Globals.UseDynamicBranchPredictor = false;
-                Globals.UseStaticBranchPredictor = true;
+                this.predictorType = SimulatorConfig.PredictorType.STATIC;
             } else if(arg.contains("dynamic")) {
-                Globals.UseDynamicBranchPredictor = true;
+                this.predictorType = SimulatorConfig.PredictorType.DYNAMIC;
             } else if(arg.contains("naive")) {
-                Globals.UseDynamicBranchPredictor = false;
-                Globals.UseNaiveBranchPredictor = true;
+                this.predictorType = SimulatorConfig.PredictorType.NAIVE;
             }
         }
         else {
             System.out.println(String.format("Unknown parameter: %s", arg));
         }
     }
+
+    /**
+     * @return Configuration of a simulation with current options
+     */
+    public SimulatorConfig build() {
+        // By default every unit can start an instruction in each cycle
+        int issueWidth = this.issueWidth > 0
+                ? this.issueWidth
+                : this.aluUnits + this.multiplierUnits + this.memoryUnits + this.vectorUnits;
+
+        // By default there's room for one more instruction than decode takes,
+        // and for the instructions in every extra front-end stage
+        int fetchBufferSize = this.fetchBufferSize > 0
+                ? this.fetchBufferSize
+                : this.decodeWidth + 1 + this.fetchWidth * (this.fetchDepth + this.decodeDepth - 2);
+
+        // By default every instruction in the queue of a memory unit can be in flight
+        int memoryOutstanding = this.memoryOutstanding > 0
+                ? Math.min(this.memoryOutstanding, this.executeQueueCapacity)
+                : this.executeQueueCapacity;
+
+        return new SimulatorConfig(
+                this.aluUnits,
+                this.multiplierUnits,
+                this.memoryUnits,
+                this.vectorUnits,
+                this.fetchWidth,
+                this.decodeWidth,
+                issueWidth,
+                this.commitWidth,
+                this.fetchDepth,
+                this.decodeDepth,
+                fetchBufferSize,
+                this.executeQueueCapacity,
+                memoryOutstanding,
+                this.storeBufferSize,
+                this.storeBufferLatency,
+                this.predictorType,
+                this.isVerbose,
+                this.isInteractive,
+                this.traceFile,
+                this.missRatioLineSize,
+                this.latencies,
+                this.initiationIntervals,
+                this.coreType,
+                this.reorderBufferSize,
+                this.reservationStationSize,
+                this.physicalRegisterCount,
+                this.bypassLatencies,
+                this.isCycleSkipping,
+                this.caches,
+                this.prefetch,
+                this.dram,
+                this.memoryLatency);
+    }
+
+    /**
+     * Symmetric machine, with as many ALUs and memory units as instructions fetched,
+     * decoded and committed in each cycle
+     * @param executionUnits Number of units of each type and width of the pipeline
+     */
+    public void setExecutionUnits(int executionUnits) {
+        this.aluUnits = executionUnits;
+        this.memoryUnits = executionUnits;
+        this.fetchWidth = executionUnits;
+        this.decodeWidth = executionUnits;
+        this.issueWidth = -1;
+        this.commitWidth = executionUnits;
+    }
+
+    public void setAluUnits(int aluUnits) {
+        this.aluUnits = aluUnits;
+    }
+
+    /**
+     * @param multiplierUnits Number of units executing only MUL, 0 to execute it in the ALUs
+     */
+    public void setMultiplierUnits(int multiplierUnits) {
+        this.multiplierUnits = multiplierUnits;
+    }
+
+    public void setMemoryUnits(int memoryUnits) {
+        this.memoryUnits = memoryUnits;
+    }
+
+    public void setVectorUnits(int vectorUnits) {
+        this.vectorUnits = vectorUnits;
+    }
+
+    public void setFetchWidth(int fetchWidth) {
+        this.fetchWidth = fetchWidth;
+    }
+
+    public void setDecodeWidth(int decodeWidth) {
+        this.decodeWidth = decodeWidth;
+    }
+
+    /**
+     * @param issueWidth Most instructions sent to execution units in a cycle, negative for one per unit
+     */
+    public void setIssueWidth(int issueWidth) {
+        this.issueWidth = issueWidth <= 0 ? -1 : issueWidth;
+    }
+
+    public void setCommitWidth(int commitWidth) {
+        this.commitWidth = commitWidth;
+    }
+
+    public void setFetchDepth(int fetchDepth) {
+        this.fetchDepth = fetchDepth;
+    }
+
+    public void setDecodeDepth(int decodeDepth) {
+        this.decodeDepth = decodeDepth;
+    }
+
+    /**
+     * @param fetchBufferSize Instructions between fetch and the last decode stage, negative for the default
+     */
+    public void setFetchBufferSize(int fetchBufferSize) {
+        this.fetchBufferSize = fetchBufferSize <= 0 ? -1 : fetchBufferSize;
+    }
+
+    public void setExecuteQueueCapacity(int executeQueueCapacity) {
+        this.executeQueueCapacity = executeQueueCapacity;
+    }
+
+    /**
+     * @param memoryOutstanding Most accesses in flight in each memory unit, negative for the capacity of its queue
+     */
+    public void setMemoryOutstanding(int memoryOutstanding) {
+        this.memoryOutstanding = memoryOutstanding <= 0 ? -1 : memoryOutstanding;
+    }
+
+    /**
+     * @param storeBufferSize Stores waiting to drain to memory, 0 to write memory when stores commit
+     */
+    public void setStoreBufferSize(int storeBufferSize) {
+        this.storeBufferSize = storeBufferSize;
+    }
+
+    /**
+     * @param storeBufferLatency Cycles a store takes to write the store buffer, and a load to read it
+     */
+    public void setStoreBufferLatency(int storeBufferLatency) {
+        this.storeBufferLatency = storeBufferLatency;
+    }
+
+    public void setPredictorType(SimulatorConfig.PredictorType predictorType) {
+        this.predictorType = predictorType;
+    }
+
+    public void setVerbose(boolean isVerbose) {
+        this.isVerbose = isVerbose;
+    }
+
+    public void setInteractive(boolean isInteractive) {
+        this.isInteractive = isInteractive;
+    }
+
+    public void setTraceFile(String traceFile) {
+        this.traceFile = traceFile;
+    }
+
+    public void setCoreType(SimulatorConfig.CoreType coreType) {
+        this.coreType = coreType;
+    }
+
+    public void setReorderBufferSize(int reorderBufferSize) {
+        this.reorderBufferSize = reorderBufferSize;
+    }
+
+    public void setReservationStationSize(int reservationStationSize) {
+        this.reservationStationSize = reservationStationSize;
+    }
+
+    public void setPhysicalRegisterCount(int physicalRegisterCount) {
+        this.physicalRegisterCount = physicalRegisterCount;
+    }
+
+    public void setCycleSkipping(boolean isCycleSkipping) {
+        this.isCycleSkipping = isCycleSkipping;
+    }
+
+    /**
+     * @param isEnabled true for the default L1I, L1D and L2, false to access the memory with fixed latencies
+     */
+    public void setCaches(boolean isEnabled) {
+        for(CacheLevel level : CacheLevel.values()) {
+            this.caches[level.ordinal()] = isEnabled ? CacheConfig.getDefault(level) : null;
+        }
+    }
+
+    /**
+     * @param level Cache level
+     * @param config Configuration of the level, null to remove it
+     */
+    public void setCache(CacheLevel level, CacheConfig config) {
+        this.caches[level.ordinal()] = config;
+    }
+
+    /**
+     * @param prefetch Prefetcher of the data cache, null for none
+     */
+    public void setPrefetch(PrefetchConfig prefetch) {
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * @param missRatioLineSize Line size of the LRU miss ratio analysis of the data accesses, 0 to turn it off
+     */
+    public void setMissRatioLineSize(int missRatioLineSize) {
+        this.missRatioLineSize = missRatioLineSize;
+    }
+
+    /**
+     * @param dram DRAM behind the caches, null for a fixed memory latency
+     */
+    public void setDram(DramConfig dram) {
+        this.dram = dram;
+    }
+
+    /**
+     * @param memoryLatency Cycles of an access missing every cache
+     */
+    public void setMemoryLatency(int memoryLatency) {
+        this.memoryLatency = memoryLatency;
+    }
+
+    /**
+     * Override execution latency of an operand
+     * @param operand Operand to override
+     * @param latency Cycles spent in the execution unit, negative to use the default
+     */
+    public void setLatency(Operand operand, int latency) {
+        this.latencies[operand.ordinal()] = latency < 0 ? -1 : latency;
+    }
+
+    /**
+     * Pipeline an operand, so its execution unit can start another instruction before it finishes
+     * @param operand Operand to override
+     * @param initiationInterval Cycles until the unit can start another instruction, negative to use the latency
+     */
+    public void setInitiationInterval(Operand operand, int initiationInterval) {
+
+        if(initiationInterval == 0) {
+            throw new IllegalArgumentException("initiationInterval");
+        }
+
+        this.initiationIntervals[operand.ordinal()] = initiationInterval < 0 ? -1 : initiationInterval;
+    }
+
+    /**
+     * Set latency of a forwarding path
+     * @param path Path to set
+     * @param latency Cycles after execution the result reaches decode, negative to disable the path
+     */
+    public void setBypassLatency(SimulatorConfig.BypassPath path, int latency) {
+        this.bypassLatencies[path.ordinal()] = latency < 0 ? -1 : latency;
+    }
+
+    /**
+     * Read functional units and pipeline widths from a machine description file
+     * @param file Properties file, see applyMachineDescription
+     */
+    public void loadMachineDescription(String file) {
+
+        Properties properties = new Properties();
+
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        } catch (IOException ex) {
+            throw new RuntimeException("Error reading machine description " + file, ex);
+        }
+
+        this.applyMachineDescription(properties);
+    }
+
+    /**
+     * Set functional units and pipeline widths from a machine description, e.g.
+     * alu.units=3, mul.units=1, memory.units=2, vector.units=1,
+     * fetch.width=4, decode.width=3, issue.width=3, commit.width=4,
+     * fetch.depth=2, decode.depth=2, fetch.buffer=16.
+     * Caches take l1i, l1d or l2 followed by size, ways, line, policy, writeback, writeallocate
+     * latency or mshrs, e.g. l2.size=1048576, l1d.policy=plru. Any key of a level adds the level
+     * with default parameters first. memory.latency=200 sets latency of the memory behind them,
+     * memory.outstanding=4 the most accesses in flight in each memory unit.
+     * prefetch.type=stride or stream adds a prefetcher to the data cache, prefetch.degree,
+     * prefetch.distance and prefetch.table tune it, prefetch.type=off removes it.
+     * Keys starting with dram. put DRAM with default parameters behind the caches and change them,
+     * dram.channels, dram.banks, dram.row, dram.policy, dram.controller, dram.trcd, dram.tcas, dram.trp
+     * and dram.burst, dram.policy=off removes it.
+     * Missing keys keep their current values.
+     * @param properties Machine description
+     */
+    public void applyMachineDescription(Properties properties) {
+
+        // Parameters of a level are checked together, keys come in any order
+        Map<CacheLevel, Map<String, String>> cacheParameters = new EnumMap<>(CacheLevel.class);
+        Map<String, String> prefetchParameters = new HashMap<>();
+        Map<String, String> dramParameters = new HashMap<>();
+
+        for(String key : properties.stringPropertyNames()) {
+
+            String text = properties.getProperty(key).trim();
+            int indexOfDot = key.indexOf('.');
+            CacheLevel level = indexOfDot > 0 ? findCacheLevel(key.substring(0, indexOfDot)) : null;
+
+            if(level != null) {
+
+                if(!cacheParameters.containsKey(level)) {
+                    cacheParameters.put(level, new HashMap<String, String>());
+                }
+
+                cacheParameters.get(level).put(key.substring(indexOfDot + 1), text);
+                continue;
+            }
+
+            if(key.startsWith("prefetch.")) {
+                prefetchParameters.put(key.substring(indexOfDot + 1), text);
+                continue;
+            }
+
+            if(key.startsWith("dram.")) {
+                dramParameters.put(key.substring(indexOfDot + 1), text);
+                continue;
+            }
+
+            int value = Integer.parseInt(text);
+
+            if(key.equals("alu.units")) {
+                this.setAluUnits(value);
+            } else if(key.equals("mul.units")) {
+                this.setMultiplierUnits(value);
+            } else if(key.equals("memory.units")) {
+                this.setMemoryUnits(value);
+            } else if(key.equals("vector.units")) {
+                this.setVectorUnits(value);
+            } else if(key.equals("fetch.width")) {
+                this.setFetchWidth(value);
+            } else if(key.equals("decode.width")) {
+                this.setDecodeWidth(value);
+            } else if(key.equals("issue.width")) {
+                this.setIssueWidth(value);
+            } else if(key.equals("commit.width")) {
+                this.setCommitWidth(value);
+            } else if(key.equals("fetch.depth")) {
+                this.setFetchDepth(value);
+            } else if(key.equals("decode.depth")) {
+                this.setDecodeDepth(value);
+            } else if(key.equals("fetch.buffer")) {
+                this.setFetchBufferSize(value);
+            } else if(key.equals("memory.outstanding")) {
+                this.setMemoryOutstanding(value);
+            } else if(key.equals("store.buffer")) {
+                this.setStoreBufferSize(value);
+            } else if(key.equals("store.buffer.latency")) {
+                this.setStoreBufferLatency(value);
+            } else if(key.equals("memory.latency")) {
+                this.setMemoryLatency(value);
+            } else {
+                throw new IllegalArgumentException("Unknown machine description key: " + key);
+            }
+        }
+
+        for(Map.Entry<CacheLevel, Map<String, String>> entry : cacheParameters.entrySet()) {
+
+            CacheConfig config = this.caches[entry.getKey().ordinal()];
+
+            if(config == null) {
+                config = CacheConfig.getDefault(entry.getKey());
+            }
+
+            this.caches[entry.getKey().ordinal()] = config.withParameters(entry.getValue());
+        }
+
+        if("off".equalsIgnoreCase(prefetchParameters.get("type"))) {
+            this.prefetch = null;
+        } else if(!prefetchParameters.isEmpty()) {
+
+            PrefetchConfig config = this.prefetch != null
+                    ? this.prefetch
+                    : PrefetchConfig.getDefault(PrefetcherType.STRIDE);
+
+            this.prefetch = config.withParameters(prefetchParameters);
+        }
+
+        if("off".equalsIgnoreCase(dramParameters.get("policy"))) {
+            this.dram = null;
+        } else if(!dramParameters.isEmpty()) {
+            this.dram = (this.dram != null ? this.dram : DramConfig.getDefault()).withParameters(dramParameters);
+        }
+    }
+
+    /**
+     * @return Level with the lower case name, null if there is none
+     */
+    private static CacheLevel findCacheLevel(String name) {
+
+        for(CacheLevel level : CacheLevel.values()) {
+            if(level.name().toLowerCase().equals(name)) {
+                return level;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Parse forwarding paths, either "off" or comma separated path:latency pairs, e.g. alu:0,memory:off
+     */
+    private void parseBypassLatencies(String value) {
+
+        if(value.equals("off")) {
+            Arrays.fill(this.bypassLatencies, -1);
+            System.out.println("Forwarding disabled");
+            return;
+        }
+
+        for(String pair : value.split(",")) {
+
+            int indexOfColon = pair.indexOf(':');
+
+            if(indexOfColon < 0) {
+                throw new IllegalArgumentException("Invalid forwarding path: " + pair);
+            }
+
+            SimulatorConfig.BypassPath path =
+                    SimulatorConfig.BypassPath.valueOf(pair.substring(0, indexOfColon).trim().toUpperCase());
+            String latency = pair.substring(indexOfColon + 1).trim();
+
+            this.setBypassLatency(path, latency.equals("off") ? -1 : Integer.parseInt(latency));
+        }
+    }
+
+    /**
+     * Parse comma separated operand:value pairs, e.g. mul:3,ldm:2
+     */
+    private static void parseOperandTable(String value, int[] table, int minimum) {
+
+        for(String pair : value.split(",")) {
+
+            int indexOfColon = pair.indexOf(':');
+
+            if(indexOfColon < 0) {
+                throw new IllegalArgumentException("Invalid operand value: " + pair);
+            }
+
+            Operand operand = Operand.valueOf(pair.substring(0, indexOfColon).trim().toUpperCase());
+            int operandValue = Integer.parseInt(pair.substring(indexOfColon + 1).trim());
+
+            if(operandValue < minimum) {
+                throw new IllegalArgumentException(String.format("Value of %s has to be at least %d", operand, minimum));
+            }
+
+            table[operand.ordinal()] = operandValue;
+        }
+    }
+
+    private static int[] newOperandTable() {
+
+        int[] table = new int[Operand.values().length];
+        Arrays.fill(table, -1);
+
+        return table;
+    }
 }
@@ -0,0 +1,136 @@
+package org.mk0934.simulator;
+
+import org.mk0934.simulator.instructions.EncodedInstruction;
+
+/**
+ * Fetched instructions on their way to decode
+ *
+ * Covers every front-end stage, so instructions stay in the buffer while they go through
+ * the extra fetch and decode stages. Each one remembers the cycle it reaches the last decode stage in,
+ * a redirect clears the buffer and instructions from the new address go through all the stages again.
+ *
+ * @author Maciej Kumorek
+ */
+public class FetchBuffer {
+
+    private final EncodedInstruction[] instructions;
+
+    /**
+     * First cycle each instruction can be decoded in
+     */
+    private final int[] readyCycles;
+
+    /**
+     * Index of the first instruction
+     */
+    private int head;
+
+    /**
+     * Number of instructions in the buffer
+     */
+    private int size;
+
+    public FetchBuffer(int capacity) {
+
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("capacity");
+        }
+
+        this.instructions = new EncodedInstruction[capacity];
+        this.readyCycles = new int[capacity];
+    }
+
+    /**
+     * Add fetched instruction to the end of the buffer
+     * @param instruction Fetched instruction
+     * @param readyCycle First cycle it can be decoded in
+     */
+    public void addLast(EncodedInstruction instruction, int readyCycle) {
+
+        if(this.isFull()) {
+            throw new IllegalStateException("Buffer is full");
+        }
+
+        int index = (this.head + this.size) % this.instructions.length;
+
+        this.instructions[index] = instruction;
+        this.readyCycles[index] = readyCycle;
+        this.size++;
+    }
+
+    /**
+     * @return First instruction, null if the buffer is empty
+     */
+    public EncodedInstruction peek() {
+        return this.size == 0 ? null : this.instructions[this.head];
+    }
+
+    /**
+     * @param cycle Current cycle
+     * @return true if the first instruction went through the front end and can be decoded
+     */
+    public boolean isReady(int cycle) {
+        return this.size > 0 && this.readyCycles[this.head] <= cycle;
+    }
+
+    /**
+     * Remove first instruction from the buffer
+     * @return removed instruction
+     */
+    public EncodedInstruction removeFirst() {
+
+        if(this.size == 0) {
+            throw new IllegalStateException("Buffer is empty");
+        }
+
+        EncodedInstruction instruction = this.instructions[this.head];
+
+        this.instructions[this.head] = null;
+        this.head = (this.head + 1) % this.instructions.length;
+        this.size--;
+
+        return instruction;
+    }
+
+    /**
+     * Remove all instructions, e.g. fetched from a mispredicted path
+     */
+    public void clear() {
+
+        while(this.size > 0) {
+            this.removeFirst();
+        }
+
+        this.head = 0;
+    }
+
+    /**
+     * @param cycle Current cycle
+     * @return Number of next cycles in which the first instruction is still in the front end,
+     *         Integer.MAX_VALUE if it can be decoded already or the buffer is empty
+     */
+    public int getIdleCycles(int cycle) {
+
+        if(this.size == 0 || this.readyCycles[this.head] <= cycle) {
+            return Integer.MAX_VALUE;
+        }
+
+        return this.readyCycles[this.head] - cycle - 1;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public boolean isFull() {
+        return this.size == this.instructions.length;
+    }
+
+    public int getCapacity() {
+        return this.instructions.length;
+    }
+}
@@ -39,7 +39,7 @@ public class Main {
             return;
         }
         // Initialize the simulator
-        Simulator simulator = new Simulator();
+        Simulator simulator = new Simulator(configuration.build());
 
         // Run the simulation
         simulator.run(program);
@@ -1,12 +1,8 @@
 package org.mk0934.simulator;
 
-import org.mk0934.simulator.instructions.BranchInstruction;
 import org.mk0934.simulator.instructions.EncodedInstruction;
-import org.mk0934.simulator.instructions.Instruction;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Set;
 
 /**
  * Created by Maciej Kumorek on 10/24/2014.
@@ -14,97 +10,212 @@ import java.util.Set;
 public class Memory {
 
     /**
-     * Values stored in memory, four bytes long
+     * Data memory is split into pages of this many words, allocated on first write.
+     * Word index is split into directory, table and page offset bits, 10 bits each
      */
-    private ArrayList<Object> values;
+    public static final int PAGE_WORDS = 1024;
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_MASK = PAGE_WORDS - 1;
+
+    /**
+     * Page directory, each entry is a table of pages. Words are four bytes long
+     */
+    private final int[][][] pageDirectory;
+
+    /**
+     * Number of pages allocated so far
+     */
+    private int pageCount;
+
+    /**
+     * Number of words up to the highest one written
+     */
+    private int wordCount;
+
+    /**
+     * Instruction segment, loaded instructions indexed by address
+     */
+    private EncodedInstruction[] instructions;
 
     private HashMap<String, Integer> labelsAddressMap;
 
     public Memory() {
-        this.values = new ArrayList<Object>();
+        this.pageDirectory = new int[PAGE_WORDS][][];
+        this.instructions = new EncodedInstruction[0];
     }
 
     private int addressToIndex(int address) {
         return address / 4;
     }
-    public <T> void saveToMemory(T value, int address) {
 
-        int index = addressToIndex(address);
+    /**
+     * Load a word from the data memory
+     * @param address Address to load from
+     * @return value stored at the address, zero if nothing was stored
+     */
+    public int loadWord(int address) {
 
-        if(index >= values.size()) {
-            values.add(index, value);
-        } else {
-            values.set(index, value);
-        }
-    }
+        int index = address >>> 2;
 
-    public Object getFromMemory(int address) {
+        int[][] table = this.pageDirectory[index >>> (2 * PAGE_BITS)];
 
-        int index = addressToIndex(address);
+        if(table == null) {
+            return 0x0;
+        }
+
+        int[] page = table[(index >>> PAGE_BITS) & PAGE_MASK];
 
-        if(values.size() <= index) {
+        if(page == null) {
             return 0x0;
         }
 
-        return values.get(index);
+        return page[index & PAGE_MASK];
     }
 
-    public void LoadProgram(Program program) {
+    /**
+     * Store a word in the data memory
+     * @param address Address to store at
+     * @param value Value to store
+     */
+    public void storeWord(int address, int value) {
 
-        int address = 0x0;
+        int index = address >>> 2;
 
-        // Store labels and addresses
-        labelsAddressMap = new HashMap<String, Integer>();
+        int[][] table = this.pageDirectory[index >>> (2 * PAGE_BITS)];
 
+        if(table == null) {
+            table = new int[PAGE_WORDS][];
+            this.pageDirectory[index >>> (2 * PAGE_BITS)] = table;
+        }
 
-        // Load instructions
-        for(Instruction instruction : program.getInstructionList()) {
+        int[] page = table[(index >>> PAGE_BITS) & PAGE_MASK];
 
-            // Check if it isn't just memory
-            Integer value = tryParse(instruction.getEncodedInstruction());
+        if(page == null) {
+            // First touch of the page
+            page = new int[PAGE_WORDS];
+            table[(index >>> PAGE_BITS) & PAGE_MASK] = page;
+            this.pageCount++;
+        }
 
-            if(value == null) {
-                this.saveToMemory(instruction, address);
-            }
-            else {
-                this.saveToMemory(value, address);
-            }
+        if(index >= this.wordCount) {
+            this.wordCount = index + 1;
+        }
 
-            // Add label if any
-            if(instruction.getLabel() != null) {
-                labelsAddressMap.put(instruction.getLabel(), address);
-            }
+        page[index & PAGE_MASK] = value;
+    }
+
+    /**
+     * Check if there is anything stored at the address
+     * @param address Address to check
+     * @return true if address holds an instruction or belongs to an allocated page
+     */
+    public boolean isMapped(int address) {
 
-            address += 0x4;
+        if(this.getInstruction(address) != null) {
+            return true;
         }
 
-        // All labels
-        Set<String> labels = labelsAddressMap.keySet();
+        int index = address >>> 2;
+        int[][] table = this.pageDirectory[index >>> (2 * PAGE_BITS)];
 
-        // Resolve labels
-        for(int i = 0; i < address; i += 0x4) {
-            Object memoryValue = this.getFromMemory(i);
-            if(memoryValue instanceof EncodedInstruction) {
+        return table != null && table[(index >>> PAGE_BITS) & PAGE_MASK] != null;
+    }
 
-                EncodedInstruction instruction = (EncodedInstruction) memoryValue;
+    /**
+     * Find the first address that isn't in a gap of the sparse memory
+     * @param address Address to start looking from
+     * @return first mapped address not lower than address, or max address if there is none
+     */
+    public int nextMappedAddress(int address) {
 
-                for (String label : labels) {
+        int maxAddress = this.getMaxAddress();
 
-                    // Ignore empty string
-                    if(label.equalsIgnoreCase("")) {
-                        continue;
-                    }
+        while(address >= 0 && address < maxAddress && !this.isMapped(address)) {
+            // Skip to the start of the next page
+            address = ((address >>> (PAGE_BITS + 2)) + 1) << (PAGE_BITS + 2);
+        }
 
-                    if (instruction.getEncodedInstruction().contains(label)) {
-                        instruction.replaceLabelWithAddress(label, labelsAddressMap.get(label));
-                    }
-                }
-            }
+        if(address < 0) {
+            return maxAddress;
         }
+
+        return Math.min(address, maxAddress);
+    }
+
+    /**
+     * @return Number of data memory pages allocated
+     */
+    public int getPageCount() {
+        return this.pageCount;
+    }
+
+    public void saveToMemory(int value, int address) {
+        this.storeWord(address, value);
+    }
+
+    /**
+     * Get whatever is stored at the address, an instruction or a data word
+     * @param address Address to look at
+     * @return instruction or boxed data word
+     */
+    public Object getFromMemory(int address) {
+
+        EncodedInstruction instruction = this.getInstruction(address);
+
+        if(instruction != null) {
+            return instruction;
+        }
+
+        return this.loadWord(address);
+    }
+
+    /**
+     * Get instruction from the instruction segment
+     * @param address Address of the instruction
+     * @return instruction or null if there is no instruction at the address
+     */
+    public EncodedInstruction getInstruction(int address) {
+
+        int index = addressToIndex(address);
+
+        if(index < 0 || index >= this.instructions.length) {
+            return null;
+        }
+
+        return this.instructions[index];
+    }
+
+    /**
+     * Assemble the program and load it into memory
+     * @param program Program to load
+     */
+    public void LoadProgram(Program program) {
+
+        // First pass builds the symbol table
+        Assembler assembler = new Assembler(program);
+
+        // Second pass emits instructions and data
+        assembler.assemble(this);
+    }
+
+    /**
+     * Load the instruction segment, called by the assembler
+     * @param instructions Instructions indexed by address, each decodes from its own binary encoding
+     * @param labelsAddressMap Labels and their addresses
+     */
+    void loadInstructions(EncodedInstruction[] instructions, HashMap<String, Integer> labelsAddressMap) {
+
+        this.instructions = instructions;
+        this.labelsAddressMap = labelsAddressMap;
     }
 
     public static Integer tryParse(String text) {
 
+        // Don't bother with exceptions for what can't be a number
+        if(text.isEmpty() || !(Character.isDigit(text.charAt(0)) || text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            return null;
+        }
+
         try {
             if(text.startsWith("0x")) {
                 text = text.replace("0x", "\0").trim();
@@ -118,7 +229,11 @@ public class Memory {
     }
 
     public int getMaxAddress() {
-        return this.values.size() * 4;
+
+        long maxAddress = (long) Math.max(this.wordCount, this.instructions.length) * 4;
+
+        // Addresses that don't fit signed int are not reported
+        return (int) Math.min(maxAddress, Integer.MAX_VALUE);
     }
 
     public String addressToLabel(int addressToJump) {
@@ -133,23 +248,4 @@ public class Memory {
             return Integer.toHexString(addressToJump);
         }
     }
-
-    public int getInstructionAddress(BranchInstruction branchInstruction) {
-
-        for(int i = 0; i < values.size(); i++) {
-            Object val = values.get(i);
-
-            if(!(val instanceof Instruction)) {
-                continue;
-            }
-
-            EncodedInstruction instruction = (EncodedInstruction)val;
-
-            if(instruction.equals(branchInstruction.getEncodedInstruction())) {
-                return i * 4;
-            }
-        }
-
-        return 0;
-    }
 }
@@ -1,11 +1,19 @@
 package org.mk0934.simulator;
 
+import org.mk0934.simulator.cache.Cache;
+import org.mk0934.simulator.cache.CacheLevel;
+import org.mk0934.simulator.cache.MemoryHierarchy;
+import org.mk0934.simulator.cache.StackDistanceProfiler;
+import org.mk0934.simulator.dram.DramController;
 import org.mk0934.simulator.instructions.*;
+import org.mk0934.simulator.ooo.OutOfOrderEngine;
+import org.mk0934.simulator.trace.TraceEvent;
+import org.mk0934.simulator.trace.TraceStage;
+import org.mk0934.simulator.trace.Tracer;
 import org.mk0934.simulator.units.*;
 
 import javax.swing.*;
-import java.util.LinkedList;
-import java.util.List;
+import java.io.IOException;
 import java.util.Scanner;
 
 /**
@@ -13,16 +21,36 @@ import java.util.Scanner;
  */
 public class Processor {
 
+    /**
+     * Machine parameters
+     */
+    private final SimulatorConfig config;
+
     /**
      * Register file in the processor
      */
     private RegisterFile registerFile;
 
+    /**
+     * Registers with pending writes
+     */
+    private final Scoreboard scoreboard;
+
+    /**
+     * Results forwarded from execution units to decode
+     */
+    private final BypassNetwork bypassNetwork;
+
     /**
      * Main memory bus
      */
     private final Memory mainMemory;
 
+    /**
+     * Pipeline events
+     */
+    private final Tracer tracer;
+
     /**
      * Program counter
      */
@@ -33,17 +61,30 @@ public class Processor {
      */
     private boolean isRunning;
 
+    /**
+     * Flag indicating if the simulation waits for user commands
+     */
+    private boolean isInteractive;
+
     /**
      * Buffers
      */
-    private LinkedList<AluInstruction> aluInstructionsToExecute[];
-    private LinkedList<MemoryInstruction> memoryInstructionsToExecute[];
+    private RingBuffer<AluInstruction> aluInstructionsToExecute[];
+    private RingBuffer<MemoryInstruction> memoryInstructionsToExecute[];
+
+    private final FetchBuffer instructionsToDecode;
+    private RingBuffer<DecodedInstruction> instructionsToWriteBack;
 
-    private LinkedList<EncodedInstruction> instructionsToDecode;
-    private LinkedList<DecodedInstruction> instructionsToWriteBack;
+    /**
+     * Decoded instructions waiting for a free unit of their class, in program order
+     */
+    private final RingBuffer<AluInstruction> aluIssueQueue;
+    private final RingBuffer<AluInstruction> multiplierIssueQueue;
+    private final RingBuffer<MemoryInstruction> memoryIssueQueue;
+    private final RingBuffer<VectorInstruction> vectorIssueQueue;
 
     /**
-     * ALU Execution units
+     * ALU Execution units, followed by multiplier units
      */
     private AluExecutionUnit executionUnits[];
 
@@ -58,25 +99,65 @@ public class Processor {
     private BranchExecutionUnit branchExecutionUnit;
 
     /**
-     * Vector execution unit
+     * Vector execution units
      */
-    private VectorExecutionUnit vectorExecutionUnit;
+    private final VectorExecutionUnit vectorExecutionUnits[];
 
     /**
      * Write-back unit
      */
     private WriteBackUnit writebackUnit;
 
+    /**
+     * Out-of-order core, null if instructions are issued in order
+     */
+    private final OutOfOrderEngine outOfOrderEngine;
+
+    /**
+     * Sequence number of the next decoded instruction
+     */
+    private long nextSequenceNumber;
+
     /**
      * No instructions executed
      */
     private int instructionExecutedCount;
 
+    /**
+     * Caches in front of the memory, null if memory has fixed latencies
+     */
+    private final MemoryHierarchy memoryHierarchy;
+
+    /**
+     * Stack distances of the data accesses, null if miss ratios aren't analysed
+     */
+    private final StackDistanceProfiler stackDistanceProfiler;
+
+    /**
+     * Stores waiting to drain to memory, null if stores write memory when they commit
+     */
+    private final StoreBuffer storeBuffer;
+
+    /**
+     * Line of the last instruction fetched, fetching from the same line doesn't access the cache again
+     */
+    private int lastFetchedLine = -1;
+
+    /**
+     * Cycle fetch continues in after an instruction cache miss
+     */
+    private int fetchResumeCycle;
+
     /**
      * No cycles
      */
     private int cycles = 0;
 
+    /**
+     * Last cycle a stage changed state in, counting latency of busy units doesn't count
+     */
+    private int lastActiveCycle;
+
     /* Branch stats */
     private int branchesTakenNotPredicted = 0;
     private int predictedBranches = 0;
@@ -84,57 +165,145 @@ public class Processor {
     private int missedBranches = 0;
 
     /**
-     * Creates new processor
+     * Creates new processor with default configuration
      */
     public Processor(Memory memory) {
+        this(memory, new Configuration().build());
+    }
+
+    /**
+     * Creates new processor
+     */
+    public Processor(Memory memory, SimulatorConfig config) {
 
+        this.config = config;
+        this.isInteractive = config.isInteractive();
         this.mainMemory = memory;
+        this.tracer = new Tracer(memory);
         this.pc.setValue(0x0);
+
+        if(config.isVerbose()) {
+            this.tracer.setTextOutput(System.out);
+        }
+
+        if(config.getTraceFile() != null) {
+            try {
+                this.tracer.openBinaryOutput(config.getTraceFile());
+            } catch (IOException ex) {
+                throw new RuntimeException("Error opening trace file " + config.getTraceFile(), ex);
+            }
+        }
         this.registerFile = new RegisterFile();
+        this.scoreboard = new Scoreboard(this.registerFile.getCount());
+        this.bypassNetwork = new BypassNetwork(config, this.registerFile.getCount());
+        this.stackDistanceProfiler = config.getMissRatioLineSize() > 0
+                ? new StackDistanceProfiler(config.getMissRatioLineSize())
+                : null;
+        this.memoryHierarchy = config.hasCaches()
+                ? new MemoryHierarchy(config.getCacheConfigs(),
+                        config.getMemoryLatency(),
+                        config.getPrefetchConfig(),
+                        config.getDramConfig())
+                : null;
+        this.storeBuffer = config.hasStoreBuffer()
+                ? new StoreBuffer(config.getStoreBufferSize(), memory, this.memoryHierarchy)
+                : null;
+
+        int aluUnitCount = config.getExecutionUnits() + config.getMultiplierUnits();
 
         // Buffers
-        this.aluInstructionsToExecute = new LinkedList[Globals.execution_units_num];
-        this.memoryInstructionsToExecute = new LinkedList[Globals.execution_units_num];
-        this.instructionsToDecode = new LinkedList<>();
-        this.instructionsToWriteBack = new LinkedList<>();
-        this.vectorExecutionUnit = new VectorExecutionUnit(this);
+        this.aluInstructionsToExecute = new RingBuffer[aluUnitCount];
+        this.memoryInstructionsToExecute = new RingBuffer[config.getMemoryUnits()];
 
-        // Initialize execution units
-        this.executionUnits = new AluExecutionUnit[Globals.execution_units_num];
-        this.writebackUnit = new WriteBackUnit(this.instructionsToWriteBack, this, 0);
-        this.memoryExecutionUnits = new MemoryExecutionUnit[Globals.execution_units_num];
+        // Instructions in every front-end stage
+        this.instructionsToDecode = new FetchBuffer(config.getFetchBufferSize());
+
+        // Every unit can finish in the same cycle
+        this.instructionsToWriteBack = new RingBuffer<>(
+                aluUnitCount + config.getMemoryUnits() + config.getVectorUnits());
 
-        for(int id = 0; id < Globals.execution_units_num; id++) {
+        // Shared by all units of a class
+        this.aluIssueQueue = new RingBuffer<>(config.getExecuteQueueCapacity());
+        this.multiplierIssueQueue = new RingBuffer<>(config.getExecuteQueueCapacity());
+        this.memoryIssueQueue = new RingBuffer<>(config.getExecuteQueueCapacity());
+        this.vectorIssueQueue = new RingBuffer<>(config.getExecuteQueueCapacity());
 
-            this.aluInstructionsToExecute[id] = new LinkedList<>();
-            this.memoryInstructionsToExecute[id] = new LinkedList<>();
+        // Initialize execution units
+        this.executionUnits = new AluExecutionUnit[aluUnitCount];
+        this.writebackUnit = new WriteBackUnit(this.instructionsToWriteBack, this, 0);
+        this.memoryExecutionUnits = new MemoryExecutionUnit[config.getMemoryUnits()];
+        this.vectorExecutionUnits = new VectorExecutionUnit[config.getVectorUnits()];
 
+        for(int id = 0; id < aluUnitCount; id++) {
+            this.aluInstructionsToExecute[id] = new RingBuffer<>(config.getExecuteQueueCapacity());
             this.executionUnits[id] = new AluExecutionUnit(this, id);
+        }
+
+        for(int id = 0; id < config.getMemoryUnits(); id++) {
+            this.memoryInstructionsToExecute[id] = new RingBuffer<>(config.getExecuteQueueCapacity());
             this.memoryExecutionUnits[id] = new MemoryExecutionUnit(this, id);
         }
 
+        for(int id = 0; id < config.getVectorUnits(); id++) {
+            this.vectorExecutionUnits[id] = new VectorExecutionUnit(this, id);
+        }
+
         BranchPredictor predictor = null;
 
-        if(Globals.UseDynamicBranchPredictor) {
-            System.out.println("Using dynamic branch predictor");
+        if(config.getPredictorType() == SimulatorConfig.PredictorType.DYNAMIC) {
             predictor = new SaturatingCounterBranchPredictor(this);
-        } else if(Globals.UseStaticBranchPredictor) {
-            System.out.println("Using static branch predictor (always backwards, never forwards)");
+        } else if(config.getPredictorType() == SimulatorConfig.PredictorType.STATIC) {
             predictor = new TakeBackwardsBranchPredictor(this);
-        } else if(Globals.UseNaiveBranchPredictor) {
-            System.out.println("Using static branch predictor (always true)");
+        } else if(config.getPredictorType() == SimulatorConfig.PredictorType.NAIVE) {
             predictor = new AlwaysTrueBranchPredictor(this);
         }
 
         // Initialize branch unit
         this.branchExecutionUnit = new BranchExecutionUnit(this, predictor);
+
+        if(config.getCoreType() == SimulatorConfig.CoreType.OUT_OF_ORDER) {
+            this.outOfOrderEngine = new OutOfOrderEngine(this, predictor);
+        } else {
+            this.outOfOrderEngine = null;
+        }
     }
 
     /**
-     * Run the processor simulation
+     * Run the processor simulation, printing the results
      */
     public void run() {
 
+        if(this.config.getPredictorType() == SimulatorConfig.PredictorType.DYNAMIC) {
+            System.out.println("Using dynamic branch predictor");
+        } else if(this.config.getPredictorType() == SimulatorConfig.PredictorType.STATIC) {
+            System.out.println("Using static branch predictor (always backwards, never forwards)");
+        } else if(this.config.getPredictorType() == SimulatorConfig.PredictorType.NAIVE) {
+            System.out.println("Using static branch predictor (always true)");
+        }
+
+        this.simulate();
+
+        printStatistics();
+
+    }
+
+    /**
+     * Run the processor simulation without printing anything
+     * @return statistics of the finished simulation
+     */
+    public Statistics simulate() {
+
+        try {
+            this.runCycles();
+        } finally {
+            this.tracer.close();
+        }
+
+        return this.getStatistics();
+    }
+
+    private void runCycles() {
+
         int cycleToJumpTo = -1;
 
         this.isRunning = true;
@@ -146,34 +315,55 @@ public class Processor {
             // Increment cycles
             cycles++;
 
-            if (Globals.IsInteractive) {
+            if (this.isInteractive) {
+                this.tracer.flush();
                 cycleToJumpTo = ProcessInteractiveInput(cycleToJumpTo);
             }
 
-            Utilities.log("Cycle #" + cycles);
+            this.tracer.setCycle(cycles);
+            this.tracer.trace(TraceStage.NONE, Tracer.NO_UNIT, TraceEvent.CYCLE);
 
             // Write-back
-            writebackUnit.writeBack();
+            if(this.outOfOrderEngine != null) {
+                this.outOfOrderEngine.complete();
+                this.outOfOrderEngine.commit();
+            } else {
+                writebackUnit.writeBack();
+            }
+
+            if(this.storeBuffer != null) {
+                this.drainStoreBuffer();
+            }
 
             // Execute ALU
-            for (int i = 0; i < Globals.execution_units_num; i++) {
+            for (int i = 0; i < executionUnits.length; i++) {
                 executionUnits[i].execute();
             }
 
             // Execute memory execution unit
-            for (int i = 0; i < Globals.execution_units_num; i++) {
+            for (int i = 0; i < memoryExecutionUnits.length; i++) {
                 memoryExecutionUnits[i].execute();
             }
 
-            this.vectorExecutionUnit.execute();
+            for (int i = 0; i < vectorExecutionUnits.length; i++) {
+                vectorExecutionUnits[i].execute();
+            }
 
             // Decode
-            boolean decodedPrevious = true;
-            for (int i = 0; i < Globals.execution_units_num; i++) {
-                if(decodedPrevious) {
-                    // Try decoding next one
-                    decodedPrevious = this.decode(i);
+            if(this.outOfOrderEngine != null) {
+                this.outOfOrderEngine.issue();
+                this.outOfOrderEngine.dispatch();
+            } else {
+                boolean decodedPrevious = true;
+                for (int i = 0; i < this.config.getDecodeWidth(); i++) {
+                    if(decodedPrevious) {
+                        // Try decoding next one
+                        decodedPrevious = this.decode(i);
+                    }
                 }
+
+                // Decoded instructions can start in the next cycle
+                this.issue();
             }
 
             // Execution unit could have terminated
@@ -182,21 +372,84 @@ public class Processor {
             }
 
             // Fetch
-            for(int i = 0; i < Globals.execution_units_num; i++) {
+            for(int i = 0; i < this.config.getFetchWidth(); i++) {
                 this.fetch(i);
             }
 
-            if(Globals.IsVerbose) {
+            if(this.config.isVerbose()) {
+                this.tracer.flush();
                 this.dumpRegisterFile(true);
             }
 
-            if(areQueuesEmpty()) {
+            if(areQueuesEmpty() && (this.outOfOrderEngine == null || this.outOfOrderEngine.isEmpty())) {
                 isRunning = false;
+            } else if(this.lastActiveCycle != this.cycles && this.canSkipCycles()) {
+                // Next cycles would only count latency, until a unit finishes
+                this.skipIdleCycles();
             }
         }
+    }
 
-        printStatistics();
+    /**
+     * Cycles are only skipped when nothing observes each of them
+     */
+    private boolean canSkipCycles() {
+        return this.config.isCycleSkipping() && !this.isInteractive && !this.tracer.isEnabled();
+    }
+
+    /**
+     * Jump over cycles in which no stage can change state. Stages are stalled, so they
+     * stay stalled until a unit finishes or a forwarded result becomes usable.
+     */
+    private void skipIdleCycles() {
+
+        int idleCycles = Math.min(this.bypassNetwork.getIdleCycles(this.cycles),
+                this.instructionsToDecode.getIdleCycles(this.cycles));
+
+        // Fetch continues after an instruction cache miss
+        if(this.fetchResumeCycle > this.cycles) {
+            idleCycles = Math.min(idleCycles, this.fetchResumeCycle - this.cycles - 1);
+        }
+
+        if(this.storeBuffer != null) {
+            idleCycles = Math.min(idleCycles, this.storeBuffer.getIdleCycles(this.cycles));
+        }
 
+        for(int i = 0; i < this.executionUnits.length; i++) {
+            idleCycles = Math.min(idleCycles, this.executionUnits[i].getIdleCycles());
+        }
+
+        for(int i = 0; i < this.memoryExecutionUnits.length; i++) {
+            idleCycles = Math.min(idleCycles, this.memoryExecutionUnits[i].getIdleCycles());
+        }
+
+        for(int i = 0; i < this.vectorExecutionUnits.length; i++) {
+            idleCycles = Math.min(idleCycles, this.vectorExecutionUnits[i].getIdleCycles());
+        }
+
+        // Nothing is counting, e.g. all units wait for a predicted branch
+        if(idleCycles == 0 || idleCycles == Integer.MAX_VALUE) {
+            return;
+        }
+
+        for(int i = 0; i < this.executionUnits.length; i++) {
+            this.executionUnits[i].skipCycles(idleCycles);
+        }
+
+        for(int i = 0; i < this.memoryExecutionUnits.length; i++) {
+            this.memoryExecutionUnits[i].skipCycles(idleCycles);
+        }
+
+        for(int i = 0; i < this.vectorExecutionUnits.length; i++) {
+            this.vectorExecutionUnits[i].skipCycles(idleCycles);
+        }
+
+        // Decode or dispatch would stall on the full buffer in each of the cycles
+        if(this.storeBuffer != null) {
+            this.storeBuffer.skipCycles(this.cycles, idleCycles);
+        }
+
+        this.cycles += idleCycles;
     }
 
     /**
@@ -220,7 +473,7 @@ public class Processor {
             if (inputLine.equals("c") || inputLine.equals("continue")) {
                 // Continue
                 gettingCommands = false;
-                Globals.IsInteractive = false;
+                this.isInteractive = false;
             } else if (inputLine.equals("n") || inputLine.equals("next")) {
                 gettingCommands = false;
             } else if (inputLine.startsWith("i ") || inputLine.startsWith("info ")) {
@@ -273,7 +526,25 @@ public class Processor {
     private boolean areQueuesEmpty() {
 
         return this.instructionsToDecode.isEmpty() & this.areExecuteQueuesEmpty() &
-                this.isWriteBackQueueEmpty();
+                this.isWriteBackQueueEmpty() & this.fetchResumeCycle <= this.cycles
+                & (this.storeBuffer == null || this.storeBuffer.isEmpty());
+    }
+
+    /**
+     * Start writing the oldest committed store to memory
+     */
+    private void drainStoreBuffer() {
+
+        int size = this.storeBuffer.size();
+        int instructionAddress = this.storeBuffer.drain(this.cycles);
+
+        if(instructionAddress >= 0) {
+            this.tracer.trace(TraceStage.WRITEBACK, Tracer.NO_UNIT, TraceEvent.STORE_DRAINING, instructionAddress);
+        }
+
+        if(instructionAddress >= 0 || this.storeBuffer.size() != size) {
+            this.markActive();
+        }
     }
 
     /**
@@ -285,22 +556,181 @@ public class Processor {
 
         this.dumpMemory();
 
+        Statistics statistics = this.getStatistics();
+
         System.out.println("--- STATISTICS ---");
 
         // Cycles stats
-        System.out.println(String.format("Total cycles: %d", cycles));
-        System.out.println(String.format("Total instructions executed: %d", instructionExecutedCount));
+        System.out.println(String.format("Total cycles: %d", statistics.getCycles()));
+        System.out.println(String.format("Total instructions executed: %d", statistics.getInstructionsExecuted()));
         System.out.println(
-                String.format("IPC (Instructions per cycle): %.3f", instructionExecutedCount / (double)cycles));
+                String.format("IPC (Instructions per cycle): %.3f", statistics.getIpc()));
         System.out.println(
-                String.format("CPI (Cycles per instruction): %.3f", cycles / (double)instructionExecutedCount));
+                String.format("CPI (Cycles per instruction): %.3f", statistics.getCpi()));
+        System.out.println(
+                String.format("ALU utilization: %.1f%%", 100 * statistics.getAluUtilization()));
 
         // Branch stats
         System.out.println("Branches stats:");
-        System.out.println(String.format("\ttotal: %d", this.getTotalBranches()));
-        System.out.println(String.format("\ttaken (not predicted): %d", this.branchesTakenNotPredicted));
-        System.out.println(String.format("\tpredicted correctly: %d", this.correctBranches));
-        System.out.println(String.format("\tpredicted missed: %d", this.missedBranches));
+        System.out.println(String.format("\ttotal: %d", statistics.getTotalBranches()));
+        System.out.println(String.format("\ttaken (not predicted): %d", statistics.getBranchesTakenNotPredicted()));
+        System.out.println(String.format("\tpredicted correctly: %d", statistics.getCorrectBranches()));
+        System.out.println(String.format("\tpredicted missed: %d", statistics.getMissedBranches()));
+
+        if(this.storeBuffer != null) {
+            System.out.println("Store buffer stats:");
+            System.out.println(String.format("\tloads forwarded: %d", this.storeBuffer.getForwardedLoads()));
+            System.out.println(String.format("\tfull stalls: %d", this.storeBuffer.getFullStalls()));
+        }
+
+        if(this.stackDistanceProfiler != null) {
+            this.printMissRatios();
+        }
+
+        if(this.memoryHierarchy == null) {
+            return;
+        }
+
+        // Cache stats
+        System.out.println("Cache stats:");
+
+        for(CacheLevel level : CacheLevel.values()) {
+
+            Cache cache = this.memoryHierarchy.getCache(level);
+
+            if(cache != null) {
+                System.out.println(String.format(
+                        "\t%s: %d accesses, %d hits, %d misses (%.1f%%), %d merged, %d MSHR stalls, %d write-backs",
+                        level,
+                        cache.getAccesses(),
+                        cache.getHits(),
+                        cache.getMisses(),
+                        100 * cache.getMissRate(),
+                        cache.getMergedMisses(),
+                        cache.getMshrStalls(),
+                        cache.getWriteBacks()));
+            }
+        }
+
+        DramController dram = this.memoryHierarchy.getDram();
+
+        if(dram != null) {
+            System.out.println("DRAM stats:");
+            System.out.println(String.format(
+                    "\t%d reads, %d writes, %d row hits (%.1f%%), %d row misses, %d row conflicts, %d reordered",
+                    dram.getReads(),
+                    dram.getWrites(),
+                    dram.getRowHits(),
+                    100 * dram.getRowHitRate(),
+                    dram.getRowMisses(),
+                    dram.getRowConflicts(),
+                    dram.getReorderedRequests()));
+            System.out.println(String.format(
+                    "\taverage latency: %.1f cycles, bus utilization: %.1f%%",
+                    dram.getAverageLatency(),
+                    100 * dram.getBusUtilization(statistics.getCycles())));
+        }
+
+        if(this.memoryHierarchy.hasPrefetcher()) {
+
+            Cache cache = this.memoryHierarchy.getDataCache();
+
+            System.out.println("Prefetch stats:");
+            System.out.println(String.format(
+                    "	issued: %d, used: %d, late: %d, evicted unused: %d",
+                    cache.getPrefetches(),
+                    cache.getPrefetchHits() + cache.getLatePrefetches(),
+                    cache.getLatePrefetches(),
+                    cache.getUnusedPrefetches()));
+            System.out.println(String.format(
+                    "	accuracy: %.1f%%, coverage: %.1f%%, timeliness: %.1f%%",
+                    100 * cache.getPrefetchAccuracy(),
+                    100 * cache.getPrefetchCoverage(),
+                    100 * cache.getPrefetchTimeliness()));
+        }
+    }
+
+    /**
+     * Print miss ratios of LRU caches of every size and associativity
+     */
+    private void printMissRatios() {
+
+        StackDistanceProfiler profiler = this.stackDistanceProfiler;
+        int[] associativities = { 1, 2, 4, 8, 16, 0 };
+
+        System.out.println(String.format("Miss ratios of LRU caches with %dB lines, %d accesses, %d cold misses:",
+                profiler.getLineSize(), profiler.getAccesses(), profiler.getColdMisses()));
+
+        StringBuilder header = new StringBuilder("\t    size");
+
+        for(int associativity : associativities) {
+            header.append(associativity == 0 ? "     full" : String.format("%7d-way", associativity));
+        }
+
+        System.out.println(header);
+
+        for(int size = profiler.getLineSize(); size <= StackDistanceProfiler.MAX_SIZE; size *= 2) {
+
+            StringBuilder row = new StringBuilder(size < 1024
+                    ? String.format("\t%7dB", size)
+                    : String.format("\t%6dKB", size / 1024));
+
+            for(int associativity : associativities) {
+
+                // Cache too small for the ways
+                if(associativity * profiler.getLineSize() > size) {
+                    row.append(String.format("%11s", "-"));
+                } else {
+                    row.append(String.format("%10.1f%%", 100 * profiler.getMissRatio(size, associativity)));
+                }
+            }
+
+            System.out.println(row);
+        }
+    }
+
+    /**
+     * Record a load or store leaving the pipeline for the miss ratio analysis, in program order
+     * on the out-of-order core and in the order they write back on the in-order core
+     * @param instruction Instruction writing back or committing
+     */
+    public void profileMemoryAccess(DecodedInstruction instruction) {
+
+        if(this.stackDistanceProfiler != null && instruction.getMemoryWordCount() > 0) {
+            this.stackDistanceProfiler.access(instruction.getMemoryAddress(), instruction.getMemoryWordCount());
+        }
+    }
+
+    /**
+     * @return Stack distances of the data accesses, null if miss ratios aren't analysed
+     */
+    public StackDistanceProfiler getStackDistanceProfiler() {
+        return this.stackDistanceProfiler;
+    }
+
+    /**
+     * @return Statistics collected so far
+     */
+    public Statistics getStatistics() {
+        // Out-of-order core counts only instructions that commit
+        int instructionCount = this.outOfOrderEngine != null
+                ? this.outOfOrderEngine.getCommittedCount()
+                : this.instructionExecutedCount;
+
+        long aluBusyCycles = 0;
+
+        for(int i = 0; i < this.executionUnits.length; i++) {
+            aluBusyCycles += this.executionUnits[i].getBusyCycles();
+        }
+
+        return new Statistics(
+                this.cycles,
+                instructionCount,
+                this.branchesTakenNotPredicted,
+                this.correctBranches,
+                this.missedBranches,
+                aluBusyCycles,
+                this.executionUnits.length);
     }
 
     /**
@@ -309,16 +739,13 @@ public class Processor {
      */
     private void fetch(int unitId) {
 
-        String tag = String.format("FETCH(%d)", unitId);
-
         // Get the PC value
         int currentPcValue = this.pc.getValue();
 
         // Is buffer full?
-        // Make sure we have enough instructions to decode later on
-        if(instructionsToDecode.size() > Globals.execution_units_num) {
+        if(instructionsToDecode.isFull()) {
             // We reached memory that isn't instructions
-            Utilities.log(tag, "Instruction buffer full. Skipping.");
+            this.tracer.trace(TraceStage.FETCH, unitId, TraceEvent.FETCH_BUFFER_FULL);
             return;
         }
 
@@ -326,138 +753,118 @@ public class Processor {
         EncodedInstruction currentEncodedInstruction;
 
         // Try to get the instruction from memory
-        try {
-            currentEncodedInstruction = (EncodedInstruction) this.mainMemory.getFromMemory(currentPcValue);
+        currentEncodedInstruction = this.mainMemory.getInstruction(currentPcValue);
 
-            Utilities.log(tag, "Fetched " + currentEncodedInstruction.getEncodedInstruction()
-                    + " at address " + Integer.toHexString(currentPcValue));
-        } catch (ClassCastException ex) {
+        if(currentEncodedInstruction == null) {
             // We reached memory that isn't instructions
-            Utilities.log(tag, "nothing to do");
+            this.tracer.trace(TraceStage.FETCH, unitId, TraceEvent.IDLE);
             return;
         }
 
-        // Increment PC
-        this.pc.setValue(currentPcValue + 0x4);
-        Utilities.log("\tIncremented PC to " + Integer.toHexString(this.pc.getValue()));
+        // Line is still on its way from the next level
+        if(this.cycles < this.fetchResumeCycle) {
+            this.tracer.trace(TraceStage.FETCH, unitId, TraceEvent.INSTRUCTION_CACHE_MISS, currentPcValue);
+            return;
+        }
 
-        instructionsToDecode.addLast(currentEncodedInstruction);
-    }
+        if(this.memoryHierarchy != null) {
 
-    private DecodedInstruction findDependency(List<? extends DecodedInstruction> buffer,
-                                   DecodedInstruction currentInstruction) {
+            int line = this.memoryHierarchy.getInstructionLine(currentPcValue);
 
-        Integer sourceRegister1 = currentInstruction.getFirstSourceRegisterNumber();
-        Integer sourceRegister2 = currentInstruction.getSecondSourceRegisterNumber();
+            if(line != this.lastFetchedLine) {
 
-        for (DecodedInstruction instruction : buffer) {
+                this.lastFetchedLine = line;
 
-            Integer destinationRegister = instruction.getDestinationRegisterNumber();
+                // Fetch stage covers the first cycle of the access
+                int missCycles = this.memoryHierarchy.accessInstruction(currentPcValue, this.cycles) - 1;
 
-            // Instruction doesn't write back anything, so no need to worry
-            if (destinationRegister == null) {
-                return null;
+                if(missCycles > 0) {
+                    this.fetchResumeCycle = this.cycles + missCycles;
+                    this.tracer.trace(TraceStage.FETCH, unitId, TraceEvent.INSTRUCTION_CACHE_MISS, currentPcValue);
+                    this.markActive();
+                    return;
+                }
             }
+        }
 
-            // Check if some instruction is writing back to our source registers
-            if ((sourceRegister1 != null && sourceRegister1 == destinationRegister)
-                    || (sourceRegister2 != null && sourceRegister2 == destinationRegister)) {
-
-
-                Utilities.log("DECODE",
-                        String.format("Can't decode, there's dependency in %s due to %s",
-                                currentInstruction.getEncodedInstructionString(),
-                                instruction.getEncodedInstructionString()));
+        this.tracer.trace(TraceStage.FETCH, unitId, TraceEvent.FETCHED, currentPcValue);
 
-                return instruction;
-            }
-        }
+        // Increment PC
+        this.pc.setValue(currentPcValue + 0x4);
+        this.tracer.trace(TraceStage.NONE, Tracer.NO_UNIT, TraceEvent.PC_INCREMENTED, 0, this.pc.getValue(), 0);
 
-        return null;
+        // Decoded in the next cycle, unless it goes through more fetch and decode stages
+        int readyCycle = this.cycles + this.config.getFetchDepth() + this.config.getDecodeDepth() - 1;
+        instructionsToDecode.addLast(currentEncodedInstruction, readyCycle);
+        this.markActive();
     }
+
     /**
      * Decode stage
      */
     private boolean decode(int id) {
 
-        String tag = String.format("DECODE(%d)", id);
-
         if(this.instructionsToDecode.isEmpty()) {
-            Utilities.log(tag, "nothing to do");
+            this.tracer.trace(TraceStage.DECODE, id, TraceEvent.IDLE);
             return false;
         }
 
         // Get next encoded instruction from the buffer to be decoded
         EncodedInstruction currentEncodedInstruction = this.instructionsToDecode.peek();
 
-        Utilities.log(tag, "Decoding " + currentEncodedInstruction.getEncodedInstruction());
+        if(!this.instructionsToDecode.isReady(this.cycles)) {
+            this.tracer.trace(TraceStage.DECODE, id, TraceEvent.IN_FRONT_END, currentEncodedInstruction.getAddress());
+            return false;
+        }
 
-        // Decode fetched instruction
-        DecodedInstruction currentInstruction = currentEncodedInstruction.decode(this);
+        this.tracer.trace(TraceStage.DECODE, id, TraceEvent.DECODING, currentEncodedInstruction.getAddress());
 
+        // Decode fetched instruction, fields are cached by the encoded instruction
+        DecodedInstruction currentInstruction = currentEncodedInstruction.decodeStatic();
+        currentInstruction.setSequenceNumber(this.nextSequenceNumber++);
 
         // If NOP, other queues need to be empty
         if(currentInstruction.getOperand() == Operand.NOP
             && (!this.isWriteBackQueueEmpty() || !this.areExecuteQueuesEmpty())) {
 
             // Stall, we need to wait for the result
-            Utilities.log(tag, "Can't NOP just yet");
+            this.tracer.trace(TraceStage.DECODE, id, TraceEvent.NOP_STALL);
+            currentInstruction.recycle();
             return false;
         }
 
+        // Read operands, values that weren't written back yet are forwarded below
+        currentInstruction.readOperands(this.registerFile);
+
         // Is there a blocking dependency?
-        boolean isBlocked = false;
+        boolean isBlocked = this.scoreboard.hasHazard(currentInstruction);
         DecodedInstruction blockingInstruction = null;
 
-        // Check memory buffer
-        for(List<MemoryInstruction> buffer : this.memoryInstructionsToExecute) {
-
-            DecodedInstruction blocking = findDependency(buffer, currentInstruction);
-
-            if (blocking != null) {
-                // Stall, we need to wait for the result
-                isBlocked = true;
-                blockingInstruction = blocking;
-                break;
-            }
-        }
-
-        // Check if there is a dependency in ALU
-        for(List<AluInstruction> buffer : this.aluInstructionsToExecute) {
-
-            DecodedInstruction blocking = findDependency(buffer, currentInstruction);
-
-            if(blocking != null && !isBlocked) {
-                // Stall, we need to wait for the result
-                isBlocked = true;
-                blockingInstruction = blocking;
-                break;
-            }
-        }
+        if(isBlocked) {
 
-        // Check vector instruction buffer
-        if(!this.vectorExecutionUnit.getReservationStation().isEmpty()) {
+            // Result might be forwarded already
+            DecodedInstruction producer =
+                    this.bypassNetwork.forward(currentInstruction, this.scoreboard, this.cycles);
 
-            DecodedInstruction blocking = findDependency(this.vectorExecutionUnit.getReservationStation(), currentInstruction);
+            if(producer != null) {
+                isBlocked = false;
 
-            if(blocking != null && !isBlocked) {
-                // Stall, we need to wait for the result
-                isBlocked = true;
-                blockingInstruction = blocking;
+                this.tracer.trace(TraceStage.DECODE, id, TraceEvent.FORWARDED,
+                        currentEncodedInstruction.getAddress(),
+                        producer.getInstructionAddress(),
+                        0);
             }
         }
 
-        // Check write back buffer
-        if(!isWriteBackQueueEmpty()) {
+        if(isBlocked) {
 
-            DecodedInstruction blocking = findDependency(this.instructionsToWriteBack, currentInstruction);
+            // Stall, we need to wait for the result
+            blockingInstruction = this.scoreboard.getBlockingInstruction(currentInstruction);
 
-            if(blocking != null && !isBlocked)
-            {
-                // Stall, we need to wait for the result
-                isBlocked = true;
-                blockingInstruction = blocking;
-            }
+            this.tracer.trace(TraceStage.DECODE, Tracer.NO_UNIT, TraceEvent.DEPENDENCY,
+                    currentEncodedInstruction.getAddress(),
+                    blockingInstruction.getInstructionAddress(),
+                    0);
         }
 
         // Check if it's a branch, if so, take try it here
@@ -468,70 +875,412 @@ public class Processor {
             if(!isBlocked) {
 
                 // Just take a branch based on actual values
+                instructionsToDecode.removeFirst();
+                this.markActive();
                 branchExecutionUnit.execute(branchInstruction);
-                instructionsToDecode.remove(currentEncodedInstruction);
-            } else {
+                branchInstruction.recycle();
+            } else if(branchExecutionUnit.canPredict()) {
 
                 // Otherwise try to guess
+                instructionsToDecode.removeFirst();
+                this.markActive();
                 branchExecutionUnit.predictAndExecute(branchInstruction, blockingInstruction);
-                instructionsToDecode.remove(currentEncodedInstruction);
+            } else {
+
+                this.tracer.trace(TraceStage.DECODE, id, TraceEvent.PREDICTIONS_FULL);
+                branchInstruction.recycle();
             }
+
+            return false;
         }
 
         if(isBlocked) {
+            currentInstruction.recycle();
             return false;
         }
 
         if(currentInstruction instanceof AluInstruction) {
 
+            RingBuffer<AluInstruction> queue = this.config.isMultiplierInstruction(currentInstruction)
+                    ? this.multiplierIssueQueue
+                    : this.aluIssueQueue;
+
+            if(queue.isFull()) {
+                this.tracer.trace(TraceStage.DECODE, id, TraceEvent.ALU_BUFFER_FULL);
+                currentInstruction.recycle();
+                return false;
+            }
+
             // Add ALU to the buffer
-            this.aluInstructionsToExecute[id].addLast((AluInstruction)currentInstruction);
+            queue.addLast((AluInstruction)currentInstruction);
+            this.scoreboard.issue(currentInstruction);
 
             // Successfully decoded
-            this.instructionsToDecode.remove(currentEncodedInstruction);
+            this.instructionsToDecode.removeFirst();
+            this.markActive();
 
             return true;
 
         } else if(currentInstruction instanceof MemoryInstruction) {
 
+            RingBuffer<MemoryInstruction> queue = this.memoryIssueQueue;
+
+            if(queue.isFull()) {
+                this.tracer.trace(TraceStage.DECODE, id, TraceEvent.MEMORY_BUFFER_FULL);
+                currentInstruction.recycle();
+                return false;
+            }
+
+            if(!this.allocateStore(TraceStage.DECODE, id, currentInstruction)) {
+                currentInstruction.recycle();
+                return false;
+            }
+
             // Or memory buffer
-            this.memoryInstructionsToExecute[id].addLast((MemoryInstruction)currentInstruction);
+            queue.addLast((MemoryInstruction)currentInstruction);
+            this.scoreboard.issue(currentInstruction);
 
             // Successfully decoded
-            this.instructionsToDecode.remove(currentEncodedInstruction);
+            this.instructionsToDecode.removeFirst();
+            this.markActive();
 
             return true;
         } else if(currentInstruction instanceof VectorInstruction) {
 
+            RingBuffer<VectorInstruction> queue = this.vectorIssueQueue;
+
+            if(queue.isFull()) {
+                this.tracer.trace(TraceStage.DECODE, id, TraceEvent.VECTOR_BUFFER_FULL);
+                currentInstruction.recycle();
+                return false;
+            }
+
+            if(!this.allocateStore(TraceStage.DECODE, id, currentInstruction)) {
+                currentInstruction.recycle();
+                return false;
+            }
+
             // Add to the reservation station
-            this.vectorExecutionUnit.getReservationStation().addLast((VectorInstruction)currentInstruction);
+            queue.addLast((VectorInstruction)currentInstruction);
+            this.scoreboard.issue(currentInstruction);
 
             // Successfully decoded
-            this.instructionsToDecode.remove(currentEncodedInstruction);
+            this.instructionsToDecode.removeFirst();
+            this.markActive();
         }
 
         return false;
     }
 
+    /**
+     * Give a decoded store an entry in the store buffer, if there is one
+     * @param stage Decode or dispatch
+     * @param id Decode or dispatch slot
+     * @param instruction Decoded instruction with its sequence number set
+     * @return false if the instruction is a store and the buffer is full
+     */
+    public boolean allocateStore(TraceStage stage, int id, DecodedInstruction instruction) {
+
+        if(this.storeBuffer == null || !instruction.isStore()) {
+            return true;
+        }
+
+        if(this.storeBuffer.isFull()) {
+            this.tracer.trace(stage, id, TraceEvent.STORE_BUFFER_FULL);
+            this.storeBuffer.countFullStall(this.cycles);
+            return false;
+        }
+
+        // Writes to memory take as long as the store would without the buffer
+        int latency = this.memoryHierarchy == null || this.config.getLatencyOverride(instruction.getOperand()) >= 0
+                ? this.config.getLatency(instruction)
+                : -1;
+
+        this.storeBuffer.allocate(instruction, latency);
+
+        return true;
+    }
+
+    /**
+     * Issue stage, sends the oldest decoded instructions to any free unit of their class.
+     * Hazards were checked at decode, so every instruction in the issue queues is ready.
+     */
+    private void issue() {
+
+        for(int issued = 0; issued < this.config.getIssueWidth(); issued++) {
+
+            int aluUnit = this.aluIssueQueue.isEmpty()
+                    ? -1
+                    : this.findAluUnit(0, this.config.getExecutionUnits());
+            int multiplierUnit = this.multiplierIssueQueue.isEmpty()
+                    ? -1
+                    : this.findAluUnit(this.config.getExecutionUnits(), this.executionUnits.length);
+            int memoryUnit = this.memoryIssueQueue.isEmpty() ? -1 : this.findMemoryUnit();
+            int vectorUnit = this.vectorIssueQueue.isEmpty() ? -1 : this.findVectorUnit();
+
+            long alu = getHeadSequenceNumber(this.aluIssueQueue, aluUnit);
+            long multiplier = getHeadSequenceNumber(this.multiplierIssueQueue, multiplierUnit);
+            long memory = getHeadSequenceNumber(this.memoryIssueQueue, memoryUnit);
+            long vector = getHeadSequenceNumber(this.vectorIssueQueue, vectorUnit);
+
+            long oldest = Math.min(Math.min(alu, multiplier), Math.min(memory, vector));
+            DecodedInstruction instruction;
+            int unitId;
+
+            if(oldest == Long.MAX_VALUE) {
+                return;
+            } else if(oldest == alu) {
+                instruction = this.aluIssueQueue.removeFirst();
+                unitId = aluUnit;
+                this.aluInstructionsToExecute[unitId].addLast((AluInstruction) instruction);
+            } else if(oldest == multiplier) {
+                instruction = this.multiplierIssueQueue.removeFirst();
+                unitId = multiplierUnit;
+                this.aluInstructionsToExecute[unitId].addLast((AluInstruction) instruction);
+            } else if(oldest == memory) {
+                instruction = this.memoryIssueQueue.removeFirst();
+                unitId = memoryUnit;
+                this.memoryInstructionsToExecute[unitId].addLast((MemoryInstruction) instruction);
+            } else {
+                instruction = this.vectorIssueQueue.removeFirst();
+                unitId = vectorUnit;
+                this.vectorExecutionUnits[unitId].getReservationStation().addLast((VectorInstruction) instruction);
+            }
+
+            this.tracer.trace(TraceStage.ISSUE, unitId, TraceEvent.ISSUED, instruction.getInstructionAddress());
+            this.markActive();
+        }
+    }
+
+    /**
+     * @return Sequence number of the oldest instruction in the queue, Long.MAX_VALUE if it can't issue
+     */
+    private static long getHeadSequenceNumber(RingBuffer<? extends DecodedInstruction> queue, int unitId) {
+        return unitId < 0 ? Long.MAX_VALUE : queue.peek().getSequenceNumber();
+    }
+
+    /**
+     * Idle units first, pipelined units finish in order, so a busy one would delay the instruction
+     * @return Id of an ALU or multiplier unit in the range that can take an instruction, -1 if there is none
+     */
+    private int findAluUnit(int from, int to) {
+
+        for(int id = from; id < to; id++) {
+            if(this.aluInstructionsToExecute[id].isEmpty()) {
+                return id;
+            }
+        }
+
+        for(int id = from; id < to; id++) {
+            if(this.executionUnits[id].canAccept()) {
+                return id;
+            }
+        }
+
+        return -1;
+    }
+
+    private int findMemoryUnit() {
+
+        for(int id = 0; id < this.memoryExecutionUnits.length; id++) {
+            if(this.memoryInstructionsToExecute[id].isEmpty()) {
+                return id;
+            }
+        }
+
+        for(int id = 0; id < this.memoryExecutionUnits.length; id++) {
+            if(this.memoryExecutionUnits[id].canAccept()) {
+                return id;
+            }
+        }
+
+        return -1;
+    }
+
+    private int findVectorUnit() {
+
+        for(int id = 0; id < this.vectorExecutionUnits.length; id++) {
+            if(this.vectorExecutionUnits[id].getReservationStation().isEmpty()) {
+                return id;
+            }
+        }
+
+        for(int id = 0; id < this.vectorExecutionUnits.length; id++) {
+            if(this.vectorExecutionUnits[id].canAccept()) {
+                return id;
+            }
+        }
+
+        return -1;
+    }
+
     private boolean isWriteBackQueueEmpty() {
         return this.instructionsToWriteBack.isEmpty();
     }
 
     private boolean areExecuteQueuesEmpty() {
 
-        boolean result = true;
+        boolean result = this.aluIssueQueue.isEmpty() & this.multiplierIssueQueue.isEmpty()
+                & this.memoryIssueQueue.isEmpty() & this.vectorIssueQueue.isEmpty();
+
+        for (int i = 0; i < this.aluInstructionsToExecute.length; i++) {
+            result = result & this.aluInstructionsToExecute[i].isEmpty();
+        }
 
-        for (LinkedList<?> queue : aluInstructionsToExecute) {
-            result = result & queue.isEmpty();
+        for (int i = 0; i < this.memoryInstructionsToExecute.length; i++) {
+            result = result & this.memoryInstructionsToExecute[i].isEmpty();
         }
 
-        for (LinkedList<?> queue : memoryInstructionsToExecute) {
-            result = result & queue.isEmpty();
+        for (int i = 0; i < this.vectorExecutionUnits.length; i++) {
+            result = result & this.vectorExecutionUnits[i].getReservationStation().isEmpty();
         }
 
         return result;
     }
 
+    /**
+     * Discard instructions younger than a mispredicted branch from execute queues and units.
+     * Older instructions still execute and write back.
+     * @param sequenceNumber Sequence number of the branch
+     */
+    public void flushExecuteQueues(long sequenceNumber) {
+
+        for(int i = 0; i < this.executionUnits.length; i++) {
+            this.executionUnits[i].squash(sequenceNumber);
+            this.flushQueue(this.aluInstructionsToExecute[i], sequenceNumber);
+        }
+
+        for(int i = 0; i < this.memoryExecutionUnits.length; i++) {
+            this.memoryExecutionUnits[i].squash(sequenceNumber);
+            this.flushQueue(this.memoryInstructionsToExecute[i], sequenceNumber);
+        }
+
+        for(int i = 0; i < this.vectorExecutionUnits.length; i++) {
+            this.vectorExecutionUnits[i].squash(sequenceNumber);
+            this.flushQueue(this.vectorExecutionUnits[i].getReservationStation(), sequenceNumber);
+        }
+
+        this.flushQueue(this.aluIssueQueue, sequenceNumber);
+        this.flushQueue(this.multiplierIssueQueue, sequenceNumber);
+        this.flushQueue(this.memoryIssueQueue, sequenceNumber);
+        this.flushQueue(this.vectorIssueQueue, sequenceNumber);
+
+        if(this.storeBuffer != null) {
+            this.storeBuffer.squash(sequenceNumber);
+        }
+    }
+
+    private void flushQueue(RingBuffer<? extends DecodedInstruction> queue, long sequenceNumber) {
+
+        // Queues are in program order, so younger instructions are at the end
+        while(!queue.isEmpty() && queue.peekLast().getSequenceNumber() > sequenceNumber) {
+
+            DecodedInstruction instruction = queue.removeLast();
+
+            this.scoreboard.release(instruction);
+            instruction.recycle();
+        }
+    }
+
+    /**
+     * Check if instruction is on a path that depends on an unresolved branch prediction.
+     * Results of such instruction can't be written back until the prediction is checked.
+     * @param instruction Instruction to check
+     * @return true if instruction is younger than a predicted branch
+     */
+    public boolean isSpeculative(DecodedInstruction instruction) {
+        return this.branchExecutionUnit.isSpeculative(instruction);
+    }
+
+    /**
+     * In-order core accesses memory when instructions finish, so an access can't finish before an older
+     * one to the same words if either of them is a store. Units finish out of order once latencies differ.
+     * @param instruction Instruction that finished counting latency
+     * @return true if it has to wait for an older access
+     */
+    public boolean isWaitingForOlderAccess(DecodedInstruction instruction) {
+
+        // Out-of-order core orders accesses when it issues them
+        if(this.outOfOrderEngine != null || instruction.getMemoryWordCount() == 0) {
+            return false;
+        }
+
+        if(hasOlderConflict(this.memoryIssueQueue, instruction)
+                || hasOlderConflict(this.vectorIssueQueue, instruction)) {
+            return true;
+        }
+
+        for(int id = 0; id < this.memoryExecutionUnits.length; id++) {
+            if(hasOlderConflict(this.memoryInstructionsToExecute[id], instruction)) {
+                return true;
+            }
+        }
+
+        for(int id = 0; id < this.vectorExecutionUnits.length; id++) {
+            if(hasOlderConflict(this.vectorExecutionUnits[id].getReservationStation(), instruction)) {
+                return true;
+            }
+        }
+
+        if(this.storeBuffer != null) {
+            // Loads take values of older stores from the buffer once they are known
+            return !instruction.isStore() && this.storeBuffer.isMissingValue(instruction.getSequenceNumber(),
+                    instruction.getMemoryAddress(), instruction.getMemoryWordCount());
+        }
+
+        // Finished stores write memory at write-back, in the next cycle
+        for(int i = 0; i < this.instructionsToWriteBack.size(); i++) {
+
+            DecodedInstruction older = this.instructionsToWriteBack.get(i);
+
+            if(older.isStore() && older.getSequenceNumber() < instruction.getSequenceNumber()
+                    && overlaps(older, instruction)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param queue Queue in program order
+     * @return true if an older instruction in the queue accesses the same words and either one is a store
+     */
+    private static boolean hasOlderConflict(RingBuffer<? extends DecodedInstruction> queue,
+                                            DecodedInstruction instruction) {
+
+        for(int i = 0; i < queue.size(); i++) {
+
+            DecodedInstruction older = queue.get(i);
+
+            if(older.getSequenceNumber() >= instruction.getSequenceNumber()) {
+                break;
+            }
+
+            if(older.getMemoryWordCount() == 0 || !(older.isStore() || instruction.isStore())) {
+                continue;
+            }
+
+            if(overlaps(older, instruction)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return true if both instructions access some of the same bytes
+     */
+    private static boolean overlaps(DecodedInstruction first, DecodedInstruction second) {
+
+        int firstAddress = first.getMemoryAddress();
+        int secondAddress = second.getMemoryAddress();
+
+        return firstAddress < secondAddress + second.getMemoryWordCount() * 0x4
+                && secondAddress < firstAddress + first.getMemoryWordCount() * 0x4;
+    }
+
     /**
      * Set running flag, useful for termination
      * @param running
@@ -556,10 +1305,64 @@ public class Processor {
         return this.pc;
     }
 
+    public Scoreboard getScoreboard() {
+        return this.scoreboard;
+    }
+
+    public BypassNetwork getBypassNetwork() {
+        return this.bypassNetwork;
+    }
+
+    /**
+     * Forward results of an instruction that finished execution to decode
+     * @param instruction Executed instruction
+     * @param path Path from the unit that executed it
+     */
+    public void forwardResults(DecodedInstruction instruction, SimulatorConfig.BypassPath path) {
+
+        if(this.outOfOrderEngine == null) {
+            this.bypassNetwork.publish(instruction, path, this.cycles);
+        } else if(this.config.getBypassLatency(path) == 0) {
+            // Otherwise waiting instructions are woken up when the instruction completes
+            this.outOfOrderEngine.forward(instruction);
+        }
+    }
+
+    public Tracer getTracer() {
+        return this.tracer;
+    }
+
+    public SimulatorConfig getConfig() {
+        return this.config;
+    }
+
+    public VectorExecutionUnit getVectorExecutionUnit(int id) {
+        return this.vectorExecutionUnits[id];
+    }
+
+    /**
+     * @param id Unit id, multiplier units follow the ALUs
+     */
+    public AluExecutionUnit getAluExecutionUnit(int id) {
+        return this.executionUnits[id];
+    }
+
+    public MemoryExecutionUnit getMemoryExecutionUnit(int id) {
+        return this.memoryExecutionUnits[id];
+    }
+
     public void dumpMemory() {
 
         System.out.println("Memory dump: ");
         for(int i = 0; i < this.getMemory().getMaxAddress(); i += 0x4) {
+
+            // Skip gaps in the sparse memory
+            i = this.getMemory().nextMappedAddress(i);
+
+            if(i >= this.getMemory().getMaxAddress()) {
+                break;
+            }
+
             System.out.println("Addr: 0x" + Integer.toHexString(i)
                     + " " + this.getMemory().getFromMemory(i).toString());
         }
@@ -605,19 +1408,100 @@ public class Processor {
         this.instructionExecutedCount += 1;
     }
 
+    /**
+     * @return Number of the current cycle
+     */
+    public int getCycles() {
+        return this.cycles;
+    }
+
+    /**
+     * Get number of cycles instruction spends in its execution unit. Memory accesses go through
+     * the caches if there are any, unless latency of the operand is overridden. With a store buffer
+     * stores only write the buffer and access memory when they drain, loads that find all their
+     * values in the buffer don't access memory.
+     * Caches and the buffer change state, so call it once, when the instruction starts.
+     * @param instruction Instruction that starts, with its source values known
+     * @return latency of this execution
+     */
+    public int getExecutionLatency(DecodedInstruction instruction) {
+
+        if(instruction.getMemoryWordCount() == 0
+                || this.config.getLatencyOverride(instruction.getOperand()) >= 0) {
+            return this.config.getLatency(instruction);
+        }
+
+        if(this.storeBuffer != null && (instruction.isStore()
+                || this.storeBuffer.forward(instruction.getSequenceNumber(),
+                        instruction.getMemoryAddress(), instruction.getMemoryWordCount()))) {
+            return this.config.getStoreBufferLatency();
+        }
+
+        if(this.memoryHierarchy == null) {
+            return this.config.getLatency(instruction);
+        }
+
+        return this.memoryHierarchy.accessData(instruction.getInstructionAddress(),
+                instruction.getMemoryAddress(),
+                instruction.getMemoryWordCount(),
+                instruction.isStore(),
+                this.cycles);
+    }
+
+    /**
+     * Load a word, taking the value of an older store from the store buffer if it hasn't reached memory
+     * @param load Load instruction
+     * @param address Address of the word
+     * @return value of the word
+     */
+    public int loadWord(DecodedInstruction load, int address) {
+
+        if(this.storeBuffer != null) {
+
+            int entry = this.storeBuffer.findStore(load.getSequenceNumber(), address);
+
+            if(entry >= 0) {
+                return this.storeBuffer.getValue(entry, address);
+            }
+        }
+
+        return this.mainMemory.loadWord(address);
+    }
+
+    /**
+     * @return Stores waiting to drain to memory, null if stores write memory when they commit
+     */
+    public StoreBuffer getStoreBuffer() {
+        return this.storeBuffer;
+    }
+
+    /**
+     * @return Caches in front of the memory, null if memory has fixed latencies
+     */
+    public MemoryHierarchy getMemoryHierarchy() {
+        return this.memoryHierarchy;
+    }
+
+    /**
+     * Record that a stage changed state in the current cycle, so the next cycle can't be skipped
+     */
+    public void markActive() {
+        this.lastActiveCycle = this.cycles;
+    }
+
     /**
      * Returns the buffer containing next memory instructions to be executed
      * @param id Execution unit id
      * @return
      */
-    public final LinkedList<MemoryInstruction> getMemoryInstructionsToExecute(int id) {
+    public final RingBuffer<MemoryInstruction> getMemoryInstructionsToExecute(int id) {
         return this.memoryInstructionsToExecute[id];
     }
 
     /**
      * Return write back buffer
      */
-    public final LinkedList<DecodedInstruction> getWriteBackBuffer() {
+    public final RingBuffer<DecodedInstruction> getWriteBackBuffer() {
         return this.instructionsToWriteBack;
     }
 
@@ -626,7 +1510,7 @@ public class Processor {
      * @param id Execution unit id
      * @return
      */
-    public LinkedList<AluInstruction> getAluInstructionsBuffer(int id) {
+    public RingBuffer<AluInstruction> getAluInstructionsBuffer(int id) {
         return this.aluInstructionsToExecute[id];
     }
 
@@ -649,7 +1533,7 @@ public class Processor {
     /**
      * @return List of instructions waiting for decode
      */
-    public LinkedList<EncodedInstruction> getDecodeBuffer() {
+    public FetchBuffer getDecodeBuffer() {
         return this.instructionsToDecode;
     }
 }
@@ -1,11 +1,8 @@
 package org.mk0934.simulator;
 
-import org.mk0934.simulator.instructions.DecodedInstruction;
-import org.mk0934.simulator.instructions.EncodedInstruction;
-import org.mk0934.simulator.instructions.Instruction;
-
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -13,50 +10,43 @@ import java.util.List;
  */
 public class Program {
 
-    private List<Instruction> instructions = new ArrayList<Instruction>();
+    /**
+     * Source lines of the program, never modified after loading
+     */
+    private final List<String> lines;
 
     /**
-     * Load program instructions from a file into memory
+     * Load program source from a file
      * @param inputProgramName Input file name
      */
     public Program(String inputProgramName) throws IOException {
 
-        BufferedReader bf = new BufferedReader(new FileReader(new File(inputProgramName)));
-
-        String line;
-
-        while((line = bf.readLine()) != null) {
-
-            line = line.trim();
-
-            // Ignore comment lines
-            if(line.startsWith(";") || line.length() == 0) {
-                continue;
-            }
-
-            // If label line, parse next
-            if(line.contains(":")) {
+        List<String> lines = new ArrayList<String>();
 
-                String label = line.substring(0, line.indexOf(":") + 1);
-                line = bf.readLine();
+        try (BufferedReader bf = new BufferedReader(new FileReader(new File(inputProgramName)))) {
 
-                // If there is no next, fail
-                if(line == null) {
-                    throw new RuntimeException("No instruction after label");
-                }
+            String line;
 
-                instructions.add(new EncodedInstruction(line, label));
-            }
-            else {
-                // Just get instruction
-                instructions.add(new EncodedInstruction(line));
+            while ((line = bf.readLine()) != null) {
+                lines.add(line);
             }
         }
 
-        // Replace labels in instructions with addresses
+        this.lines = Collections.unmodifiableList(lines);
+    }
+
+    /**
+     * Create program from source lines
+     * @param lines Source lines
+     */
+    public Program(List<String> lines) {
+        this.lines = Collections.unmodifiableList(new ArrayList<String>(lines));
     }
 
-    public Iterable<? extends Instruction> getInstructionList() {
-        return this.instructions;
+    /**
+     * @return Source lines, labels are resolved by the assembler
+     */
+    public List<String> getLines() {
+        return this.lines;
     }
 }
@@ -7,27 +7,19 @@ import java.util.ArrayList;
  */
 public class RegisterFile {
 
+    /**
+     * Number of architectural registers, programs can use r0 to r15
+     */
+    public static final int REGISTER_COUNT = 16;
+
     private ArrayList<Register> registers;
 
     public RegisterFile() {
         this.registers = new ArrayList<Register>();
-        // Initialize 16 register
-        this.registers.add(new Register());
-        this.registers.add(new Register());
-        this.registers.add(new Register());
-        this.registers.add(new Register());
-        this.registers.add(new Register());
-        this.registers.add(new Register());
-        this.registers.add(new Register());
-        this.registers.add(new Register());
-        this.registers.add(new Register());
-        this.registers.add(new Register());
-        this.registers.add(new Register());
-        this.registers.add(new Register());
-        this.registers.add(new Register());
-        this.registers.add(new Register());
-        this.registers.add(new Register());
-        this.registers.add(new Register());
+
+        for(int i = 0; i < REGISTER_COUNT; i++) {
+            this.registers.add(new Register());
+        }
     }
 
     public Register getRegister(int index) {
@@ -39,8 +31,8 @@ public class RegisterFile {
     }
 
     public void commit() {
-        for(Register register : registers) {
-            register.setDirty(false);
+        for(int i = 0; i < this.registers.size(); i++) {
+            this.registers.get(i).setDirty(false);
         }
     }
 }
@@ -0,0 +1,178 @@
+package org.mk0934.simulator;
+
+/**
+ * Fixed capacity FIFO queue backed by an array
+ *
+ * Used for buffers between pipeline stages, adding and removing elements
+ * just moves the head and the size, so nothing is allocated after construction.
+ *
+ * @author Maciej Kumorek
+ */
+public class RingBuffer<T> {
+
+    /**
+     * Storage, length is a power of two so indices can be masked
+     */
+    private final Object[] elements;
+
+    private final int mask;
+
+    /**
+     * Maximum number of elements the buffer accepts
+     */
+    private final int capacity;
+
+    /**
+     * Index of the first element
+     */
+    private int head;
+
+    /**
+     * Number of elements in the buffer
+     */
+    private int size;
+
+    public RingBuffer(int capacity) {
+
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("capacity");
+        }
+
+        int length = Integer.highestOneBit(capacity);
+
+        if(length < capacity) {
+            length <<= 1;
+        }
+
+        this.elements = new Object[length];
+        this.mask = length - 1;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Add element to the end of the buffer
+     * @param element Element to add
+     */
+    public void addLast(T element) {
+
+        if(this.size == this.capacity) {
+            throw new IllegalStateException("Buffer is full");
+        }
+
+        this.elements[(this.head + this.size) & this.mask] = element;
+        this.size++;
+    }
+
+    /**
+     * @return First element, null if the buffer is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T peek() {
+
+        if(this.size == 0) {
+            return null;
+        }
+
+        return (T) this.elements[this.head];
+    }
+
+    /**
+     * @return Last element, null if the buffer is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T peekLast() {
+
+        if(this.size == 0) {
+            return null;
+        }
+
+        return (T) this.elements[(this.head + this.size - 1) & this.mask];
+    }
+
+    /**
+     * Get element without removing it
+     * @param index Position counting from the first element
+     * @return element at the position
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+
+        if(index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+
+        return (T) this.elements[(this.head + index) & this.mask];
+    }
+
+    /**
+     * Remove first element from the buffer
+     * @return removed element
+     */
+    @SuppressWarnings("unchecked")
+    public T removeFirst() {
+
+        if(this.size == 0) {
+            throw new IllegalStateException("Buffer is empty");
+        }
+
+        T element = (T) this.elements[this.head];
+
+        // Don't keep the reference around
+        this.elements[this.head] = null;
+
+        this.head = (this.head + 1) & this.mask;
+        this.size--;
+
+        return element;
+    }
+
+    /**
+     * Remove last element from the buffer
+     * @return removed element
+     */
+    @SuppressWarnings("unchecked")
+    public T removeLast() {
+
+        if(this.size == 0) {
+            throw new IllegalStateException("Buffer is empty");
+        }
+
+        int index = (this.head + this.size - 1) & this.mask;
+        T element = (T) this.elements[index];
+
+        // Don't keep the reference around
+        this.elements[index] = null;
+
+        this.size--;
+
+        return element;
+    }
+
+    /**
+     * Remove all elements
+     */
+    public void clear() {
+
+        while(this.size > 0) {
+            this.removeFirst();
+        }
+
+        this.head = 0;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public boolean isFull() {
+        return this.size == this.capacity;
+    }
+
+    public int getCapacity() {
+        return this.capacity;
+    }
+}
@@ -2,7 +2,7 @@ package org.mk0934.simulator;
 
 import org.mk0934.simulator.instructions.BranchInstruction;
 
-import java.util.HashMap;
+import java.util.Arrays;
 
 /**
  * Created by Maciej Kumorek on 12/3/2014.
@@ -16,33 +16,32 @@ public class SaturatingCounterBranchPredictor implements BranchPredictor {
         StronglyTaken
     }
 
-    private HashMap<Integer, State> branchState;
+    /**
+     * State of the branch at each instruction word, indexed by address.
+     * Branches not seen yet are strongly taken.
+     */
+    private State[] branchState;
+
+    /**
+     * Result of the last prediction, reused by the next one
+     */
+    private final BranchPredictorResult result = new BranchPredictorResult();
 
     private final Processor processor;
 
     public SaturatingCounterBranchPredictor(Processor processor) {
         this.processor = processor;
-        this.branchState = new HashMap<>();
+        this.branchState = new State[0];
     }
 
     @Override
     public BranchPredictorResult predictBranch(BranchInstruction branchInstruction) {
 
-        BranchPredictorResult result = new BranchPredictorResult();
+        BranchPredictorResult result = this.result;
 
         // Get current address
-        int currentAddress = this.processor.getMemory().getInstructionAddress(branchInstruction);
-        State state;
-
-        // Check if we had a prediction
-        if(this.branchState.containsKey(currentAddress)) {
-            state = this.branchState.get(currentAddress);
-        } else {
-            state = State.StronglyTaken;
-            // Add default prediction
-            this.branchState.put(currentAddress, State.StronglyTaken);
-        }
-
+        int currentAddress = branchInstruction.getInstructionAddress();
+        State state = this.getState(currentAddress);
 
         // Address for not taken branch
         int alternateAddress = currentAddress + 0x4;
@@ -67,39 +66,58 @@ public class SaturatingCounterBranchPredictor implements BranchPredictor {
     public void updatePredictor(BranchInstruction branchInstruction, boolean wasTaken) {
 
         // Get current address of the branch
-        int instructionAddress = this.processor.getMemory().getInstructionAddress(branchInstruction);
+        int instructionAddress = branchInstruction.getInstructionAddress();
 
         // Get state
-        State state = this.branchState.get(instructionAddress);
+        State state = this.getState(instructionAddress);
+        int index = instructionAddress >>> 2;
 
         // Counter state machine update function
         switch(state)
         {
             case StronglyNotTaken:
                 if(wasTaken) {
-                    this.branchState.put(instructionAddress, State.WeaklyNotTaken);
+                    this.branchState[index] = State.WeaklyNotTaken;
                 }
                 break;
             case WeaklyNotTaken:
                 if(wasTaken) {
-                    this.branchState.put(instructionAddress, State.WeaklyTaken);
+                    this.branchState[index] = State.WeaklyTaken;
                 } else {
-                    this.branchState.put(instructionAddress, State.StronglyNotTaken);
+                    this.branchState[index] = State.StronglyNotTaken;
                 }
                 break;
             case WeaklyTaken:
                 if(wasTaken) {
-                    this.branchState.put(instructionAddress, State.StronglyTaken);
+                    this.branchState[index] = State.StronglyTaken;
                 } else {
-                    this.branchState.put(instructionAddress, State.WeaklyNotTaken);
+                    this.branchState[index] = State.WeaklyNotTaken;
                 }
                 break;
             case StronglyTaken:
                 if(!wasTaken) {
-                    this.branchState.put(instructionAddress, State.WeaklyTaken);
+                    this.branchState[index] = State.WeaklyTaken;
                 }
             default:
                 break;
         }
     }
+
+    /**
+     * @param instructionAddress Address of a branch
+     * @return State of the branch, grows the table to hold it
+     */
+    private State getState(int instructionAddress) {
+
+        int index = instructionAddress >>> 2;
+
+        if(index >= this.branchState.length) {
+            int length = this.branchState.length;
+
+            this.branchState = Arrays.copyOf(this.branchState, Math.max(2 * length, index + 1));
+            Arrays.fill(this.branchState, length, this.branchState.length, State.StronglyTaken);
+        }
+
+        return this.branchState[index];
+    }
 }
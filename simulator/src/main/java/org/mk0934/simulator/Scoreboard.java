@@ -0,0 +1,139 @@
+package org.mk0934.simulator;
+
+import org.mk0934.simulator.instructions.DecodedInstruction;
+
+/**
+ * Scoreboard tracking registers with a pending write
+ *
+ * Instructions are marked on issue and released on write-back, so hazard
+ * detection in decode is just a test of register bit masks.
+ *
+ * @author Maciej Kumorek
+ */
+public class Scoreboard {
+
+    /**
+     * Number of in-flight writers of each register
+     */
+    private final int[] pendingWriters;
+
+    /**
+     * Youngest in-flight writer of each register
+     */
+    private final DecodedInstruction[] lastWriter;
+
+    /**
+     * Bit set for every register with a pending write
+     */
+    private int busyMask;
+
+    public Scoreboard(int registerCount) {
+
+        if(registerCount > Integer.SIZE) {
+            throw new IllegalArgumentException("registerCount");
+        }
+
+        this.pendingWriters = new int[registerCount];
+        this.lastWriter = new DecodedInstruction[registerCount];
+    }
+
+    /**
+     * Check if instruction can't be issued yet.
+     *
+     * Instruction has to wait if it reads a register with a pending write (RAW)
+     * or writes a register that is already going to be written (WAW), as units
+     * with different latencies could otherwise complete the writes out of order.
+     * @param instruction Instruction to check
+     * @return true if there's a hazard
+     */
+    public boolean hasHazard(DecodedInstruction instruction) {
+        return (this.busyMask & getHazardMask(instruction)) != 0;
+    }
+
+    /**
+     * Find the instruction the given instruction waits for
+     * @param instruction Instruction with a hazard
+     * @return pending writer of one of the registers, or null if there is no hazard
+     */
+    public DecodedInstruction getBlockingInstruction(DecodedInstruction instruction) {
+
+        int blockedMask = this.busyMask & getHazardMask(instruction);
+
+        if(blockedMask == 0) {
+            return null;
+        }
+
+        return this.lastWriter[Integer.numberOfTrailingZeros(blockedMask)];
+    }
+
+    /**
+     * @param instruction Instruction to check
+     * @return Bit mask of registers the instruction has to wait for
+     */
+    public int getBlockedRegisterMask(DecodedInstruction instruction) {
+        return this.busyMask & getHazardMask(instruction);
+    }
+
+    /**
+     * @param registerNumber Register to check
+     * @return Youngest in-flight writer of the register, null if it has none
+     */
+    public DecodedInstruction getPendingWriter(int registerNumber) {
+        return this.lastWriter[registerNumber];
+    }
+
+    /**
+     * Mark destination registers of issued instruction as pending
+     * @param instruction Issued instruction
+     */
+    public void issue(DecodedInstruction instruction) {
+
+        int mask = instruction.getDestinationRegisterMask();
+
+        while(mask != 0) {
+            int registerNumber = Integer.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+
+            this.pendingWriters[registerNumber]++;
+            this.lastWriter[registerNumber] = instruction;
+            this.busyMask |= 1 << registerNumber;
+        }
+    }
+
+    /**
+     * Release destination registers of instruction that was written back or discarded
+     * @param instruction Instruction to release
+     */
+    public void release(DecodedInstruction instruction) {
+
+        int mask = instruction.getDestinationRegisterMask();
+
+        while(mask != 0) {
+            int registerNumber = Integer.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+
+            if(this.pendingWriters[registerNumber] == 0) {
+                throw new IllegalStateException("Register " + registerNumber + " has no pending write");
+            }
+
+            if(this.lastWriter[registerNumber] == instruction) {
+                this.lastWriter[registerNumber] = null;
+            }
+
+            if(--this.pendingWriters[registerNumber] == 0) {
+                this.busyMask &= ~(1 << registerNumber);
+            }
+        }
+    }
+
+    /**
+     * @return true if no register has a pending write
+     */
+    public boolean isEmpty() {
+        return this.busyMask == 0;
+    }
+
+    private static int getHazardMask(DecodedInstruction instruction) {
+        return instruction.getSourceRegisterMask() | instruction.getDestinationRegisterMask();
+    }
+}
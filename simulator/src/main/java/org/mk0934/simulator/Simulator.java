@@ -12,9 +12,13 @@ public class Simulator {
     private Memory memory;
 
     public Simulator() {
+        this(new Configuration().build());
+    }
+
+    public Simulator(SimulatorConfig config) {
         this.memory = new Memory();
 
-        this.processor = new Processor(this.memory);
+        this.processor = new Processor(this.memory, config);
     }
 
     // Run a simulation of execution of a program
@@ -25,4 +29,17 @@ public class Simulator {
 
         processor.run();
     }
+
+    /**
+     * Run a simulation without printing anything
+     * @param assembler Assembler that already went through the program,
+     *                  can be shared by simulations running concurrently
+     * @return statistics of the simulation
+     */
+    public Statistics simulate(Assembler assembler) {
+
+        assembler.assemble(memory);
+
+        return processor.simulate();
+    }
 }
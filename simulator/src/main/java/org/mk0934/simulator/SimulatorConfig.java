@@ -0,0 +1,631 @@
+package org.mk0934.simulator;
+
+import org.mk0934.simulator.cache.CacheConfig;
+import org.mk0934.simulator.cache.CacheLevel;
+import org.mk0934.simulator.cache.PrefetchConfig;
+import org.mk0934.simulator.dram.DramConfig;
+import org.mk0934.simulator.instructions.DecodedInstruction;
+import org.mk0934.simulator.instructions.Operand;
+
+/**
+ * Machine parameters and options of a single simulation
+ *
+ * Immutable, so one instance can be shared by simulations running concurrently.
+ * Built with Configuration.
+ *
+ * @author Maciej Kumorek
+ */
+public final class SimulatorConfig {
+
+    /**
+     * Available branch predictors
+     */
+    public enum PredictorType {
+        DYNAMIC,
+        STATIC,
+        NAIVE
+    }
+
+    /**
+     * Available processor cores
+     */
+    public enum CoreType {
+        IN_ORDER,
+        OUT_OF_ORDER
+    }
+
+    /**
+     * Forwarding paths from execution units to decode
+     */
+    public enum BypassPath {
+        ALU,
+        MEMORY,
+        VECTOR
+    }
+
+    private final int aluUnits;
+    private final int multiplierUnits;
+    private final int memoryUnits;
+    private final int vectorUnits;
+    private final int fetchWidth;
+    private final int decodeWidth;
+    private final int issueWidth;
+    private final int commitWidth;
+    private final int fetchDepth;
+    private final int decodeDepth;
+    private final int fetchBufferSize;
+    private final int executeQueueCapacity;
+    private final int memoryOutstanding;
+    private final int storeBufferSize;
+    private final int storeBufferLatency;
+    private final PredictorType predictorType;
+    private final boolean isVerbose;
+    private final boolean isInteractive;
+    private final String traceFile;
+
+    /**
+     * Line size of the miss ratio analysis of the data accesses, 0 if it's off
+     */
+    private final int missRatioLineSize;
+
+    private final CoreType coreType;
+    private final int reorderBufferSize;
+    private final int reservationStationSize;
+    private final int physicalRegisterCount;
+    private final boolean isCycleSkipping;
+
+    /**
+     * Latency of each operand indexed by ordinal, negative to use the instruction's own latency
+     */
+    private final int[] latencies;
+
+    /**
+     * Initiation interval of each operand indexed by ordinal, negative to use the latency
+     */
+    private final int[] initiationIntervals;
+
+    /**
+     * Latency of each forwarding path indexed by ordinal, negative if the path is disabled
+     */
+    private final int[] bypassLatencies;
+
+    /**
+     * Configuration of each cache level indexed by ordinal, null if the level is absent
+     */
+    private final CacheConfig[] caches;
+
+    /**
+     * Prefetcher of the data cache, null if there is none
+     */
+    private final PrefetchConfig prefetch;
+
+    /**
+     * DRAM behind the caches, null for a fixed memory latency
+     */
+    private final DramConfig dram;
+
+    private final int memoryLatency;
+
+    SimulatorConfig(int aluUnits,
+                    int multiplierUnits,
+                    int memoryUnits,
+                    int vectorUnits,
+                    int fetchWidth,
+                    int decodeWidth,
+                    int issueWidth,
+                    int commitWidth,
+                    int fetchDepth,
+                    int decodeDepth,
+                    int fetchBufferSize,
+                    int executeQueueCapacity,
+                    int memoryOutstanding,
+                    int storeBufferSize,
+                    int storeBufferLatency,
+                    PredictorType predictorType,
+                    boolean isVerbose,
+                    boolean isInteractive,
+                    String traceFile,
+                    int missRatioLineSize,
+                    int[] latencies,
+                    int[] initiationIntervals,
+                    CoreType coreType,
+                    int reorderBufferSize,
+                    int reservationStationSize,
+                    int physicalRegisterCount,
+                    int[] bypassLatencies,
+                    boolean isCycleSkipping,
+                    CacheConfig[] caches,
+                    PrefetchConfig prefetch,
+                    DramConfig dram,
+                    int memoryLatency) {
+
+        if(aluUnits <= 0) {
+            throw new IllegalArgumentException("aluUnits");
+        }
+
+        if(multiplierUnits < 0) {
+            throw new IllegalArgumentException("multiplierUnits");
+        }
+
+        if(memoryUnits <= 0) {
+            throw new IllegalArgumentException("memoryUnits");
+        }
+
+        if(vectorUnits <= 0) {
+            throw new IllegalArgumentException("vectorUnits");
+        }
+
+        if(fetchWidth <= 0) {
+            throw new IllegalArgumentException("fetchWidth");
+        }
+
+        if(decodeWidth <= 0) {
+            throw new IllegalArgumentException("decodeWidth");
+        }
+
+        if(issueWidth <= 0) {
+            throw new IllegalArgumentException("issueWidth");
+        }
+
+        if(commitWidth <= 0) {
+            throw new IllegalArgumentException("commitWidth");
+        }
+
+        if(fetchDepth <= 0) {
+            throw new IllegalArgumentException("fetchDepth");
+        }
+
+        if(decodeDepth <= 0) {
+            throw new IllegalArgumentException("decodeDepth");
+        }
+
+        if(fetchBufferSize <= 0) {
+            throw new IllegalArgumentException("fetchBufferSize");
+        }
+
+        if(executeQueueCapacity <= 0) {
+            throw new IllegalArgumentException("executeQueueCapacity");
+        }
+
+        if(memoryOutstanding <= 0 || memoryOutstanding > executeQueueCapacity) {
+            throw new IllegalArgumentException("memoryOutstanding");
+        }
+
+        if(storeBufferSize < 0) {
+            throw new IllegalArgumentException("storeBufferSize");
+        }
+
+        if(missRatioLineSize < 0) {
+            throw new IllegalArgumentException("missRatioLineSize");
+        }
+
+        if(storeBufferLatency <= 0) {
+            throw new IllegalArgumentException("storeBufferLatency");
+        }
+
+        if(predictorType == null) {
+            throw new NullPointerException("predictorType");
+        }
+
+        if(coreType == null) {
+            throw new NullPointerException("coreType");
+        }
+
+        if(reorderBufferSize <= 0) {
+            throw new IllegalArgumentException("reorderBufferSize");
+        }
+
+        if(reservationStationSize <= 0) {
+            throw new IllegalArgumentException("reservationStationSize");
+        }
+
+        if(physicalRegisterCount <= 0) {
+            throw new IllegalArgumentException("physicalRegisterCount");
+        }
+
+        if(memoryLatency < 0) {
+            throw new IllegalArgumentException("memoryLatency");
+        }
+
+        this.caches = caches.clone();
+
+        if(prefetch != null && !this.hasCaches()) {
+            throw new IllegalArgumentException("Prefetching needs caches");
+        }
+
+        if(dram != null && !this.hasCaches()) {
+            throw new IllegalArgumentException("DRAM model needs caches");
+        }
+
+        this.aluUnits = aluUnits;
+        this.multiplierUnits = multiplierUnits;
+        this.memoryUnits = memoryUnits;
+        this.vectorUnits = vectorUnits;
+        this.fetchWidth = fetchWidth;
+        this.decodeWidth = decodeWidth;
+        this.issueWidth = issueWidth;
+        this.commitWidth = commitWidth;
+        this.fetchDepth = fetchDepth;
+        this.decodeDepth = decodeDepth;
+        this.fetchBufferSize = fetchBufferSize;
+        this.executeQueueCapacity = executeQueueCapacity;
+        this.memoryOutstanding = memoryOutstanding;
+        this.storeBufferSize = storeBufferSize;
+        this.storeBufferLatency = storeBufferLatency;
+        this.predictorType = predictorType;
+        this.isVerbose = isVerbose;
+        this.isInteractive = isInteractive;
+        this.traceFile = traceFile;
+        this.missRatioLineSize = missRatioLineSize;
+        this.latencies = latencies.clone();
+        this.initiationIntervals = initiationIntervals.clone();
+        this.coreType = coreType;
+        this.reorderBufferSize = reorderBufferSize;
+        this.reservationStationSize = reservationStationSize;
+        this.physicalRegisterCount = physicalRegisterCount;
+        this.bypassLatencies = bypassLatencies.clone();
+        this.isCycleSkipping = isCycleSkipping;
+        this.prefetch = prefetch;
+        this.dram = dram;
+        this.memoryLatency = memoryLatency;
+    }
+
+    /**
+     * @return Number of integer ALUs, -eN sets it together with memory units and pipeline widths
+     */
+    public int getExecutionUnits() {
+        return this.aluUnits;
+    }
+
+    /**
+     * @return Number of units executing only MUL, 0 if ALUs execute it
+     */
+    public int getMultiplierUnits() {
+        return this.multiplierUnits;
+    }
+
+    public int getMemoryUnits() {
+        return this.memoryUnits;
+    }
+
+    public int getVectorUnits() {
+        return this.vectorUnits;
+    }
+
+    /**
+     * @return Number of instructions fetched in a cycle
+     */
+    public int getFetchWidth() {
+        return this.fetchWidth;
+    }
+
+    /**
+     * @return Number of instructions decoded, or dispatched by the out-of-order core, in a cycle
+     */
+    public int getDecodeWidth() {
+        return this.decodeWidth;
+    }
+
+    /**
+     * @return Most instructions sent to execution units in a cycle
+     */
+    public int getIssueWidth() {
+        return this.issueWidth;
+    }
+
+    /**
+     * @return Number of instructions the out-of-order core commits in a cycle
+     */
+    public int getCommitWidth() {
+        return this.commitWidth;
+    }
+
+    /**
+     * @return Number of fetch stages
+     */
+    public int getFetchDepth() {
+        return this.fetchDepth;
+    }
+
+    /**
+     * @return Number of decode stages, the last one reads operands and checks hazards
+     */
+    public int getDecodeDepth() {
+        return this.decodeDepth;
+    }
+
+    /**
+     * @return Number of instructions between fetch and the last decode stage
+     */
+    public int getFetchBufferSize() {
+        return this.fetchBufferSize;
+    }
+
+    /**
+     * @param instruction Instruction to execute
+     * @return true if it goes to a multiplier unit instead of an ALU
+     */
+    public boolean isMultiplierInstruction(DecodedInstruction instruction) {
+        return this.multiplierUnits > 0 && instruction.getOperand() == Operand.MUL;
+    }
+
+    /**
+     * @return Number of instructions each execute queue can hold
+     */
+    public int getExecuteQueueCapacity() {
+        return this.executeQueueCapacity;
+    }
+
+    /**
+     * @return Most memory accesses in flight in each memory unit
+     */
+    public int getMemoryOutstanding() {
+        return this.memoryOutstanding;
+    }
+
+    /**
+     * @return Number of stores the store buffer holds, 0 if stores write memory when they commit
+     */
+    public int getStoreBufferSize() {
+        return this.storeBufferSize;
+    }
+
+    public boolean hasStoreBuffer() {
+        return this.storeBufferSize > 0;
+    }
+
+    /**
+     * @return Cycles a store takes to write the store buffer, and a load to take its values from it
+     */
+    public int getStoreBufferLatency() {
+        return this.storeBufferLatency;
+    }
+
+    public PredictorType getPredictorType() {
+        return this.predictorType;
+    }
+
+    /**
+     * @return Should simulator print all messages
+     */
+    public boolean isVerbose() {
+        return this.isVerbose;
+    }
+
+    /**
+     * @return Should simulation start in interactive mode
+     */
+    public boolean isInteractive() {
+        return this.isInteractive;
+    }
+
+    /**
+     * @return File to write binary pipeline trace to, null for no trace
+     */
+    public String getTraceFile() {
+        return this.traceFile;
+    }
+
+    /**
+     * @return Line size of the miss ratio analysis of the data accesses, 0 if it's off
+     */
+    public int getMissRatioLineSize() {
+        return this.missRatioLineSize;
+    }
+
+    public CoreType getCoreType() {
+        return this.coreType;
+    }
+
+    /**
+     * @return Number of instructions in flight in the out-of-order core
+     */
+    public int getReorderBufferSize() {
+        return this.reorderBufferSize;
+    }
+
+    /**
+     * @return Number of instructions each reservation station of the out-of-order core can hold
+     */
+    public int getReservationStationSize() {
+        return this.reservationStationSize;
+    }
+
+    /**
+     * @return Number of physical registers architectural registers are renamed to in the out-of-order core
+     */
+    public int getPhysicalRegisterCount() {
+        return this.physicalRegisterCount;
+    }
+
+    /**
+     * Get number of cycles instruction spends in its execution unit
+     * @param instruction Instruction to execute
+     * @return overridden latency of the operand, or the instruction's own latency
+     */
+    public int getLatency(DecodedInstruction instruction) {
+
+        int latency = this.latencies[instruction.getOperand().ordinal()];
+
+        if(latency < 0) {
+            return instruction.getLatency();
+        }
+
+        return latency;
+    }
+
+    /**
+     * @param operand Operand to check
+     * @return Overridden latency of the operand, -1 if not overridden
+     */
+    public int getLatencyOverride(Operand operand) {
+        return this.latencies[operand.ordinal()];
+    }
+
+    /**
+     * Get number of cycles after which an execution unit can start another instruction
+     * @param instruction Instruction that starts
+     * @return initiation interval of the operand, by default the latency, so the unit isn't pipelined
+     */
+    public int getInitiationInterval(DecodedInstruction instruction) {
+        return this.getInitiationInterval(instruction, this.getLatency(instruction));
+    }
+
+    /**
+     * Get number of cycles after which an execution unit can start another instruction
+     * @param instruction Instruction that starts
+     * @param latency Latency of this execution, e.g. of a cache access
+     * @return initiation interval of the operand, by default the latency, so the unit isn't pipelined.
+     *         Memory accesses going through caches start every cycle by default.
+     */
+    public int getInitiationInterval(DecodedInstruction instruction, int latency) {
+
+        int initiationInterval = this.initiationIntervals[instruction.getOperand().ordinal()];
+
+        if(initiationInterval >= 0) {
+            return initiationInterval;
+        }
+
+        // Cache ports take an access each cycle, misses wait in MSHRs
+        if(this.hasCaches() && instruction.getMemoryWordCount() > 0
+                && this.getLatencyOverride(instruction.getOperand()) < 0) {
+            return 1;
+        }
+
+        return Math.max(latency, 1);
+    }
+
+    /**
+     * @param operand Operand to check
+     * @return Initiation interval of the operand, -1 if it's the latency
+     */
+    public int getInitiationIntervalOverride(Operand operand) {
+        return this.initiationIntervals[operand.ordinal()];
+    }
+
+    /**
+     * @param level Cache level
+     * @return Configuration of the level, null if it's absent
+     */
+    public CacheConfig getCacheConfig(CacheLevel level) {
+        return this.caches[level.ordinal()];
+    }
+
+    /**
+     * @return Configuration of each cache level indexed by ordinal, null if the level is absent
+     */
+    public CacheConfig[] getCacheConfigs() {
+        return this.caches.clone();
+    }
+
+    /**
+     * @return true if memory is accessed through caches instead of with fixed latencies
+     */
+    public boolean hasCaches() {
+
+        for(CacheConfig config : this.caches) {
+            if(config != null) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return Prefetcher of the data cache, null if there is none
+     */
+    public PrefetchConfig getPrefetchConfig() {
+        return this.prefetch;
+    }
+
+    /**
+     * @return DRAM behind the caches, null if memory has a fixed latency
+     */
+    public DramConfig getDramConfig() {
+        return this.dram;
+    }
+
+    /**
+     * @return Cycles of an access missing every cache, unless there is DRAM
+     */
+    public int getMemoryLatency() {
+        return this.memoryLatency;
+    }
+
+    /**
+     * @param path Forwarding path
+     * @return Cycles after execution the result reaches decode, -1 if the path is disabled
+     */
+    public int getBypassLatency(BypassPath path) {
+        return this.bypassLatencies[path.ordinal()];
+    }
+
+    /**
+     * @return Should cycles in which units only count latency be skipped, statistics stay the same
+     */
+    public boolean isCycleSkipping() {
+        return this.isCycleSkipping;
+    }
+
+    /**
+     * @return eN for a symmetric machine, otherwise the units and widths
+     */
+    private String getMachineName() {
+
+        int width = this.aluUnits;
+        String suffix = this.fetchDepth == 1 && this.decodeDepth == 1
+                ? ""
+                : String.format(" depth=%d/%d", this.fetchDepth, this.decodeDepth);
+
+        if(this.hasCaches()) {
+            suffix += " caches";
+        }
+
+        if(this.dram != null) {
+            suffix += " dram";
+        }
+
+        if(this.prefetch != null) {
+            suffix += " prefetch=" + this.prefetch.getType().name().toLowerCase();
+        }
+
+        if(this.hasStoreBuffer()) {
+            suffix += " sb=" + this.storeBufferSize;
+        }
+
+        if(this.multiplierUnits == 0 && this.memoryUnits == width && this.vectorUnits == 1
+                && this.fetchWidth == width && this.decodeWidth == width && this.commitWidth == width
+                && this.issueWidth == 2 * width + 1) {
+            return "e" + width + suffix;
+        }
+
+        return String.format("alu=%d mul=%d mem=%d vec=%d width=%d/%d/%d/%d%s",
+                this.aluUnits,
+                this.multiplierUnits,
+                this.memoryUnits,
+                this.vectorUnits,
+                this.fetchWidth,
+                this.decodeWidth,
+                this.issueWidth,
+                this.commitWidth,
+                suffix);
+    }
+
+    @Override
+    public String toString() {
+        if(this.coreType == CoreType.OUT_OF_ORDER) {
+            return String.format("%s predictor=%s ooo rob=%d rs=%d prf=%d",
+                    this.getMachineName(),
+                    this.predictorType.name().toLowerCase(),
+                    this.reorderBufferSize,
+                    this.reservationStationSize,
+                    this.physicalRegisterCount);
+        }
+
+        return String.format("%s predictor=%s queue=%d",
+                this.getMachineName(),
+                this.predictorType.name().toLowerCase(),
+                this.executeQueueCapacity);
+    }
+}
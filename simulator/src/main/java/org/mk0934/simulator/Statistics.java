@@ -0,0 +1,89 @@
+package org.mk0934.simulator;
+
+/**
+ * Statistics of a finished simulation
+ *
+ * @author Maciej Kumorek
+ */
+public final class Statistics {
+
+    private final int cycles;
+    private final int instructionsExecuted;
+    private final int branchesTakenNotPredicted;
+    private final int correctBranches;
+    private final int missedBranches;
+    private final long aluBusyCycles;
+    private final int aluUnits;
+
+    public Statistics(int cycles,
+                      int instructionsExecuted,
+                      int branchesTakenNotPredicted,
+                      int correctBranches,
+                      int missedBranches,
+                      long aluBusyCycles,
+                      int aluUnits) {
+
+        this.cycles = cycles;
+        this.instructionsExecuted = instructionsExecuted;
+        this.branchesTakenNotPredicted = branchesTakenNotPredicted;
+        this.correctBranches = correctBranches;
+        this.missedBranches = missedBranches;
+        this.aluBusyCycles = aluBusyCycles;
+        this.aluUnits = aluUnits;
+    }
+
+    public int getCycles() {
+        return this.cycles;
+    }
+
+    public int getInstructionsExecuted() {
+        return this.instructionsExecuted;
+    }
+
+    /**
+     * @return Instructions per cycle
+     */
+    public double getIpc() {
+        return this.instructionsExecuted / (double)this.cycles;
+    }
+
+    /**
+     * @return Cycles per instruction
+     */
+    public double getCpi() {
+        return this.cycles / (double)this.instructionsExecuted;
+    }
+
+    public int getTotalBranches() {
+        return this.branchesTakenNotPredicted + this.correctBranches + this.missedBranches;
+    }
+
+    /**
+     * @return Branches resolved in decode, without prediction
+     */
+    public int getBranchesTakenNotPredicted() {
+        return this.branchesTakenNotPredicted;
+    }
+
+    public int getCorrectBranches() {
+        return this.correctBranches;
+    }
+
+    public int getMissedBranches() {
+        return this.missedBranches;
+    }
+
+    /**
+     * @return Cycles ALUs and multiplier units had an instruction in flight, summed over the units
+     */
+    public long getAluBusyCycles() {
+        return this.aluBusyCycles;
+    }
+
+    /**
+     * @return Fraction of ALU and multiplier unit cycles with an instruction in flight
+     */
+    public double getAluUtilization() {
+        return this.aluBusyCycles / ((double)this.cycles * this.aluUnits);
+    }
+}
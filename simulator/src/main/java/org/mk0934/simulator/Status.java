@@ -9,6 +9,11 @@ public enum Status {
     LT(1),
     GT(2);
 
+    /**
+     * values() copies the array on every call
+     */
+    private static final Status[] VALUES = values();
+
     private final int value;
 
     private Status(int value) {
@@ -18,5 +23,13 @@ public enum Status {
     public int getValue() {
         return this.value;
     }
+
+    /**
+     * @param value Value of a status register
+     * @return Status with the value
+     */
+    public static Status fromValue(int value) {
+        return VALUES[value];
+    }
 }
 
@@ -0,0 +1,413 @@
+package org.mk0934.simulator;
+
+import org.mk0934.simulator.cache.MemoryHierarchy;
+import org.mk0934.simulator.instructions.DecodedInstruction;
+
+/**
+ * Stores between the memory units and memory
+ *
+ * Each store gets an entry in program order when it's decoded or dispatched. Its address and value
+ * are filled in when it executes, vector stores read their values when they commit. Younger loads take
+ * values from matching entries instead of memory. Committed stores drain to memory oldest first, one per
+ * cycle, and keep their entries until the write finishes, so a store pays the memory latency
+ * while the pipeline moves on. Stores squashed by a mispredicted branch lose their entries before they commit.
+ *
+ * @author Maciej Kumorek
+ */
+public class StoreBuffer {
+
+    /**
+     * Most words one store writes, vector stores write four
+     */
+    private static final int MAX_WORDS = 4;
+
+    private final Memory memory;
+
+    /**
+     * Caches written by draining stores, null if memory has fixed latencies
+     */
+    private final MemoryHierarchy memoryHierarchy;
+
+    private final long[] sequenceNumbers;
+    private final int[] instructionAddresses;
+
+    /**
+     * First address and number of words of each store, no words until the store executes
+     */
+    private final int[] addresses;
+    private final int[] wordCounts;
+
+    private final int[][] values;
+
+    /**
+     * Bit mask of words with known values
+     */
+    private final int[] valueMasks;
+
+    private final boolean[] isCommitted;
+
+    /**
+     * Cycles each store takes to write memory, -1 to access the caches
+     */
+    private final int[] latencies;
+
+    /**
+     * Cycle each draining store finishes writing in
+     */
+    private final int[] drainedCycles;
+
+    /**
+     * Index of the oldest store
+     */
+    private int head;
+
+    /**
+     * Number of stores in the buffer
+     */
+    private int size;
+
+    /**
+     * Number of oldest stores draining to memory
+     */
+    private int drainingCount;
+
+    /**
+     * Loads that took all their values from the buffer when they started
+     */
+    private int forwardedLoads;
+
+    /**
+     * Times decode or dispatch stalled on a full buffer
+     */
+    private int fullStalls;
+
+    /**
+     * Cycle of the last stall on a full buffer, and stalls counted in it
+     */
+    private int fullStallCycle = -1;
+    private int fullStallsInCycle;
+
+    public StoreBuffer(int capacity, Memory memory, MemoryHierarchy memoryHierarchy) {
+
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("capacity");
+        }
+
+        this.memory = memory;
+        this.memoryHierarchy = memoryHierarchy;
+        this.sequenceNumbers = new long[capacity];
+        this.instructionAddresses = new int[capacity];
+        this.addresses = new int[capacity];
+        this.wordCounts = new int[capacity];
+        this.values = new int[capacity][MAX_WORDS];
+        this.valueMasks = new int[capacity];
+        this.isCommitted = new boolean[capacity];
+        this.latencies = new int[capacity];
+        this.drainedCycles = new int[capacity];
+    }
+
+    /**
+     * Add a store in program order
+     * @param store Decoded store with its sequence number set
+     * @param latency Cycles it takes to write memory, -1 to access the caches
+     */
+    public void allocate(DecodedInstruction store, int latency) {
+
+        if(this.isFull()) {
+            throw new IllegalStateException("Store buffer is full");
+        }
+
+        int entry = this.getIndex(this.size);
+
+        this.sequenceNumbers[entry] = store.getSequenceNumber();
+        this.instructionAddresses[entry] = store.getInstructionAddress();
+        this.wordCounts[entry] = 0;
+        this.valueMasks[entry] = 0;
+        this.isCommitted[entry] = false;
+        this.latencies[entry] = latency;
+        this.size++;
+    }
+
+    /**
+     * Set the words a store writes, once it executes. Stores squashed while executing have no entry.
+     * @param sequenceNumber Sequence number of the store
+     * @param address First byte address
+     * @param wordCount Number of words
+     */
+    public void setAddress(long sequenceNumber, int address, int wordCount) {
+
+        if(wordCount <= 0 || wordCount > MAX_WORDS) {
+            throw new IllegalArgumentException("wordCount");
+        }
+
+        int entry = this.find(sequenceNumber);
+
+        if(entry >= 0) {
+            this.addresses[entry] = address;
+            this.wordCounts[entry] = wordCount;
+        }
+    }
+
+    /**
+     * Set value of a word a store writes
+     * @param sequenceNumber Sequence number of the store
+     * @param word Index of the word
+     * @param value Value to write
+     */
+    public void setValue(long sequenceNumber, int word, int value) {
+
+        int entry = this.find(sequenceNumber);
+
+        if(entry >= 0) {
+            this.values[entry][word] = value;
+            this.valueMasks[entry] |= 1 << word;
+        }
+    }
+
+    /**
+     * Let a store drain to memory, its values have to be known
+     * @param sequenceNumber Sequence number of the store
+     */
+    public void commit(long sequenceNumber) {
+
+        int entry = this.find(sequenceNumber);
+
+        if(entry < 0 || this.valueMasks[entry] != (1 << this.wordCounts[entry]) - 1) {
+            throw new IllegalStateException("Store can't commit: " + sequenceNumber);
+        }
+
+        this.isCommitted[entry] = true;
+    }
+
+    /**
+     * Remove stores younger than a mispredicted branch
+     * @param sequenceNumber Sequence number of the branch
+     */
+    public void squash(long sequenceNumber) {
+
+        // Stores are in program order, so younger ones are at the end
+        while(this.size > 0 && this.sequenceNumbers[this.getIndex(this.size - 1)] > sequenceNumber) {
+            this.size--;
+        }
+    }
+
+    /**
+     * Free stores that finished writing, then start writing the oldest committed store
+     * @param cycle Current cycle
+     * @return Address of the store that started draining, -1 if there is none
+     */
+    public int drain(int cycle) {
+
+        while(this.drainingCount > 0 && this.drainedCycles[this.head] <= cycle) {
+            this.head = this.getIndex(1);
+            this.size--;
+            this.drainingCount--;
+        }
+
+        if(this.drainingCount == this.size || !this.isCommitted[this.getIndex(this.drainingCount)]) {
+            return -1;
+        }
+
+        int entry = this.getIndex(this.drainingCount);
+        int address = this.addresses[entry];
+        int wordCount = this.wordCounts[entry];
+
+        for(int word = 0; word < wordCount; word++) {
+            this.memory.storeWord(address + word * 0x4, this.values[entry][word]);
+        }
+
+        int latency = this.latencies[entry] < 0
+                ? this.memoryHierarchy.accessData(this.instructionAddresses[entry],
+                        address, wordCount, true, cycle)
+                : this.latencies[entry];
+
+        this.drainedCycles[entry] = cycle + Math.max(latency, 1);
+        this.drainingCount++;
+
+        return this.instructionAddresses[entry];
+    }
+
+    /**
+     * @param cycle Current cycle
+     * @return Number of next cycles in which no store starts or finishes draining,
+     *         Integer.MAX_VALUE if nothing is draining
+     */
+    public int getIdleCycles(int cycle) {
+
+        if(this.drainingCount < this.size && this.isCommitted[this.getIndex(this.drainingCount)]) {
+            return 0;
+        }
+
+        if(this.drainingCount > 0) {
+            return Math.max(this.drainedCycles[this.head] - cycle - 1, 0);
+        }
+
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * @param sequenceNumber Sequence number of a load
+     * @param address Address of a word it loads
+     * @return Entry of the youngest older store writing the word, -1 if memory has its value
+     */
+    public int findStore(long sequenceNumber, int address) {
+
+        for(int i = this.size - 1; i >= 0; i--) {
+
+            int entry = this.getIndex(i);
+
+            if(this.sequenceNumbers[entry] < sequenceNumber && this.getWord(entry, address) >= 0) {
+                return entry;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @param entry Entry returned by findStore()
+     * @param address Address of the word
+     * @return value the store writes to the word
+     */
+    public int getValue(int entry, int address) {
+
+        int word = this.getWord(entry, address);
+
+        if(word < 0 || (this.valueMasks[entry] & (1 << word)) == 0) {
+            throw new IllegalStateException("Value isn't known yet: " + Integer.toHexString(address));
+        }
+
+        return this.values[entry][word];
+    }
+
+    /**
+     * @param sequenceNumber Sequence number of a load
+     * @param address First byte address
+     * @param wordCount Number of words
+     * @return true if the youngest older store writing one of the words hasn't got its value yet
+     */
+    public boolean isMissingValue(long sequenceNumber, int address, int wordCount) {
+
+        for(int i = 0; i < wordCount; i++) {
+
+            int wordAddress = address + i * 0x4;
+            int entry = this.findStore(sequenceNumber, wordAddress);
+
+            if(entry >= 0 && (this.valueMasks[entry] & (1 << this.getWord(entry, wordAddress))) == 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Check if a load can take all its values from the buffer, counting it if it can
+     * @param sequenceNumber Sequence number of the load
+     * @param address First byte address
+     * @param wordCount Number of words
+     * @return true if older stores in the buffer write every word and their values are known
+     */
+    public boolean forward(long sequenceNumber, int address, int wordCount) {
+
+        for(int i = 0; i < wordCount; i++) {
+
+            int wordAddress = address + i * 0x4;
+            int entry = this.findStore(sequenceNumber, wordAddress);
+
+            if(entry < 0 || (this.valueMasks[entry] & (1 << this.getWord(entry, wordAddress))) == 0) {
+                return false;
+            }
+        }
+
+        this.forwardedLoads++;
+
+        return true;
+    }
+
+    /**
+     * Count a stall of decode or dispatch
+     * @param cycle Current cycle
+     */
+    public void countFullStall(int cycle) {
+
+        if(cycle != this.fullStallCycle) {
+            this.fullStallCycle = cycle;
+            this.fullStallsInCycle = 0;
+        }
+
+        this.fullStalls++;
+        this.fullStallsInCycle++;
+    }
+
+    /**
+     * Count stalls of several cycles at once, each cycle skipped stalls like the current one did
+     * @param cycle Current cycle
+     * @param cycles Number of cycles skipped after it
+     */
+    public void skipCycles(int cycle, int cycles) {
+        if(cycle == this.fullStallCycle) {
+            this.fullStalls += this.fullStallsInCycle * cycles;
+        }
+    }
+
+    public int getForwardedLoads() {
+        return this.forwardedLoads;
+    }
+
+    public int getFullStalls() {
+        return this.fullStalls;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public boolean isFull() {
+        return this.size == this.sequenceNumbers.length;
+    }
+
+    public int getCapacity() {
+        return this.sequenceNumbers.length;
+    }
+
+    /**
+     * @return Index of the word in the store, -1 if the store doesn't write it or its address isn't known
+     */
+    private int getWord(int entry, int address) {
+
+        // Memory ignores the lowest address bits
+        int word = (address >>> 2) - (this.addresses[entry] >>> 2);
+
+        return word >= 0 && word < this.wordCounts[entry] ? word : -1;
+    }
+
+    /**
+     * @return Entry of the store, -1 if it was squashed
+     */
+    private int find(long sequenceNumber) {
+
+        for(int i = 0; i < this.size; i++) {
+
+            int entry = this.getIndex(i);
+
+            if(this.sequenceNumbers[entry] == sequenceNumber) {
+                return entry;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @param position Position from the oldest store
+     * @return index of the entry
+     */
+    private int getIndex(int position) {
+        return (this.head + position) % this.sequenceNumbers.length;
+    }
+}
@@ -11,6 +11,11 @@ public class TakeBackwardsBranchPredictor implements BranchPredictor {
 
     private final Processor processor;
 
+    /**
+     * Result of the last prediction, reused by the next one
+     */
+    private final BranchPredictorResult result = new BranchPredictorResult();
+
     public TakeBackwardsBranchPredictor(Processor processor) {
         this.processor = processor;
     }
@@ -18,14 +23,12 @@ public class TakeBackwardsBranchPredictor implements BranchPredictor {
     @Override
     public BranchPredictorResult predictBranch(BranchInstruction branchInstruction) {
 
-        BranchPredictorResult result = new BranchPredictorResult();
+        BranchPredictorResult result = this.result;
 
         boolean shouldTake = true;
 
-        final Memory mainMemory = this.processor.getMemory();
-
         int addressToBranch = branchInstruction.getAddressToJump(),
-                currentAddress = mainMemory.getInstructionAddress(branchInstruction),
+                currentAddress = branchInstruction.getInstructionAddress(),
                 alternativeAddress = currentAddress + 0x4;
 
         if(addressToBranch > currentAddress) {
@@ -0,0 +1,527 @@
+package org.mk0934.simulator.cache;
+
+import org.mk0934.simulator.dram.DramController;
+
+import java.util.Arrays;
+
+/**
+ * Tags and replacement state of one cache level
+ *
+ * Only timing is simulated, data always stays in the memory. Tags, dirty bits and replacement
+ * state are kept in flat arrays indexed by set * associativity + way, so multi-megabyte caches
+ * don't allocate an object per line.
+ *
+ * The cache doesn't block on a miss. Misses wait for their lines in miss status holding registers,
+ * hits and misses to other lines go on meanwhile, and a miss to a line already on its way waits
+ * for the same fill. Once every register is taken, next miss waits for the first one to free up.
+ *
+ * Prefetches bring lines in like misses nobody waits for. They only start if a register is free
+ * right away, and the line is marked until its first use to tell useful prefetches from wasted ones.
+ *
+ * @author Maciej Kumorek
+ */
+public class Cache {
+
+    private static final int INVALID = -1;
+
+    private final CacheConfig config;
+
+    /**
+     * Next level misses and write-backs go to, null for the memory
+     */
+    private final Cache nextLevel;
+
+    /**
+     * DRAM misses and write-backs go to if there is no next level, null for a fixed memory latency
+     */
+    private final DramController dram;
+
+    /**
+     * Cycles of an access the next level is the memory for
+     */
+    private final int memoryLatency;
+
+    private final int lineBits;
+    private final int setMask;
+    private final int associativity;
+
+    /**
+     * Line address of each line, INVALID if the line is empty
+     */
+    private final int[] tags;
+
+    private final boolean[] dirty;
+
+    /**
+     * Lines brought in by a prefetch and not used since
+     */
+    private final boolean[] prefetched;
+
+    /**
+     * Access counter value of the last use of each line, for LRU
+     */
+    private final long[] lastUse;
+
+    /**
+     * Tree bits of each set for pseudo-LRU, bit i is the node i + 1 of a heap over the ways.
+     * Clear bit points to the left half as the next victim.
+     */
+    private final long[] treeBits;
+
+    /**
+     * State of the xorshift generator choosing random victims
+     */
+    private int randomState = 0x2545F491;
+
+    /**
+     * Misses waiting for their lines
+     */
+    private final MissStatusHoldingRegisters mshrs;
+
+    private long accesses;
+    private long hits;
+    private long mergedMisses;
+    private long mshrStalls;
+    private long writeBacks;
+
+    /**
+     * Did the last access miss or use a prefetched line first
+     */
+    private boolean isLastAccessMiss;
+
+    private long prefetches;
+    private long prefetchHits;
+    private long latePrefetches;
+    private long unusedPrefetches;
+
+    /**
+     * @param config Geometry and policies
+     * @param nextLevel Next level, null if misses go to the memory
+     * @param memoryLatency Cycles of a memory access, used if there is no next level
+     */
+    public Cache(CacheConfig config, Cache nextLevel, int memoryLatency) {
+        this(config, nextLevel, null, memoryLatency);
+    }
+
+    /**
+     * @param config Geometry and policies
+     * @param nextLevel Next level, null if misses go to the memory
+     * @param dram DRAM behind the cache if there is no next level, null for a fixed memory latency
+     * @param memoryLatency Cycles of a memory access, used if there is neither a next level nor DRAM
+     */
+    public Cache(CacheConfig config, Cache nextLevel, DramController dram, int memoryLatency) {
+
+        this.config = config;
+        this.nextLevel = nextLevel;
+        this.dram = dram;
+        this.memoryLatency = memoryLatency;
+        this.lineBits = Integer.numberOfTrailingZeros(config.getLineSize());
+        this.setMask = config.getSetCount() - 1;
+        this.associativity = config.getAssociativity();
+
+        int lineCount = config.getSetCount() * this.associativity;
+
+        this.tags = new int[lineCount];
+        this.dirty = new boolean[lineCount];
+        this.prefetched = new boolean[lineCount];
+        this.lastUse = config.getReplacementPolicy() == ReplacementPolicy.LRU ? new long[lineCount] : null;
+        this.treeBits = config.getReplacementPolicy() == ReplacementPolicy.PLRU ? new long[config.getSetCount()] : null;
+
+        Arrays.fill(this.tags, INVALID);
+
+        // Blocking cache tracks its single miss in one register
+        this.mshrs = new MissStatusHoldingRegisters(Math.max(config.getMshrCount(), 1));
+    }
+
+    /**
+     * Look the address up, bringing the line in on a miss
+     * @param address Byte address
+     * @param isWrite true for a store
+     * @param cycle Cycle the access starts in
+     * @return Cycles until the access finishes
+     */
+    public int access(int address, boolean isWrite, int cycle) {
+
+        int line = address >>> this.lineBits;
+        int first = (line & this.setMask) * this.associativity;
+        int hitLatency = this.config.getHitLatency();
+        int start = cycle;
+
+        this.accesses++;
+
+        // Blocking cache serves nothing until the outstanding miss is filled
+        if(this.config.getMshrCount() == 0) {
+            start = Math.max(start, this.mshrs.getLastFillCycle());
+        }
+
+        int way = this.findWay(first, line);
+
+        // Line is already on its way, wait for it instead of sending another request
+        int fillCycle = this.mshrs.getFillCycle(line, start);
+
+        if(fillCycle >= 0) {
+
+            this.mergedMisses++;
+            this.isLastAccessMiss = true;
+
+            // Prefetch started too late to hide the whole miss
+            if(way >= 0 && this.prefetched[first + way]) {
+                this.latePrefetches++;
+                this.prefetched[first + way] = false;
+            }
+
+            int ready = Math.max(fillCycle, start + hitLatency);
+
+            if(way >= 0) {
+                this.touch(first, way);
+            }
+
+            if(isWrite && way >= 0 && this.config.isWriteBack()) {
+                this.dirty[first + way] = true;
+            } else if(isWrite) {
+                ready += this.accessNextLevel(address, true, ready);
+            }
+
+            return ready - cycle;
+        }
+
+        if(way >= 0) {
+
+            this.hits++;
+            this.touch(first, way);
+            this.isLastAccessMiss = this.prefetched[first + way];
+
+            if(this.prefetched[first + way]) {
+                this.prefetchHits++;
+                this.prefetched[first + way] = false;
+            }
+
+            if(!isWrite) {
+                return start + hitLatency - cycle;
+            } else if(this.config.isWriteBack()) {
+                this.dirty[first + way] = true;
+                return start + hitLatency - cycle;
+            }
+
+            // Write-through waits for the next level
+            return start + hitLatency + this.accessNextLevel(address, true, start + hitLatency) - cycle;
+        }
+
+        this.isLastAccessMiss = true;
+
+        // Store misses without write-allocate only go to the next level
+        if(isWrite && !this.config.isWriteAllocate()) {
+            return start + hitLatency + this.accessNextLevel(address, true, start + hitLatency) - cycle;
+        }
+
+        // Every register is waiting for a line already
+        int freeCycle = this.mshrs.getFreeCycle(start);
+
+        if(freeCycle > start) {
+            this.mshrStalls++;
+            start = freeCycle;
+        }
+
+        way = this.evict(first, start);
+        fillCycle = start + hitLatency + this.accessNextLevel(address, false, start + hitLatency);
+
+        this.mshrs.allocate(line, start, fillCycle);
+        this.tags[first + way] = line;
+        this.dirty[first + way] = isWrite && this.config.isWriteBack();
+        this.touch(first, way);
+
+        if(isWrite && !this.config.isWriteBack()) {
+            return fillCycle + this.accessNextLevel(address, true, fillCycle) - cycle;
+        }
+
+        return fillCycle - cycle;
+    }
+
+    /**
+     * Bring the line of the address in if it's missing and a miss status holding register is free.
+     * Blocking cache doesn't prefetch, demand misses would wait for the prefetches.
+     * @param address Byte address
+     * @param cycle Cycle the prefetch starts in
+     * @return true if the prefetch was sent to the next level
+     */
+    public boolean prefetch(int address, int cycle) {
+
+        int line = address >>> this.lineBits;
+        int first = (line & this.setMask) * this.associativity;
+
+        // Lines on their way already have their tags
+        if(this.config.getMshrCount() == 0 || this.findWay(first, line) >= 0
+                || this.mshrs.getFreeCycle(cycle) > cycle) {
+            return false;
+        }
+
+        int hitLatency = this.config.getHitLatency();
+        int way = this.evict(first, cycle);
+        int fillCycle = cycle + hitLatency + this.accessNextLevel(address, false, cycle + hitLatency);
+
+        this.prefetches++;
+        this.mshrs.allocate(line, cycle, fillCycle);
+        this.tags[first + way] = line;
+        this.dirty[first + way] = false;
+        this.prefetched[first + way] = true;
+        this.touch(first, way);
+
+        return true;
+    }
+
+    /**
+     * @param address Byte address
+     * @return true if the line of the address is in the cache, doesn't change any state
+     */
+    public boolean contains(int address) {
+
+        int line = address >>> this.lineBits;
+
+        return this.findWay((line & this.setMask) * this.associativity, line) >= 0;
+    }
+
+    private int accessNextLevel(int address, boolean isWrite, int cycle) {
+
+        if(this.nextLevel != null) {
+            return this.nextLevel.access(address, isWrite, cycle);
+        } else if(this.dram != null) {
+            return this.dram.access(address, isWrite, cycle);
+        }
+
+        return this.memoryLatency;
+    }
+
+    /**
+     * Make room for a line in the set
+     * @param first Index of the first line of the set
+     * @param cycle Cycle the line is requested in
+     * @return Way of the victim, its line is gone
+     */
+    private int evict(int first, int cycle) {
+
+        int way = this.findVictim(first);
+        int victim = first + way;
+
+        if(this.tags[victim] != INVALID && this.prefetched[victim]) {
+            this.unusedPrefetches++;
+        }
+
+        // Dirty victim goes to a write buffer, off the critical path of the miss
+        if(this.tags[victim] != INVALID && this.dirty[victim]) {
+            this.writeBacks++;
+
+            if(this.nextLevel != null) {
+                this.nextLevel.access(this.tags[victim] << this.lineBits, true, cycle);
+            } else if(this.dram != null) {
+                this.dram.access(this.tags[victim] << this.lineBits, true, cycle);
+            }
+        }
+
+        this.tags[victim] = INVALID;
+        this.prefetched[victim] = false;
+
+        return way;
+    }
+
+    /**
+     * @return Way holding the line, -1 if it's not in the cache
+     */
+    private int findWay(int first, int line) {
+
+        for(int way = 0; way < this.associativity; way++) {
+            if(this.tags[first + way] == line) {
+                return way;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Update replacement state after a use of the line
+     */
+    private void touch(int first, int way) {
+
+        if(this.lastUse != null) {
+            this.lastUse[first + way] = this.accesses;
+        } else if(this.treeBits != null) {
+
+            int set = first / this.associativity;
+            long bits = this.treeBits[set];
+            int node = 1;
+
+            // Point every node on the path away from the used way
+            for(int half = this.associativity / 2; half > 0; half /= 2) {
+
+                boolean isRight = (way & half) != 0;
+
+                if(isRight) {
+                    bits &= ~(1L << (node - 1));
+                } else {
+                    bits |= 1L << (node - 1);
+                }
+
+                node = 2 * node + (isRight ? 1 : 0);
+            }
+
+            this.treeBits[set] = bits;
+        }
+    }
+
+    /**
+     * @return Way to evict from the set, an empty one if there is any
+     */
+    private int findVictim(int first) {
+
+        for(int way = 0; way < this.associativity; way++) {
+            if(this.tags[first + way] == INVALID) {
+                return way;
+            }
+        }
+
+        if(this.lastUse != null) {
+
+            int victim = 0;
+
+            for(int way = 1; way < this.associativity; way++) {
+                if(this.lastUse[first + way] < this.lastUse[first + victim]) {
+                    victim = way;
+                }
+            }
+
+            return victim;
+        } else if(this.treeBits != null) {
+
+            long bits = this.treeBits[first / this.associativity];
+            int node = 1;
+            int way = 0;
+
+            // Follow the bits down to a leaf
+            for(int half = this.associativity / 2; half > 0; half /= 2) {
+
+                boolean isRight = (bits & (1L << (node - 1))) != 0;
+
+                if(isRight) {
+                    way += half;
+                }
+
+                node = 2 * node + (isRight ? 1 : 0);
+            }
+
+            return way;
+        }
+
+        this.randomState ^= this.randomState << 13;
+        this.randomState ^= this.randomState >>> 17;
+        this.randomState ^= this.randomState << 5;
+
+        return (this.randomState & Integer.MAX_VALUE) % this.associativity;
+    }
+
+    public CacheConfig getConfig() {
+        return this.config;
+    }
+
+    public long getAccesses() {
+        return this.accesses;
+    }
+
+    public long getHits() {
+        return this.hits;
+    }
+
+    public long getMisses() {
+        return this.accesses - this.hits;
+    }
+
+    /**
+     * @return Misses to a line that was already on its way, they didn't go to the next level
+     */
+    public long getMergedMisses() {
+        return this.mergedMisses;
+    }
+
+    /**
+     * @return Misses that waited for a free miss status holding register
+     */
+    public long getMshrStalls() {
+        return this.mshrStalls;
+    }
+
+    /**
+     * @return Dirty lines written to the next level on eviction
+     */
+    public long getWriteBacks() {
+        return this.writeBacks;
+    }
+
+    /**
+     * @return Fraction of accesses that missed, 0 if there were none
+     */
+    public double getMissRate() {
+        return this.accesses == 0 ? 0 : this.getMisses() / (double)this.accesses;
+    }
+
+    /**
+     * @return true if the last access missed, or was the first use of a prefetched line
+     */
+    public boolean isLastAccessMiss() {
+        return this.isLastAccessMiss;
+    }
+
+    /**
+     * @return Prefetches sent to the next level
+     */
+    public long getPrefetches() {
+        return this.prefetches;
+    }
+
+    /**
+     * @return Prefetched lines used after they arrived
+     */
+    public long getPrefetchHits() {
+        return this.prefetchHits;
+    }
+
+    /**
+     * @return Prefetched lines used while still on their way, counted as merged misses
+     */
+    public long getLatePrefetches() {
+        return this.latePrefetches;
+    }
+
+    /**
+     * @return Prefetched lines evicted before any use
+     */
+    public long getUnusedPrefetches() {
+        return this.unusedPrefetches;
+    }
+
+    /**
+     * @return Fraction of prefetches that were used, 0 if there were none
+     */
+    public double getPrefetchAccuracy() {
+        long useful = this.prefetchHits + this.latePrefetches;
+
+        return this.prefetches == 0 ? 0 : useful / (double)this.prefetches;
+    }
+
+    /**
+     * @return Fraction of misses without prefetching that prefetches started on, 0 if there were none
+     */
+    public double getPrefetchCoverage() {
+        long useful = this.prefetchHits + this.latePrefetches;
+        long misses = this.prefetchHits + this.getMisses();
+
+        return misses == 0 ? 0 : useful / (double)misses;
+    }
+
+    /**
+     * @return Fraction of used prefetches that arrived in time, 0 if none were used
+     */
+    public double getPrefetchTimeliness() {
+        long useful = this.prefetchHits + this.latePrefetches;
+
+        return useful == 0 ? 0 : this.prefetchHits / (double)useful;
+    }
+}
@@ -0,0 +1,209 @@
+package org.mk0934.simulator.cache;
+
+import java.util.Map;
+
+/**
+ * Geometry and policies of one cache level
+ *
+ * Immutable, so one instance can be shared by simulations running concurrently.
+ *
+ * @author Maciej Kumorek
+ */
+public final class CacheConfig {
+
+    private final int size;
+    private final int associativity;
+    private final int lineSize;
+    private final ReplacementPolicy replacementPolicy;
+    private final boolean isWriteBack;
+    private final boolean isWriteAllocate;
+    private final int hitLatency;
+    private final int mshrCount;
+
+    /**
+     * @param size Capacity in bytes
+     * @param associativity Number of ways in each set
+     * @param lineSize Bytes in each line
+     * @param replacementPolicy Line evicted from a full set
+     * @param isWriteBack Write dirty lines to the next level on eviction, otherwise write every store through
+     * @param isWriteAllocate Bring the line in on a store miss, otherwise only write to the next level
+     * @param hitLatency Cycles of a hit, misses add latency of the next level
+     * @param mshrCount Most misses waiting for their lines at once, 0 for a cache blocking on a miss
+     */
+    public CacheConfig(int size,
+                       int associativity,
+                       int lineSize,
+                       ReplacementPolicy replacementPolicy,
+                       boolean isWriteBack,
+                       boolean isWriteAllocate,
+                       int hitLatency,
+                       int mshrCount) {
+
+        if(lineSize < 4 || Integer.bitCount(lineSize) != 1) {
+            throw new IllegalArgumentException("Line size has to be a power of two of at least 4 bytes");
+        }
+
+        if(associativity <= 0 || associativity > 64) {
+            throw new IllegalArgumentException("Associativity has to be between 1 and 64");
+        }
+
+        if(size <= 0 || size % (lineSize * associativity) != 0
+                || Integer.bitCount(size / (lineSize * associativity)) != 1) {
+            throw new IllegalArgumentException("Number of sets has to be a power of two");
+        }
+
+        if(replacementPolicy == null) {
+            throw new NullPointerException("replacementPolicy");
+        }
+
+        if(replacementPolicy == ReplacementPolicy.PLRU && Integer.bitCount(associativity) != 1) {
+            throw new IllegalArgumentException("Pseudo-LRU needs a power of two associativity");
+        }
+
+        if(hitLatency < 0) {
+            throw new IllegalArgumentException("hitLatency");
+        }
+
+        if(mshrCount < 0) {
+            throw new IllegalArgumentException("mshrCount");
+        }
+
+        this.size = size;
+        this.associativity = associativity;
+        this.lineSize = lineSize;
+        this.replacementPolicy = replacementPolicy;
+        this.isWriteBack = isWriteBack;
+        this.isWriteAllocate = isWriteAllocate;
+        this.hitLatency = hitLatency;
+        this.mshrCount = mshrCount;
+    }
+
+    /**
+     * @param level Cache level
+     * @return Configuration of the level used unless a machine description changes it
+     */
+    public static CacheConfig getDefault(CacheLevel level) {
+
+        if(level == CacheLevel.L1I) {
+            return new CacheConfig(32 * 1024, 8, 64, ReplacementPolicy.LRU, true, true, 1, 4);
+        } else if(level == CacheLevel.L1D) {
+            return new CacheConfig(32 * 1024, 8, 64, ReplacementPolicy.LRU, true, true, 4, 8);
+        }
+
+        return new CacheConfig(256 * 1024, 8, 64, ReplacementPolicy.LRU, true, true, 12, 16);
+    }
+
+    /**
+     * Copy the configuration with some parameters changed, the result is checked once all of them are set
+     * @param parameters Values by name, names are size, ways, line, policy, writeback, writeallocate,
+     *                   latency and mshrs
+     * @return changed configuration
+     */
+    public CacheConfig withParameters(Map<String, String> parameters) {
+
+        int size = this.size;
+        int associativity = this.associativity;
+        int lineSize = this.lineSize;
+        ReplacementPolicy replacementPolicy = this.replacementPolicy;
+        boolean isWriteBack = this.isWriteBack;
+        boolean isWriteAllocate = this.isWriteAllocate;
+        int hitLatency = this.hitLatency;
+        int mshrCount = this.mshrCount;
+
+        for(Map.Entry<String, String> parameter : parameters.entrySet()) {
+
+            String name = parameter.getKey();
+            String value = parameter.getValue().trim();
+
+            if(name.equals("size")) {
+                size = Integer.parseInt(value);
+            } else if(name.equals("ways")) {
+                associativity = Integer.parseInt(value);
+            } else if(name.equals("line")) {
+                lineSize = Integer.parseInt(value);
+            } else if(name.equals("policy")) {
+                replacementPolicy = ReplacementPolicy.valueOf(value.toUpperCase());
+            } else if(name.equals("writeback")) {
+                isWriteBack = Boolean.parseBoolean(value);
+            } else if(name.equals("writeallocate")) {
+                isWriteAllocate = Boolean.parseBoolean(value);
+            } else if(name.equals("latency")) {
+                hitLatency = Integer.parseInt(value);
+            } else if(name.equals("mshrs")) {
+                mshrCount = Integer.parseInt(value);
+            } else {
+                throw new IllegalArgumentException("Unknown cache parameter: " + name);
+            }
+        }
+
+        return new CacheConfig(size, associativity, lineSize, replacementPolicy,
+                isWriteBack, isWriteAllocate, hitLatency, mshrCount);
+    }
+
+    /**
+     * @return Capacity in bytes
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    public int getAssociativity() {
+        return this.associativity;
+    }
+
+    /**
+     * @return Bytes in each line
+     */
+    public int getLineSize() {
+        return this.lineSize;
+    }
+
+    public int getSetCount() {
+        return this.size / (this.lineSize * this.associativity);
+    }
+
+    public ReplacementPolicy getReplacementPolicy() {
+        return this.replacementPolicy;
+    }
+
+    /**
+     * @return true if dirty lines are written to the next level on eviction, false to write stores through
+     */
+    public boolean isWriteBack() {
+        return this.isWriteBack;
+    }
+
+    /**
+     * @return true if a store miss brings the line in
+     */
+    public boolean isWriteAllocate() {
+        return this.isWriteAllocate;
+    }
+
+    /**
+     * @return Cycles of a hit
+     */
+    public int getHitLatency() {
+        return this.hitLatency;
+    }
+
+    /**
+     * @return Most misses waiting for their lines at once, 0 if the cache blocks on a miss
+     */
+    public int getMshrCount() {
+        return this.mshrCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%dKB %d-way %dB %s%s%s %d cycles %d MSHRs",
+                this.size / 1024,
+                this.associativity,
+                this.lineSize,
+                this.replacementPolicy.name().toLowerCase(),
+                this.isWriteBack ? " write-back" : " write-through",
+                this.isWriteAllocate ? " write-allocate" : "",
+                this.hitLatency,
+                this.mshrCount);
+    }
+}
@@ -0,0 +1,12 @@
+package org.mk0934.simulator.cache;
+
+/**
+ * Levels of the cache hierarchy
+ *
+ * @author Maciej Kumorek
+ */
+public enum CacheLevel {
+    L1I,
+    L1D,
+    L2
+}
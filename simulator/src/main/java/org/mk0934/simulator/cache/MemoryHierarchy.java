@@ -0,0 +1,203 @@
+package org.mk0934.simulator.cache;
+
+import org.mk0934.simulator.dram.DramConfig;
+import org.mk0934.simulator.dram.DramController;
+
+/**
+ * Caches between the processor and the memory
+ *
+ * Instruction and data caches share the L2 if there is one. Missing levels are skipped,
+ * so e.g. with no L1I fetches go straight to the L2.
+ *
+ * Misses of the last level go to DRAM with banks and row buffers if there is one, otherwise
+ * they take a fixed memory latency.
+ *
+ * A prefetcher can watch the loads and bring lines into the first data cache, the L1D or the L2
+ * without it, in the cycle of the load that triggered it.
+ *
+ * @author Maciej Kumorek
+ */
+public class MemoryHierarchy {
+
+    private final Cache[] caches = new Cache[CacheLevel.values().length];
+
+    private final int memoryLatency;
+
+    /**
+     * DRAM behind the caches, null for a fixed memory latency
+     */
+    private final DramController dram;
+
+    /**
+     * Prefetcher of the data cache, null if there is none
+     */
+    private final Prefetcher prefetcher;
+
+    /**
+     * Addresses the prefetcher picks, reused by every load
+     */
+    private final int[] prefetchAddresses;
+
+    /**
+     * @param configs Configuration of each level indexed by CacheLevel ordinal, null if the level is absent
+     * @param memoryLatency Cycles of a memory access
+     * @param prefetchConfig Prefetcher of the data cache, null for none
+     * @param dramConfig DRAM behind the caches, null for a fixed memory latency
+     */
+    public MemoryHierarchy(CacheConfig[] configs,
+                           int memoryLatency,
+                           PrefetchConfig prefetchConfig,
+                           DramConfig dramConfig) {
+
+        this.memoryLatency = memoryLatency;
+
+        CacheConfig l2Config = configs[CacheLevel.L2.ordinal()];
+
+        // DRAM transfers the largest line a level talking to it requests
+        int dramLineSize = 0x4;
+
+        for(CacheLevel level : CacheLevel.values()) {
+            if(configs[level.ordinal()] != null && (l2Config == null || level == CacheLevel.L2)) {
+                dramLineSize = Math.max(dramLineSize, configs[level.ordinal()].getLineSize());
+            }
+        }
+
+        this.dram = dramConfig != null ? new DramController(dramConfig, dramLineSize) : null;
+
+        Cache l2 = l2Config != null ? new Cache(l2Config, null, this.dram, memoryLatency) : null;
+
+        this.caches[CacheLevel.L2.ordinal()] = l2;
+
+        for(CacheLevel level : new CacheLevel[] { CacheLevel.L1I, CacheLevel.L1D }) {
+            if(configs[level.ordinal()] != null) {
+                this.caches[level.ordinal()] = new Cache(configs[level.ordinal()], l2, this.dram, memoryLatency);
+            }
+        }
+
+        Cache dataCache = this.getDataCache();
+
+        if(prefetchConfig != null && dataCache != null) {
+            this.prefetcher = prefetchConfig.createPrefetcher(dataCache.getConfig().getLineSize());
+            this.prefetchAddresses = new int[prefetchConfig.getDegree()];
+        } else {
+            this.prefetcher = null;
+            this.prefetchAddresses = null;
+        }
+    }
+
+    /**
+     * Fetch from an instruction address
+     * @param address Byte address
+     * @param cycle Current cycle
+     * @return Cycles until the instruction arrives
+     */
+    public int accessInstruction(int address, int cycle) {
+        return this.access(CacheLevel.L1I, address, false, cycle);
+    }
+
+    /**
+     * Load or store words. Lines are accessed in parallel, so the slowest one decides.
+     * Loads train the prefetcher, its prefetches start in the same cycle.
+     * @param instructionAddress Address of the load or store instruction
+     * @param address First byte address
+     * @param wordCount Number of words
+     * @param isWrite true for a store
+     * @param cycle Current cycle
+     * @return Cycles until the access finishes
+     */
+    public int accessData(int instructionAddress, int address, int wordCount, boolean isWrite, int cycle) {
+
+        int latency = 0;
+        int end = address + wordCount * 0x4;
+        int lineSize = this.getLineSize(CacheLevel.L1D);
+        boolean isMiss = false;
+
+        for(int line = address & -lineSize; line < end; line += lineSize) {
+            latency = Math.max(latency, this.access(CacheLevel.L1D, Math.max(line, address), isWrite, cycle));
+            isMiss |= this.prefetcher != null && this.getDataCache().isLastAccessMiss();
+        }
+
+        if(this.prefetcher != null && !isWrite) {
+
+            Cache dataCache = this.getDataCache();
+            int count = this.prefetcher.train(instructionAddress, address, isMiss, this.prefetchAddresses);
+
+            for(int i = 0; i < count; i++) {
+                dataCache.prefetch(this.prefetchAddresses[i], cycle);
+            }
+        }
+
+        return latency;
+    }
+
+    /**
+     * @return Cache loads and stores go to first, null if there are no caches
+     */
+    public Cache getDataCache() {
+
+        Cache cache = this.caches[CacheLevel.L1D.ordinal()];
+
+        return cache != null ? cache : this.caches[CacheLevel.L2.ordinal()];
+    }
+
+    /**
+     * @return DRAM behind the caches, null if memory has a fixed latency
+     */
+    public DramController getDram() {
+        return this.dram;
+    }
+
+    /**
+     * @return true if a prefetcher brings lines into the data cache
+     */
+    public boolean hasPrefetcher() {
+        return this.prefetcher != null;
+    }
+
+    /**
+     * @param level Cache level
+     * @return Cache of the level, null if it's absent
+     */
+    public Cache getCache(CacheLevel level) {
+        return this.caches[level.ordinal()];
+    }
+
+    private int access(CacheLevel level, int address, boolean isWrite, int cycle) {
+
+        Cache cache = this.caches[level.ordinal()];
+
+        if(cache == null) {
+            cache = this.caches[CacheLevel.L2.ordinal()];
+        }
+
+        if(cache != null) {
+            return cache.access(address, isWrite, cycle);
+        } else if(this.dram != null) {
+            return this.dram.access(address, isWrite, cycle);
+        }
+
+        return this.memoryLatency;
+    }
+
+    /**
+     * @return Line size of the level, or the next one present, a word if there are no caches
+     */
+    private int getLineSize(CacheLevel level) {
+
+        Cache cache = this.caches[level.ordinal()];
+
+        if(cache == null) {
+            cache = this.caches[CacheLevel.L2.ordinal()];
+        }
+
+        return cache == null ? 0x4 : cache.getConfig().getLineSize();
+    }
+
+    /**
+     * @param address Instruction address
+     * @return Line the instruction cache fetches the address with
+     */
+    public int getInstructionLine(int address) {
+        return address & -this.getLineSize(CacheLevel.L1I);
+    }
+}
@@ -0,0 +1,102 @@
+package org.mk0934.simulator.cache;
+
+/**
+ * Misses of a cache level waiting for their lines to arrive
+ *
+ * Each register holds a line and the cycle the line is filled in. A register is free again once
+ * that cycle passes, so no events need to be processed while cycles pass or are skipped.
+ *
+ * @author Maciej Kumorek
+ */
+class MissStatusHoldingRegisters {
+
+    private static final int INVALID = -1;
+
+    /**
+     * Line address each register waits for
+     */
+    private final int[] lines;
+
+    /**
+     * Cycle each line is filled in
+     */
+    private final int[] fillCycles;
+
+    MissStatusHoldingRegisters(int count) {
+
+        if(count <= 0) {
+            throw new IllegalArgumentException("count");
+        }
+
+        this.lines = new int[count];
+        this.fillCycles = new int[count];
+
+        for(int i = 0; i < count; i++) {
+            this.lines[i] = INVALID;
+        }
+    }
+
+    /**
+     * @param line Line address
+     * @param cycle Cycle of the access
+     * @return Cycle the line is filled in, -1 if it isn't on its way
+     */
+    int getFillCycle(int line, int cycle) {
+
+        for(int i = 0; i < this.lines.length; i++) {
+            if(this.lines[i] == line && this.fillCycles[i] > cycle) {
+                return this.fillCycles[i];
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @param cycle Cycle of the access
+     * @return First cycle from the given one a register is free in
+     */
+    int getFreeCycle(int cycle) {
+
+        int freeCycle = Integer.MAX_VALUE;
+
+        for(int i = 0; i < this.lines.length; i++) {
+            freeCycle = Math.min(freeCycle, this.fillCycles[i]);
+        }
+
+        return Math.max(freeCycle, cycle);
+    }
+
+    /**
+     * Track a miss
+     * @param line Line address
+     * @param cycle Cycle the miss starts in, at least getFreeCycle()
+     * @param fillCycle Cycle the line arrives in
+     */
+    void allocate(int line, int cycle, int fillCycle) {
+
+        for(int i = 0; i < this.lines.length; i++) {
+            if(this.fillCycles[i] <= cycle) {
+                this.lines[i] = line;
+                this.fillCycles[i] = fillCycle;
+                return;
+            }
+        }
+
+        throw new IllegalStateException("No free register");
+    }
+
+    /**
+     * @return Cycle the last line on its way is filled in
+     */
+    int getLastFillCycle() {
+
+        int lastFillCycle = 0;
+
+        for(int i = 0; i < this.lines.length; i++) {
+            lastFillCycle = Math.max(lastFillCycle, this.fillCycles[i]);
+        }
+
+        return lastFillCycle;
+    }
+}
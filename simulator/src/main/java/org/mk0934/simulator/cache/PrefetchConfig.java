@@ -0,0 +1,136 @@
+package org.mk0934.simulator.cache;
+
+import java.util.Map;
+
+/**
+ * Prefetcher of the data cache and how far ahead it runs
+ *
+ * Immutable, so one instance can be shared by simulations running concurrently.
+ *
+ * @author Maciej Kumorek
+ */
+public final class PrefetchConfig {
+
+    private final PrefetcherType type;
+    private final int degree;
+    private final int distance;
+    private final int tableSize;
+
+    /**
+     * @param type Prefetcher to use
+     * @param degree Lines or strides prefetched each time the prefetcher triggers
+     * @param distance Lines or strides ahead of the load the first prefetch is
+     * @param tableSize Entries of the stride table
+     */
+    public PrefetchConfig(PrefetcherType type, int degree, int distance, int tableSize) {
+
+        if(type == null) {
+            throw new NullPointerException("type");
+        }
+
+        if(degree <= 0) {
+            throw new IllegalArgumentException("degree");
+        }
+
+        if(distance <= 0) {
+            throw new IllegalArgumentException("distance");
+        }
+
+        if(tableSize <= 0) {
+            throw new IllegalArgumentException("tableSize");
+        }
+
+        this.type = type;
+        this.degree = degree;
+        this.distance = distance;
+        this.tableSize = tableSize;
+    }
+
+    /**
+     * @param type Prefetcher to use
+     * @return Configuration of the prefetcher used unless a machine description changes it
+     */
+    public static PrefetchConfig getDefault(PrefetcherType type) {
+        return new PrefetchConfig(type, 2, 1, 64);
+    }
+
+    /**
+     * Copy the configuration with some parameters changed, the result is checked once all of them are set
+     * @param parameters Values by name, names are type, degree, distance and table
+     * @return changed configuration
+     */
+    public PrefetchConfig withParameters(Map<String, String> parameters) {
+
+        PrefetcherType type = this.type;
+        int degree = this.degree;
+        int distance = this.distance;
+        int tableSize = this.tableSize;
+
+        for(Map.Entry<String, String> parameter : parameters.entrySet()) {
+
+            String name = parameter.getKey();
+            String value = parameter.getValue().trim();
+
+            if(name.equals("type")) {
+                type = PrefetcherType.valueOf(value.toUpperCase());
+            } else if(name.equals("degree")) {
+                degree = Integer.parseInt(value);
+            } else if(name.equals("distance")) {
+                distance = Integer.parseInt(value);
+            } else if(name.equals("table")) {
+                tableSize = Integer.parseInt(value);
+            } else {
+                throw new IllegalArgumentException("Unknown prefetch parameter: " + name);
+            }
+        }
+
+        return new PrefetchConfig(type, degree, distance, tableSize);
+    }
+
+    /**
+     * @param lineSize Bytes in each line of the cache prefetched into
+     * @return New prefetcher with this configuration
+     */
+    public Prefetcher createPrefetcher(int lineSize) {
+
+        if(this.type == PrefetcherType.STRIDE) {
+            return new StridePrefetcher(this.tableSize, this.degree, this.distance);
+        }
+
+        return new StreamPrefetcher(lineSize, this.degree, this.distance);
+    }
+
+    public PrefetcherType getType() {
+        return this.type;
+    }
+
+    /**
+     * @return Lines or strides prefetched each time the prefetcher triggers
+     */
+    public int getDegree() {
+        return this.degree;
+    }
+
+    /**
+     * @return Lines or strides ahead of the load the first prefetch is
+     */
+    public int getDistance() {
+        return this.distance;
+    }
+
+    /**
+     * @return Entries of the stride table
+     */
+    public int getTableSize() {
+        return this.tableSize;
+    }
+
+    @Override
+    public String toString() {
+
+        String text = String.format("%s degree %d distance %d",
+                this.type.name().toLowerCase(), this.degree, this.distance);
+
+        return this.type == PrefetcherType.STRIDE ? text + " table " + this.tableSize : text;
+    }
+}
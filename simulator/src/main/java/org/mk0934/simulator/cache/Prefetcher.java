@@ -0,0 +1,22 @@
+package org.mk0934.simulator.cache;
+
+/**
+ * Picks lines to bring into the data cache before loads ask for them
+ *
+ * The memory hierarchy trains it with every load and sends the addresses it picks to the cache,
+ * which drops those already present or on their way.
+ *
+ * @author Maciej Kumorek
+ */
+public interface Prefetcher {
+
+    /**
+     * Observe a load and pick addresses to prefetch
+     * @param instructionAddress Address of the load instruction
+     * @param address First byte address it loads
+     * @param isMiss true if the load missed, or was the first use of a prefetched line
+     * @param prefetchAddresses Filled with byte addresses to prefetch, as many as the degree at most
+     * @return Number of addresses filled in
+     */
+    int train(int instructionAddress, int address, boolean isMiss, int[] prefetchAddresses);
+}
@@ -0,0 +1,19 @@
+package org.mk0934.simulator.cache;
+
+/**
+ * Prefetchers the data cache can use
+ *
+ * @author Maciej Kumorek
+ */
+public enum PrefetcherType {
+
+    /**
+     * Table indexed by load address, prefetches along the stride a load keeps repeating
+     */
+    STRIDE,
+
+    /**
+     * Next lines after a miss, or after the first use of a prefetched line
+     */
+    STREAM
+}
@@ -0,0 +1,24 @@
+package org.mk0934.simulator.cache;
+
+/**
+ * Ways of choosing the line a cache evicts from a full set
+ *
+ * @author Maciej Kumorek
+ */
+public enum ReplacementPolicy {
+
+    /**
+     * Least recently used line
+     */
+    LRU,
+
+    /**
+     * Tree pseudo-LRU, one bit per node of a binary tree over the ways
+     */
+    PLRU,
+
+    /**
+     * Any line, from a seeded generator so simulations are repeatable
+     */
+    RANDOM
+}
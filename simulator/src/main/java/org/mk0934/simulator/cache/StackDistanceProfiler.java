@@ -0,0 +1,332 @@
+package org.mk0934.simulator.cache;
+
+import java.util.Arrays;
+
+/**
+ * Miss ratios of every LRU cache size and associativity from one pass over the data accesses
+ *
+ * Mattson's stack algorithm: an access hits in an LRU set of A ways if fewer than A other lines of
+ * the set were used since the line's last use. That number is the stack distance, so a histogram of
+ * distances gives the misses of every associativity at once. One histogram is kept for each number of
+ * sets, a power of two up to a direct-mapped cache of the largest size, and a cache of S sets with
+ * A ways takes the histogram of S sets. One set is a fully associative cache.
+ *
+ * Distances are counted with a Fenwick tree over the accesses of each set, marking the last use
+ * of each line, and a hash table from the line to its last use, so an access takes logarithmic time
+ * in each histogram. Once a tree fills up, accesses that are no longer the last use of their line
+ * are dropped, so memory grows with the lines used rather than with the accesses.
+ *
+ * @author Maciej Kumorek
+ */
+public class StackDistanceProfiler {
+
+    /**
+     * Largest cache size reported, in bytes
+     */
+    public static final int MAX_SIZE = 1024 * 1024;
+
+    /**
+     * Key of a free slot of the hash table, lines are never negative
+     */
+    private static final int EMPTY = -1;
+
+    private final int lineSize;
+    private final int lineBits;
+
+    /**
+     * Lines in a cache of the largest size
+     */
+    private final int maxLines;
+
+    private final int levels;
+
+    /**
+     * Open addressing hash table of the lines used so far
+     */
+    private int[] slotLines;
+
+    /**
+     * Last use of the line of each slot within its set, for each number of sets
+     */
+    private int[] lastUses;
+
+    private int lineCount;
+
+    /**
+     * Fenwick tree of each set over its accesses, with 1 at the last use of each line,
+     * for each number of sets. Allocated on the first access of the set.
+     */
+    private final int[][][] trees;
+
+    /**
+     * Line of each access in the tree of its set, for each number of sets
+     */
+    private final int[][][] accessedLines;
+
+    /**
+     * Accesses of each set so far, for each number of sets
+     */
+    private final int[][] setAccesses;
+
+    /**
+     * Accesses with each stack distance, for each number of sets.
+     * Last bucket counts the distances too large for any cache reported.
+     */
+    private final long[][] histograms;
+
+    private long accesses;
+
+    /**
+     * First uses of a line, they miss in every cache
+     */
+    private long coldMisses;
+
+    /**
+     * @param lineSize Bytes in each line of the caches
+     */
+    public StackDistanceProfiler(int lineSize) {
+
+        if(lineSize < 4 || lineSize > MAX_SIZE || Integer.bitCount(lineSize) != 1) {
+            throw new IllegalArgumentException("Line size has to be a power of two of at least 4 bytes");
+        }
+
+        this.lineSize = lineSize;
+        this.lineBits = Integer.numberOfTrailingZeros(lineSize);
+        this.maxLines = MAX_SIZE / lineSize;
+
+        int levels = Integer.numberOfTrailingZeros(this.maxLines) + 1;
+
+        this.levels = levels;
+        this.slotLines = new int[64];
+        this.lastUses = new int[64 * levels];
+        Arrays.fill(this.slotLines, EMPTY);
+        this.trees = new int[levels][][];
+        this.accessedLines = new int[levels][][];
+        this.setAccesses = new int[levels][];
+        this.histograms = new long[levels][];
+
+        for(int level = 0; level < levels; level++) {
+            this.trees[level] = new int[1 << level][];
+            this.accessedLines[level] = new int[1 << level][];
+            this.setAccesses[level] = new int[1 << level];
+            this.histograms[level] = new long[(this.maxLines >> level) + 1];
+        }
+    }
+
+    /**
+     * Record a load or store, words in different lines are separate accesses
+     * @param address First byte address
+     * @param wordCount Number of words
+     */
+    public void access(int address, int wordCount) {
+
+        int end = address + wordCount * 0x4;
+
+        for(int line = address & -this.lineSize; line < end; line += this.lineSize) {
+            this.accessLine(line >>> this.lineBits);
+        }
+    }
+
+    private void accessLine(int line) {
+
+        this.accesses++;
+
+        int slot = this.findSlot(line);
+        boolean isCold = this.slotLines[slot] == EMPTY;
+
+        if(isCold) {
+            this.coldMisses++;
+            slot = this.insert(slot, line);
+        }
+
+        for(int level = 0; level < this.levels; level++) {
+
+            int set = line & ((1 << level) - 1);
+            int[] tree = this.trees[level][set];
+
+            if(tree == null || this.setAccesses[level][set] + 1 >= tree.length) {
+                this.makeRoom(level, set);
+                tree = this.trees[level][set];
+            }
+
+            int time = this.setAccesses[level][set]++;
+
+            this.accessedLines[level][set][time] = line;
+
+            int index = slot * this.levels + level;
+            int lastUse = this.lastUses[index];
+
+            this.lastUses[index] = time;
+
+            if(!isCold) {
+
+                // Lines of the set used since, each is marked at its last use only
+                int distance = sum(tree, time - 1) - sum(tree, lastUse);
+                long[] histogram = this.histograms[level];
+
+                histogram[Math.min(distance, histogram.length - 1)]++;
+                add(tree, lastUse, -1);
+            }
+
+            add(tree, time, 1);
+        }
+    }
+
+    /**
+     * @return Slot of the line in the hash table, or the free slot it would take
+     */
+    private int findSlot(int line) {
+
+        int mask = this.slotLines.length - 1;
+        int slot = (line * 0x9E3779B9 >>> 16) & mask;
+
+        while(this.slotLines[slot] != EMPTY && this.slotLines[slot] != line) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /**
+     * Add a line to the hash table, which doubles once half of it is used
+     * @return Slot of the line
+     */
+    private int insert(int slot, int line) {
+
+        if(2 * (this.lineCount + 1) > this.slotLines.length) {
+
+            int[] oldLines = this.slotLines;
+            int[] oldLastUses = this.lastUses;
+
+            this.slotLines = new int[2 * oldLines.length];
+            this.lastUses = new int[2 * oldLastUses.length];
+            Arrays.fill(this.slotLines, EMPTY);
+
+            for(int i = 0; i < oldLines.length; i++) {
+                if(oldLines[i] != EMPTY) {
+                    int newSlot = this.findSlot(oldLines[i]);
+
+                    this.slotLines[newSlot] = oldLines[i];
+                    System.arraycopy(oldLastUses, i * this.levels, this.lastUses, newSlot * this.levels, this.levels);
+                }
+            }
+
+            slot = this.findSlot(line);
+        }
+
+        this.slotLines[slot] = line;
+        this.lineCount++;
+
+        return slot;
+    }
+
+    /**
+     * @param size Capacity in bytes, a power of two of at least a line up to MAX_SIZE
+     * @param associativity Ways in each set, 0 for a fully associative cache
+     * @return Misses of an LRU cache with the geometry
+     */
+    public long getMisses(int size, int associativity) {
+
+        int lines = size / this.lineSize;
+
+        if(lines <= 0 || lines > this.maxLines || Integer.bitCount(lines) != 1) {
+            throw new IllegalArgumentException("size");
+        }
+
+        if(associativity == 0) {
+            associativity = lines;
+        }
+
+        if(associativity < 0 || associativity > lines || Integer.bitCount(associativity) != 1) {
+            throw new IllegalArgumentException("associativity");
+        }
+
+        long[] histogram = this.histograms[Integer.numberOfTrailingZeros(lines / associativity)];
+        long misses = this.coldMisses;
+
+        for(int distance = associativity; distance < histogram.length; distance++) {
+            misses += histogram[distance];
+        }
+
+        return misses;
+    }
+
+    /**
+     * @return Fraction of accesses missing in an LRU cache with the geometry, 0 if there were none
+     */
+    public double getMissRatio(int size, int associativity) {
+        return this.accesses == 0 ? 0 : this.getMisses(size, associativity) / (double)this.accesses;
+    }
+
+    /**
+     * @return Line accesses recorded
+     */
+    public long getAccesses() {
+        return this.accesses;
+    }
+
+    public long getColdMisses() {
+        return this.coldMisses;
+    }
+
+    public int getLineSize() {
+        return this.lineSize;
+    }
+
+    /**
+     * Make room in the tree of a set for another access. Accesses that aren't the last use of their
+     * line are dropped, the tree only doubles if at least half of it is still in use.
+     */
+    private void makeRoom(int level, int set) {
+
+        int[] tree = this.trees[level][set];
+        int[] lines = this.accessedLines[level][set];
+
+        if(tree == null) {
+            this.trees[level][set] = new int[16];
+            this.accessedLines[level][set] = new int[16];
+            return;
+        }
+
+        int capacity = tree.length - 1;
+        int marks = sum(tree, capacity - 1);
+        int length = 2 * marks >= capacity ? 2 * tree.length : tree.length;
+        int[] compacted = new int[length];
+        int[] compactedLines = new int[length];
+        int time = 0;
+
+        // Keep the last uses in order, distances between them stay the same
+        for(int index = 0; index < capacity; index++) {
+            if(sum(tree, index) - sum(tree, index - 1) != 0) {
+                compactedLines[time] = lines[index];
+                this.lastUses[this.findSlot(lines[index]) * this.levels + level] = time;
+                add(compacted, time, 1);
+                time++;
+            }
+        }
+
+        this.trees[level][set] = compacted;
+        this.accessedLines[level][set] = compactedLines;
+        this.setAccesses[level][set] = time;
+    }
+
+    /**
+     * @return Marks of accesses 0 to index, 0 if index is negative
+     */
+    private static int sum(int[] tree, int index) {
+
+        int sum = 0;
+
+        for(int i = index + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+
+        return sum;
+    }
+
+    private static void add(int[] tree, int index, int value) {
+        for(int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += value;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.mk0934.simulator.cache;
+
+/**
+ * Next-N-line prefetcher
+ *
+ * A miss prefetches the lines following the missing one. The first use of a prefetched line
+ * counts as a miss too, so a stream keeps being prefetched ahead of the loads walking it.
+ *
+ * @author Maciej Kumorek
+ */
+class StreamPrefetcher implements Prefetcher {
+
+    private final int lineSize;
+    private final int degree;
+    private final int distance;
+
+    /**
+     * @param lineSize Bytes in each line of the cache
+     * @param degree Lines prefetched each time
+     * @param distance Lines after the missing one the first prefetched line is
+     */
+    StreamPrefetcher(int lineSize, int degree, int distance) {
+        this.lineSize = lineSize;
+        this.degree = degree;
+        this.distance = distance;
+    }
+
+    @Override
+    public int train(int instructionAddress, int address, boolean isMiss, int[] prefetchAddresses) {
+
+        if(!isMiss) {
+            return 0;
+        }
+
+        int line = address & -this.lineSize;
+
+        for(int i = 0; i < this.degree; i++) {
+            prefetchAddresses[i] = line + (this.distance + i) * this.lineSize;
+        }
+
+        return this.degree;
+    }
+}
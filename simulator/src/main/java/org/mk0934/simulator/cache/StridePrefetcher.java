@@ -0,0 +1,87 @@
+package org.mk0934.simulator.cache;
+
+/**
+ * Reference prediction table indexed by the address of the load
+ *
+ * Each entry keeps the last address and stride of a load with a two bit confidence counter.
+ * Once the same stride is seen twice in a row, the load's next addresses along it are prefetched.
+ *
+ * @author Maciej Kumorek
+ */
+class StridePrefetcher implements Prefetcher {
+
+    private static final int MAX_CONFIDENCE = 3;
+
+    /**
+     * Confidence needed to prefetch
+     */
+    private static final int THRESHOLD = 2;
+
+    private final int degree;
+    private final int distance;
+
+    /**
+     * Load address of each entry, -1 if the entry is empty
+     */
+    private final int[] tags;
+
+    private final int[] lastAddresses;
+    private final int[] strides;
+    private final int[] confidences;
+
+    /**
+     * @param tableSize Number of entries
+     * @param degree Addresses prefetched each time
+     * @param distance Strides ahead of the load the first prefetched address is
+     */
+    StridePrefetcher(int tableSize, int degree, int distance) {
+
+        this.degree = degree;
+        this.distance = distance;
+        this.tags = new int[tableSize];
+        this.lastAddresses = new int[tableSize];
+        this.strides = new int[tableSize];
+        this.confidences = new int[tableSize];
+
+        for(int i = 0; i < tableSize; i++) {
+            this.tags[i] = -1;
+        }
+    }
+
+    @Override
+    public int train(int instructionAddress, int address, boolean isMiss, int[] prefetchAddresses) {
+
+        int entry = (instructionAddress >>> 2) % this.tags.length;
+
+        // Another load takes the entry over
+        if(this.tags[entry] != instructionAddress) {
+            this.tags[entry] = instructionAddress;
+            this.lastAddresses[entry] = address;
+            this.strides[entry] = 0;
+            this.confidences[entry] = 0;
+            return 0;
+        }
+
+        int stride = address - this.lastAddresses[entry];
+
+        if(stride == this.strides[entry] && stride != 0) {
+            this.confidences[entry] = Math.min(this.confidences[entry] + 1, MAX_CONFIDENCE);
+        } else if(this.confidences[entry] > 0) {
+            this.confidences[entry]--;
+        } else {
+            this.strides[entry] = stride;
+        }
+
+        this.lastAddresses[entry] = address;
+
+        if(this.confidences[entry] < THRESHOLD) {
+            return 0;
+        }
+
+        for(int i = 0; i < this.degree; i++) {
+            prefetchAddresses[i] = address + (this.distance + i) * this.strides[entry];
+        }
+
+        return this.degree;
+    }
+}
@@ -0,0 +1,207 @@
+package org.mk0934.simulator.dram;
+
+import java.util.Map;
+
+/**
+ * Organization and timings of the DRAM behind the caches
+ *
+ * Timings are in processor cycles. Immutable, so one instance can be shared by simulations
+ * running concurrently.
+ *
+ * @author Maciej Kumorek
+ */
+public final class DramConfig {
+
+    private final int channels;
+    private final int banks;
+    private final int rowSize;
+    private final PagePolicy pagePolicy;
+    private final int controllerLatency;
+    private final int rcd;
+    private final int cas;
+    private final int rp;
+    private final int burst;
+
+    /**
+     * @param channels Independent channels, each with its own banks and data bus
+     * @param banks Banks in each channel
+     * @param rowSize Bytes in a row of a bank
+     * @param pagePolicy When rows are closed
+     * @param controllerLatency Cycles a request spends in the controller before its bank sees it
+     * @param rcd Cycles from activating a row until it can be read, tRCD
+     * @param cas Cycles from reading an open row until the data comes out, tCAS
+     * @param rp Cycles of closing a row, tRP
+     * @param burst Cycles the data bus of the channel is taken by a transfer
+     */
+    public DramConfig(int channels,
+                      int banks,
+                      int rowSize,
+                      PagePolicy pagePolicy,
+                      int controllerLatency,
+                      int rcd,
+                      int cas,
+                      int rp,
+                      int burst) {
+
+        if(channels <= 0 || Integer.bitCount(channels) != 1) {
+            throw new IllegalArgumentException("Number of channels has to be a power of two");
+        }
+
+        if(banks <= 0 || Integer.bitCount(banks) != 1) {
+            throw new IllegalArgumentException("Number of banks has to be a power of two");
+        }
+
+        if(rowSize < 4 || Integer.bitCount(rowSize) != 1) {
+            throw new IllegalArgumentException("Row size has to be a power of two of at least 4 bytes");
+        }
+
+        if(pagePolicy == null) {
+            throw new NullPointerException("pagePolicy");
+        }
+
+        if(controllerLatency < 0 || rcd < 0 || cas < 0 || rp < 0) {
+            throw new IllegalArgumentException("Timings can't be negative");
+        }
+
+        if(burst <= 0) {
+            throw new IllegalArgumentException("burst");
+        }
+
+        this.channels = channels;
+        this.banks = banks;
+        this.rowSize = rowSize;
+        this.pagePolicy = pagePolicy;
+        this.controllerLatency = controllerLatency;
+        this.rcd = rcd;
+        this.cas = cas;
+        this.rp = rp;
+        this.burst = burst;
+    }
+
+    /**
+     * @return Configuration used unless a machine description changes it, a row hit takes
+     *         about half the default memory latency and a row conflict a bit more than it
+     */
+    public static DramConfig getDefault() {
+        return new DramConfig(1, 8, 2048, PagePolicy.OPEN, 20, 30, 30, 30, 8);
+    }
+
+    /**
+     * Copy the configuration with some parameters changed, the result is checked once all of them are set
+     * @param parameters Values by name, names are channels, banks, row, policy, controller, trcd, tcas,
+     *                   trp and burst
+     * @return changed configuration
+     */
+    public DramConfig withParameters(Map<String, String> parameters) {
+
+        int channels = this.channels;
+        int banks = this.banks;
+        int rowSize = this.rowSize;
+        PagePolicy pagePolicy = this.pagePolicy;
+        int controllerLatency = this.controllerLatency;
+        int rcd = this.rcd;
+        int cas = this.cas;
+        int rp = this.rp;
+        int burst = this.burst;
+
+        for(Map.Entry<String, String> parameter : parameters.entrySet()) {
+
+            String name = parameter.getKey();
+            String value = parameter.getValue().trim();
+
+            if(name.equals("channels")) {
+                channels = Integer.parseInt(value);
+            } else if(name.equals("banks")) {
+                banks = Integer.parseInt(value);
+            } else if(name.equals("row")) {
+                rowSize = Integer.parseInt(value);
+            } else if(name.equals("policy")) {
+                pagePolicy = PagePolicy.valueOf(value.toUpperCase());
+            } else if(name.equals("controller")) {
+                controllerLatency = Integer.parseInt(value);
+            } else if(name.equals("trcd")) {
+                rcd = Integer.parseInt(value);
+            } else if(name.equals("tcas")) {
+                cas = Integer.parseInt(value);
+            } else if(name.equals("trp")) {
+                rp = Integer.parseInt(value);
+            } else if(name.equals("burst")) {
+                burst = Integer.parseInt(value);
+            } else {
+                throw new IllegalArgumentException("Unknown DRAM parameter: " + name);
+            }
+        }
+
+        return new DramConfig(channels, banks, rowSize, pagePolicy, controllerLatency, rcd, cas, rp, burst);
+    }
+
+    public int getChannels() {
+        return this.channels;
+    }
+
+    /**
+     * @return Banks in each channel
+     */
+    public int getBanks() {
+        return this.banks;
+    }
+
+    /**
+     * @return Bytes in a row of a bank
+     */
+    public int getRowSize() {
+        return this.rowSize;
+    }
+
+    public PagePolicy getPagePolicy() {
+        return this.pagePolicy;
+    }
+
+    /**
+     * @return Cycles a request spends in the controller before its bank sees it
+     */
+    public int getControllerLatency() {
+        return this.controllerLatency;
+    }
+
+    /**
+     * @return Cycles from activating a row until it can be read
+     */
+    public int getRcd() {
+        return this.rcd;
+    }
+
+    /**
+     * @return Cycles from reading an open row until the data comes out
+     */
+    public int getCas() {
+        return this.cas;
+    }
+
+    /**
+     * @return Cycles of closing a row
+     */
+    public int getRp() {
+        return this.rp;
+    }
+
+    /**
+     * @return Cycles the data bus of the channel is taken by a transfer
+     */
+    public int getBurst() {
+        return this.burst;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d channels %d banks %dB rows %s page tRCD %d tCAS %d tRP %d burst %d",
+                this.channels,
+                this.banks,
+                this.rowSize,
+                this.pagePolicy.name().toLowerCase(),
+                this.rcd,
+                this.cas,
+                this.rp,
+                this.burst);
+    }
+}
@@ -0,0 +1,289 @@
+package org.mk0934.simulator.dram;
+
+/**
+ * Memory controller and DRAM behind the last cache level
+ *
+ * Consecutive lines go to consecutive channels, and lines of a channel fill a row of a bank before
+ * moving to the next bank, so streams hit open rows and random accesses conflict in the banks.
+ * A bank activates a row into its row buffer, reads it and precharges it again before opening
+ * another row. Transfers of a channel take turns on its data bus, which limits the bandwidth.
+ *
+ * Requests get their latency when they're sent, like cache misses do. The controller schedules
+ * first-ready first-come-first-served: a request to a row that's still open goes ahead of an older
+ * request waiting to close the row, in the bank and on the bus. It still waits for the row to open and
+ * for transfers sent before the older request, one transfer at a time. The older request keeps
+ * the latency it was given, only later requests see the bank and the bus busy for longer.
+ *
+ * @author Maciej Kumorek
+ */
+public class DramController {
+
+    private static final int INVALID = -1;
+
+    private final DramConfig config;
+
+    private final int lineBits;
+    private final int channelMask;
+    private final int channelBits;
+    private final int linesPerRowBits;
+    private final int bankMask;
+    private final int bankBits;
+
+    /**
+     * Row in the row buffer of each bank, INVALID if the bank is precharged
+     */
+    private final int[] openRows;
+
+    /**
+     * Cycle the open row of each bank can be read in
+     */
+    private final int[] rowReadyCycles;
+
+    /**
+     * Cycle each bank can be precharged or activated in
+     */
+    private final int[] bankFreeCycles;
+
+    /**
+     * Row open before the last row conflict of each bank, INVALID if there is none
+     */
+    private final int[] previousRows;
+
+    /**
+     * Cycle the previous row of each bank starts closing in
+     */
+    private final int[] previousCloseCycles;
+
+    /**
+     * Cycle the previous row of each bank could be read in
+     */
+    private final int[] previousReadyCycles;
+
+    /**
+     * Cycle the bus of the channel was free again before the last row conflict of each bank,
+     * row hits going ahead of the conflict transfer after the transfers sent before it
+     */
+    private final int[] previousBusFreeCycles;
+
+    /**
+     * Cycle the data bus of each channel is free again
+     */
+    private final int[] busFreeCycles;
+
+    /**
+     * Cycle the last row hit of each channel that went ahead of a conflict finishes its transfer
+     */
+    private final int[] reorderedBusFreeCycles;
+
+    private long reads;
+    private long writes;
+    private long rowHits;
+    private long rowMisses;
+    private long rowConflicts;
+    private long reorderedRequests;
+    private long totalLatency;
+    private long busCycles;
+
+    /**
+     * @param config Organization and timings
+     * @param lineSize Bytes the caches transfer in one request
+     */
+    public DramController(DramConfig config, int lineSize) {
+
+        if(lineSize > config.getRowSize()) {
+            throw new IllegalArgumentException("DRAM rows have to hold a whole cache line");
+        }
+
+        this.config = config;
+        this.lineBits = Integer.numberOfTrailingZeros(lineSize);
+        this.channelMask = config.getChannels() - 1;
+        this.channelBits = Integer.numberOfTrailingZeros(config.getChannels());
+        this.linesPerRowBits = Integer.numberOfTrailingZeros(config.getRowSize() / lineSize);
+        this.bankMask = config.getBanks() - 1;
+        this.bankBits = Integer.numberOfTrailingZeros(config.getBanks());
+
+        int bankCount = config.getChannels() * config.getBanks();
+
+        this.openRows = new int[bankCount];
+        this.rowReadyCycles = new int[bankCount];
+        this.bankFreeCycles = new int[bankCount];
+        this.previousRows = new int[bankCount];
+        this.previousCloseCycles = new int[bankCount];
+        this.previousReadyCycles = new int[bankCount];
+        this.previousBusFreeCycles = new int[bankCount];
+        this.busFreeCycles = new int[config.getChannels()];
+        this.reorderedBusFreeCycles = new int[config.getChannels()];
+
+        for(int i = 0; i < bankCount; i++) {
+            this.openRows[i] = INVALID;
+            this.previousRows[i] = INVALID;
+        }
+    }
+
+    /**
+     * Read or write a line
+     * @param address Byte address
+     * @param isWrite true for a write-back or a written through store
+     * @param cycle Cycle the request is sent in
+     * @return Cycles until the data is transferred
+     */
+    public int access(int address, boolean isWrite, int cycle) {
+
+        int line = address >>> this.lineBits;
+        int channel = line & this.channelMask;
+        int lineOfChannel = line >>> this.channelBits;
+        int bank = channel * this.config.getBanks() + ((lineOfChannel >>> this.linesPerRowBits) & this.bankMask);
+        int row = lineOfChannel >>> (this.linesPerRowBits + this.bankBits);
+        int start = cycle + this.config.getControllerLatency();
+        int readCycle;
+        boolean isReordered = false;
+
+        if(isWrite) {
+            this.writes++;
+        } else {
+            this.reads++;
+        }
+
+        if(this.openRows[bank] == row) {
+
+            this.rowHits++;
+            readCycle = Math.max(start, this.rowReadyCycles[bank]);
+
+        } else if(this.previousRows[bank] == row && start < this.previousCloseCycles[bank]) {
+
+            // Row hit goes ahead of the request closing the row, once the row is open
+            this.rowHits++;
+            this.reorderedRequests++;
+            readCycle = Math.max(start, this.previousReadyCycles[bank]);
+            isReordered = true;
+
+        } else if(this.openRows[bank] == INVALID) {
+
+            this.rowMisses++;
+            readCycle = Math.max(start, this.bankFreeCycles[bank]) + this.config.getRcd();
+
+            this.openRows[bank] = row;
+            this.rowReadyCycles[bank] = readCycle;
+
+        } else {
+
+            this.rowConflicts++;
+
+            int closeCycle = Math.max(start, this.bankFreeCycles[bank]);
+
+            readCycle = closeCycle + this.config.getRp() + this.config.getRcd();
+
+            this.previousRows[bank] = this.openRows[bank];
+            this.previousCloseCycles[bank] = closeCycle;
+            this.previousReadyCycles[bank] = this.rowReadyCycles[bank];
+            this.previousBusFreeCycles[bank] = this.busFreeCycles[channel];
+            this.openRows[bank] = row;
+            this.rowReadyCycles[bank] = readCycle;
+        }
+
+        // Transfers of the channel take turns on its bus
+        int transferCycle;
+
+        if(isReordered) {
+
+            // Goes after transfers sent before the conflict and other row hits that went ahead
+            transferCycle = Math.max(readCycle + this.config.getCas(),
+                    Math.max(this.previousBusFreeCycles[bank], this.reorderedBusFreeCycles[channel]));
+
+            // Row stays open until the data is out, the conflict and later transfers wait for it
+            int delay = transferCycle - readCycle - this.config.getCas() + this.config.getBurst();
+
+            this.previousCloseCycles[bank] += delay;
+            this.rowReadyCycles[bank] += delay;
+            this.bankFreeCycles[bank] += delay;
+            this.reorderedBusFreeCycles[channel] = transferCycle + this.config.getBurst();
+            this.busFreeCycles[channel] += this.config.getBurst();
+
+        } else {
+            transferCycle = Math.max(readCycle + this.config.getCas(), this.busFreeCycles[channel]);
+        }
+
+        int doneCycle = transferCycle + this.config.getBurst();
+
+        this.busFreeCycles[channel] = Math.max(this.busFreeCycles[channel], doneCycle);
+        this.busCycles += this.config.getBurst();
+        this.bankFreeCycles[bank] = Math.max(this.bankFreeCycles[bank], doneCycle);
+
+        // Closed page precharges right away, nothing can go ahead of it
+        if(this.config.getPagePolicy() == PagePolicy.CLOSED) {
+            this.openRows[bank] = INVALID;
+            this.previousRows[bank] = INVALID;
+            this.bankFreeCycles[bank] += this.config.getRp();
+        }
+
+        this.totalLatency += doneCycle - cycle;
+
+        return doneCycle - cycle;
+    }
+
+    public DramConfig getConfig() {
+        return this.config;
+    }
+
+    public long getReads() {
+        return this.reads;
+    }
+
+    public long getWrites() {
+        return this.writes;
+    }
+
+    /**
+     * @return Requests to the row already in the row buffer of their bank
+     */
+    public long getRowHits() {
+        return this.rowHits;
+    }
+
+    /**
+     * @return Requests to a precharged bank
+     */
+    public long getRowMisses() {
+        return this.rowMisses;
+    }
+
+    /**
+     * @return Requests that had to close another row of their bank first
+     */
+    public long getRowConflicts() {
+        return this.rowConflicts;
+    }
+
+    /**
+     * @return Row hits served ahead of an older request closing their row
+     */
+    public long getReorderedRequests() {
+        return this.reorderedRequests;
+    }
+
+    /**
+     * @return Fraction of requests that hit an open row, 0 if there were none
+     */
+    public double getRowHitRate() {
+        long requests = this.reads + this.writes;
+
+        return requests == 0 ? 0 : this.rowHits / (double)requests;
+    }
+
+    /**
+     * @return Average cycles from sending a request until its data is transferred, 0 if there were none
+     */
+    public double getAverageLatency() {
+        long requests = this.reads + this.writes;
+
+        return requests == 0 ? 0 : this.totalLatency / (double)requests;
+    }
+
+    /**
+     * @param cycles Cycles simulated
+     * @return Fraction of the cycles the data buses of all channels were transferring
+     */
+    public double getBusUtilization(int cycles) {
+        return cycles == 0 ? 0 : this.busCycles / ((double)cycles * this.config.getChannels());
+    }
+}
@@ -0,0 +1,19 @@
+package org.mk0934.simulator.dram;
+
+/**
+ * When a bank closes the row in its row buffer
+ *
+ * @author Maciej Kumorek
+ */
+public enum PagePolicy {
+
+    /**
+     * Row stays open until an access to another row of the bank
+     */
+    OPEN,
+
+    /**
+     * Row is precharged right after each access
+     */
+    CLOSED
+}
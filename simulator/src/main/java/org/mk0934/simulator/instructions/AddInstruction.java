@@ -18,5 +18,6 @@ public class AddInstruction extends AluInstruction {
 
         // Perform addition
         this.result = this.lhs + this.rhs;
+        this.isExecuted = true;
     }
 }
@@ -11,37 +11,46 @@ import org.mk0934.simulator.RegisterFile;
  */
 public abstract class AluInstruction extends DecodedInstruction {
 
-    protected final Integer destinationRegisterNumber;
-    protected final Integer lhs;
-    protected final Integer rhs;
-    protected final Integer firstSourceRegisterNumber;
-    protected final Integer secondSourceRegisterNumber;
-    protected Integer result = null;
+    protected Integer destinationRegisterNumber;
+    protected int lhs;
+    protected int rhs;
+    protected Integer firstSourceRegisterNumber;
+    protected Integer secondSourceRegisterNumber;
+    protected int result;
+    protected boolean isExecuted;
 
     public AluInstruction(Integer[] args, Operand op, EncodedInstruction encodedInstruction) {
         super(op, encodedInstruction);
 
+        this.setArguments(args);
+    }
+
+    @Override
+    protected void setArguments(Integer[] args) {
+
 
         // First argument is source register name
         this.destinationRegisterNumber = args[0];
 
         // Second argument is first value to add
-        this.lhs = args[1];
+        this.lhs = args[1] != null ? args[1] : 0;
 
         // Third argument is second value to add
-        this.rhs = args[2];
+        this.rhs = args[2] != null ? args[2] : 0;
 
         // First source register number
         this.firstSourceRegisterNumber = args[3];
 
         // Second source register number
         this.secondSourceRegisterNumber = args[4];
+
+        this.isExecuted = false;
     }
 
     @Override
     protected void doWriteBack(Processor processor)  {
 
-        if(this.result == null) {
+        if(!this.isExecuted) {
             throw new NullPointerException("Result has not been computed yet. Execute should be called beforehand");
         }
 
@@ -67,6 +76,31 @@ public abstract class AluInstruction extends DecodedInstruction {
         return this.firstSourceRegisterNumber;
     }
 
+    @Override
+    public boolean forwardSourceValue(int registerNumber, int value) {
+
+        // Same register can be both operands
+        if(this.firstSourceRegisterNumber != null && this.firstSourceRegisterNumber == registerNumber) {
+            this.lhs = value;
+        }
+
+        if(this.secondSourceRegisterNumber != null && this.secondSourceRegisterNumber == registerNumber) {
+            this.rhs = value;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int getResult(int registerNumber) {
+
+        if(!this.isExecuted) {
+            throw new NullPointerException("Result has not been computed yet. Execute should be called beforehand");
+        }
+
+        return this.result;
+    }
+
     /**
      * Get latency of ALU instruction
      * @return cycles it takes to execute the instruction
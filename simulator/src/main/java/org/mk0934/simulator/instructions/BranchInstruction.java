@@ -8,21 +8,27 @@ import org.mk0934.simulator.Status;
  */
 public abstract class BranchInstruction extends DecodedInstruction {
 
-    protected final Integer addressToJump;
-    protected final Integer secondRegisterNumber;
-    protected final Integer statusRegisterNumber;
+    protected int addressToJump;
+    protected Integer secondRegisterNumber;
+    protected Integer statusRegisterNumber;
 
     protected Status statusRegisterValue;
 
     public BranchInstruction(Operand operand, Integer[] args, EncodedInstruction encodedInstruction) {
             super(operand, encodedInstruction);
 
+            this.setArguments(args);
+    }
+
+    @Override
+    protected void setArguments(Integer[] args) {
+
             // Get address to jump if success
-            this.addressToJump = args[1];
+            this.addressToJump = args[1] != null ? args[1] : 0;
             this.secondRegisterNumber = args[3];
 
             // Get status register value
-            this.statusRegisterValue = Status.values()[args[0]];
+            this.statusRegisterValue = Status.fromValue(args[0]);
             this.statusRegisterNumber = args[2];
     }
 
@@ -51,6 +57,20 @@ public abstract class BranchInstruction extends DecodedInstruction {
         return this.statusRegisterNumber;
     }
 
+    @Override
+    public boolean forwardSourceValue(int registerNumber, int value) {
+
+        if(this.statusRegisterNumber != null && this.statusRegisterNumber == registerNumber) {
+            this.statusRegisterValue = Status.fromValue(value);
+        }
+
+        if(this.secondRegisterNumber != null && this.secondRegisterNumber == registerNumber) {
+            this.addressToJump = value;
+        }
+
+        return true;
+    }
+
     public abstract boolean shouldTakeBranch();
 
     public boolean tryTakeBranch(Processor processor) {
@@ -81,6 +101,6 @@ public abstract class BranchInstruction extends DecodedInstruction {
 
         // Value in register
         int value = processor.getRegisterFile().getRegister(this.getFirstSourceRegisterNumber()).getValue();
-        this.statusRegisterValue = Status.values()[value];
+        this.statusRegisterValue = Status.fromValue(value);
     }
 }
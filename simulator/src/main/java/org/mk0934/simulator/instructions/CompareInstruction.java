@@ -25,5 +25,7 @@ public class CompareInstruction extends AluInstruction {
         } else if(lhs > rhs) {
             this.result = Status.GT.getValue();
         }
+
+        this.isExecuted = true;
     }
 }
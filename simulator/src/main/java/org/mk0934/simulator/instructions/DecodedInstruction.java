@@ -1,6 +1,7 @@
 package org.mk0934.simulator.instructions;
 
 import org.mk0934.simulator.Processor;
+import org.mk0934.simulator.RegisterFile;
 import org.mk0934.simulator.WritebackEvent;
 
 import java.lang.reflect.Array;
@@ -20,11 +21,57 @@ public abstract class DecodedInstruction {
 
     private Vector<WritebackEvent> writebackEventListeners;
 
+    /**
+     * Next free instance in the pool of the encoded instruction
+     */
+    DecodedInstruction nextFree;
+
+    /**
+     * Is the instance back in the pool
+     */
+    boolean isRecycled;
+
+    /**
+     * Reorder buffer entry of the instruction in the out-of-order core, -1 if it has none
+     */
+    private int tag = -1;
+
+    /**
+     * Position in program order, assigned when the instruction is decoded or dispatched
+     */
+    private long sequenceNumber;
+
     public DecodedInstruction(Operand op, EncodedInstruction encodedInstruction) {
         this.op = op;
         this.encodedInstruction = encodedInstruction;
     }
 
+    /**
+     * Set decoded arguments, called when the instance is created or reused from the pool
+     * @param args Arguments in the layout produced by EncodedInstruction
+     */
+    protected abstract void setArguments(Integer[] args);
+
+    /**
+     * Return the instance to the pool of its encoded instruction,
+     * called once the instruction is written back or discarded.
+     * The instance must not be used afterwards.
+     */
+    public void recycle() {
+
+        if(this.isRecycled) {
+            throw new IllegalStateException("Instruction already recycled: " + this.getEncodedInstructionString());
+        }
+
+        this.tag = -1;
+
+        if(this.writebackEventListeners != null) {
+            this.writebackEventListeners.clear();
+        }
+
+        this.encodedInstruction.recycle(this);
+    }
+
     public abstract void execute(Processor processor);
 
     public void writeBack(Processor processor) {
@@ -35,13 +82,14 @@ public abstract class DecodedInstruction {
 
     private void onWriteBackExecuted() {
 
-        // Raise the events
+        // Raise the events, going backwards as listeners remove themselves
         if(this.writebackEventListeners != null) {
-            WritebackEvent[] listenersToNotify =
-                    this.writebackEventListeners.toArray(new WritebackEvent[0]);
 
-            for (WritebackEvent eventListener : listenersToNotify) {
-                eventListener.onWriteBack(this);
+            for (int i = this.writebackEventListeners.size() - 1; i >= 0; i--) {
+
+                if(i < this.writebackEventListeners.size()) {
+                    this.writebackEventListeners.get(i).onWriteBack(this);
+                }
             }
         }
     }
@@ -76,6 +124,13 @@ public abstract class DecodedInstruction {
         return encodedInstruction;
     }
 
+    /**
+     * @return Address the instruction was loaded at
+     */
+    public int getInstructionAddress() {
+        return encodedInstruction.getAddress();
+    }
+
     public String getEncodedInstructionString() {
         return encodedInstruction.getEncodedInstruction();
     }
@@ -86,12 +141,126 @@ public abstract class DecodedInstruction {
 
     public abstract Integer getFirstSourceRegisterNumber();
 
+    /**
+     * @return Bit mask of registers the instruction reads
+     */
+    public int getSourceRegisterMask() {
+        return getRegisterMask(this.getFirstSourceRegisterNumber(), 1)
+                | getRegisterMask(this.getSecondSourceRegisterNumber(), 1);
+    }
+
+    /**
+     * @return Bit mask of registers the instruction writes
+     */
+    public int getDestinationRegisterMask() {
+        return getRegisterMask(this.getDestinationRegisterNumber(), 1);
+    }
+
+    /**
+     * Bit mask for consecutive registers
+     * @param firstRegisterNumber First register, can be null
+     * @param count Number of registers
+     * @return bit mask, zero if there is no register
+     */
+    protected static int getRegisterMask(Integer firstRegisterNumber, int count) {
+
+        if(firstRegisterNumber == null) {
+            return 0;
+        }
+
+        return ((1 << count) - 1) << firstRegisterNumber;
+    }
+
     /**
      * Get latency of instructions
      * @return number of cycles latency
      */
     public abstract int getLatency();
 
+    /**
+     * Read values of source registers, called when the instruction is issued.
+     * Decoding only extracts register numbers, so decoded instances can be reused.
+     * @param registerFile Register file to read values from
+     */
+    public void readOperands(RegisterFile registerFile) {
+
+        Integer registerNumber = this.getFirstSourceRegisterNumber();
+
+        if(registerNumber != null) {
+            this.forwardSourceValue(registerNumber, registerFile.getRegister(registerNumber).getValue());
+        }
+
+        registerNumber = this.getSecondSourceRegisterNumber();
+
+        if(registerNumber != null) {
+            this.forwardSourceValue(registerNumber, registerFile.getRegister(registerNumber).getValue());
+        }
+    }
+
+    /**
+     * Replace value of a source register read at issue with a value forwarded
+     * from an instruction that didn't write back yet
+     * @param registerNumber Source register
+     * @param value Value of the register
+     * @return false if the instruction reads the register file when it executes,
+     *         so it has to wait until the value is written back
+     */
+    public boolean forwardSourceValue(int registerNumber, int value) {
+        return false;
+    }
+
+    /**
+     * Get value the instruction is going to write back
+     * @param registerNumber One of the destination registers
+     * @return value computed by execute
+     */
+    public int getResult(int registerNumber) {
+        throw new IllegalStateException("Instruction has no result: " + this.getEncodedInstructionString());
+    }
+
+    /**
+     * @return First address the instruction accesses in memory, valid once source values are known
+     */
+    public int getMemoryAddress() {
+        throw new IllegalStateException("Instruction doesn't access memory: " + this.getEncodedInstructionString());
+    }
+
+    /**
+     * @return Number of words the instruction loads or stores, zero if it doesn't access memory
+     */
+    public int getMemoryWordCount() {
+        return 0;
+    }
+
+    /**
+     * @return true if the instruction writes memory
+     */
+    public boolean isStore() {
+        return false;
+    }
+
+    /**
+     * @return Reorder buffer entry of the instruction, -1 if it has none
+     */
+    public int getTag() {
+        return this.tag;
+    }
+
+    public void setTag(int tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * @return Position in program order, younger instructions have higher numbers
+     */
+    public long getSequenceNumber() {
+        return this.sequenceNumber;
+    }
+
+    public void setSequenceNumber(long sequenceNumber) {
+        this.sequenceNumber = sequenceNumber;
+    }
+
     public void addWriteBackListener(WritebackEvent eventListener, BranchInstruction branchInstruction) {
 
         if(this.writebackEventListeners == null) {
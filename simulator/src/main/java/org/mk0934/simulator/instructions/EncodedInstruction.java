@@ -2,16 +2,72 @@ package org.mk0934.simulator.instructions;
 
 import org.mk0934.simulator.*;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Arrays;
 
 /**
  * Created by Maciej Kumorek on 10/24/2014.
  */
 public class EncodedInstruction extends Instruction {
 
-    final Pattern registerPattern = Pattern.compile("r[0-9]+");
-    final Pattern interValPattern = Pattern.compile("(:?0x)?([0-9a-fA-F]{1,8})");
+    /**
+     * Number of words an instruction takes in the instruction segment:
+     * header followed by an immediate value for each argument slot
+     */
+    public static final int ENCODED_WORDS = 4;
+
+    /**
+     * Number of comma separated arguments an instruction can have
+     */
+    public static final int ARGUMENT_SLOTS = 3;
+
+    /**
+     * Argument kinds, zero means there is no argument in the slot
+     */
+    private static final int ARG_REGISTER = 1;
+    private static final int ARG_IMMEDIATE = 2;
+
+    /**
+     * Header layout: opcode in bits 0-5, argument kinds (2 bits per slot) in bits 6-11,
+     * register numbers (6 bits per slot) in bits 12-29
+     */
+    private static final int OPCODE_MASK = 0x3F;
+    private static final int KIND_SHIFT = 6;
+    private static final int KIND_MASK = 0x3;
+    private static final int REGISTER_SHIFT = 12;
+    private static final int REGISTER_MASK = 0x3F;
+
+    private static final Operand[] OPERANDS = Operand.values();
+
+    /**
+     * Instruction segment holding the binary encoding of this instruction
+     */
+    private int[] segment;
+
+    /**
+     * Index of the header word in the instruction segment
+     */
+    private int offset;
+
+    /**
+     * Address the instruction was loaded at
+     */
+    private int address;
+
+    /**
+     * Decoded instances of this instruction that finished, reused by next decodes
+     */
+    private DecodedInstruction pool;
+
+    /**
+     * Operand, null until the instruction is decoded for the first time
+     */
+    private Operand operand;
+
+    /**
+     * Decoded arguments, copied by the decoded instruction.
+     * Values of register arguments are placeholders until operands are read.
+     */
+    private final Integer[] arguments = new Integer[7];
 
     public EncodedInstruction(String instructionString) {
 
@@ -32,67 +88,226 @@ public class EncodedInstruction extends Instruction {
         return instructionString.substring(0, indexOfSemicolon).trim();
     }
 
-    public void replaceLabelWithAddress(String label, Integer integer) {
-        this.encodedInstruction = this.encodedInstruction.replace(label, "0x" + Integer.toHexString(integer));
+    public int getAddress() {
+        return this.address;
+    }
+
+    public void setAddress(int address) {
+        this.address = address;
+    }
+
+    /**
+     * Assemble the instruction on its own into its binary encoding
+     * @param segment Instruction segment to write the encoding to
+     * @param offset Index of the first word of the instruction in the segment
+     */
+    public void assemble(int[] segment, int offset) {
+
+        Assembler.assemble(this.getEncodedInstruction(), segment, offset);
+
+        this.setEncoding(segment, offset);
+    }
+
+    /**
+     * Set where the binary encoding of this instruction is,
+     * decoding just extracts the fields from there.
+     * @param segment Instruction segment holding the encoding
+     * @param offset Index of the first word of the instruction in the segment
+     */
+    public void setEncoding(int[] segment, int offset) {
+        this.segment = segment;
+        this.offset = offset;
+    }
+
+    /**
+     * Header bits for an operand
+     */
+    public static int encodeOperand(Operand operand) {
+        return operand.ordinal();
+    }
+
+    /**
+     * Header bits for a register argument
+     */
+    public static int encodeRegister(int slot, int registerNumber) {
+
+        if(registerNumber < 0 || registerNumber > REGISTER_MASK) {
+            throw new RuntimeException("Invalid register number: " + registerNumber);
+        }
+
+        return (ARG_REGISTER << (KIND_SHIFT + 2 * slot)) | (registerNumber << (REGISTER_SHIFT + 6 * slot));
+    }
+
+    /**
+     * Header bits for an immediate argument, the value itself goes to the word of the slot
+     */
+    public static int encodeImmediate(int slot) {
+        return ARG_IMMEDIATE << (KIND_SHIFT + 2 * slot);
+    }
+
+    private int getHeader() {
+
+        // Instruction that wasn't loaded into memory is assembled on its own
+        if(this.segment == null) {
+            this.assemble(new int[ENCODED_WORDS], 0);
+        }
+
+        return this.segment[this.offset];
+    }
+
+    private static int getArgumentKind(int header, int slot) {
+        return (header >>> (KIND_SHIFT + 2 * slot)) & KIND_MASK;
+    }
+
+    private static int getArgumentRegister(int header, int slot) {
+        return (header >>> (REGISTER_SHIFT + 6 * slot)) & REGISTER_MASK;
+    }
+
+    private int getArgumentImmediate(int slot) {
+        return this.segment[this.offset + 1 + slot];
     }
 
     /**
      * Factory of instructions
-     * @return instance of Decoded instruction
+     * @return instance of Decoded instruction with source values read from the register file
      */
     @Override
     public DecodedInstruction decode(Processor processor) {
 
-        // Find the operand in the string
-        Operand operand = this.parseOperand(this.encodedInstruction);
+        DecodedInstruction instruction = this.decodeStatic();
+        instruction.readOperands(processor.getRegisterFile());
+
+        return instruction;
+    }
 
-        // Get register file
-        RegisterFile registerFile = processor.getRegisterFile();
+    /**
+     * Decode fields that don't depend on the processor state: operand,
+     * register numbers and immediate values. The fields are extracted once
+     * per address and shared by every decoded instance, source values
+     * of registers are left for DecodedInstruction.readOperands at issue.
+     * @return instance of Decoded instruction without source values
+     */
+    public DecodedInstruction decodeStatic() {
+
+        if(this.operand == null) {
+
+            int header = this.getHeader();
+
+            // Extract the operand
+            Operand operand = OPERANDS[header & OPCODE_MASK];
+
+            this.decodeArguments(operand);
+            this.operand = operand;
+        }
+
+        // Reuse an instance that already finished if there is one
+        DecodedInstruction instruction = this.pool;
+
+        if(instruction != null) {
+            this.pool = instruction.nextFree;
+            instruction.nextFree = null;
+            instruction.isRecycled = false;
+            instruction.setArguments(this.arguments);
+            return instruction;
+        }
+
+        return this.createInstruction(this.operand, this.arguments);
+    }
+
+    /**
+     * Take back decoded instance that is not used anymore
+     * @param instruction Decoded instance of this instruction
+     */
+    void recycle(DecodedInstruction instruction) {
+        instruction.isRecycled = true;
+        instruction.nextFree = this.pool;
+        this.pool = instruction;
+    }
+
+    private Integer[] decodeArguments(Operand operand) {
 
         // Choose decoding logic for an operation
         if(operand == Operand.NOP) {
 
-            return new NopInstruction(operand, this);
+            Arrays.fill(this.arguments, null);
+            return this.arguments;
         } else if(operand == Operand.ADD) {
             // Decode ADD
-            return this.decodeAdd(registerFile);
+            return this.decodeAdd();
         } else if(operand == Operand.MUL) {
             // Decode MUL
-            return this.decodeMul(registerFile);
+            return this.decodeMul();
         } else if(operand == Operand.MOV) {
             // Decode MOV
-            return this.decodeMov(registerFile);
+            return this.decodeMov();
         } else if(operand == Operand.SUB) {
             // Decode SUB
-            return this.decodeSub(registerFile);
+            return this.decodeSub();
         } else if(operand == Operand.LDM) {
             // Decode LDM - memory load
-            return this.decodeLoadMemory(registerFile);
+            return this.decodeLoadMemory();
         } else if(operand == Operand.STM) {
             // Decode STM - memory store
-            return this.decodeStoreMemory(registerFile);
+            return this.decodeStoreMemory();
         } else if(operand == Operand.CMP) {
             // Decode CMP
-            return this.decodeCmp(registerFile);
+            return this.decodeCmp();
         } else if(operand == Operand.BGE) {
             // Decode BGE - Branch if greater or equal
-            return this.decodeBranchGreaterEqual(registerFile);
+            return this.decodeBranchGreaterEqual();
         } else if(operand == Operand.BGT) {
             // Decode BGT - Branch if greater - than
-            return this.decodeBranchGreaterThan(registerFile);
+            return this.decodeBranchGreaterThan();
         } else if(operand == Operand.BEQ) {
             // Decode BEQ - Branch if equal
-            return this.decodeBranchEqual(registerFile);
+            return this.decodeBranchEqual();
         } else if(operand == Operand.JMP) {
             // Decode JMP - Jump instruction
             return this.decodeJmp();
         } else if(operand == Operand.VLDM) {
             // Decode VLDM - Vector load memory
-            return this.decodeVectorLoad(registerFile);
+            return this.decodeVectorLoad();
+        } else if(operand == Operand.VMUL) {
+            return this.decodeVectorMultiply();
+        } else if(operand == Operand.VSTM) {
+            return this.decodeVectorStore();
+        }
+
+        throw new RuntimeException("Cannot decode instruction with operand: " + operand);
+    }
+
+    private DecodedInstruction createInstruction(Operand operand, Integer[] args) {
+
+        if(operand == Operand.NOP) {
+            return new NopInstruction(operand, this);
+        } else if(operand == Operand.ADD) {
+            return new AddInstruction(args, this);
+        } else if(operand == Operand.MUL) {
+            return new MultiplyInstruction(args, this);
+        } else if(operand == Operand.MOV) {
+            return new MoveInstruction(args, this);
+        } else if(operand == Operand.SUB) {
+            return new SubInstruction(args, this);
+        } else if(operand == Operand.LDM) {
+            return new LoadMemoryInstruction(args, this);
+        } else if(operand == Operand.STM) {
+            return new StoreMemoryInstruction(args, this);
+        } else if(operand == Operand.CMP) {
+            return new CompareInstruction(args, this);
+        } else if(operand == Operand.BGE) {
+            return new BranchGreaterEqualInstruction(args, this);
+        } else if(operand == Operand.BGT) {
+            return new BranchGreaterThanInstruction(args, this);
+        } else if(operand == Operand.BEQ) {
+            return new BranchEqualInstruction(args, this);
+        } else if(operand == Operand.JMP) {
+            return new JumpInstruction(args, this);
+        } else if(operand == Operand.VLDM) {
+            return new VectorLoadInstruction(args, this);
         } else if(operand == Operand.VMUL) {
-            return this.decodeVectorMultiply(registerFile);
+            return new VectorMultiplyInstruction(args, this);
         } else if(operand == Operand.VSTM) {
-            return this.decodeVectorStore(registerFile);
+            return new VectorStoreMemoryInstruction(args, this);
         }
 
         throw new RuntimeException("Cannot decode instruction with operand: " + operand);
@@ -103,118 +318,114 @@ public class EncodedInstruction extends Instruction {
      *
      * Vectore store memory
      *
-     * @param registerFile
      * @return
      */
-    private DecodedInstruction decodeVectorStore(RegisterFile registerFile) {
+    private Integer[] decodeVectorStore() {
 
-        Integer[] threeArgs = this.getThreeParams(registerFile);
-        Integer[] args = new Integer[threeArgs.length + 2];
+        Integer[] args = this.getThreeParams();
 
-        // No destination register
-        args[0] = null;
+        // Shift arguments in place, starting from the end
+        args[6] = args[4];
+        args[5] = args[3];
+        args[4] = args[0];
+        args[3] = args[2];
+        args[2] = args[1];
 
-        // Actually first register is not destination, so we need to get its value rather than number
-        args[1] = registerFile.getRegister(threeArgs[0]).getValue();
-        args[4] = threeArgs[0];
+        // Actually first register is not destination, its value is read with other operands
+        args[1] = 0;
 
-        args[2] = threeArgs[1];
-        args[5] = threeArgs[3];
-
-        args[3] = threeArgs[2];
-        args[6] = threeArgs[4];
+        // No destination register
+        args[0] = null;
 
-        return new VectorStoreMemoryInstruction(args, this);
+        return args;
     }
 
     /**
      * Decode VMUL
      * Vector multiplication
-     * @param registerFile
      * @return
      */
-    private DecodedInstruction decodeVectorMultiply(RegisterFile registerFile) {
-        Integer[] args = this.getThreeParams(registerFile);
-        return new VectorMultiplyInstruction(args, this);
+    private Integer[] decodeVectorMultiply() {
+        Integer[] args = this.getThreeParams();
+        return args;
     }
 
     /**
      * Decode VLDM
      *
      * Vector Load memory
-     * @param registerFile processor's register file
-     * @return instance of VectorLoadInstruction
+     * @return decoded arguments
      */
-    private DecodedInstruction decodeVectorLoad(RegisterFile registerFile) {
-        Integer[] args = this.getThreeParams(registerFile);
-        return new VectorLoadInstruction(args, this);
+    private Integer[] decodeVectorLoad() {
+        Integer[] args = this.getThreeParams();
+        return args;
     }
 
     /**
      * Decode JMP
      *
      * JMP takes only one argument, absolute address to jump to
-     * @return JumpInstructon instance
+     * @return decoded arguments
      */
-    private DecodedInstruction decodeJmp() {
-        int address = this.getImmediateParam();
-        return new JumpInstruction(address, this);
+    private Integer[] decodeJmp() {
+        int address = this.getImmediateParam(this.getHeader());
+
+        Integer[] args = this.arguments;
+        Arrays.fill(args, null);
+
+        // Jump is always taken
+        args[0] = 0;
+        args[1] = address;
+
+        return args;
     }
 
-    private DecodedInstruction decodeBranchGreaterEqual(RegisterFile registerFile) {
+    private Integer[] decodeBranchGreaterEqual() {
 
-        Integer[] args = this.getTwoArgValues(registerFile);
-        return new BranchGreaterEqualInstruction(args, this);
+        Integer[] args = this.getTwoArgValues();
+        return args;
     }
 
-    private DecodedInstruction decodeBranchGreaterThan(RegisterFile registerFile) {
-        Integer[] args = this.getTwoArgValues(registerFile);
-        return new BranchGreaterThanInstruction(args, this);
+    private Integer[] decodeBranchGreaterThan() {
+        Integer[] args = this.getTwoArgValues();
+        return args;
     }
 
-    private DecodedInstruction decodeBranchEqual(RegisterFile registerFile) {
-        Integer[] args = this.getTwoArgValues(registerFile);
-        return new BranchEqualInstruction(args, this);
+    private Integer[] decodeBranchEqual() {
+        Integer[] args = this.getTwoArgValues();
+        return args;
     }
 
     /**
      * Find single immediate argument value
      * @return immediate value parsed
      */
-    private int getImmediateParam() {
-
-        // Try to get immediate value
-        Matcher intermediateValMatcher = interValPattern.matcher(this.getEncodedInstruction());
+    private int getImmediateParam(int header) {
 
-        if(!intermediateValMatcher.find()) {
-            throw new RuntimeException("Second source register or immediate should be specified");
+        if(getArgumentKind(header, 0) != ARG_IMMEDIATE) {
+            throw new RuntimeException("Immediate value should be specified in instruction: "
+                    + this.getEncodedInstruction());
         }
 
-        return this.getImmediateValueFromString(intermediateValMatcher);
+        return this.getArgumentImmediate(0);
     }
 
-    private Integer[] getThreeParams(RegisterFile registerFile) {
-        return this.getThreeParams(registerFile, true, true, true);
+    private Integer[] getThreeParams() {
+        return this.getThreeParams(true, true, true);
     }
 
-    private Integer[] getThreeParams(RegisterFile registerFile,
-                                     boolean destinationRequired,
+    private Integer[] getThreeParams(boolean destinationRequired,
                                      boolean firstSourceRequired,
                                      boolean secondSourceRequired) {
 
-        Integer[] params = new Integer[5];
+        Integer[] params = this.arguments;
+        Arrays.fill(params, null);
 
-        String input = this.getEncodedInstruction();
-        String[] inputParts = input.split(",");
+        int header = this.getHeader();
 
         // Get destination register
-        Matcher matcher = registerPattern.matcher(inputParts[0]);
-        Matcher intermediateValMatcher = interValPattern.matcher(inputParts[0]);
-        String destinationRegisterName, sourceRegisterName;
-
-        if (matcher.find()) {
-            destinationRegisterName = matcher.group(0);
-            params[0] = this.getRegisterNumberFromString(destinationRegisterName);
+        if (getArgumentKind(header, 0) == ARG_REGISTER) {
+            params[0] = getArgumentRegister(header, 0);
         } else if (destinationRequired) {
             // Destination must be specified
             throw new RuntimeException("Destination register not specified in instruction: "
@@ -223,18 +434,15 @@ public class EncodedInstruction extends Instruction {
             params[0] = null;
         }
 
-        matcher = registerPattern.matcher(inputParts[1]);
-        intermediateValMatcher = interValPattern.matcher(inputParts[1]);
-
         // Get First source register
-        if (matcher.find()) {
-            sourceRegisterName = matcher.group(0);
-            int registerNumber = this.getRegisterNumberFromString(sourceRegisterName);
-            int valueInRegisterOne = registerFile.getRegister(registerNumber).getValue();
-            params[1] = valueInRegisterOne;
+        int kind = getArgumentKind(header, 1);
+
+        if (kind == ARG_REGISTER) {
+            int registerNumber = getArgumentRegister(header, 1);
+            params[1] = 0; // Read at issue
             params[3] = registerNumber;
-        } else if (intermediateValMatcher.find()) {
-            params[1] = getImmediateValueFromString(intermediateValMatcher);
+        } else if (kind == ARG_IMMEDIATE) {
+            params[1] = this.getArgumentImmediate(1);
             params[3] = null;
         } else if (firstSourceRequired) {
             throw new RuntimeException("First argument should be source register");
@@ -243,59 +451,32 @@ public class EncodedInstruction extends Instruction {
             params[3] = null;
         }
 
+        // Get second register or immediate value, if there is one
+        kind = getArgumentKind(header, 2);
 
-        if (inputParts.length > 2) {
-
-            matcher = registerPattern.matcher(inputParts[2]);
-            intermediateValMatcher = interValPattern.matcher(inputParts[2]);
-
-            // Get second register or immediate value
-            if (matcher.find()) {
-                sourceRegisterName = matcher.group(0);
-                int registerNumber = this.getRegisterNumberFromString(sourceRegisterName);
-                int valueInRegister = registerFile.getRegister(registerNumber).getValue();
-                params[2] = valueInRegister;
-                params[4] = registerNumber;
-                return params;
-            } else if (intermediateValMatcher.find()) {
-                params[2] = getImmediateValueFromString(intermediateValMatcher);
-                params[4] = null;
-            } else if (secondSourceRequired) {
-                throw new RuntimeException("Second source register or immediate should be specified");
-            } else {
-                params[2] = null;
-                params[4] = null;
-            }
+        if (kind == ARG_REGISTER) {
+            int registerNumber = getArgumentRegister(header, 2);
+            params[2] = 0; // Read at issue
+            params[4] = registerNumber;
+        } else if (kind == ARG_IMMEDIATE) {
+            params[2] = this.getArgumentImmediate(2);
+            params[4] = null;
         }
 
         return params;
     }
 
-    private int getImmediateValueFromString(Matcher intermediateValMatcher) {
-        String hexNumberStr = intermediateValMatcher.group(0);
-        return Memory.tryParse(hexNumberStr);
-    }
-
-    private int getRegisterNumberFromString(String registerName) {
-        if(registerName.startsWith("r")) {
-            return Integer.parseInt(registerName.substring(1));
-        }
-
-        return Integer.parseInt(registerName);
-    }
-
     /**
      * Decode ADD instruction.
      *
      * ADD must specify destination register
      * ADD can take two registers
      * or one register and intermediate value
-     * @param registerFile processor's register file
      */
-    private DecodedInstruction decodeAdd(RegisterFile registerFile) {
+    private Integer[] decodeAdd() {
 
-        Integer[] args = this.getThreeParams(registerFile);
-        return new AddInstruction(args, this);
+        Integer[] args = this.getThreeParams();
+        return args;
     }
 
     /**
@@ -303,12 +484,11 @@ public class EncodedInstruction extends Instruction {
      *
      * MUL must specify destination register
      * MUL can take two registers or a register and immediate
-     * @param registerFile
      * @return
      */
-    private DecodedInstruction decodeMul(RegisterFile registerFile) {
-        Integer[] args = this.getThreeParams(registerFile);
-        return new MultiplyInstruction(args, this);
+    private Integer[] decodeMul() {
+        Integer[] args = this.getThreeParams();
+        return args;
     }
 
     /**
@@ -316,12 +496,11 @@ public class EncodedInstruction extends Instruction {
      *
      * SUB must specify destination register
      * SUB can take two registers or a register and immediate
-     * @param registerFile
      * @return
      */
-    private DecodedInstruction decodeSub(RegisterFile registerFile) {
-        Integer[] args = this.getThreeParams(registerFile);
-        return new SubInstruction(args, this);
+    private Integer[] decodeSub() {
+        Integer[] args = this.getThreeParams();
+        return args;
     }
 
     /**
@@ -329,12 +508,11 @@ public class EncodedInstruction extends Instruction {
      *
      * LDM must specify destination register
      * LDM can take two registers or a register and immediate
-     * @param registerFile
      * @return
      */
-    private DecodedInstruction decodeLoadMemory(RegisterFile registerFile) {
-        Integer[] args = this.getThreeParams(registerFile);
-        return new LoadMemoryInstruction(args, this);
+    private Integer[] decodeLoadMemory() {
+        Integer[] args = this.getThreeParams();
+        return args;
     }
 
     /**
@@ -342,67 +520,56 @@ public class EncodedInstruction extends Instruction {
      *
      * STM must register with the value to store
      * STM can take two registers or a register and immediate
-     * @param registerFile Register file to look for values at
      * @return
      */
-    private DecodedInstruction decodeStoreMemory(RegisterFile registerFile) {
-        Integer[] threeArgs = this.getThreeParams(registerFile);
-        Integer[] args = new Integer[threeArgs.length + 2];
-
-        // No destination register
-        args[0] = null;
+    private Integer[] decodeStoreMemory() {
+        Integer[] args = this.getThreeParams();
 
-        // Actually first register is not destination, so we need to get its value rather than number
-        args[1] = registerFile.getRegister(threeArgs[0]).getValue();
-        args[4] = threeArgs[0];
+        // Shift arguments in place, starting from the end
+        args[6] = args[4];
+        args[5] = args[3];
+        args[4] = args[0];
+        args[3] = args[2];
+        args[2] = args[1];
 
-        args[2] = threeArgs[1];
-        args[5] = threeArgs[3];
+        // Actually first register is not destination, its value is read with other operands
+        args[1] = 0;
 
-        args[3] = threeArgs[2];
-        args[6] = threeArgs[4];
+        // No destination register
+        args[0] = null;
 
-        return new StoreMemoryInstruction(args, this);
+        return args;
     }
 
-    private DecodedInstruction decodeMov(RegisterFile registerFile) {
+    private Integer[] decodeMov() {
 
-        Integer[] args = this.getThreeParams(registerFile, true, true, false);
+        Integer[] args = this.getThreeParams(true, true, false);
 
-        return new MoveInstruction(args, this);
+        return args;
     }
 
-    private DecodedInstruction decodeCmp(RegisterFile registerFile) {
+    private Integer[] decodeCmp() {
 
-        Integer[] args = this.getThreeParams(registerFile);
+        Integer[] args = this.getThreeParams();
 
-        return new CompareInstruction(args, this);
+        return args;
     }
 
-    private Integer[] getTwoArgValues(RegisterFile registerFile) {
-
-        String[] input = this.getEncodedInstruction().split(",");
-
-        // Try to get immediate value
-        Matcher intermediateValMatcher = interValPattern.matcher(input[0]);
-        Matcher matcher = registerPattern.matcher(input[0]);
-
-        Integer[] args = new Integer[5];
-        args[4] = null; // Only two arguments
+    private Integer[] getTwoArgValues() {
 
-        String registerName;
-        int registerNumber;
+        int header = this.getHeader();
 
+        Integer[] args = this.arguments;
+        Arrays.fill(args, null); // Only two arguments
 
+        int kind = getArgumentKind(header, 0);
 
-        if(matcher.find()) {
-            registerName = matcher.group(0);
-            registerNumber = this.getRegisterNumberFromString(registerName);
-            args[0] = registerFile.getRegister(registerNumber).getValue();
+        if(kind == ARG_REGISTER) {
+            int registerNumber = getArgumentRegister(header, 0);
+            args[0] = 0; // Read at issue
             args[2] = registerNumber;
-        } else if(intermediateValMatcher.find()) {
-            int immediateValue = getImmediateValueFromString(intermediateValMatcher);
-            args[0] = immediateValue;
+        } else if(kind == ARG_IMMEDIATE) {
+            args[0] = this.getArgumentImmediate(0);
             args[2] = null;
         } else {
             // LHS must be specified
@@ -410,19 +577,15 @@ public class EncodedInstruction extends Instruction {
                     + this.getEncodedInstruction());
         }
 
-        // Parse next part of the input
-        intermediateValMatcher = interValPattern.matcher(input[1]);
-        matcher = registerPattern.matcher(input[1]);
+        kind = getArgumentKind(header, 1);
 
         // Get second register or immediate value
-        if(matcher.find()) {
-            registerName = matcher.group(0);
-            registerNumber = this.getRegisterNumberFromString(registerName);
-            args[1] = registerFile.getRegister(registerNumber).getValue();
+        if(kind == ARG_REGISTER) {
+            int registerNumber = getArgumentRegister(header, 1);
+            args[1] = 0; // Read at issue
             args[3] = registerNumber;
-        } else if(intermediateValMatcher.find()) {
-            int immediateValue = getImmediateValueFromString(intermediateValMatcher);
-            args[1] = immediateValue;
+        } else if(kind == ARG_IMMEDIATE) {
+            args[1] = this.getArgumentImmediate(1);
             args[3] = null;
         } else {
             // RHS must be specified
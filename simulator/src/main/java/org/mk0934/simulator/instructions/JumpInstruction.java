@@ -5,8 +5,8 @@ package org.mk0934.simulator.instructions;
  */
 public class JumpInstruction extends BranchInstruction {
 
-    public JumpInstruction(int address, EncodedInstruction encodedInstruction) {
-        super(Operand.JMP, new Integer[] { 0, address, null, null, null}, encodedInstruction);
+    public JumpInstruction(Integer[] args, EncodedInstruction encodedInstruction) {
+        super(Operand.JMP, args, encodedInstruction);
     }
 
     @Override
@@ -9,16 +9,22 @@ import org.mk0934.simulator.RegisterFile;
  */
 public class LoadMemoryInstruction extends MemoryInstruction {
 
-    private final int destinationRegisterNumber;
-    private final int offset;
-    private final int address;
-    private final Integer firstSourceRegister;
-    private final Integer secondSourceRegister;
-    private Integer result;
+    private int destinationRegisterNumber;
+    private int offset;
+    private int address;
+    private Integer firstSourceRegister;
+    private Integer secondSourceRegister;
+    private int result;
 
     public LoadMemoryInstruction(Integer[] args, EncodedInstruction encodedInstruction) {
         super(Operand.LDM, encodedInstruction);
 
+        this.setArguments(args);
+    }
+
+    @Override
+    protected void setArguments(Integer[] args) {
+
         this.destinationRegisterNumber = args[0];
         this.offset = args[1];
         this.address = args[2];
@@ -32,12 +38,7 @@ public class LoadMemoryInstruction extends MemoryInstruction {
         // Do memory lookup
         int addressToLookup = this.address + this.offset;
 
-        //
-        Object value = processor.getMemory().getFromMemory(addressToLookup);
-
-        if(value.getClass() == Integer.class) {
-            this.result = (Integer) value;
-        }
+        this.result = processor.loadWord(this, addressToLookup);
     }
 
     @Override
@@ -50,6 +51,35 @@ public class LoadMemoryInstruction extends MemoryInstruction {
         register.setValue(this.result);
     }
 
+    @Override
+    public boolean forwardSourceValue(int registerNumber, int value) {
+
+        if(this.firstSourceRegister != null && this.firstSourceRegister == registerNumber) {
+            this.offset = value;
+        }
+
+        if(this.secondSourceRegister != null && this.secondSourceRegister == registerNumber) {
+            this.address = value;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int getResult(int registerNumber) {
+        return this.result;
+    }
+
+    @Override
+    public int getMemoryAddress() {
+        return this.address + this.offset;
+    }
+
+    @Override
+    public int getMemoryWordCount() {
+        return 1;
+    }
+
     @Override
     public Integer getDestinationRegisterNumber() {
         return this.destinationRegisterNumber;
@@ -21,6 +21,7 @@ public class MoveInstruction extends AluInstruction {
     public void execute(Processor processor) {
         // Not much logic in MOV, we just move a value
         this.result = this.lhs;
+        this.isExecuted = true;
     }
 
     // MOV should never have second source register
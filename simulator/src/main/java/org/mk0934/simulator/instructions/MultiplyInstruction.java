@@ -15,6 +15,7 @@ public class MultiplyInstruction extends AluInstruction {
     @Override
     public void execute(Processor processor) {
         this.result = lhs * rhs;
+        this.isExecuted = true;
     }
 
 
@@ -1,29 +1,49 @@
 package org.mk0934.simulator.instructions;
 
-import org.mk0934.simulator.Globals;
 import org.mk0934.simulator.Processor;
+import org.mk0934.simulator.RegisterFile;
+import org.mk0934.simulator.StoreBuffer;
 
 /**
  * Created by Maciej Kumorek on 10/28/2014.
  */
 public class StoreMemoryInstruction extends MemoryInstruction {
 
-    private final int valueToStore;
-    private final int baseAddress;
-    private final int offset;
-    private final Integer sourceRegisterNumber;
-    private final Integer secondSourceRegisterNumber;
+    private int valueToStore;
+    private int baseAddress;
+    private int offset;
+    private Integer sourceRegisterNumber;
+    private Integer secondSourceRegisterNumber;
+    private Integer baseRegisterNumber;
     private int addressToStore = 0x0;
 
     public StoreMemoryInstruction(Integer[] args, EncodedInstruction encodedInstruction) {
         super(Operand.STM, encodedInstruction);
 
+        this.setArguments(args);
+    }
+
+    @Override
+    protected void setArguments(Integer[] args) {
+
         this.valueToStore = args[1];
         this.offset = args[2];
         this.baseAddress = args[3];
 
         this.sourceRegisterNumber = args[4];
         this.secondSourceRegisterNumber = args[5];
+        this.baseRegisterNumber = args[6];
+    }
+
+    @Override
+    public void readOperands(RegisterFile registerFile) {
+
+        super.readOperands(registerFile);
+
+        // Base address register isn't tracked for hazards, its value is taken at issue
+        if(this.baseRegisterNumber != null) {
+            this.baseAddress = registerFile.getRegister(this.baseRegisterNumber).getValue();
+        }
     }
 
     @Override
@@ -31,12 +51,58 @@ public class StoreMemoryInstruction extends MemoryInstruction {
 
         // Calculate absolute address
         this.addressToStore = this.baseAddress + this.offset;
+
+        StoreBuffer storeBuffer = processor.getStoreBuffer();
+
+        // Younger loads can take the value before the store commits
+        if(storeBuffer != null) {
+            storeBuffer.setAddress(this.getSequenceNumber(), this.addressToStore, 1);
+            storeBuffer.setValue(this.getSequenceNumber(), 0, this.valueToStore);
+        }
     }
 
     @Override
     protected void doWriteBack(Processor processor)  {
+
+        StoreBuffer storeBuffer = processor.getStoreBuffer();
+
+        if(storeBuffer != null) {
+            // Drains to memory later
+            storeBuffer.commit(this.getSequenceNumber());
+            return;
+        }
+
         // Store in memory
-        processor.getMemory().saveToMemory(this.valueToStore, this.addressToStore);
+        processor.getMemory().storeWord(this.addressToStore, this.valueToStore);
+    }
+
+    @Override
+    public boolean forwardSourceValue(int registerNumber, int value) {
+
+        if(this.sourceRegisterNumber != null && this.sourceRegisterNumber == registerNumber) {
+            this.valueToStore = value;
+        }
+
+        if(this.secondSourceRegisterNumber != null && this.secondSourceRegisterNumber == registerNumber) {
+            this.offset = value;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int getMemoryAddress() {
+        return this.baseAddress + this.offset;
+    }
+
+    @Override
+    public boolean isStore() {
+        return true;
+    }
+
+    @Override
+    public int getMemoryWordCount() {
+        return 1;
     }
 
     @Override
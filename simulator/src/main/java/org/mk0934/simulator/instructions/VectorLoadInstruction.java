@@ -9,16 +9,23 @@ import org.mk0934.simulator.RegisterFile;
  */
 public class VectorLoadInstruction extends VectorInstruction {
 
-    private final int destinationRegisterNumber;
-    private final int offset;
-    private final int address;
-    private final Integer firstSourceRegister;
-    private final Integer secondSourceRegister;
-    private Integer[] result;
+    private int destinationRegisterNumber;
+    private int offset;
+    private int address;
+    private Integer firstSourceRegister;
+    private Integer secondSourceRegister;
+    private final int[] result;
 
     public VectorLoadInstruction(Integer[] args, EncodedInstruction encodedInstruction) {
         super(Operand.VLDM, encodedInstruction);
 
+        this.result = new int[width];
+        this.setArguments(args);
+    }
+
+    @Override
+    protected void setArguments(Integer[] args) {
+
         this.destinationRegisterNumber = args[0];
         this.offset = args[1];
         this.address = args[2];
@@ -32,15 +39,8 @@ public class VectorLoadInstruction extends VectorInstruction {
         // Do memory lookup
         int addressToLookup = this.address + this.offset;
 
-        this.result = new Integer[width];
-
         for(int i = 0; i < width; i++) {
-
-            Object value = processor.getMemory().getFromMemory((0x4*i) + addressToLookup);
-
-            if (value.getClass() == Integer.class) {
-                this.result[i] = (Integer) value;
-            }
+            this.result[i] = processor.loadWord(this, (0x4*i) + addressToLookup);
         }
     }
 
@@ -56,6 +56,35 @@ public class VectorLoadInstruction extends VectorInstruction {
         }
     }
 
+    @Override
+    public boolean forwardSourceValue(int registerNumber, int value) {
+
+        if(this.firstSourceRegister != null && this.firstSourceRegister == registerNumber) {
+            this.offset = value;
+        }
+
+        if(this.secondSourceRegister != null && this.secondSourceRegister == registerNumber) {
+            this.address = value;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int getResult(int registerNumber) {
+        return this.result[registerNumber - this.destinationRegisterNumber];
+    }
+
+    @Override
+    public int getMemoryAddress() {
+        return this.address + this.offset;
+    }
+
+    @Override
+    public int getMemoryWordCount() {
+        return width;
+    }
+
     @Override
     public Integer getDestinationRegisterNumber() {
         return this.destinationRegisterNumber;
@@ -71,6 +100,11 @@ public class VectorLoadInstruction extends VectorInstruction {
         return this.firstSourceRegister;
     }
 
+    @Override
+    public int getDestinationRegisterMask() {
+        return getRegisterMask(this.destinationRegisterNumber, width);
+    }
+
     @Override
     public int getLatency() {
         return 4;
@@ -9,14 +9,22 @@ import org.mk0934.simulator.RegisterFile;
  */
 public class VectorMultiplyInstruction extends VectorInstruction {
 
-    protected final Integer destinationRegisterNumber;
-    protected final Integer firstSourceRegisterNumber;
-    protected final Integer secondSourceRegisterNumber;
-    protected Integer[] result = null;
+    protected Integer destinationRegisterNumber;
+    protected Integer firstSourceRegisterNumber;
+    protected Integer secondSourceRegisterNumber;
+    protected final int[] result;
+    protected boolean isExecuted;
 
     public VectorMultiplyInstruction(Integer[] args, EncodedInstruction encodedInstruction) {
         super(Operand.VMUL, encodedInstruction);
 
+        this.result = new int[width];
+        this.setArguments(args);
+    }
+
+    @Override
+    protected void setArguments(Integer[] args) {
+
         // First argument is source register name
         this.destinationRegisterNumber = args[0];
 
@@ -25,6 +33,8 @@ public class VectorMultiplyInstruction extends VectorInstruction {
 
         // Second source register number
         this.secondSourceRegisterNumber = args[4];
+
+        this.isExecuted = false;
     }
 
     @Override
@@ -32,20 +42,20 @@ public class VectorMultiplyInstruction extends VectorInstruction {
 
         final RegisterFile registerFile = processor.getRegisterFile();
 
-        this.result = new Integer[width];
-
         for (int i = 0; i < width; i++) {
             int lhs = registerFile.getRegister(this.firstSourceRegisterNumber + i).getValue();
             int rhs = registerFile.getRegister(this.secondSourceRegisterNumber + i).getValue();
 
             result[i] = lhs * rhs;
         }
+
+        this.isExecuted = true;
     }
 
     @Override
     protected void doWriteBack(Processor processor) {
 
-        if(this.result == null) {
+        if(!this.isExecuted) {
             throw new NullPointerException("Result has not been computed yet. Execute should be called beforehand");
         }
 
@@ -58,6 +68,16 @@ public class VectorMultiplyInstruction extends VectorInstruction {
         }
     }
 
+    @Override
+    public int getResult(int registerNumber) {
+
+        if(!this.isExecuted) {
+            throw new NullPointerException("Result has not been computed yet. Execute should be called beforehand");
+        }
+
+        return this.result[registerNumber - this.destinationRegisterNumber];
+    }
+
     @Override
     public Integer getDestinationRegisterNumber() {
         return this.destinationRegisterNumber;
@@ -73,6 +93,17 @@ public class VectorMultiplyInstruction extends VectorInstruction {
         return this.firstSourceRegisterNumber;
     }
 
+    @Override
+    public int getSourceRegisterMask() {
+        return getRegisterMask(this.firstSourceRegisterNumber, width)
+                | getRegisterMask(this.secondSourceRegisterNumber, width);
+    }
+
+    @Override
+    public int getDestinationRegisterMask() {
+        return getRegisterMask(this.destinationRegisterNumber, width);
+    }
+
     @Override
     public int getLatency() {
         return 2;
@@ -4,27 +4,46 @@ import org.mk0934.simulator.Memory;
 import org.mk0934.simulator.Processor;
 import org.mk0934.simulator.Register;
 import org.mk0934.simulator.RegisterFile;
+import org.mk0934.simulator.StoreBuffer;
 
 /**
  * Created by Maciej Kumorek on 12/5/2014.
  */
 public class VectorStoreMemoryInstruction extends VectorInstruction {
 
-    private final int baseAddress;
-    private final int offset;
-    private final Integer sourceRegisterNumber;
-    private final Integer secondSourceRegisterNumber;
+    private int baseAddress;
+    private int offset;
+    private Integer sourceRegisterNumber;
+    private Integer secondSourceRegisterNumber;
+    private Integer baseRegisterNumber;
     private int addressToStore = 0x0;
 
     public VectorStoreMemoryInstruction(Integer[] args, EncodedInstruction encodedInstruction) {
         super(Operand.VSTM, encodedInstruction);
 
-        int valueToStore = args[1];
+        this.setArguments(args);
+    }
+
+    @Override
+    protected void setArguments(Integer[] args) {
+
         this.offset = args[2];
         this.baseAddress = args[3];
 
         this.sourceRegisterNumber = args[4];
         this.secondSourceRegisterNumber = args[5];
+        this.baseRegisterNumber = args[6];
+    }
+
+    @Override
+    public void readOperands(RegisterFile registerFile) {
+
+        super.readOperands(registerFile);
+
+        // Base address register isn't tracked for hazards, its value is taken at issue
+        if(this.baseRegisterNumber != null) {
+            this.baseAddress = registerFile.getRegister(this.baseRegisterNumber).getValue();
+        }
     }
 
 
@@ -33,6 +52,12 @@ public class VectorStoreMemoryInstruction extends VectorInstruction {
 
         // Calculate absolute address
         this.addressToStore = this.baseAddress + this.offset;
+
+        StoreBuffer storeBuffer = processor.getStoreBuffer();
+
+        if(storeBuffer != null) {
+            storeBuffer.setAddress(this.getSequenceNumber(), this.addressToStore, width);
+        }
     }
 
     @Override
@@ -44,14 +69,51 @@ public class VectorStoreMemoryInstruction extends VectorInstruction {
         // Reference to register file
         final RegisterFile registerFile = processor.getRegisterFile();
 
+        // Values are only known now, so loads wait for them until the store commits
+        final StoreBuffer storeBuffer = processor.getStoreBuffer();
+
         for (int i = 0; i < width; i++) {
 
             final Register register = registerFile.getRegister(this.getFirstSourceRegisterNumber() + i);
 
-            memory.saveToMemory(register.getValue(), this.addressToStore + (i * 0x4));
+            if(storeBuffer != null) {
+                storeBuffer.setValue(this.getSequenceNumber(), i, register.getValue());
+            } else {
+                memory.storeWord(this.addressToStore + (i * 0x4), register.getValue());
+            }
+        }
+
+        if(storeBuffer != null) {
+            storeBuffer.commit(this.getSequenceNumber());
         }
     }
 
+    @Override
+    public boolean forwardSourceValue(int registerNumber, int value) {
+
+        if(this.secondSourceRegisterNumber != null && this.secondSourceRegisterNumber == registerNumber) {
+            this.offset = value;
+        }
+
+        // Stored values are read at write-back, which happens in program order
+        return true;
+    }
+
+    @Override
+    public int getMemoryAddress() {
+        return this.baseAddress + this.offset;
+    }
+
+    @Override
+    public boolean isStore() {
+        return true;
+    }
+
+    @Override
+    public int getMemoryWordCount() {
+        return width;
+    }
+
     @Override
     public Integer getDestinationRegisterNumber() {
         return null;
@@ -67,6 +129,14 @@ public class VectorStoreMemoryInstruction extends VectorInstruction {
         return this.sourceRegisterNumber;
     }
 
+    @Override
+    public int getSourceRegisterMask() {
+
+        // Stored values are read from consecutive registers
+        return getRegisterMask(this.sourceRegisterNumber, width)
+                | getRegisterMask(this.secondSourceRegisterNumber, 1);
+    }
+
     @Override
     public int getLatency() {
         return 4;
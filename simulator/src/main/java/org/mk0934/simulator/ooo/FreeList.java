@@ -0,0 +1,71 @@
+package org.mk0934.simulator.ooo;
+
+/**
+ * Free list of physical registers
+ *
+ * FIFO queue of register numbers in a primitive array, registers are taken at rename
+ * and returned when the instruction that overwrote them commits or when they are squashed.
+ *
+ * @author Maciej Kumorek
+ */
+public class FreeList {
+
+    private final int[] registers;
+
+    /**
+     * Index of the next register to allocate
+     */
+    private int head;
+
+    private int size;
+
+    /**
+     * Creates free list holding registers from first to count - 1
+     * @param count Number of physical registers
+     * @param first First free register
+     */
+    public FreeList(int count, int first) {
+
+        this.registers = new int[count];
+
+        for(int register = first; register < count; register++) {
+            this.free(register);
+        }
+    }
+
+    /**
+     * Take a free register
+     * @return physical register number
+     */
+    public int allocate() {
+
+        if(this.size == 0) {
+            throw new IllegalStateException("No free physical registers");
+        }
+
+        int register = this.registers[this.head];
+
+        this.head = (this.head + 1) % this.registers.length;
+        this.size--;
+
+        return register;
+    }
+
+    /**
+     * Return register to the list
+     * @param register Physical register number
+     */
+    public void free(int register) {
+
+        if(this.size == this.registers.length) {
+            throw new IllegalStateException("Physical register freed twice: " + register);
+        }
+
+        this.registers[(this.head + this.size) % this.registers.length] = register;
+        this.size++;
+    }
+
+    public int size() {
+        return this.size;
+    }
+}
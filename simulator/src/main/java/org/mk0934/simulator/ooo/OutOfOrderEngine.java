@@ -0,0 +1,672 @@
+package org.mk0934.simulator.ooo;
+
+import org.mk0934.simulator.BranchPredictor;
+import org.mk0934.simulator.BranchPredictorResult;
+import org.mk0934.simulator.FetchBuffer;
+import org.mk0934.simulator.Processor;
+import org.mk0934.simulator.RingBuffer;
+import org.mk0934.simulator.SimulatorConfig;
+import org.mk0934.simulator.instructions.*;
+import org.mk0934.simulator.trace.TraceEvent;
+import org.mk0934.simulator.trace.TraceStage;
+import org.mk0934.simulator.trace.Tracer;
+import org.mk0934.simulator.units.AluExecutionUnit;
+import org.mk0934.simulator.units.MemoryExecutionUnit;
+import org.mk0934.simulator.units.VectorExecutionUnit;
+
+/**
+ * Tomasulo-style out-of-order core
+ *
+ * Instructions are renamed and dispatched in order into the reorder buffer and a reservation
+ * station, issued to execution units as soon as their operands are ready and committed in order.
+ * Destination registers are renamed to physical registers, results are written there and forwarded
+ * to waiting instructions when they complete. Register file and memory are only written when
+ * instructions commit.
+ *
+ * Branches are resolved at dispatch if their operands are ready, otherwise predicted and
+ * resolved once the operands are forwarded. Loads don't pass older stores to the same address,
+ * with a store buffer committed stores drain to memory later and loads take their values from it.
+ *
+ * @author Maciej Kumorek
+ */
+public class OutOfOrderEngine {
+
+    /**
+     * Most registers one instruction writes, vector instructions write four
+     */
+    private static final int MAX_DESTINATION_REGISTERS = 4;
+
+    private final Processor processor;
+
+    private final SimulatorConfig config;
+
+    /**
+     * Pipeline events
+     */
+    private final Tracer tracer;
+
+    private final BranchPredictor predictor;
+
+    private final ReorderBuffer reorderBuffer;
+
+    /**
+     * Reservation stations for ALU instructions and branches, memory and vector instructions
+     */
+    private final ReservationStation aluStation;
+    private final ReservationStation memoryStation;
+    private final ReservationStation vectorStation;
+
+    private final PhysicalRegisterFile physicalRegisterFile;
+
+    private final RenameMapTable renameMapTable;
+
+    private final FreeList freeList;
+
+    /**
+     * Number of instructions committed
+     */
+    private int committedCount;
+
+    /**
+     * Sequence number of the next dispatched instruction
+     */
+    private long nextSequenceNumber;
+
+    public OutOfOrderEngine(Processor processor, BranchPredictor predictor) {
+
+        this.processor = processor;
+        this.config = processor.getConfig();
+        this.tracer = processor.getTracer();
+        this.predictor = predictor;
+
+        int registerCount = processor.getRegisterFile().getCount();
+
+        // Otherwise vector instructions could never be renamed
+        if(this.config.getPhysicalRegisterCount() < registerCount + MAX_DESTINATION_REGISTERS) {
+            throw new IllegalArgumentException(String.format("At least %d physical registers are needed",
+                    registerCount + MAX_DESTINATION_REGISTERS));
+        }
+
+        this.reorderBuffer = new ReorderBuffer(this.config.getReorderBufferSize(), registerCount);
+        this.aluStation = new ReservationStation(this.config.getReservationStationSize(), registerCount);
+        this.memoryStation = new ReservationStation(this.config.getReservationStationSize(), registerCount);
+        this.vectorStation = new ReservationStation(this.config.getReservationStationSize(), registerCount);
+
+        // Architectural registers start in physical registers with the same numbers
+        this.physicalRegisterFile = new PhysicalRegisterFile(this.config.getPhysicalRegisterCount());
+        this.renameMapTable = new RenameMapTable(registerCount);
+        this.freeList = new FreeList(this.config.getPhysicalRegisterCount(), registerCount);
+    }
+
+    /**
+     * Take results of finished instructions and forward them to waiting instructions
+     */
+    public void complete() {
+
+        RingBuffer<DecodedInstruction> instructionsToComplete = this.processor.getWriteBackBuffer();
+
+        if(instructionsToComplete.isEmpty()) {
+            this.tracer.trace(TraceStage.WRITEBACK, 0, TraceEvent.IDLE);
+            return;
+        }
+
+        this.processor.markActive();
+
+        while(!instructionsToComplete.isEmpty()) {
+
+            DecodedInstruction instruction = instructionsToComplete.removeFirst();
+            int tag = instruction.getTag();
+
+            // Instruction was squashed while it was executing
+            if(tag < 0) {
+                this.tracer.trace(TraceStage.WRITEBACK, 0, TraceEvent.SQUASHED, instruction.getInstructionAddress());
+                instruction.recycle();
+                continue;
+            }
+
+            this.tracer.trace(TraceStage.WRITEBACK, 0, TraceEvent.COMPLETED, instruction.getInstructionAddress());
+
+            this.reorderBuffer.setCompleted(tag);
+
+            // Nothing is waiting anymore if results were forwarded already
+            this.wakeUp(tag, instruction);
+        }
+    }
+
+    /**
+     * Wake up instructions waiting for results of an instruction that just finished executing,
+     * so they can issue in the same cycle instead of after the instruction completes
+     * @param instruction Executed instruction
+     */
+    public void forward(DecodedInstruction instruction) {
+
+        int tag = instruction.getTag();
+
+        // Squashed while it was executing
+        if(tag < 0) {
+            return;
+        }
+
+        this.wakeUp(tag, instruction);
+    }
+
+    private void wakeUp(int tag, DecodedInstruction instruction) {
+
+        int mask = instruction.getDestinationRegisterMask();
+
+        while(mask != 0) {
+            int registerNumber = Integer.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+
+            int physicalRegister = this.reorderBuffer.getPhysicalRegister(tag, registerNumber);
+            int value = instruction.getResult(registerNumber);
+
+            this.physicalRegisterFile.setValue(physicalRegister, value);
+
+            this.aluStation.wakeUp(physicalRegister, value);
+            this.memoryStation.wakeUp(physicalRegister, value);
+            this.vectorStation.wakeUp(physicalRegister, value);
+        }
+    }
+
+    /**
+     * Write back completed instructions in program order
+     */
+    public void commit() {
+
+        for(int i = 0; i < this.config.getCommitWidth() && !this.reorderBuffer.isEmpty(); i++) {
+
+            int tag = this.reorderBuffer.getHead();
+
+            if(!this.reorderBuffer.isCompleted(tag)) {
+                return;
+            }
+
+            DecodedInstruction instruction = this.reorderBuffer.getInstruction(tag);
+
+            this.tracer.trace(TraceStage.COMMIT, i, TraceEvent.COMMITTED, instruction.getInstructionAddress());
+            this.processor.markActive();
+
+            this.processor.profileMemoryAccess(instruction);
+            instruction.writeBack(this.processor);
+
+            int mask = instruction.getDestinationRegisterMask();
+
+            while(mask != 0) {
+                int registerNumber = Integer.numberOfTrailingZeros(mask);
+                mask &= mask - 1;
+
+                int physicalRegister = this.reorderBuffer.getPhysicalRegister(tag, registerNumber);
+
+                this.aluStation.wakeUpCommitted(physicalRegister);
+                this.memoryStation.wakeUpCommitted(physicalRegister);
+                this.vectorStation.wakeUpCommitted(physicalRegister);
+
+                // Nothing can read the overwritten value anymore
+                this.renameMapTable.retire(registerNumber, physicalRegister);
+                this.freeList.free(this.reorderBuffer.getPreviousPhysicalRegister(tag, registerNumber));
+            }
+
+            int branchOutcome = this.reorderBuffer.getBranchOutcome(tag);
+
+            if(branchOutcome == ReorderBuffer.BRANCH_NOT_PREDICTED) {
+                this.processor.incrementBranchCounter();
+            } else if(branchOutcome == ReorderBuffer.BRANCH_PREDICTED_CORRECTLY) {
+                this.processor.incrementCorrectBranches();
+            } else if(branchOutcome == ReorderBuffer.BRANCH_MISPREDICTED) {
+                this.processor.IncrementMissedBranches();
+            }
+
+            this.committedCount++;
+
+            this.reorderBuffer.removeHead();
+            instruction.recycle();
+        }
+    }
+
+    /**
+     * Resolve branches and send ready instructions to execution units that can start them, oldest first,
+     * at most issue width of them
+     */
+    public void issue() {
+
+        // Branches don't need an execution unit
+        int slot;
+        while((slot = this.selectBranch()) >= 0) {
+            this.resolveBranch(slot);
+        }
+
+        int aluUnitCount = this.config.getExecutionUnits() + this.config.getMultiplierUnits();
+        int issued = 0;
+
+        // Idle units first, pipelined units finish in order, so a busy one would delay the instruction
+        for(int pass = 0; pass < 2; pass++) {
+
+            for(int id = 0; id < aluUnitCount && issued < this.config.getIssueWidth(); id++) {
+
+                RingBuffer<AluInstruction> queue = this.processor.getAluInstructionsBuffer(id);
+                AluExecutionUnit unit = this.processor.getAluExecutionUnit(id);
+
+                // Multiplier units follow the ALUs
+                boolean isMultiplier = id >= this.config.getExecutionUnits();
+
+                if((pass == 0 ? queue.isEmpty() : unit.canAccept())
+                        && (slot = this.select(this.aluStation, isMultiplier)) >= 0) {
+                    queue.addLast((AluInstruction) this.issue(this.aluStation, slot, id));
+                    issued++;
+                }
+            }
+
+            for(int id = 0; id < this.config.getMemoryUnits() && issued < this.config.getIssueWidth(); id++) {
+
+                RingBuffer<MemoryInstruction> queue = this.processor.getMemoryInstructionsToExecute(id);
+                MemoryExecutionUnit unit = this.processor.getMemoryExecutionUnit(id);
+
+                if((pass == 0 ? queue.isEmpty() : unit.canAccept())
+                        && (slot = this.select(this.memoryStation, false)) >= 0) {
+                    queue.addLast((MemoryInstruction) this.issue(this.memoryStation, slot, id));
+                    issued++;
+                }
+            }
+        }
+
+        for(int id = 0; id < this.config.getVectorUnits() && issued < this.config.getIssueWidth(); id++) {
+
+            VectorExecutionUnit unit = this.processor.getVectorExecutionUnit(id);
+            int unitId = this.config.getVectorUnits() > 1 ? id : Tracer.NO_UNIT;
+
+            if(unit.canAccept() && (slot = this.select(this.vectorStation, false)) >= 0) {
+                unit.getReservationStation().addLast((VectorInstruction) this.issue(this.vectorStation, slot, unitId));
+                issued++;
+            }
+        }
+    }
+
+    /**
+     * Move decoded instructions into the reorder buffer and reservation stations in program order
+     */
+    public void dispatch() {
+
+        FetchBuffer instructionsToDecode = this.processor.getDecodeBuffer();
+
+        for(int id = 0; id < this.config.getDecodeWidth(); id++) {
+
+            if(instructionsToDecode.isEmpty()) {
+                this.tracer.trace(TraceStage.DECODE, id, TraceEvent.IDLE);
+                return;
+            }
+
+            if(this.reorderBuffer.isFull()) {
+                this.tracer.trace(TraceStage.DISPATCH, id, TraceEvent.REORDER_BUFFER_FULL);
+                return;
+            }
+
+            EncodedInstruction encodedInstruction = instructionsToDecode.peek();
+
+            if(!instructionsToDecode.isReady(this.processor.getCycles())) {
+                this.tracer.trace(TraceStage.DECODE, id, TraceEvent.IN_FRONT_END, encodedInstruction.getAddress());
+                return;
+            }
+
+            this.tracer.trace(TraceStage.DECODE, id, TraceEvent.DECODING, encodedInstruction.getAddress());
+
+            DecodedInstruction instruction = encodedInstruction.decodeStatic();
+            instruction.setSequenceNumber(this.nextSequenceNumber++);
+
+            ReservationStation station = this.getStation(instruction);
+
+            if(station.isFull()) {
+                this.tracer.trace(TraceStage.DISPATCH, id, TraceEvent.RESERVATION_STATION_FULL);
+                instruction.recycle();
+                return;
+            }
+
+            if(this.freeList.size() < Integer.bitCount(instruction.getDestinationRegisterMask())) {
+                this.tracer.trace(TraceStage.DISPATCH, id, TraceEvent.PHYSICAL_REGISTERS_FULL);
+                instruction.recycle();
+                return;
+            }
+
+            if(!this.processor.allocateStore(TraceStage.DISPATCH, id, instruction)) {
+                instruction.recycle();
+                return;
+            }
+
+            instructionsToDecode.removeFirst();
+            this.processor.markActive();
+
+            int tag = this.reorderBuffer.allocate(instruction);
+            instruction.setTag(tag);
+
+            int slot = station.add(instruction);
+
+            // Register values that are still being computed are forwarded later
+            instruction.readOperands(this.processor.getRegisterFile());
+            this.readSourceRegisters(station, slot, instruction);
+            this.renameDestinationRegisters(instruction, tag);
+
+            this.tracer.trace(TraceStage.DISPATCH, id, TraceEvent.DISPATCHED, instruction.getInstructionAddress());
+
+            // Fetch continues from the branch target
+            if(instruction instanceof BranchInstruction) {
+                this.dispatchBranch(slot, (BranchInstruction) instruction);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true if there are no instructions in flight
+     */
+    public boolean isEmpty() {
+
+        if(!this.reorderBuffer.isEmpty()) {
+            return false;
+        }
+
+        for(int id = 0; id < this.config.getVectorUnits(); id++) {
+            if(!this.processor.getVectorExecutionUnit(id).getReservationStation().isEmpty()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return Number of instructions committed
+     */
+    public int getCommittedCount() {
+        return this.committedCount;
+    }
+
+    public ReorderBuffer getReorderBuffer() {
+        return this.reorderBuffer;
+    }
+
+    private ReservationStation getStation(DecodedInstruction instruction) {
+
+        if(instruction instanceof MemoryInstruction) {
+            return this.memoryStation;
+        } else if(instruction instanceof VectorInstruction) {
+            return this.vectorStation;
+        }
+
+        return this.aluStation;
+    }
+
+    /**
+     * Make source registers with a pending write wait for the producer,
+     * or take the value right away if the producer completed already.
+     * Committed values were read from the register file at decode.
+     */
+    private void readSourceRegisters(ReservationStation station, int slot, DecodedInstruction instruction) {
+
+        int mask = instruction.getSourceRegisterMask();
+
+        while(mask != 0) {
+            int registerNumber = Integer.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+
+            if(this.renameMapTable.isRetired(registerNumber)) {
+                continue;
+            }
+
+            int physicalRegister = this.renameMapTable.lookup(registerNumber);
+
+            if(!this.physicalRegisterFile.isReady(physicalRegister)) {
+                station.waitFor(slot, registerNumber, physicalRegister, false);
+            } else if(!instruction.forwardSourceValue(registerNumber,
+                    this.physicalRegisterFile.getValue(physicalRegister))) {
+                station.waitFor(slot, registerNumber, physicalRegister, true);
+            }
+        }
+    }
+
+    /**
+     * Map destination registers to free physical registers, removing WAR and WAW dependencies
+     */
+    private void renameDestinationRegisters(DecodedInstruction instruction, int tag) {
+
+        int mask = instruction.getDestinationRegisterMask();
+
+        while(mask != 0) {
+            int registerNumber = Integer.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+
+            int physicalRegister = this.freeList.allocate();
+            this.physicalRegisterFile.setPending(physicalRegister);
+
+            int previousPhysicalRegister = this.renameMapTable.rename(registerNumber, physicalRegister);
+            this.reorderBuffer.setRename(tag, registerNumber, physicalRegister, previousPhysicalRegister);
+        }
+    }
+
+    /**
+     * Take the branch right away if its operands are known, otherwise predict it
+     */
+    private void dispatchBranch(int slot, BranchInstruction branch) {
+
+        int tag = branch.getTag();
+
+        if(this.aluStation.isReady(slot)) {
+
+            this.aluStation.remove(slot);
+            this.reorderBuffer.setCompleted(tag);
+            this.reorderBuffer.setBranchOutcome(tag, ReorderBuffer.BRANCH_NOT_PREDICTED);
+
+            if(branch.tryTakeBranch(this.processor)) {
+
+                this.tracer.trace(TraceStage.BRANCH, Tracer.NO_UNIT,
+                        branch.getOperand() == Operand.JMP ? TraceEvent.JUMP : TraceEvent.BRANCH,
+                        branch.getInstructionAddress(),
+                        branch.getAddressToJump(),
+                        0);
+
+                this.processor.getDecodeBuffer().clear();
+            }
+
+            return;
+        }
+
+        BranchPredictorResult prediction = this.predictor.predictBranch(branch);
+
+        this.tracer.trace(TraceStage.BRANCH, Tracer.NO_UNIT,
+                prediction.isShouldTake() ? TraceEvent.PREDICTED_TAKEN : TraceEvent.PREDICTED_NOT_TAKEN,
+                branch.getInstructionAddress(), branch.getAddressToJump(), 0);
+
+        this.reorderBuffer.setPrediction(tag, prediction.isShouldTake());
+
+        this.processor.getPc().setValue(prediction.getAddressPredicted());
+        this.processor.getDecodeBuffer().clear();
+    }
+
+    /**
+     * Check predicted branch whose operands are known, squash younger instructions if it was mispredicted
+     */
+    private void resolveBranch(int slot) {
+
+        BranchInstruction branch = (BranchInstruction) this.aluStation.remove(slot);
+        int tag = branch.getTag();
+
+        this.processor.markActive();
+        this.reorderBuffer.setCompleted(tag);
+
+        boolean shouldTake = branch.shouldTakeBranch();
+        this.predictor.updatePredictor(branch, shouldTake);
+
+        if(shouldTake == this.reorderBuffer.isPredictedToTake(tag)) {
+            this.reorderBuffer.setBranchOutcome(tag, ReorderBuffer.BRANCH_PREDICTED_CORRECTLY);
+            return;
+        }
+
+        this.reorderBuffer.setBranchOutcome(tag, ReorderBuffer.BRANCH_MISPREDICTED);
+
+        this.tracer.trace(TraceStage.BRANCH, Tracer.NO_UNIT, TraceEvent.MISPREDICTED);
+        this.tracer.trace(TraceStage.BRANCH, Tracer.NO_UNIT,
+                shouldTake ? TraceEvent.MISPREDICTED_NOT_TAKEN : TraceEvent.MISPREDICTED_TAKEN);
+
+        this.squashYoungerThan(tag);
+
+        int addressToJump = shouldTake ? branch.getAddressToJump() : branch.getInstructionAddress() + 0x4;
+
+        this.tracer.trace(TraceStage.BRANCH, Tracer.NO_UNIT, TraceEvent.REDIRECT, 0, addressToJump, 0);
+
+        this.processor.getDecodeBuffer().clear();
+        this.processor.getPc().setValue(addressToJump);
+    }
+
+    /**
+     * Discard instructions dispatched after a mispredicted branch
+     * @param tag Tag of the branch
+     */
+    private void squashYoungerThan(int tag) {
+
+        if(this.processor.getStoreBuffer() != null) {
+            this.processor.getStoreBuffer().squash(this.reorderBuffer.getInstruction(tag).getSequenceNumber());
+        }
+
+        while(this.reorderBuffer.getYoungest() != tag) {
+
+            int youngest = this.reorderBuffer.getYoungest();
+            DecodedInstruction instruction = this.reorderBuffer.getInstruction(youngest);
+
+            this.tracer.trace(TraceStage.BRANCH, Tracer.NO_UNIT, TraceEvent.SQUASHED,
+                    instruction.getInstructionAddress());
+
+            // Undo the rename, youngest first
+            int mask = instruction.getDestinationRegisterMask();
+
+            while(mask != 0) {
+                int registerNumber = Integer.numberOfTrailingZeros(mask);
+                mask &= mask - 1;
+
+                this.renameMapTable.restore(registerNumber,
+                        this.reorderBuffer.getPreviousPhysicalRegister(youngest, registerNumber));
+                this.freeList.free(this.reorderBuffer.getPhysicalRegister(youngest, registerNumber));
+            }
+
+            if(this.reorderBuffer.isCompleted(youngest)) {
+                instruction.recycle();
+            } else if(this.reorderBuffer.isIssued(youngest)) {
+                // Still in an execution unit, recycled once it completes
+                instruction.setTag(-1);
+            } else {
+                this.getStation(instruction).remove(instruction);
+                instruction.recycle();
+            }
+
+            this.reorderBuffer.removeYoungest();
+        }
+    }
+
+    /**
+     * @return Entry of the oldest branch with known operands, -1 if there is none
+     */
+    private int selectBranch() {
+
+        int selected = -1;
+        int selectedAge = Integer.MAX_VALUE;
+
+        for(int slot = 0; slot < this.aluStation.getCapacity(); slot++) {
+
+            DecodedInstruction instruction = this.aluStation.getInstruction(slot);
+
+            if(instruction instanceof BranchInstruction && this.aluStation.isReady(slot)) {
+
+                int age = this.reorderBuffer.getAge(instruction.getTag());
+
+                if(age < selectedAge) {
+                    selected = slot;
+                    selectedAge = age;
+                }
+            }
+        }
+
+        return selected;
+    }
+
+    /**
+     * @param isMultiplier Select for a multiplier unit, which only executes MUL
+     * @return Entry of the oldest instruction that can execute, -1 if there is none
+     */
+    private int select(ReservationStation station, boolean isMultiplier) {
+
+        int selected = -1;
+        int selectedAge = Integer.MAX_VALUE;
+
+        for(int slot = 0; slot < station.getCapacity(); slot++) {
+
+            DecodedInstruction instruction = station.getInstruction(slot);
+
+            if(instruction == null || instruction instanceof BranchInstruction || !station.isReady(slot)
+                    || this.config.isMultiplierInstruction(instruction) != isMultiplier) {
+                continue;
+            }
+
+            int age = this.reorderBuffer.getAge(instruction.getTag());
+
+            if(age < selectedAge && this.isMemoryOrderSatisfied(instruction, age)) {
+                selected = slot;
+                selectedAge = age;
+            }
+        }
+
+        return selected;
+    }
+
+    private DecodedInstruction issue(ReservationStation station, int slot, int unitId) {
+
+        DecodedInstruction instruction = station.remove(slot);
+
+        this.processor.markActive();
+        this.reorderBuffer.setIssued(instruction.getTag());
+        this.tracer.trace(TraceStage.ISSUE, unitId, TraceEvent.ISSUED, instruction.getInstructionAddress());
+
+        return instruction;
+    }
+
+    /**
+     * Loads can't execute before older stores that may write the same words. With a store buffer
+     * they only wait until the stores executed and take the values from the buffer.
+     * @param instruction Instruction to check
+     * @param age Position of the instruction in the reorder buffer
+     * @return true if the instruction doesn't depend on an older store
+     */
+    private boolean isMemoryOrderSatisfied(DecodedInstruction instruction, int age) {
+
+        if(instruction.getMemoryWordCount() == 0 || instruction.isStore()) {
+            return true;
+        }
+
+        int address = instruction.getMemoryAddress();
+        int end = address + instruction.getMemoryWordCount() * 0x4;
+
+        for(int olderAge = 0; olderAge < age; olderAge++) {
+
+            int tag = this.reorderBuffer.get(olderAge);
+            DecodedInstruction older = this.reorderBuffer.getInstruction(tag);
+
+            if(!older.isStore()) {
+                continue;
+            }
+
+            // Address of the store isn't known yet
+            if(!this.reorderBuffer.isIssued(tag)) {
+                return false;
+            }
+
+            int storeAddress = older.getMemoryAddress();
+            int storeEnd = storeAddress + older.getMemoryWordCount() * 0x4;
+
+            if(storeAddress < end && address < storeEnd
+                    && (this.processor.getStoreBuffer() == null || !this.reorderBuffer.isCompleted(tag))) {
+                return false;
+            }
+        }
+
+        // Vector stores get their values when they commit
+        return this.processor.getStoreBuffer() == null || !this.processor.getStoreBuffer().isMissingValue(
+                instruction.getSequenceNumber(), address, instruction.getMemoryWordCount());
+    }
+}
@@ -0,0 +1,51 @@
+package org.mk0934.simulator.ooo;
+
+/**
+ * Physical register file of the out-of-order core
+ *
+ * Values and ready bits are kept in primitive arrays, so the file can have
+ * hundreds of registers.
+ *
+ * @author Maciej Kumorek
+ */
+public class PhysicalRegisterFile {
+
+    private final int[] values;
+
+    /**
+     * Is the value computed
+     */
+    private final boolean[] isReady;
+
+    public PhysicalRegisterFile(int count) {
+        this.values = new int[count];
+        this.isReady = new boolean[count];
+    }
+
+    public int getValue(int register) {
+        return this.values[register];
+    }
+
+    /**
+     * Write result of an instruction, the register becomes ready
+     */
+    public void setValue(int register, int value) {
+        this.values[register] = value;
+        this.isReady[register] = true;
+    }
+
+    public boolean isReady(int register) {
+        return this.isReady[register];
+    }
+
+    /**
+     * Mark register as waiting for its producer, when it's allocated
+     */
+    public void setPending(int register) {
+        this.isReady[register] = false;
+    }
+
+    public int getCount() {
+        return this.values.length;
+    }
+}
@@ -0,0 +1,70 @@
+package org.mk0934.simulator.ooo;
+
+/**
+ * Maps architectural registers to physical ones
+ *
+ * Speculative mapping is updated at rename, retired mapping when instructions commit.
+ * Registers mapped the same way in both hold committed values, which are in the register file.
+ *
+ * @author Maciej Kumorek
+ */
+public class RenameMapTable {
+
+    private final int[] speculative;
+    private final int[] retired;
+
+    /**
+     * Creates identity mapping, architectural register n is physical register n
+     * @param registerCount Number of architectural registers
+     */
+    public RenameMapTable(int registerCount) {
+
+        this.speculative = new int[registerCount];
+        this.retired = new int[registerCount];
+
+        for(int register = 0; register < registerCount; register++) {
+            this.speculative[register] = register;
+            this.retired[register] = register;
+        }
+    }
+
+    /**
+     * @return Physical register holding the youngest value of architectural register
+     */
+    public int lookup(int registerNumber) {
+        return this.speculative[registerNumber];
+    }
+
+    /**
+     * Map architectural register to a new physical register
+     * @return physical register mapped before
+     */
+    public int rename(int registerNumber, int physicalRegister) {
+
+        int previous = this.speculative[registerNumber];
+        this.speculative[registerNumber] = physicalRegister;
+
+        return previous;
+    }
+
+    /**
+     * Undo rename of a squashed instruction
+     */
+    public void restore(int registerNumber, int physicalRegister) {
+        this.speculative[registerNumber] = physicalRegister;
+    }
+
+    /**
+     * Instruction writing the physical register committed
+     */
+    public void retire(int registerNumber, int physicalRegister) {
+        this.retired[registerNumber] = physicalRegister;
+    }
+
+    /**
+     * @return true if the youngest value of the register is committed
+     */
+    public boolean isRetired(int registerNumber) {
+        return this.speculative[registerNumber] == this.retired[registerNumber];
+    }
+}
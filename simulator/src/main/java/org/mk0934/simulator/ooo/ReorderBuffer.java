@@ -0,0 +1,217 @@
+package org.mk0934.simulator.ooo;
+
+import org.mk0934.simulator.instructions.DecodedInstruction;
+
+/**
+ * Reorder buffer of the out-of-order core
+ *
+ * Circular buffer of in-flight instructions in program order, entries are kept in primitive arrays.
+ * Every entry remembers physical registers its instruction writes and the ones they replaced,
+ * to free them on commit or undo the rename when the instruction is squashed.
+ *
+ * @author Maciej Kumorek
+ */
+public class ReorderBuffer {
+
+    /**
+     * Branch outcomes, counted when the branch commits
+     */
+    public static final int NOT_BRANCH = 0;
+    public static final int BRANCH_NOT_PREDICTED = 1;
+    public static final int BRANCH_PREDICTED = 2;
+    public static final int BRANCH_PREDICTED_CORRECTLY = 3;
+    public static final int BRANCH_MISPREDICTED = 4;
+
+    private final DecodedInstruction[] instructions;
+    private final boolean[] isIssued;
+    private final boolean[] isCompleted;
+    private final int[] branchOutcomes;
+    private final boolean[] isPredictedToTake;
+
+    /**
+     * Renamed destination registers of every entry, indexed by tag * registerCount + architectural register
+     */
+    private final int[] physicalRegisters;
+    private final int[] previousPhysicalRegisters;
+
+    private final int registerCount;
+
+    /**
+     * Index of the oldest entry
+     */
+    private int head;
+
+    /**
+     * Number of entries in use
+     */
+    private int size;
+
+    public ReorderBuffer(int capacity, int registerCount) {
+
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("capacity");
+        }
+
+        this.instructions = new DecodedInstruction[capacity];
+        this.isIssued = new boolean[capacity];
+        this.isCompleted = new boolean[capacity];
+        this.branchOutcomes = new int[capacity];
+        this.isPredictedToTake = new boolean[capacity];
+        this.physicalRegisters = new int[capacity * registerCount];
+        this.previousPhysicalRegisters = new int[capacity * registerCount];
+        this.registerCount = registerCount;
+    }
+
+    /**
+     * Add instruction after the youngest one
+     * @param instruction Dispatched instruction
+     * @return tag of the new entry
+     */
+    public int allocate(DecodedInstruction instruction) {
+
+        if(this.isFull()) {
+            throw new IllegalStateException("Reorder buffer is full");
+        }
+
+        int tag = this.get(this.size);
+
+        this.instructions[tag] = instruction;
+        this.isIssued[tag] = false;
+        this.isCompleted[tag] = false;
+        this.branchOutcomes[tag] = NOT_BRANCH;
+        this.isPredictedToTake[tag] = false;
+
+        this.size++;
+
+        return tag;
+    }
+
+    /**
+     * Remove the oldest entry, once it's committed
+     */
+    public void removeHead() {
+
+        if(this.size == 0) {
+            throw new IllegalStateException("Reorder buffer is empty");
+        }
+
+        this.instructions[this.head] = null;
+        this.head = (this.head + 1) % this.instructions.length;
+        this.size--;
+    }
+
+    /**
+     * Remove the youngest entry, when it's squashed
+     * @return tag of the removed entry
+     */
+    public int removeYoungest() {
+
+        if(this.size == 0) {
+            throw new IllegalStateException("Reorder buffer is empty");
+        }
+
+        int tag = this.get(this.size - 1);
+
+        this.instructions[tag] = null;
+        this.size--;
+
+        return tag;
+    }
+
+    /**
+     * Get tag of an entry
+     * @param age Position counting from the oldest entry
+     * @return tag of the entry
+     */
+    public int get(int age) {
+        return (this.head + age) % this.instructions.length;
+    }
+
+    /**
+     * @param tag Tag of an entry in use
+     * @return Position of the entry counting from the oldest one
+     */
+    public int getAge(int tag) {
+        return (tag - this.head + this.instructions.length) % this.instructions.length;
+    }
+
+    public int getHead() {
+        return this.head;
+    }
+
+    public int getYoungest() {
+        return this.get(this.size - 1);
+    }
+
+    public DecodedInstruction getInstruction(int tag) {
+        return this.instructions[tag];
+    }
+
+    public boolean isIssued(int tag) {
+        return this.isIssued[tag];
+    }
+
+    public void setIssued(int tag) {
+        this.isIssued[tag] = true;
+    }
+
+    public boolean isCompleted(int tag) {
+        return this.isCompleted[tag];
+    }
+
+    public void setCompleted(int tag) {
+        this.isCompleted[tag] = true;
+    }
+
+    public int getBranchOutcome(int tag) {
+        return this.branchOutcomes[tag];
+    }
+
+    public void setBranchOutcome(int tag, int branchOutcome) {
+        this.branchOutcomes[tag] = branchOutcome;
+    }
+
+    public boolean isPredictedToTake(int tag) {
+        return this.isPredictedToTake[tag];
+    }
+
+    /**
+     * Remember prediction of a branch waiting for its operands
+     */
+    public void setPrediction(int tag, boolean isPredictedToTake) {
+        this.branchOutcomes[tag] = BRANCH_PREDICTED;
+        this.isPredictedToTake[tag] = isPredictedToTake;
+    }
+
+    /**
+     * Remember rename of a destination register
+     * @param tag Tag of the entry
+     * @param registerNumber Architectural register
+     * @param physicalRegister Physical register the instruction writes
+     * @param previousPhysicalRegister Physical register mapped before
+     */
+    public void setRename(int tag, int registerNumber, int physicalRegister, int previousPhysicalRegister) {
+        this.physicalRegisters[tag * this.registerCount + registerNumber] = physicalRegister;
+        this.previousPhysicalRegisters[tag * this.registerCount + registerNumber] = previousPhysicalRegister;
+    }
+
+    public int getPhysicalRegister(int tag, int registerNumber) {
+        return this.physicalRegisters[tag * this.registerCount + registerNumber];
+    }
+
+    public int getPreviousPhysicalRegister(int tag, int registerNumber) {
+        return this.previousPhysicalRegisters[tag * this.registerCount + registerNumber];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public boolean isFull() {
+        return this.size == this.instructions.length;
+    }
+}
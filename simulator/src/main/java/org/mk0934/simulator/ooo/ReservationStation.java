@@ -0,0 +1,210 @@
+package org.mk0934.simulator.ooo;
+
+import org.mk0934.simulator.instructions.DecodedInstruction;
+
+/**
+ * Reservation station of the out-of-order core
+ *
+ * Holds dispatched instructions until their operands are ready. Every source register
+ * of an instruction waits for the physical register it was renamed to, values are
+ * forwarded when the producer completes.
+ *
+ * @author Maciej Kumorek
+ */
+public class ReservationStation {
+
+    /**
+     * Instructions in the station, null for free entries
+     */
+    private final DecodedInstruction[] instructions;
+
+    /**
+     * Registers waiting for the producer to complete, for every entry
+     */
+    private final int[] waitMasks;
+
+    /**
+     * Registers waiting for the producer to write back, for instructions
+     * that read the register file themselves
+     */
+    private final int[] commitWaitMasks;
+
+    /**
+     * Physical register each source register waits for, for every entry
+     */
+    private final int[][] waitTags;
+
+    private int size;
+
+    public ReservationStation(int capacity, int registerCount) {
+
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("capacity");
+        }
+
+        this.instructions = new DecodedInstruction[capacity];
+        this.waitMasks = new int[capacity];
+        this.commitWaitMasks = new int[capacity];
+        this.waitTags = new int[capacity][registerCount];
+    }
+
+    /**
+     * Put instruction into a free entry
+     * @param instruction Dispatched instruction
+     * @return index of the entry
+     */
+    public int add(DecodedInstruction instruction) {
+
+        for(int slot = 0; slot < this.instructions.length; slot++) {
+
+            if(this.instructions[slot] == null) {
+
+                this.instructions[slot] = instruction;
+                this.waitMasks[slot] = 0;
+                this.commitWaitMasks[slot] = 0;
+                this.size++;
+
+                return slot;
+            }
+        }
+
+        throw new IllegalStateException("Reservation station is full");
+    }
+
+    /**
+     * Make a source register of an entry wait for its producer
+     * @param slot Index of the entry
+     * @param registerNumber Source register
+     * @param physicalRegister Physical register the producer writes
+     * @param untilCommit Wait until the producer writes back rather than completes
+     */
+    public void waitFor(int slot, int registerNumber, int physicalRegister, boolean untilCommit) {
+
+        this.waitTags[slot][registerNumber] = physicalRegister;
+
+        if(untilCommit) {
+            this.commitWaitMasks[slot] |= 1 << registerNumber;
+        } else {
+            this.waitMasks[slot] |= 1 << registerNumber;
+        }
+    }
+
+    /**
+     * Forward value of a physical register to entries waiting for it
+     * @param physicalRegister Register written by a completed instruction
+     * @param value Value of the register
+     */
+    public void wakeUp(int physicalRegister, int value) {
+
+        for(int slot = 0; slot < this.instructions.length; slot++) {
+
+            int mask = this.waitMasks[slot];
+
+            while(mask != 0) {
+                int registerNumber = Integer.numberOfTrailingZeros(mask);
+                mask &= mask - 1;
+
+                if(this.waitTags[slot][registerNumber] != physicalRegister) {
+                    continue;
+                }
+
+                this.waitMasks[slot] &= ~(1 << registerNumber);
+
+                if(!this.instructions[slot].forwardSourceValue(registerNumber, value)) {
+                    this.commitWaitMasks[slot] |= 1 << registerNumber;
+                }
+            }
+        }
+    }
+
+    /**
+     * Release entries waiting for an instruction to write back
+     * @param physicalRegister Register written by the committed instruction
+     */
+    public void wakeUpCommitted(int physicalRegister) {
+
+        for(int slot = 0; slot < this.instructions.length; slot++) {
+
+            int mask = this.commitWaitMasks[slot];
+
+            while(mask != 0) {
+                int registerNumber = Integer.numberOfTrailingZeros(mask);
+                mask &= mask - 1;
+
+                if(this.waitTags[slot][registerNumber] == physicalRegister) {
+                    this.commitWaitMasks[slot] &= ~(1 << registerNumber);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param slot Index of an entry in use
+     * @return true if all operands of the entry are ready
+     */
+    public boolean isReady(int slot) {
+        return this.waitMasks[slot] == 0 && this.commitWaitMasks[slot] == 0;
+    }
+
+    /**
+     * @param slot Index of an entry
+     * @return Instruction in the entry, null if the entry is free
+     */
+    public DecodedInstruction getInstruction(int slot) {
+        return this.instructions[slot];
+    }
+
+    /**
+     * Free an entry
+     * @param slot Index of the entry
+     * @return instruction that was in the entry
+     */
+    public DecodedInstruction remove(int slot) {
+
+        DecodedInstruction instruction = this.instructions[slot];
+
+        if(instruction == null) {
+            throw new IllegalStateException("Reservation station entry is free");
+        }
+
+        this.instructions[slot] = null;
+        this.waitMasks[slot] = 0;
+        this.commitWaitMasks[slot] = 0;
+        this.size--;
+
+        return instruction;
+    }
+
+    /**
+     * Free the entry holding an instruction
+     * @param instruction Instruction to remove
+     */
+    public void remove(DecodedInstruction instruction) {
+
+        for(int slot = 0; slot < this.instructions.length; slot++) {
+
+            if(this.instructions[slot] == instruction) {
+                this.remove(slot);
+                return;
+            }
+        }
+
+        throw new IllegalStateException("Instruction is not in the reservation station");
+    }
+
+    public int getCapacity() {
+        return this.instructions.length;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public boolean isFull() {
+        return this.size == this.instructions.length;
+    }
+}
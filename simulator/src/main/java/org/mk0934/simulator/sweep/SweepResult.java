@@ -0,0 +1,34 @@
+package org.mk0934.simulator.sweep;
+
+import org.mk0934.simulator.SimulatorConfig;
+import org.mk0934.simulator.Statistics;
+
+/**
+ * Result of simulating one program with one configuration of the sweep
+ *
+ * @author Maciej Kumorek
+ */
+public final class SweepResult {
+
+    private final String programName;
+    private final SimulatorConfig config;
+    private final Statistics statistics;
+
+    public SweepResult(String programName, SimulatorConfig config, Statistics statistics) {
+        this.programName = programName;
+        this.config = config;
+        this.statistics = statistics;
+    }
+
+    public String getProgramName() {
+        return this.programName;
+    }
+
+    public SimulatorConfig getConfig() {
+        return this.config;
+    }
+
+    public Statistics getStatistics() {
+        return this.statistics;
+    }
+}
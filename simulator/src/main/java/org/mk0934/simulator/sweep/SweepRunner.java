@@ -0,0 +1,343 @@
+package org.mk0934.simulator.sweep;
+
+import org.mk0934.simulator.Assembler;
+import org.mk0934.simulator.Configuration;
+import org.mk0934.simulator.Program;
+import org.mk0934.simulator.Simulator;
+import org.mk0934.simulator.SimulatorConfig;
+import org.mk0934.simulator.Statistics;
+import org.mk0934.simulator.instructions.Operand;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Design-space sweep
+ *
+ * Simulates every program with every configuration of a parameter grid.
+ * Simulations run in parallel on a work-stealing pool, each with its own processor and memory,
+ * programs go through the first assembler pass once and are shared by all the simulations.
+ *
+ * @author Maciej Kumorek
+ */
+public class SweepRunner {
+
+    /**
+     * Programs after the first assembler pass, by name
+     */
+    private final Map<String, Assembler> programs = new LinkedHashMap<>();
+
+    private List<Integer> executionUnits = Collections.singletonList(2);
+    private List<SimulatorConfig.PredictorType> predictorTypes =
+            Collections.singletonList(SimulatorConfig.PredictorType.DYNAMIC);
+    private List<Integer> queueCapacities = Collections.singletonList(16);
+    private List<SimulatorConfig.CoreType> coreTypes =
+            Collections.singletonList(SimulatorConfig.CoreType.IN_ORDER);
+    private List<Integer> reorderBufferSizes = Collections.singletonList(32);
+    private List<Integer> physicalRegisterCounts = Collections.singletonList(64);
+
+    /**
+     * Swept latencies of operands
+     */
+    private final Map<Operand, List<Integer>> latencies = new LinkedHashMap<>();
+
+    /**
+     * Number of simulations running at once
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    public void addProgram(String name, Program program) {
+        this.programs.put(name, new Assembler(program));
+    }
+
+    public void setExecutionUnits(List<Integer> executionUnits) {
+        this.executionUnits = executionUnits;
+    }
+
+    public void setPredictorTypes(List<SimulatorConfig.PredictorType> predictorTypes) {
+        this.predictorTypes = predictorTypes;
+    }
+
+    public void setQueueCapacities(List<Integer> queueCapacities) {
+        this.queueCapacities = queueCapacities;
+    }
+
+    public void setCoreTypes(List<SimulatorConfig.CoreType> coreTypes) {
+        this.coreTypes = coreTypes;
+    }
+
+    /**
+     * Reorder buffer sizes, only swept for the out-of-order core
+     */
+    public void setReorderBufferSizes(List<Integer> reorderBufferSizes) {
+        this.reorderBufferSizes = reorderBufferSizes;
+    }
+
+    /**
+     * Physical register file sizes, only swept for the out-of-order core
+     */
+    public void setPhysicalRegisterCounts(List<Integer> physicalRegisterCounts) {
+        this.physicalRegisterCounts = physicalRegisterCounts;
+    }
+
+    public void setLatencies(Operand operand, List<Integer> latencies) {
+        this.latencies.put(operand, latencies);
+    }
+
+    public void setParallelism(int parallelism) {
+
+        if(parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism");
+        }
+
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return Operands with swept latencies
+     */
+    public List<Operand> getLatencyOperands() {
+        return new ArrayList<>(this.latencies.keySet());
+    }
+
+    /**
+     * Expand the parameter grid
+     * @return configuration for every combination of parameters
+     */
+    public List<SimulatorConfig> getConfigs() {
+
+        List<SimulatorConfig> configs = new ArrayList<>();
+        Configuration configuration = new Configuration();
+
+        for(SimulatorConfig.CoreType coreType : this.coreTypes) {
+            configuration.setCoreType(coreType);
+
+            // In-order core doesn't have a reorder buffer or physical registers
+            boolean isOutOfOrder = coreType == SimulatorConfig.CoreType.OUT_OF_ORDER;
+            List<Integer> reorderBufferSizes = isOutOfOrder
+                    ? this.reorderBufferSizes
+                    : this.reorderBufferSizes.subList(0, 1);
+            List<Integer> physicalRegisterCounts = isOutOfOrder
+                    ? this.physicalRegisterCounts
+                    : this.physicalRegisterCounts.subList(0, 1);
+
+            for(int reorderBufferSize : reorderBufferSizes) {
+                configuration.setReorderBufferSize(reorderBufferSize);
+
+                for(int physicalRegisterCount : physicalRegisterCounts) {
+                    configuration.setPhysicalRegisterCount(physicalRegisterCount);
+
+                    for(int units : this.executionUnits) {
+                        configuration.setExecutionUnits(units);
+
+                        for(SimulatorConfig.PredictorType predictorType : this.predictorTypes) {
+                            configuration.setPredictorType(predictorType);
+
+                            for(int queueCapacity : this.queueCapacities) {
+                                configuration.setExecuteQueueCapacity(queueCapacity);
+
+                                this.addLatencyConfigs(configuration, this.getLatencyOperands(), 0, configs);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return configs;
+    }
+
+    private void addLatencyConfigs(Configuration configuration,
+                                   List<Operand> operands,
+                                   int index,
+                                   List<SimulatorConfig> configs) {
+
+        if(index == operands.size()) {
+            configs.add(configuration.build());
+            return;
+        }
+
+        Operand operand = operands.get(index);
+
+        for(int latency : this.latencies.get(operand)) {
+            configuration.setLatency(operand, latency);
+            this.addLatencyConfigs(configuration, operands, index + 1, configs);
+        }
+    }
+
+    /**
+     * Run all simulations of the sweep
+     * @return results in program order, then grid order
+     */
+    public List<SweepResult> run() {
+
+        List<SimulatorConfig> configs = this.getConfigs();
+        List<Callable<SweepResult>> tasks = new ArrayList<>();
+
+        for(Map.Entry<String, Assembler> program : this.programs.entrySet()) {
+            for(SimulatorConfig config : configs) {
+                tasks.add(new SimulationTask(program.getKey(), program.getValue(), config));
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+
+        try {
+            List<SweepResult> results = new ArrayList<>(tasks.size());
+
+            for(Future<SweepResult> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+
+            return results;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Sweep interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Simulation failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Simulation of one program with one configuration
+     */
+    private static class SimulationTask implements Callable<SweepResult> {
+
+        private final String programName;
+        private final Assembler assembler;
+        private final SimulatorConfig config;
+
+        private SimulationTask(String programName, Assembler assembler, SimulatorConfig config) {
+            this.programName = programName;
+            this.assembler = assembler;
+            this.config = config;
+        }
+
+        @Override
+        public SweepResult call() {
+
+            Statistics statistics = new Simulator(this.config).simulate(this.assembler);
+
+            return new SweepResult(this.programName, this.config, statistics);
+        }
+    }
+
+    /**
+     * Entry point of the sweep, e.g.
+     * -programs=a.asm,b.asm -core=inorder,ooo -rob=16,32 -prf=32,64 -e=1,2,4 -predictor=static,dynamic -queue=8,16
+     * -latency=MUL:1,3 -out=results.csv
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+
+        SweepRunner runner = new SweepRunner();
+        String outputFile = null;
+        boolean hasPrograms = false;
+
+        for(String arg : args) {
+
+            String value = arg.indexOf('=') >= 0 ? arg.substring(arg.indexOf('=') + 1) : "";
+            String option = arg.toLowerCase(Locale.ROOT);
+
+            if(option.startsWith("-programs=")) {
+                for(String programName : value.split(",")) {
+                    try {
+                        runner.addProgram(programName, new Program(programName));
+                        hasPrograms = true;
+                    } catch (IOException ex) {
+                        System.out.println("Error reading the input program " + programName);
+                        System.out.println(ex.getMessage());
+                        return;
+                    }
+                }
+            } else if(option.startsWith("-e=")) {
+                runner.setExecutionUnits(parseIntegers(value));
+            } else if(option.startsWith("-queue=")) {
+                runner.setQueueCapacities(parseIntegers(value));
+            } else if(option.startsWith("-predictor=")) {
+                List<SimulatorConfig.PredictorType> predictorTypes = new ArrayList<>();
+                for(String predictor : value.split(",")) {
+                    predictorTypes.add(SimulatorConfig.PredictorType.valueOf(predictor.trim().toUpperCase(Locale.ROOT)));
+                }
+                runner.setPredictorTypes(predictorTypes);
+            } else if(option.startsWith("-core=")) {
+                List<SimulatorConfig.CoreType> coreTypes = new ArrayList<>();
+                for(String core : value.split(",")) {
+                    if(core.trim().equalsIgnoreCase("ooo")) {
+                        coreTypes.add(SimulatorConfig.CoreType.OUT_OF_ORDER);
+                    } else {
+                        coreTypes.add(SimulatorConfig.CoreType.IN_ORDER);
+                    }
+                }
+                runner.setCoreTypes(coreTypes);
+            } else if(option.startsWith("-rob=")) {
+                runner.setReorderBufferSizes(parseIntegers(value));
+            } else if(option.startsWith("-prf=")) {
+                runner.setPhysicalRegisterCounts(parseIntegers(value));
+            } else if(option.startsWith("-latency=")) {
+                int indexOfColon = value.indexOf(':');
+                if(indexOfColon < 0) {
+                    System.out.println("Invalid option: " + arg + ". Use -latency=OPERAND:N,M,...");
+                    return;
+                }
+                Operand operand = Operand.valueOf(value.substring(0, indexOfColon).trim().toUpperCase(Locale.ROOT));
+                runner.setLatencies(operand, parseIntegers(value.substring(indexOfColon + 1)));
+            } else if(option.startsWith("-threads=")) {
+                runner.setParallelism(Integer.parseInt(value.trim()));
+            } else if(option.startsWith("-out=")) {
+                outputFile = value;
+            } else {
+                System.out.println(String.format("Unknown parameter: %s", arg));
+            }
+        }
+
+        if(!hasPrograms) {
+            System.out.println("Please specify input programs with -programs=a.asm,b.asm");
+            return;
+        }
+
+        List<SweepResult> results = runner.run();
+        SweepWriter writer = new SweepWriter(runner.getLatencyOperands());
+
+        if(outputFile == null) {
+            writer.writeCsv(results, System.out);
+            return;
+        }
+
+        try (PrintStream out = new PrintStream(outputFile)) {
+            if(outputFile.toLowerCase(Locale.ROOT).endsWith(".json")) {
+                writer.writeJson(results, out);
+            } else {
+                writer.writeCsv(results, out);
+            }
+        } catch (FileNotFoundException ex) {
+            System.out.println("Error writing results to " + outputFile);
+            System.out.println(ex.getMessage());
+        }
+    }
+
+    private static List<Integer> parseIntegers(String text) {
+
+        List<Integer> values = new ArrayList<>();
+
+        for(String value : text.split(",")) {
+            values.add(Integer.parseInt(value.trim()));
+        }
+
+        return values;
+    }
+}
@@ -0,0 +1,185 @@
+package org.mk0934.simulator.sweep;
+
+import org.mk0934.simulator.SimulatorConfig;
+import org.mk0934.simulator.Statistics;
+import org.mk0934.simulator.instructions.Operand;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes sweep results as CSV or JSON
+ *
+ * @author Maciej Kumorek
+ */
+public class SweepWriter {
+
+    /**
+     * Operands with swept latencies, each gets its own column
+     */
+    private final List<Operand> latencyOperands;
+
+    public SweepWriter(List<Operand> latencyOperands) {
+        this.latencyOperands = latencyOperands;
+    }
+
+    /**
+     * Write results as CSV with a header line
+     * @param results Results to write
+     * @param out Stream to write to
+     */
+    public void writeCsv(List<SweepResult> results, PrintStream out) {
+
+        StringBuilder sb = new StringBuilder("program,core,rob,prf,execution_units,predictor,queue");
+
+        for(Operand operand : this.latencyOperands) {
+            sb.append(",latency_").append(operand.name().toLowerCase(Locale.ROOT));
+        }
+
+        sb.append(",cycles,instructions,ipc,cpi,branches,branches_not_predicted,predicted_correct,predicted_missed");
+        out.println(sb.toString());
+
+        for(SweepResult result : results) {
+
+            SimulatorConfig config = result.getConfig();
+            Statistics statistics = result.getStatistics();
+
+            sb.setLength(0);
+            sb.append(escapeCsv(result.getProgramName()))
+                    .append(',').append(getCoreName(config))
+                    .append(',').append(getReorderBufferSize(config))
+                    .append(',').append(getPhysicalRegisterCount(config))
+                    .append(',').append(config.getExecutionUnits())
+                    .append(',').append(config.getPredictorType().name().toLowerCase(Locale.ROOT))
+                    .append(',').append(config.getExecuteQueueCapacity());
+
+            for(Operand operand : this.latencyOperands) {
+                sb.append(',').append(config.getLatencyOverride(operand));
+            }
+
+            sb.append(',').append(statistics.getCycles())
+                    .append(',').append(statistics.getInstructionsExecuted())
+                    .append(',').append(String.format(Locale.ROOT, "%.3f", statistics.getIpc()))
+                    .append(',').append(String.format(Locale.ROOT, "%.3f", statistics.getCpi()))
+                    .append(',').append(statistics.getTotalBranches())
+                    .append(',').append(statistics.getBranchesTakenNotPredicted())
+                    .append(',').append(statistics.getCorrectBranches())
+                    .append(',').append(statistics.getMissedBranches());
+
+            out.println(sb.toString());
+        }
+    }
+
+    /**
+     * Write results as a JSON array of objects
+     * @param results Results to write
+     * @param out Stream to write to
+     */
+    public void writeJson(List<SweepResult> results, PrintStream out) {
+
+        StringBuilder sb = new StringBuilder();
+
+        out.println("[");
+
+        for(int i = 0; i < results.size(); i++) {
+
+            SweepResult result = results.get(i);
+            SimulatorConfig config = result.getConfig();
+            Statistics statistics = result.getStatistics();
+
+            sb.setLength(0);
+            sb.append("  {\"program\": ").append(escapeJson(result.getProgramName()))
+                    .append(", \"core\": \"").append(getCoreName(config)).append('"')
+                    .append(", \"rob\": ").append(getReorderBufferSize(config))
+                    .append(", \"prf\": ").append(getPhysicalRegisterCount(config))
+                    .append(", \"execution_units\": ").append(config.getExecutionUnits())
+                    .append(", \"predictor\": \"")
+                    .append(config.getPredictorType().name().toLowerCase(Locale.ROOT)).append('"')
+                    .append(", \"queue\": ").append(config.getExecuteQueueCapacity());
+
+            if(!this.latencyOperands.isEmpty()) {
+
+                sb.append(", \"latencies\": {");
+
+                for(int j = 0; j < this.latencyOperands.size(); j++) {
+
+                    Operand operand = this.latencyOperands.get(j);
+
+                    if(j > 0) {
+                        sb.append(", ");
+                    }
+
+                    sb.append('"').append(operand.name()).append("\": ").append(config.getLatencyOverride(operand));
+                }
+
+                sb.append('}');
+            }
+
+            sb.append(", \"cycles\": ").append(statistics.getCycles())
+                    .append(", \"instructions\": ").append(statistics.getInstructionsExecuted())
+                    .append(", \"ipc\": ").append(String.format(Locale.ROOT, "%.3f", statistics.getIpc()))
+                    .append(", \"cpi\": ").append(String.format(Locale.ROOT, "%.3f", statistics.getCpi()))
+                    .append(", \"branches\": {\"total\": ").append(statistics.getTotalBranches())
+                    .append(", \"not_predicted\": ").append(statistics.getBranchesTakenNotPredicted())
+                    .append(", \"predicted_correct\": ").append(statistics.getCorrectBranches())
+                    .append(", \"predicted_missed\": ").append(statistics.getMissedBranches())
+                    .append("}}");
+
+            if(i < results.size() - 1) {
+                sb.append(',');
+            }
+
+            out.println(sb.toString());
+        }
+
+        out.println("]");
+    }
+
+    private static String getCoreName(SimulatorConfig config) {
+        return config.getCoreType() == SimulatorConfig.CoreType.OUT_OF_ORDER ? "ooo" : "inorder";
+    }
+
+    /**
+     * @return Reorder buffer size, zero for the in-order core
+     */
+    private static int getReorderBufferSize(SimulatorConfig config) {
+        return config.getCoreType() == SimulatorConfig.CoreType.OUT_OF_ORDER ? config.getReorderBufferSize() : 0;
+    }
+
+    /**
+     * @return Physical register file size, zero for the in-order core
+     */
+    private static int getPhysicalRegisterCount(SimulatorConfig config) {
+        return config.getCoreType() == SimulatorConfig.CoreType.OUT_OF_ORDER ? config.getPhysicalRegisterCount() : 0;
+    }
+
+    private static String escapeCsv(String text) {
+
+        if(text.indexOf(',') < 0 && text.indexOf('"') < 0) {
+            return text;
+        }
+
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    private static String escapeJson(String text) {
+
+        StringBuilder sb = new StringBuilder("\"");
+
+        for(int i = 0; i < text.length(); i++) {
+
+            char c = text.charAt(i);
+
+            if(c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if(c < 0x20) {
+                sb.append(String.format("\\u%04x", (int)c));
+            } else {
+                sb.append(c);
+            }
+        }
+
+        return sb.append('"').toString();
+    }
+}
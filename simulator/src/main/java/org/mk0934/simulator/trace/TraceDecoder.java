@@ -0,0 +1,163 @@
+package org.mk0934.simulator.trace;
+
+import org.mk0934.simulator.Memory;
+import org.mk0934.simulator.Program;
+import org.mk0934.simulator.instructions.EncodedInstruction;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Formats trace records into log messages
+ *
+ * Can be run on its own to decode a binary trace:
+ * TraceDecoder trace_file program_file
+ *
+ * @author Maciej Kumorek
+ */
+public class TraceDecoder {
+
+    private static final TraceEvent[] EVENTS = TraceEvent.values();
+    private static final TraceStage[] STAGES = TraceStage.values();
+
+    /**
+     * Memory with the program, to show instructions by their address
+     */
+    private final Memory memory;
+
+    public TraceDecoder(Memory memory) {
+        this.memory = memory;
+    }
+
+    /**
+     * Append the record as a line of text
+     * @param records Buffer with records
+     * @param offset Index of the first int of the record
+     * @param sb Builder to append to
+     */
+    public void decode(int[] records, int offset, StringBuilder sb) {
+
+        int header = records[offset + 1];
+
+        TraceEvent event = EVENTS[header & Tracer.EVENT_MASK];
+        TraceStage stage = STAGES[(header >>> Tracer.STAGE_SHIFT) & Tracer.EVENT_MASK];
+        int unit = ((header >>> Tracer.UNIT_SHIFT) & Tracer.EVENT_MASK) - 1;
+
+        if(stage.getTag() != null) {
+
+            sb.append(stage.getTag());
+
+            if(unit != Tracer.NO_UNIT) {
+                sb.append('(').append(unit).append(')');
+            }
+
+            sb.append(": ");
+        }
+
+        String message = event.getMessage();
+
+        for(int i = 0; i < message.length(); i++) {
+
+            char c = message.charAt(i);
+
+            if(c != '$' || i + 1 == message.length()) {
+                sb.append(c);
+                continue;
+            }
+
+            i++;
+
+            switch(message.charAt(i)) {
+                case 'C':
+                    sb.append(records[offset]);
+                    break;
+                case 'I':
+                    this.appendInstruction(records[offset + 2], sb);
+                    break;
+                case 'A':
+                    sb.append(Integer.toHexString(records[offset + 2]));
+                    break;
+                case 'B':
+                    this.appendInstruction(records[offset + 3], sb);
+                    break;
+                case 'X':
+                    sb.append(Integer.toHexString(records[offset + 3]));
+                    break;
+                case '0':
+                    sb.append(records[offset + 3]);
+                    break;
+                case '1':
+                    sb.append(records[offset + 4]);
+                    break;
+                default:
+                    sb.append('$').append(message.charAt(i));
+                    break;
+            }
+        }
+
+        sb.append('\n');
+    }
+
+    private void appendInstruction(int address, StringBuilder sb) {
+
+        EncodedInstruction instruction = this.memory.getInstruction(address);
+
+        if(instruction == null) {
+            sb.append("0x").append(Integer.toHexString(address));
+        } else {
+            sb.append(instruction.getEncodedInstruction());
+        }
+    }
+
+    /**
+     * Decode binary trace written by the simulator
+     * @param args trace file and the program it was recorded for
+     */
+    public static void main(String[] args) throws IOException {
+
+        if(args.length < 2) {
+            System.out.println("Usage: TraceDecoder trace_file program_file");
+            return;
+        }
+
+        Memory memory = new Memory();
+        memory.LoadProgram(new Program(args[1]));
+
+        TraceDecoder decoder = new TraceDecoder(memory);
+
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out), false);
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(args[0])))) {
+
+            if(in.readInt() != Tracer.MAGIC) {
+                throw new RuntimeException("Not a trace file: " + args[0]);
+            }
+
+            int recordInts = in.readInt();
+            int[] record = new int[recordInts];
+            StringBuilder sb = new StringBuilder();
+
+            while(true) {
+
+                try {
+                    for(int i = 0; i < recordInts; i++) {
+                        record[i] = in.readInt();
+                    }
+                } catch (EOFException ex) {
+                    break;
+                }
+
+                sb.setLength(0);
+                decoder.decode(record, 0, sb);
+                out.print(sb);
+            }
+        }
+
+        out.flush();
+    }
+}
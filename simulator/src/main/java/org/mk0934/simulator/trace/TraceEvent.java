@@ -0,0 +1,62 @@
+package org.mk0934.simulator.trace;
+
+/**
+ * Kinds of trace records and their messages
+ *
+ * Messages can refer to the record fields:
+ * $C cycle, $I instruction at the address, $A address in hex,
+ * $B instruction at the first argument, $X first argument in hex,
+ * $0 and $1 arguments in decimal
+ *
+ * @author Maciej Kumorek
+ */
+public enum TraceEvent {
+    CYCLE("Cycle #$C"),
+    IDLE("nothing to do"),
+    FETCH_BUFFER_FULL("Instruction buffer full. Skipping."),
+    FETCHED("Fetched $I at address $A"),
+    PC_INCREMENTED("\tIncremented PC to $X"),
+    DECODING("Decoding $I"),
+    NOP_STALL("Can't NOP just yet"),
+    DEPENDENCY("Can't decode, there's dependency in $I due to $B"),
+    PREDICTIONS_FULL("Too many branches predicted, can't predict another one"),
+    ALU_BUFFER_FULL("ALU buffer full"),
+    MEMORY_BUFFER_FULL("Memory buffer full"),
+    VECTOR_BUFFER_FULL("Vector reservation station full"),
+    EXECUTING("Executing $I"),
+    EXECUTING_CYCLE("Executing $I ($0/$1)"),
+    WRITING_BACK("Writing back $I"),
+    JUMP("Jump to $X"),
+    BRANCH("Branch to $X"),
+    PREDICTED_TAKEN("Predicted branch to 0x$X"),
+    PREDICTED_NOT_TAKEN("Predicted not to take the branch to 0x$X"),
+    MISPREDICTED("Branch prediction was incorrect."),
+    MISPREDICTED_NOT_TAKEN("Branch prediction was incorrect - should  have taken."),
+    MISPREDICTED_TAKEN("Branch prediction was incorrect - should not have taken."),
+    REDIRECT("Branch to 0x$X"),
+    DISPATCHED("Dispatched $I"),
+    REORDER_BUFFER_FULL("Reorder buffer full"),
+    RESERVATION_STATION_FULL("Reservation station full"),
+    PHYSICAL_REGISTERS_FULL("No free physical registers"),
+    ISSUED("Issued $I"),
+    COMPLETED("Completed $I"),
+    COMMITTED("Committed $I"),
+    SQUASHED("Squashed $I"),
+    FORWARDED("Forwarded result of $B to $I"),
+    SPECULATION_STALL("Waiting for predicted branch before finishing $I"),
+    IN_FRONT_END("$I is still in the front end"),
+    INSTRUCTION_CACHE_MISS("Waiting for instruction cache to fetch $I"),
+    MEMORY_ORDER_STALL("Waiting for older memory access before finishing $I"),
+    STORE_BUFFER_FULL("Store buffer full"),
+    STORE_DRAINING("Writing $I to memory from the store buffer");
+
+    private final String message;
+
+    TraceEvent(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return this.message;
+    }
+}
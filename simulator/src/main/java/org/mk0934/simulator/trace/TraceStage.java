@@ -0,0 +1,33 @@
+package org.mk0934.simulator.trace;
+
+/**
+ * Pipeline stage or unit a trace record comes from
+ *
+ * @author Maciej Kumorek
+ */
+public enum TraceStage {
+    NONE(null),
+    FETCH("FETCH"),
+    DECODE("DECODE"),
+    EXECUTE("EXECUTE"),
+    MEMORY("MEM EXECUTE"),
+    VECTOR("VectorExecutionUnit"),
+    BRANCH("BranchExecUnit"),
+    WRITEBACK("WRITEBACK"),
+    DISPATCH("DISPATCH"),
+    ISSUE("ISSUE"),
+    COMMIT("COMMIT");
+
+    /**
+     * Tag printed in front of the message, null for no tag
+     */
+    private final String tag;
+
+    TraceStage(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return this.tag;
+    }
+}
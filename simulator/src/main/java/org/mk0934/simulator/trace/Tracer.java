@@ -0,0 +1,204 @@
+package org.mk0934.simulator.trace;
+
+import org.mk0934.simulator.Memory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Records pipeline events into a preallocated binary buffer
+ *
+ * Records only hold numbers, messages are formatted by TraceDecoder when
+ * the buffer is drained to the text output, or offline from the binary output.
+ * When there is no output, tracing does nothing.
+ *
+ * @author Maciej Kumorek
+ */
+public class Tracer {
+
+    /**
+     * Record layout: cycle, header, instruction address and two arguments
+     */
+    public static final int RECORD_INTS = 5;
+
+    /**
+     * Header layout: event in bits 0-7, stage in bits 8-15, unit id + 1 in bits 16-23
+     */
+    static final int EVENT_MASK = 0xFF;
+    static final int STAGE_SHIFT = 8;
+    static final int UNIT_SHIFT = 16;
+
+    /**
+     * Unit id for stages that have a single unit
+     */
+    public static final int NO_UNIT = -1;
+
+    /**
+     * Magic number at the start of the binary trace
+     */
+    static final int MAGIC = 0x54524331;
+
+    private static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * Records waiting to be written out
+     */
+    private final int[] records;
+
+    /**
+     * Number of ints used in the buffer
+     */
+    private int length;
+
+    /**
+     * Cycle stored in new records
+     */
+    private int cycle;
+
+    private final TraceDecoder decoder;
+
+    /**
+     * Reused for formatting records
+     */
+    private final StringBuilder text = new StringBuilder();
+
+    private PrintStream textOutput;
+    private DataOutputStream binaryOutput;
+    private boolean isEnabled;
+
+    public Tracer(Memory memory) {
+        this(memory, DEFAULT_CAPACITY);
+    }
+
+    public Tracer(Memory memory, int capacity) {
+        this.records = new int[capacity * RECORD_INTS];
+        this.decoder = new TraceDecoder(memory);
+    }
+
+    /**
+     * Format records to the stream, e.g. System.out for verbose runs
+     * @param textOutput Stream to print to
+     */
+    public void setTextOutput(PrintStream textOutput) {
+        this.textOutput = textOutput;
+        this.isEnabled = this.textOutput != null || this.binaryOutput != null;
+    }
+
+    /**
+     * Write records to a file, to be decoded offline
+     * @param fileName File to write to
+     */
+    public void openBinaryOutput(String fileName) throws IOException {
+
+        this.binaryOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+        this.binaryOutput.writeInt(MAGIC);
+        this.binaryOutput.writeInt(RECORD_INTS);
+
+        this.isEnabled = true;
+    }
+
+    public boolean isEnabled() {
+        return this.isEnabled;
+    }
+
+    public void setCycle(int cycle) {
+        this.cycle = cycle;
+    }
+
+    public void trace(TraceStage stage, int unit, TraceEvent event) {
+        this.trace(stage, unit, event, 0, 0, 0);
+    }
+
+    public void trace(TraceStage stage, int unit, TraceEvent event, int address) {
+        this.trace(stage, unit, event, address, 0, 0);
+    }
+
+    /**
+     * Record an event
+     * @param stage Stage the event comes from
+     * @param unit Unit id, NO_UNIT if the stage has a single unit
+     * @param event Kind of the event
+     * @param address Address of the instruction the event is about
+     * @param arg0 First argument
+     * @param arg1 Second argument
+     */
+    public void trace(TraceStage stage, int unit, TraceEvent event, int address, int arg0, int arg1) {
+
+        if(!this.isEnabled) {
+            return;
+        }
+
+        if(this.length == this.records.length) {
+            this.flush();
+        }
+
+        int[] records = this.records;
+        int i = this.length;
+
+        records[i] = this.cycle;
+        records[i + 1] = event.ordinal() | (stage.ordinal() << STAGE_SHIFT) | ((unit + 1) << UNIT_SHIFT);
+        records[i + 2] = address;
+        records[i + 3] = arg0;
+        records[i + 4] = arg1;
+
+        this.length = i + RECORD_INTS;
+    }
+
+    /**
+     * Write out buffered records, has to be called before printing anything else
+     */
+    public void flush() {
+
+        if(this.length == 0) {
+            return;
+        }
+
+        if(this.textOutput != null) {
+
+            this.text.setLength(0);
+
+            for(int i = 0; i < this.length; i += RECORD_INTS) {
+                this.decoder.decode(this.records, i, this.text);
+            }
+
+            this.textOutput.print(this.text);
+            this.textOutput.flush();
+        }
+
+        if(this.binaryOutput != null) {
+
+            try {
+                for(int i = 0; i < this.length; i++) {
+                    this.binaryOutput.writeInt(this.records[i]);
+                }
+            } catch (IOException ex) {
+                throw new RuntimeException("Error writing the trace", ex);
+            }
+        }
+
+        this.length = 0;
+    }
+
+    /**
+     * Flush and close the binary output
+     */
+    public void close() {
+
+        this.flush();
+
+        if(this.binaryOutput != null) {
+
+            try {
+                this.binaryOutput.close();
+            } catch (IOException ex) {
+                throw new RuntimeException("Error writing the trace", ex);
+            }
+
+            this.binaryOutput = null;
+            this.isEnabled = this.textOutput != null;
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package org.mk0934.simulator.units;
 
 import org.mk0934.simulator.Processor;
-import org.mk0934.simulator.Utilities;
+import org.mk0934.simulator.RingBuffer;
+import org.mk0934.simulator.SimulatorConfig;
 import org.mk0934.simulator.instructions.AluInstruction;
-
-import java.util.LinkedList;
+import org.mk0934.simulator.trace.TraceEvent;
+import org.mk0934.simulator.trace.TraceStage;
+import org.mk0934.simulator.trace.Tracer;
 
 /**
  * Execution unit for a processor
@@ -18,9 +20,9 @@ public class AluExecutionUnit {
     private int id;
 
     /**
-     * Log tag
+     * Pipeline events
      */
-    private String tag = "EXECUTE";
+    private final Tracer tracer;
 
     /**
      * Processor execution unit belongs to
@@ -28,21 +30,29 @@ public class AluExecutionUnit {
     final private Processor processor;
 
     /**
-     * Currently processed instruction
+     * Latency counters of instructions in flight
      */
-    private AluInstruction currentlyExecuted;
+    private final ExecutionPipeline pipeline;
 
     /**
-     * Counter for latency simulation
+     * Cycles with an instruction in flight
      */
-    private int counter;
+    private int busyCycles;
 
     public AluExecutionUnit(Processor processor,
                             int id) {
 
         this.processor = processor;
         this.id = id;
-        this.tag += "(" + id + ")";
+        this.tracer = processor.getTracer();
+        this.pipeline = new ExecutionPipeline(processor.getConfig().getExecuteQueueCapacity());
+    }
+
+    /**
+     * @return Oldest instruction being executed, null if unit is idle
+     */
+    public AluInstruction getCurrentlyExecuted() {
+        return this.pipeline.isEmpty() ? null : this.processor.getAluInstructionsBuffer(this.id).peek();
     }
 
     /**
@@ -50,52 +60,123 @@ public class AluExecutionUnit {
      */
     public void execute() {
 
-        LinkedList<AluInstruction> aluIstructionsToExecute = processor.getAluInstructionsBuffer(id);
+        RingBuffer<AluInstruction> queue = this.processor.getAluInstructionsBuffer(this.id);
+
+        this.pipeline.tick();
 
-        if(aluIstructionsToExecute.isEmpty() && currentlyExecuted == null) {
-            Utilities.log(tag, "nothing to do");
+        if(queue.isEmpty()) {
+            this.tracer.trace(TraceStage.EXECUTE, this.id, TraceEvent.IDLE);
             return;
         }
 
-        // get next instruction
-        if(currentlyExecuted == null) {
-            currentlyExecuted = aluIstructionsToExecute.peek();
-        }
+        // Start next instruction, they stay in the queue until they finish
+        if(this.pipeline.canStart(queue.size())) {
 
-        // Simulate latency
-        if(counter < currentlyExecuted.getLatency()) {
-            counter++;
+            AluInstruction instruction = queue.get(this.pipeline.size());
 
-            StringBuilder message = new StringBuilder();
+            this.pipeline.start(this.processor.getConfig().getLatency(instruction),
+                    this.processor.getConfig().getInitiationInterval(instruction));
+        }
 
-            message.append(String.format("Executing %s", currentlyExecuted.getEncodedInstructionString()));
+        if(!this.pipeline.isEmpty()) {
+            this.busyCycles++;
+        }
 
-            if(currentlyExecuted.getLatency() > 0) {
-                message.append(String.format(" (%d/%d)",  counter, currentlyExecuted.getLatency()));
-            }
+        // Simulate latency
+        for(int i = 0; i < this.pipeline.size(); i++) {
 
-            Utilities.log(tag, message.toString());
+            if(this.pipeline.count(i)) {
+                this.tracer.trace(TraceStage.EXECUTE, this.id, this.pipeline.getLatency(i) > 0 ? TraceEvent.EXECUTING_CYCLE : TraceEvent.EXECUTING,
+                        queue.get(i).getInstructionAddress(),
+                        this.pipeline.getCounter(i),
+                        this.pipeline.getLatency(i));
+            }
         }
 
-        // Finish execution
-        if(counter == currentlyExecuted.getLatency()) {
+        // Finish execution, one instruction per cycle in program order
+        if(this.pipeline.isHeadDone()) {
+
+            AluInstruction instruction = queue.peek();
+
+            // Results can't be written back until older predicted branches are checked
+            if(this.processor.isSpeculative(instruction)) {
+                this.tracer.trace(TraceStage.EXECUTE, this.id, TraceEvent.SPECULATION_STALL,
+                        instruction.getInstructionAddress());
+                return;
+            }
 
             // Remove from the queue
-            aluIstructionsToExecute.remove(currentlyExecuted);
+            queue.removeFirst();
+            this.pipeline.removeHead();
 
             // Execute to get result
-            currentlyExecuted.execute(processor);
+            instruction.execute(processor);
+            this.processor.forwardResults(instruction, SimulatorConfig.BypassPath.ALU);
 
             // Add to write back
-            this.processor.getWriteBackBuffer().add(currentlyExecuted);
+            this.processor.getWriteBackBuffer().addLast(instruction);
 
-            // Reset the current instruction pointer
-            this.currentlyExecuted = null;
+            this.processor.incrementInstructionCounter();
+            this.processor.markActive();
+        }
+    }
 
-            // Reset the counter
-            counter = 0;
+    /**
+     * @return true if an instruction issued now starts executing in the next cycle
+     */
+    public boolean canAccept() {
+        return this.pipeline.canAccept(this.processor.getAluInstructionsBuffer(this.id).size());
+    }
 
-            this.processor.incrementInstructionCounter();
+    /**
+     * @return Number of next cycles in which the unit only counts latency,
+     *         Integer.MAX_VALUE if it's idle or waits for a predicted branch
+     */
+    public int getIdleCycles() {
+
+        RingBuffer<AluInstruction> queue = this.processor.getAluInstructionsBuffer(this.id);
+
+        // Oldest instruction finishes in the next cycle
+        if(this.pipeline.isHeadDone() && !this.processor.isSpeculative(queue.peek())) {
+            return 0;
+        }
+
+        return this.pipeline.getIdleCycles(queue.size());
+    }
+
+    /**
+     * Count latency of several cycles at once
+     * @param cycles Number of cycles, at most getIdleCycles()
+     */
+    public void skipCycles(int cycles) {
+
+        if(!this.pipeline.isEmpty()) {
+            this.busyCycles += cycles;
+        }
+
+        this.pipeline.skipCycles(cycles);
+    }
+
+    /**
+     * @return Number of cycles the unit had an instruction in flight
+     */
+    public int getBusyCycles() {
+        return this.busyCycles;
+    }
+
+    /**
+     * Stop executing instructions on the wrong path of a mispredicted branch,
+     * the processor removes them from the queue afterwards
+     * @param sequenceNumber Sequence number of the branch
+     */
+    public void squash(long sequenceNumber) {
+
+        RingBuffer<AluInstruction> queue = this.processor.getAluInstructionsBuffer(this.id);
+
+        // Younger instructions are the last ones in flight
+        while(!this.pipeline.isEmpty()
+                && queue.get(this.pipeline.size() - 1).getSequenceNumber() > sequenceNumber) {
+            this.pipeline.removeLast();
         }
     }
 }
@@ -2,9 +2,9 @@ package org.mk0934.simulator.units;
 
 import org.mk0934.simulator.*;
 import org.mk0934.simulator.instructions.*;
-
-import java.util.LinkedList;
-import java.util.List;
+import org.mk0934.simulator.trace.TraceEvent;
+import org.mk0934.simulator.trace.TraceStage;
+import org.mk0934.simulator.trace.Tracer;
 
 /**
  * Created by Maciej Kumorek on 11/24/2014.
@@ -13,37 +13,82 @@ public class BranchExecutionUnit implements WritebackEvent {
 
     private class Prediction {
 
-        private final BranchInstruction predictedBranch;
-        private final boolean predictedToTake;
-        private final int alternativeAddress;
-        private final DecodedInstruction blockingInstruction;
+        private BranchInstruction predictedBranch;
+        private boolean predictedToTake;
+        private int alternativeAddress;
+        private DecodedInstruction blockingInstruction;
 
-        public Prediction(BranchInstruction predictedBranch,
-                          DecodedInstruction blockingInstruction,
-                          boolean predictedToTake,
-                          int alternativeAddress) {
+        public void set(BranchInstruction predictedBranch,
+                        DecodedInstruction blockingInstruction,
+                        boolean predictedToTake,
+                        int alternativeAddress) {
             this.predictedBranch = predictedBranch;
             this.predictedToTake = predictedToTake;
             this.alternativeAddress = alternativeAddress;
             this.blockingInstruction = blockingInstruction;
         }
-    }
 
-    private final String tag = "BranchExecUnit";
+        /**
+         * Drop references once the prediction is resolved
+         */
+        public void reset() {
+            this.predictedBranch = null;
+            this.blockingInstruction = null;
+        }
+    }
 
     private final Processor processor;
 
-    private final LinkedList<Prediction> predictions;
+    /**
+     * Pipeline events
+     */
+    private final Tracer tracer;
+
+    /**
+     * Predictions waiting for evaluation, oldest first
+     */
+    private final RingBuffer<Prediction> predictions;
+
+    /**
+     * Prediction records not in use
+     */
+    private final RingBuffer<Prediction> freePredictions;
+
     private final BranchPredictor predictor;
 
     public BranchExecutionUnit(Processor processor, BranchPredictor predictor) {
 
         this.processor = processor;
-        this.predictions = new LinkedList<>();
+        this.tracer = processor.getTracer();
+        this.predictions = new RingBuffer<>(processor.getConfig().getExecuteQueueCapacity());
+        this.freePredictions = new RingBuffer<>(processor.getConfig().getExecuteQueueCapacity());
+
+        for(int i = 0; i < this.freePredictions.getCapacity(); i++) {
+            this.freePredictions.addLast(new Prediction());
+        }
 
         this.predictor = predictor;
     }
 
+    /**
+     * @return true if there's room to remember another prediction
+     */
+    public boolean canPredict() {
+        return !this.predictions.isFull();
+    }
+
+    /**
+     * @param instruction Instruction to check
+     * @return true if instruction was decoded after the oldest predicted branch that isn't resolved yet
+     */
+    public boolean isSpeculative(DecodedInstruction instruction) {
+
+        Prediction oldest = this.predictions.peek();
+
+        return oldest != null
+                && instruction.getSequenceNumber() > oldest.predictedBranch.getSequenceNumber();
+    }
+
     /**
     *   Execute branch
     *
@@ -59,11 +104,11 @@ public class BranchExecutionUnit implements WritebackEvent {
         // Take the branch if you can
         if(branchInstruction.tryTakeBranch(processor)) {
 
-            if(branchInstruction.getOperand() == Operand.JMP) {
-                Utilities.log("BranchExecUnit", "Jump to " + branchInstruction.getAddressToMove());
-            } else {
-                Utilities.log("BranchExecUnit", "Branch to " + branchInstruction.getAddressToMove());
-            }
+            this.tracer.trace(TraceStage.BRANCH, Tracer.NO_UNIT,
+                    branchInstruction.getOperand() == Operand.JMP ? TraceEvent.JUMP : TraceEvent.BRANCH,
+                    branchInstruction.getInstructionAddress(),
+                    branchInstruction.getAddressToJump(),
+                    0);
 
             this.processor.getDecodeBuffer().clear();
 
@@ -83,19 +128,25 @@ public class BranchExecutionUnit implements WritebackEvent {
 
         if(branchInstruction.shouldTakeBranch()) {
 
-            Utilities.log(tag, "Predicted branch to 0x" + branchInstruction.getAddressToMove());
+            this.tracer.trace(TraceStage.BRANCH, Tracer.NO_UNIT, TraceEvent.PREDICTED_TAKEN,
+                    branchInstruction.getInstructionAddress(), branchInstruction.getAddressToJump(), 0);
             // Discard what is in buffers
         } else {
-            Utilities.log(tag, "Predicted not to take the branch to 0x" + branchInstruction.getAddressToMove());
+            this.tracer.trace(TraceStage.BRANCH, Tracer.NO_UNIT, TraceEvent.PREDICTED_NOT_TAKEN,
+                    branchInstruction.getInstructionAddress(), branchInstruction.getAddressToJump(), 0);
         }
 
         this.processor.incrementInstructionCounter();
 
-        this.predictions.addLast(new Prediction(
+        Prediction prediction = this.freePredictions.removeFirst();
+
+        prediction.set(
                 branchInstruction,
                 blockingInstruction,
                 branchPredictorResult.isShouldTake(),
-                branchPredictorResult.getAlternativeAddress()));
+                branchPredictorResult.getAlternativeAddress());
+
+        this.predictions.addLast(prediction);
 
         // Now remember to check
         blockingInstruction.addWriteBackListener(this, branchInstruction);
@@ -111,57 +162,89 @@ public class BranchExecutionUnit implements WritebackEvent {
         // We're done with listening to this event
         writtenInstruction.removeWriteBackListener(this);
 
-        Prediction prediction = predictions.removeFirst();
-
-        if(prediction.blockingInstruction != writtenInstruction)
+        if(predictions.peek().blockingInstruction != writtenInstruction)
         {
             throw new RuntimeException("Trying to evaluate branch that is after last evaluated");
         }
 
+        // Several branches can wait for the same instruction
+        do {
+            if(!this.evaluate(predictions.removeFirst())) {
+                return;
+            }
+        } while(!predictions.isEmpty() && predictions.peek().blockingInstruction == writtenInstruction);
+    }
+
+    /**
+     * Check prediction of a branch whose operands are written back, redirect if it was wrong
+     * @param prediction Oldest prediction
+     * @return true if the prediction was correct
+     */
+    private boolean evaluate(Prediction prediction) {
+
         // Evaluate the branch
         prediction.predictedBranch.UpdateRegisters(processor);
 
         // Update the branch predictor
         predictor.updatePredictor(prediction.predictedBranch, prediction.predictedBranch.shouldTakeBranch());
 
+        boolean predictedToTake = prediction.predictedToTake;
+        boolean shouldTake = prediction.predictedBranch.shouldTakeBranch();
+        int addressToJump = shouldTake
+                ? prediction.predictedBranch.getAddressToJump()
+                : prediction.alternativeAddress;
+        long sequenceNumber = prediction.predictedBranch.getSequenceNumber();
+
+        // Branch is resolved
+        this.releasePrediction(prediction);
+
         // Was our prediction incorrect?
-        if(prediction.predictedToTake != prediction.predictedBranch.shouldTakeBranch()) {
+        if(predictedToTake != shouldTake) {
 
-            Utilities.log(tag, "Branch prediction was incorrect.");
+            this.tracer.trace(TraceStage.BRANCH, Tracer.NO_UNIT, TraceEvent.MISPREDICTED);
             processor.IncrementMissedBranches();
 
-            for(int i = 0; i < Globals.execution_units_num; i++) {
-                this.processor.getAluInstructionsBuffer(i).clear();
-                this.processor.getMemoryInstructionsToExecute(i).clear();
-            }
-
-            // Remove event handlers from predictions
-            for(Prediction p : predictions)
+            // Other predictions should be not relevant now, because we branched wrong
+            while(!predictions.isEmpty())
             {
+                Prediction p = predictions.removeFirst();
+
+                // Remove event handlers from predictions
                 p.blockingInstruction.removeWriteBackListener(this);
+                this.releasePrediction(p);
             }
 
-            // Other predictions should be not relevant now, because we branched wrong
-            predictions.clear();
+            this.processor.flushExecuteQueues(sequenceNumber);
 
             //this.processor.getWriteBackBuffer().clear();
             this.processor.getDecodeBuffer().clear();
 
-            int addressToJump = 0;
-
             // In what way was it incorrect?
-            if(!prediction.predictedToTake) {
-                Utilities.log(tag, "Branch prediction was incorrect - should  have taken.");
-                addressToJump = prediction.predictedBranch.getAddressToJump();
+            if(!predictedToTake) {
+                this.tracer.trace(TraceStage.BRANCH, Tracer.NO_UNIT, TraceEvent.MISPREDICTED_NOT_TAKEN);
             } else {
-                Utilities.log(tag, "Branch prediction was incorrect - should not have taken.");
-                addressToJump = prediction.alternativeAddress;
+                this.tracer.trace(TraceStage.BRANCH, Tracer.NO_UNIT, TraceEvent.MISPREDICTED_TAKEN);
             }
 
-            Utilities.log("BranchExecUnit", "Branch to 0x" + Integer.toHexString(addressToJump));
+            this.tracer.trace(TraceStage.BRANCH, Tracer.NO_UNIT, TraceEvent.REDIRECT, 0, addressToJump, 0);
             this.processor.getPc().setValue(addressToJump);
-        } else {
-            processor.incrementCorrectBranches();
+
+            return false;
         }
+
+        processor.incrementCorrectBranches();
+
+        return true;
+    }
+
+    /**
+     * Return prediction record and the predicted branch for reuse
+     */
+    private void releasePrediction(Prediction prediction) {
+
+        prediction.predictedBranch.recycle();
+        prediction.reset();
+
+        this.freePredictions.addLast(prediction);
     }
 }
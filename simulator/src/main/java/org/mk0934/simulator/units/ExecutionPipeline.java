@@ -0,0 +1,177 @@
+package org.mk0934.simulator.units;
+
+/**
+ * Latency counters of instructions in flight in a pipelined execution unit
+ *
+ * Instructions start in order, at most one every initiation interval, so the ones in flight
+ * are always the oldest ones in the queue of the unit. Position 0 is the oldest instruction.
+ * They finish in order, one per cycle, once their latency passes.
+ *
+ * @author Maciej Kumorek
+ */
+class ExecutionPipeline {
+
+    /**
+     * Cycles counted so far, for each instruction in flight
+     */
+    private final int[] counters;
+
+    /**
+     * Latency of each instruction in flight
+     */
+    private final int[] latencies;
+
+    /**
+     * Number of instructions in flight
+     */
+    private int size;
+
+    /**
+     * Cycles until the next instruction can start
+     */
+    private int startDelay;
+
+    /**
+     * @param capacity Most instructions in flight, at most the capacity of the queue of the unit
+     */
+    ExecutionPipeline(int capacity) {
+        this.counters = new int[capacity];
+        this.latencies = new int[capacity];
+    }
+
+    /**
+     * Called at the start of every cycle
+     */
+    void tick() {
+        if(this.startDelay > 0) {
+            this.startDelay--;
+        }
+    }
+
+    /**
+     * @param queueSize Number of instructions in the queue, including the ones in flight
+     * @return true if the next instruction in the queue can start in this cycle
+     */
+    boolean canStart(int queueSize) {
+        return this.size < queueSize && this.size < this.counters.length
+                && this.startDelay == 0 && !this.isHeadDone();
+    }
+
+    /**
+     * Start the next instruction
+     * @param latency Cycles until it finishes
+     * @param initiationInterval Cycles until another instruction can start
+     */
+    void start(int latency, int initiationInterval) {
+        this.counters[this.size] = 0;
+        this.latencies[this.size] = latency;
+        this.size++;
+        this.startDelay = initiationInterval;
+    }
+
+    /**
+     * Count a cycle of an instruction in flight
+     * @param position Position of the instruction, 0 is the oldest
+     * @return false if the latency passed already
+     */
+    boolean count(int position) {
+
+        if(this.counters[position] >= this.latencies[position]) {
+            return false;
+        }
+
+        this.counters[position]++;
+        return true;
+    }
+
+    int getCounter(int position) {
+        return this.counters[position];
+    }
+
+    int getLatency(int position) {
+        return this.latencies[position];
+    }
+
+    /**
+     * @return true if the oldest instruction in flight can finish
+     */
+    boolean isHeadDone() {
+        return this.size > 0 && this.counters[0] >= this.latencies[0];
+    }
+
+    /**
+     * Remove the oldest instruction once it finished
+     */
+    void removeHead() {
+
+        this.size--;
+
+        System.arraycopy(this.counters, 1, this.counters, 0, this.size);
+        System.arraycopy(this.latencies, 1, this.latencies, 0, this.size);
+    }
+
+    /**
+     * Remove the youngest instruction, e.g. squashed after a misprediction.
+     * Its slot is free again, so next instruction can start right away.
+     */
+    void removeLast() {
+        this.size--;
+        this.startDelay = 0;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * @return true if no instruction is waiting in the queue and one issued now starts in the next cycle
+     */
+    boolean canAccept(int queueSize) {
+        return this.size == queueSize && this.size < this.counters.length
+                && this.startDelay <= 1 && !this.isHeadDone();
+    }
+
+    /**
+     * @param queueSize Number of instructions in the queue, including the ones in flight
+     * @return Number of next cycles in which the unit only counts latency, Integer.MAX_VALUE if
+     *         nothing would change at all. Oldest instruction that is done waits for the unit.
+     */
+    int getIdleCycles(int queueSize) {
+
+        int idleCycles = Integer.MAX_VALUE;
+
+        for(int i = 0; i < this.size; i++) {
+            if(this.counters[i] < this.latencies[i]) {
+                idleCycles = Math.min(idleCycles, this.latencies[i] - this.counters[i] - 1);
+            }
+        }
+
+        if(queueSize > this.size && this.size < this.counters.length && !this.isHeadDone()) {
+            idleCycles = Math.min(idleCycles, Math.max(this.startDelay - 1, 0));
+        } else if(this.startDelay > 1) {
+            // Unit starts accepting instructions waiting to be issued
+            idleCycles = Math.min(idleCycles, this.startDelay - 2);
+        }
+
+        return idleCycles;
+    }
+
+    /**
+     * Count latency of several cycles at once
+     * @param cycles Number of cycles, at most getIdleCycles()
+     */
+    void skipCycles(int cycles) {
+
+        for(int i = 0; i < this.size; i++) {
+            if(this.counters[i] < this.latencies[i]) {
+                this.counters[i] += cycles;
+            }
+        }
+
+        this.startDelay = Math.max(this.startDelay - cycles, 0);
+    }
+}
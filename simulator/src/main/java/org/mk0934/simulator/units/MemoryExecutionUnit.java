@@ -1,10 +1,12 @@
 package org.mk0934.simulator.units;
 
 import org.mk0934.simulator.Processor;
-import org.mk0934.simulator.Utilities;
+import org.mk0934.simulator.RingBuffer;
+import org.mk0934.simulator.SimulatorConfig;
 import org.mk0934.simulator.instructions.MemoryInstruction;
-
-import java.util.LinkedList;
+import org.mk0934.simulator.trace.TraceEvent;
+import org.mk0934.simulator.trace.TraceStage;
+import org.mk0934.simulator.trace.Tracer;
 
 /**
  * Execution unit for memory instruction
@@ -17,16 +19,14 @@ public class MemoryExecutionUnit {
     private final Processor processor;
 
     /**
-     * Currently executed instruction
+     * Latency counters of instructions in flight
      */
-    private MemoryInstruction currentlyExecuted;
+    private final ExecutionPipeline pipeline;
 
     /**
-     * Cycles counter for simulating latency
+     * Pipeline events
      */
-    private int counter;
-
-    private String tag = "MEM EXECUTE";
+    private final Tracer tracer;
 
     /**
      * Execution unit id
@@ -35,10 +35,16 @@ public class MemoryExecutionUnit {
 
     public MemoryExecutionUnit(Processor processor, int id) {
         this.processor = processor;
-        this.counter = 0;
+        this.pipeline = new ExecutionPipeline(processor.getConfig().getMemoryOutstanding());
         this.id = id;
+        this.tracer = processor.getTracer();
+    }
 
-        tag += "(" + id + ")";
+    /**
+     * @return Oldest instruction being executed, null if unit is idle
+     */
+    public MemoryInstruction getCurrentlyExecuted() {
+        return this.pipeline.isEmpty() ? null : this.processor.getMemoryInstructionsToExecute(this.id).peek();
     }
 
     /**
@@ -46,43 +52,115 @@ public class MemoryExecutionUnit {
      */
     public void execute() {
 
-        final LinkedList<? extends MemoryInstruction> memoryInstructionsBuffer =
-                this.processor.getMemoryInstructionsToExecute(id);
+        RingBuffer<MemoryInstruction> queue = this.processor.getMemoryInstructionsToExecute(this.id);
 
-        // Execute the memory instruction
-        if(memoryInstructionsBuffer.isEmpty() && currentlyExecuted == null) {
-            Utilities.log(tag, "nothing to do");
+        this.pipeline.tick();
+
+        if(queue.isEmpty()) {
+            this.tracer.trace(TraceStage.MEMORY, this.id, TraceEvent.IDLE);
             return;
         }
 
-        // get next instruction
-        if(currentlyExecuted == null) {
-            currentlyExecuted = memoryInstructionsBuffer.peek();
+        // Start next instruction, they stay in the queue until they finish
+        if(this.pipeline.canStart(queue.size())) {
+
+            MemoryInstruction instruction = queue.get(this.pipeline.size());
+
+            int latency = this.processor.getExecutionLatency(instruction);
+
+            this.pipeline.start(latency, this.processor.getConfig().getInitiationInterval(instruction, latency));
         }
 
         // Simulate latency
-        if(counter < currentlyExecuted.getLatency()) {
-            counter++;
-
-            Utilities.log(tag, String.format("Executing %s (%d/%d)", currentlyExecuted.getEncodedInstructionString(),
-                    counter,
-                    currentlyExecuted.getLatency()));
+        for(int i = 0; i < this.pipeline.size(); i++) {
+
+            if(this.pipeline.count(i)) {
+                this.tracer.trace(TraceStage.MEMORY, this.id, TraceEvent.EXECUTING_CYCLE,
+                        queue.get(i).getInstructionAddress(),
+                        this.pipeline.getCounter(i),
+                        this.pipeline.getLatency(i));
+            }
         }
 
-        // Finish execution
-        if(counter == currentlyExecuted.getLatency()) {
+        // Finish execution, one instruction per cycle in program order
+        if(this.pipeline.isHeadDone()) {
+
+            MemoryInstruction instruction = queue.peek();
+
+            // Results can't be written back until older predicted branches are checked
+            if(this.processor.isSpeculative(instruction)) {
+                this.tracer.trace(TraceStage.MEMORY, this.id, TraceEvent.SPECULATION_STALL,
+                        instruction.getInstructionAddress());
+                return;
+            }
+
+            // Memory is accessed in program order
+            if(this.processor.isWaitingForOlderAccess(instruction)) {
+                this.tracer.trace(TraceStage.MEMORY, this.id, TraceEvent.MEMORY_ORDER_STALL,
+                        instruction.getInstructionAddress());
+                return;
+            }
 
             // Remove from the queue
-            memoryInstructionsBuffer.remove(currentlyExecuted);
+            queue.removeFirst();
+            this.pipeline.removeHead();
 
-            currentlyExecuted.execute(processor);
-            this.processor.getWriteBackBuffer().add(currentlyExecuted);
-            this.currentlyExecuted = null;
+            instruction.execute(processor);
+            this.processor.forwardResults(instruction, SimulatorConfig.BypassPath.MEMORY);
 
-            // Reset the counter
-            counter = 0;
+            // Add to write back
+            this.processor.getWriteBackBuffer().addLast(instruction);
 
             this.processor.incrementInstructionCounter();
+            this.processor.markActive();
+        }
+    }
+
+    /**
+     * @return true if an instruction issued now starts executing in the next cycle
+     */
+    public boolean canAccept() {
+        return this.pipeline.canAccept(this.processor.getMemoryInstructionsToExecute(this.id).size());
+    }
+
+    /**
+     * @return Number of next cycles in which the unit only counts latency,
+     *         Integer.MAX_VALUE if it's idle or waits for a predicted branch or an older access
+     */
+    public int getIdleCycles() {
+
+        RingBuffer<MemoryInstruction> queue = this.processor.getMemoryInstructionsToExecute(this.id);
+
+        // Oldest instruction finishes in the next cycle
+        if(this.pipeline.isHeadDone() && !this.processor.isSpeculative(queue.peek())
+                && !this.processor.isWaitingForOlderAccess(queue.peek())) {
+            return 0;
+        }
+
+        return this.pipeline.getIdleCycles(queue.size());
+    }
+
+    /**
+     * Count latency of several cycles at once
+     * @param cycles Number of cycles, at most getIdleCycles()
+     */
+    public void skipCycles(int cycles) {
+        this.pipeline.skipCycles(cycles);
+    }
+
+    /**
+     * Stop executing instructions on the wrong path of a mispredicted branch,
+     * the processor removes them from the queue afterwards
+     * @param sequenceNumber Sequence number of the branch
+     */
+    public void squash(long sequenceNumber) {
+
+        RingBuffer<MemoryInstruction> queue = this.processor.getMemoryInstructionsToExecute(this.id);
+
+        // Younger instructions are the last ones in flight
+        while(!this.pipeline.isEmpty()
+                && queue.get(this.pipeline.size() - 1).getSequenceNumber() > sequenceNumber) {
+            this.pipeline.removeLast();
         }
     }
 }
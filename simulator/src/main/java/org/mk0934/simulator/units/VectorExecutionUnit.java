@@ -1,43 +1,52 @@
 package org.mk0934.simulator.units;
 
 import org.mk0934.simulator.Processor;
-import org.mk0934.simulator.Utilities;
+import org.mk0934.simulator.RingBuffer;
+import org.mk0934.simulator.SimulatorConfig;
 import org.mk0934.simulator.instructions.VectorInstruction;
-
-import java.util.LinkedList;
+import org.mk0934.simulator.trace.TraceEvent;
+import org.mk0934.simulator.trace.TraceStage;
+import org.mk0934.simulator.trace.Tracer;
 
 /**
  * Created by Maciej Kumorek on 12/5/2014.
  */
 public class VectorExecutionUnit {
 
-    private final String tag = "VectorExecutionUnit";
-
     /**
-     * Reference to currently executed function
+     * Pipeline events
      */
-    private VectorInstruction currentlyExecuted;
+    private final Tracer tracer;
 
     /**
-     * Counter of execution cycles
+     * Latency counters of instructions in flight
      */
-    int counter = 0;
+    private final ExecutionPipeline pipeline;
 
     /**
      * Buffer of instructions to execute
      */
-    private LinkedList <VectorInstruction> vectorInstructionsToExecute = new LinkedList<>();
+    private final RingBuffer<VectorInstruction> vectorInstructionsToExecute;
 
     /**
      * Reference to the processor
      */
     private final Processor processor;
 
-    public VectorExecutionUnit(Processor processor) {
+    /**
+     * Unit id in traces, NO_UNIT if it's the only vector unit
+     */
+    private final int traceId;
+
+    public VectorExecutionUnit(Processor processor, int id) {
         this.processor = processor;
+        this.traceId = processor.getConfig().getVectorUnits() > 1 ? id : Tracer.NO_UNIT;
+        this.tracer = processor.getTracer();
+        this.vectorInstructionsToExecute = new RingBuffer<>(processor.getConfig().getExecuteQueueCapacity());
+        this.pipeline = new ExecutionPipeline(processor.getConfig().getExecuteQueueCapacity());
     }
 
-    public LinkedList<VectorInstruction> getReservationStation() {
+    public RingBuffer<VectorInstruction> getReservationStation() {
         return vectorInstructionsToExecute;
     }
 
@@ -46,42 +55,115 @@ public class VectorExecutionUnit {
      */
     public void execute() {
 
-        // Execute the memory instruction
-        if(getReservationStation().isEmpty() && currentlyExecuted == null) {
-            Utilities.log(tag, "nothing to do");
+        RingBuffer<VectorInstruction> queue = this.getReservationStation();
+
+        this.pipeline.tick();
+
+        if(queue.isEmpty()) {
+            this.tracer.trace(TraceStage.VECTOR, this.traceId, TraceEvent.IDLE);
             return;
         }
 
-        // get next instruction
-        if(currentlyExecuted == null) {
-            currentlyExecuted = getReservationStation().peek();
+        // Start next instruction, they stay in the queue until they finish
+        if(this.pipeline.canStart(queue.size())) {
+
+            VectorInstruction instruction = queue.get(this.pipeline.size());
+
+            int latency = this.processor.getExecutionLatency(instruction);
+
+            this.pipeline.start(latency, this.processor.getConfig().getInitiationInterval(instruction, latency));
         }
 
         // Simulate latency
-        if(counter < currentlyExecuted.getLatency()) {
-            counter++;
-
-            Utilities.log(tag, String.format("Executing %s (%d/%d)", currentlyExecuted.getEncodedInstructionString(),
-                    counter,
-                    currentlyExecuted.getLatency()));
+        for(int i = 0; i < this.pipeline.size(); i++) {
+
+            if(this.pipeline.count(i)) {
+                this.tracer.trace(TraceStage.VECTOR, this.traceId, TraceEvent.EXECUTING_CYCLE,
+                        queue.get(i).getInstructionAddress(),
+                        this.pipeline.getCounter(i),
+                        this.pipeline.getLatency(i));
+            }
         }
 
-        // Finish execution
-        if(counter == currentlyExecuted.getLatency()) {
+        // Finish execution, one instruction per cycle in program order
+        if(this.pipeline.isHeadDone()) {
 
-            // Remove from the queue
-            getReservationStation().remove(currentlyExecuted);
+            VectorInstruction instruction = queue.peek();
+
+            // Results can't be written back until older predicted branches are checked
+            if(this.processor.isSpeculative(instruction)) {
+                this.tracer.trace(TraceStage.VECTOR, this.traceId, TraceEvent.SPECULATION_STALL,
+                        instruction.getInstructionAddress());
+                return;
+            }
 
-            currentlyExecuted.execute(processor);
-            this.processor.getWriteBackBuffer().add(currentlyExecuted);
+            // Memory is accessed in program order
+            if(this.processor.isWaitingForOlderAccess(instruction)) {
+                this.tracer.trace(TraceStage.VECTOR, this.traceId, TraceEvent.MEMORY_ORDER_STALL,
+                        instruction.getInstructionAddress());
+                return;
+            }
+
+            // Remove from the queue
+            queue.removeFirst();
+            this.pipeline.removeHead();
 
-            // Reset the reference to currently executed
-            this.currentlyExecuted = null;
+            instruction.execute(processor);
+            this.processor.forwardResults(instruction, SimulatorConfig.BypassPath.VECTOR);
 
-            // Reset the counter
-            counter = 0;
+            // Add to write back
+            this.processor.getWriteBackBuffer().addLast(instruction);
 
             this.processor.incrementInstructionCounter();
+            this.processor.markActive();
+        }
+    }
+
+    /**
+     * @return true if an instruction issued now starts executing in the next cycle
+     */
+    public boolean canAccept() {
+        return this.pipeline.canAccept(this.getReservationStation().size());
+    }
+
+    /**
+     * @return Number of next cycles in which the unit only counts latency,
+     *         Integer.MAX_VALUE if it's idle or waits for a predicted branch or an older access
+     */
+    public int getIdleCycles() {
+
+        RingBuffer<VectorInstruction> queue = this.getReservationStation();
+
+        // Oldest instruction finishes in the next cycle
+        if(this.pipeline.isHeadDone() && !this.processor.isSpeculative(queue.peek())
+                && !this.processor.isWaitingForOlderAccess(queue.peek())) {
+            return 0;
+        }
+
+        return this.pipeline.getIdleCycles(queue.size());
+    }
+
+    /**
+     * Count latency of several cycles at once
+     * @param cycles Number of cycles, at most getIdleCycles()
+     */
+    public void skipCycles(int cycles) {
+        this.pipeline.skipCycles(cycles);
+    }
+
+    /**
+     * Stop executing instructions on the wrong path of a mispredicted branch,
+     * the processor removes them from the queue afterwards
+     * @param sequenceNumber Sequence number of the branch
+     */
+    public void squash(long sequenceNumber) {
+
+        RingBuffer<VectorInstruction> queue = this.getReservationStation();
+
+        // Younger instructions are the last ones in flight
+        while(!this.pipeline.isEmpty()
+                && queue.get(this.pipeline.size() - 1).getSequenceNumber() > sequenceNumber) {
+            this.pipeline.removeLast();
         }
     }
 }
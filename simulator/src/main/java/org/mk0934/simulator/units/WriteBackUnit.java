@@ -1,10 +1,11 @@
 package org.mk0934.simulator.units;
 
 import org.mk0934.simulator.Processor;
-import org.mk0934.simulator.Utilities;
+import org.mk0934.simulator.RingBuffer;
 import org.mk0934.simulator.instructions.DecodedInstruction;
-
-import java.util.LinkedList;
+import org.mk0934.simulator.trace.TraceEvent;
+import org.mk0934.simulator.trace.TraceStage;
+import org.mk0934.simulator.trace.Tracer;
 
 /**
  * Write-back unit
@@ -15,7 +16,7 @@ public class WriteBackUnit {
     /**
      * Buffer for instructions to write-back
      */
-    final private LinkedList<DecodedInstruction> instructionsToWriteBack;
+    final private RingBuffer<DecodedInstruction> instructionsToWriteBack;
 
     /**
      * Processor execution unit belongs to
@@ -27,18 +28,21 @@ public class WriteBackUnit {
      */
     private int id;
 
-    private String tag = "WRITEBACK";
+    /**
+     * Pipeline events
+     */
+    private final Tracer tracer;
 
     /**
      * Initialize the unit
      * @param instructionsToWriteBack buffer with instructions scheduled for write-back
      */
-    public WriteBackUnit(LinkedList<DecodedInstruction> instructionsToWriteBack, Processor processor, int id) {
+    public WriteBackUnit(RingBuffer<DecodedInstruction> instructionsToWriteBack, Processor processor, int id) {
 
         this.instructionsToWriteBack = instructionsToWriteBack;
         this.processor = processor;
         this.id = id;
-        this.tag += "(" + id + ")";
+        this.tracer = processor.getTracer();
     }
 
     /**
@@ -49,20 +53,30 @@ public class WriteBackUnit {
         if(this.instructionsToWriteBack.isEmpty()) {
 
             // We reached memory that isn't instructions
-            Utilities.log(tag, "nothing to do");
+            this.tracer.trace(TraceStage.WRITEBACK, id, TraceEvent.IDLE);
             return;
         }
 
+        this.processor.markActive();
+
         // Empty the writeback buffer otherwise
         while(!this.instructionsToWriteBack.isEmpty()) {
 
             // Get next instruction for write back
             DecodedInstruction instruction = this.instructionsToWriteBack.removeFirst();
 
-            Utilities.log(tag, "Writing back " + instruction.getEncodedInstructionString());
+            this.tracer.trace(TraceStage.WRITEBACK, id, TraceEvent.WRITING_BACK, instruction.getInstructionAddress());
 
             // Tell instruction to write itself back
+            this.processor.profileMemoryAccess(instruction);
             instruction.writeBack(processor);
+
+            // Registers are not pending anymore
+            this.processor.getScoreboard().release(instruction);
+            this.processor.getBypassNetwork().release(instruction);
+
+            // Instruction is done, decoded instance can be reused
+            instruction.recycle();
         }
     }
 }
@@ -0,0 +1,84 @@
+package org.mk0934.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class AllocationTest {
+
+    /**
+    *   Test case for cycles of a warmed-up simulation not allocating anything
+    */
+    @Test
+    public void steadyStateDoesntAllocate() {
+
+        assumeTrue("Allocated bytes aren't measured",
+                ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+
+        String[][] options = {
+                { "-e1" },
+                { "-e4", "-predictor=static" },
+                { "-e4", "-predictor=naive" },
+                { "-e4", "-ooo" },
+                { "-e4", "-cache=on", "-storebuffer=4" } };
+
+        for(String[] option : options) {
+
+            Configuration configuration = new Configuration();
+
+            for(String argument : option) {
+                configuration.parseConfigurationOption(argument);
+            }
+
+            // First runs fill the pools and load classes, the rest only differ in the iterations.
+            // Fewest bytes of a few runs leave out the compiler deoptimizing in the middle of one.
+            long shortRun = Long.MAX_VALUE;
+            long longRun = Long.MAX_VALUE;
+
+            allocatedBytes(200, configuration);
+            allocatedBytes(200, configuration);
+
+            for(int run = 0; run < 3; run++) {
+                shortRun = Math.min(shortRun, allocatedBytes(200, configuration));
+                longRun = Math.min(longRun, allocatedBytes(1000, configuration));
+            }
+
+            assertEquals("Extra iterations allocated with " + Arrays.toString(option), shortRun, longRun);
+        }
+    }
+
+    /**
+     * @return Bytes allocated by the simulation of a loop of some iterations
+     */
+    private static long allocatedBytes(int iterations, Configuration configuration) {
+
+        Program program = new Program(Arrays.asList(
+                "    MOV r0, 0x0",
+                "    MOV r2, 0x0",
+                "loop:",
+                "    CMP r3, r0, " + iterations,
+                "    BGE r3, end",
+                "    LDM r1, r0, 0x1000",
+                "    MUL r4, r1, r1",
+                "    ADD r2, r2, r4",
+                "    STM r2, r0, 0x2000",
+                "    ADD r0, r0, 0x1",
+                "    JMP loop",
+                "end:",
+                "    NOP"));
+
+        Processor processor = Simulations.load(program, configuration.build());
+
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long before = bean.getThreadAllocatedBytes(thread);
+
+        processor.simulate();
+
+        return bean.getThreadAllocatedBytes(thread) - before;
+    }
+}
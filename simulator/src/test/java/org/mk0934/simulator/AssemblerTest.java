@@ -0,0 +1,83 @@
+package org.mk0934.simulator;
+
+import org.junit.Test;
+import org.mk0934.simulator.instructions.BranchInstruction;
+import org.mk0934.simulator.instructions.EncodedInstruction;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the two-pass assembler
+ */
+public class AssemblerTest {
+
+    @Test
+    public void labelsThatArePrefixesOfOtherLabelsAreResolved() {
+
+        Program program = new Program(Arrays.asList(
+                "L1:",
+                "    MOV r0, 0x1",
+                "L10:",
+                "    MOV r1, 0x2",
+                "    JMP L10",
+                "    JMP L1"));
+
+        Memory memory = new Memory();
+        memory.LoadProgram(program);
+
+        assertEquals("JMP L10 not resolved", "JMP 0x4", memory.getInstruction(0x8).getEncodedInstruction());
+        assertEquals("JMP L1 not resolved", "JMP 0x0", memory.getInstruction(0xC).getEncodedInstruction());
+
+        Processor processor = new Processor(memory);
+        BranchInstruction jump = (BranchInstruction) memory.getInstruction(0x8).decode(processor);
+
+        assertEquals("Wrong address to jump", 0x4, jump.getAddressToJump());
+        assertEquals("Wrong branch address", 0x8, jump.getInstructionAddress());
+    }
+
+    @Test
+    public void labelCanBeOnTheSameLineAsStatement() {
+
+        Program program = new Program(Arrays.asList(
+                "start: LDM r1, r0, array ; comment: with colon",
+                "end: NOP",
+                "array: 0x10",
+                "       20"));
+
+        Assembler assembler = new Assembler(program);
+
+        assertEquals("Wrong label address", 0x0, (int) assembler.getSymbolTable().get("start"));
+        assertEquals("Wrong label address", 0x8, (int) assembler.getSymbolTable().get("array"));
+        assertEquals("Wrong program size", 0x10, assembler.getProgramSize());
+
+        Memory memory = new Memory();
+        assembler.assemble(memory);
+
+        EncodedInstruction load = memory.getInstruction(0x0);
+
+        assertEquals("Label not resolved", "LDM r1, r0, 0x8", load.getEncodedInstruction());
+        assertEquals("Label not assigned", "start", load.getLabel());
+        assertEquals("Data word not loaded", 0x10, memory.loadWord(0x8));
+        assertEquals("Data word not loaded", 20, memory.loadWord(0xC));
+    }
+
+    @Test
+    public void registersOutsideRegisterFileAreRejected() {
+
+        Program program = new Program(Arrays.asList(
+                "    MOV r15, 0x1",
+                "; r20 doesn't exist",
+                "    ADD r1, r20, r15"));
+
+        try {
+            new Assembler(program).assemble(new Memory());
+            fail("Assembled r20");
+        } catch(RuntimeException e) {
+            assertTrue("Wrong message: " + e.getMessage(), e.getMessage().contains("r20 on line 3"));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.mk0934.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mk0934.simulator.Simulations.simulate;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.mk0934.simulator.instructions.DecodedInstruction;
+import org.mk0934.simulator.instructions.EncodedInstruction;
+
+public class BypassNetworkTest {
+
+    /**
+    *   Test case for forwarding a result once the path latency passes
+    */
+    @Test
+    public void forwardsResultAfterPathLatency() {
+
+        Configuration configuration = new Configuration();
+        configuration.setBypassLatency(SimulatorConfig.BypassPath.ALU, 1);
+        SimulatorConfig config = configuration.build();
+
+        Processor proc = new Processor(new Memory(), config);
+        proc.getRegisterFile().getRegister(2).setValue(0x5);
+        proc.getRegisterFile().getRegister(3).setValue(0x2);
+
+        Scoreboard scoreboard = new Scoreboard(proc.getRegisterFile().getCount());
+        BypassNetwork bypassNetwork = new BypassNetwork(config, proc.getRegisterFile().getCount());
+
+        DecodedInstruction writer = new EncodedInstruction("ADD r1, r2, r3").decode(proc);
+        DecodedInstruction reader = new EncodedInstruction("SUB r4, r1, r3").decode(proc);
+
+        scoreboard.issue(writer);
+        assertNull("Forwarded before execution", bypassNetwork.forward(reader, scoreboard, 1));
+
+        writer.execute(proc);
+        bypassNetwork.publish(writer, SimulatorConfig.BypassPath.ALU, 1);
+
+        assertNull("Forwarded before path latency", bypassNetwork.forward(reader, scoreboard, 1));
+        assertEquals("Wrong producer", writer, bypassNetwork.forward(reader, scoreboard, 2));
+
+        reader.execute(proc);
+        assertEquals("Forwarded value not used", 0x5, reader.getResult(4));
+
+        bypassNetwork.release(writer);
+        assertNull("Forwarded after write-back", bypassNetwork.forward(reader, scoreboard, 2));
+    }
+
+    /**
+    *   Test case for dependent chain not waiting for write-back
+    */
+    @Test
+    public void dependentChainSkipsWriteBack() {
+
+        Program program = new Program(Arrays.asList(
+                "    MOV r0, 0x1",
+                "    ADD r1, r0, 0x1",
+                "    ADD r2, r1, 0x1",
+                "    ADD r3, r2, 0x1",
+                "    ADD r4, r3, 0x1",
+                "    NOP"));
+
+        Configuration configuration = new Configuration();
+        Processor forwarding = simulate(program, configuration.build());
+
+        configuration.parseConfigurationOption("-bypass=off");
+        Processor writeBack = simulate(program, configuration.build());
+
+        assertEquals("Wrong result", 0x5, forwarding.getRegisterFile().getRegister(4).getValue());
+        assertEquals("Wrong result", 0x5, writeBack.getRegisterFile().getRegister(4).getValue());
+
+        // Every link of the chain saves the write-back cycle
+        assertEquals("Wrong cycles",
+                writeBack.getStatistics().getCycles() - 4,
+                forwarding.getStatistics().getCycles());
+    }
+}
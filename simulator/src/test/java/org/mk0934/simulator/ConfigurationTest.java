@@ -0,0 +1,34 @@
+package org.mk0934.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ConfigurationTest {
+
+    /**
+    *   Test case for building independent configurations from command line options
+    */
+    @Test
+    public void buildsConfigFromOptions() {
+
+        Configuration configuration = new Configuration();
+        SimulatorConfig defaults = configuration.build();
+
+        configuration.parseConfigurationOption("-e4");
+        configuration.parseConfigurationOption("-predictor=naive");
+        configuration.parseConfigurationOption("-v");
+
+        SimulatorConfig config = configuration.build();
+
+        assertEquals("Wrong number of execution units", 4, config.getExecutionUnits());
+        assertEquals("Wrong predictor", SimulatorConfig.PredictorType.NAIVE, config.getPredictorType());
+        assertTrue("Verbose not set", config.isVerbose());
+
+        assertEquals("Built config changed", 2, defaults.getExecutionUnits());
+        assertEquals("Built config changed", SimulatorConfig.PredictorType.DYNAMIC, defaults.getPredictorType());
+        assertFalse("Built config changed", defaults.isVerbose());
+    }
+}
@@ -0,0 +1,116 @@
+package org.mk0934.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.mk0934.simulator.Simulations.simulate;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.mk0934.simulator.instructions.Operand;
+
+public class CycleSkippingTest {
+
+    private static final Program program = new Program(Arrays.asList(
+            "    MOV r0, 0x0",
+            "loop:",
+            "    LDM r1, r0, data",
+            "    MUL r2, r1, r1",
+            "    STM r2, r0, data",
+            "    ADD r0, r0, 0x4",
+            "    CMP r3, r0, 0x10",
+            "    BGT r3, end",
+            "    JMP loop",
+            "end:",
+            "    NOP",
+            "data: 0x1",
+            "      0x2",
+            "      0x3",
+            "      0x4",
+            "      0x5"));
+
+    /**
+     * Address of the data label
+     */
+    private static final int DATA_ADDRESS = 0x24;
+
+    /**
+    *   Test case for skipping cycles of the in-order core
+    */
+    @Test
+    public void inOrderStatisticsDontChange() {
+
+        Configuration configuration = newLongLatencyConfiguration();
+        configuration.setBypassLatency(SimulatorConfig.BypassPath.MEMORY, 3);
+
+        assertSameStatistics(configuration);
+    }
+
+    /**
+    *   Test case for skipping cycles of the out-of-order core
+    */
+    @Test
+    public void outOfOrderStatisticsDontChange() {
+
+        Configuration configuration = newLongLatencyConfiguration();
+        configuration.setCoreType(SimulatorConfig.CoreType.OUT_OF_ORDER);
+
+        assertSameStatistics(configuration);
+    }
+
+    /**
+    *   Test case for skipping cycles in which decode stalls on a full store buffer
+    */
+    @Test
+    public void storeBufferStatisticsDontChange() {
+
+        for(SimulatorConfig.CoreType coreType : SimulatorConfig.CoreType.values()) {
+
+            Configuration configuration = newLongLatencyConfiguration();
+            configuration.setCoreType(coreType);
+            configuration.setStoreBufferSize(1);
+            configuration.setStoreBufferLatency(3);
+
+            assertSameStatistics(configuration);
+        }
+    }
+
+    private static Configuration newLongLatencyConfiguration() {
+
+        Configuration configuration = new Configuration();
+        configuration.setLatency(Operand.LDM, 40);
+        configuration.setLatency(Operand.MUL, 12);
+
+        return configuration;
+    }
+
+    private static void assertSameStatistics(Configuration configuration) {
+
+        configuration.setCycleSkipping(true);
+        Processor skipping = simulate(program, configuration.build());
+
+        configuration.setCycleSkipping(false);
+        Processor everyCycle = simulate(program, configuration.build());
+
+        Statistics expected = everyCycle.getStatistics();
+        Statistics actual = skipping.getStatistics();
+
+        assertEquals("Wrong cycles", expected.getCycles(), actual.getCycles());
+        assertEquals("Wrong instructions", expected.getInstructionsExecuted(), actual.getInstructionsExecuted());
+        assertEquals("Wrong correct branches", expected.getCorrectBranches(), actual.getCorrectBranches());
+        assertEquals("Wrong missed branches", expected.getMissedBranches(), actual.getMissedBranches());
+
+        if(everyCycle.getStoreBuffer() != null) {
+            assertEquals("Wrong store buffer stalls", everyCycle.getStoreBuffer().getFullStalls(),
+                    skipping.getStoreBuffer().getFullStalls());
+            assertEquals("Wrong forwarded loads", everyCycle.getStoreBuffer().getForwardedLoads(),
+                    skipping.getStoreBuffer().getForwardedLoads());
+        }
+
+        assertEquals("Loop not executed", 0x19, skipping.getMemory().loadWord(DATA_ADDRESS + 0x10));
+
+        for(int address = DATA_ADDRESS; address < DATA_ADDRESS + 0x14; address += 0x4) {
+            assertEquals("Wrong memory", everyCycle.getMemory().loadWord(address),
+                    skipping.getMemory().loadWord(address));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.mk0934.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.mk0934.simulator.Simulations.simulate;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class FrontEndTest {
+
+    private static final int EXTRA_STAGES = 3;
+
+    /**
+    *   Test case for filling a deeper front end once
+    */
+    @Test
+    public void fillsDeeperFrontEnd() {
+
+        Program program = new Program(Arrays.asList(
+                "    MOV r0, 0x1",
+                "    ADD r1, r0, 0x1",
+                "    ADD r2, r0, 0x2",
+                "    NOP"));
+
+        assertEquals("Wrong cycles", EXTRA_STAGES, getExtraCycles(program, SimulatorConfig.CoreType.IN_ORDER));
+        assertEquals("Wrong cycles", EXTRA_STAGES, getExtraCycles(program, SimulatorConfig.CoreType.OUT_OF_ORDER));
+    }
+
+    /**
+    *   Test case for redirects squashing every front-end stage
+    */
+    @Test
+    public void redirectRefillsFrontEnd() {
+
+        Program program = new Program(Arrays.asList(
+                "    MOV r0, 0x1",
+                "    JMP skip",
+                "    ADD r1, r0, 0x1",
+                "skip:",
+                "    ADD r2, r0, 0x2",
+                "    NOP"));
+
+        // Front end fills at the start and again after the jump
+        assertEquals("Wrong cycles", 2 * EXTRA_STAGES, getExtraCycles(program, SimulatorConfig.CoreType.IN_ORDER));
+        assertEquals("Wrong cycles", 2 * EXTRA_STAGES, getExtraCycles(program, SimulatorConfig.CoreType.OUT_OF_ORDER));
+    }
+
+    private static int getExtraCycles(Program program, SimulatorConfig.CoreType coreType) {
+
+        Configuration configuration = new Configuration();
+        configuration.setCoreType(coreType);
+
+        int cycles = simulate(program, configuration.build()).getStatistics().getCycles();
+
+        // One extra fetch stage and two extra decode stages
+        configuration.setFetchDepth(2);
+        configuration.setDecodeDepth(3);
+
+        return simulate(program, configuration.build()).getStatistics().getCycles() - cycles;
+    }
+}
@@ -0,0 +1,46 @@
+package org.mk0934.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mk0934.simulator.Simulations.simulate;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.mk0934.simulator.instructions.Operand;
+
+public class IssueQueueTest {
+
+    private static final int MUL_LATENCY = 10;
+
+    private static final Program program = new Program(Arrays.asList(
+            "    MOV r0, 0x3",
+            "    MUL r1, r0, r0",
+            "    ADD r2, r0, 0x1",
+            "    ADD r3, r2, 0x1",
+            "    ADD r4, r3, 0x1",
+            "    ADD r5, r4, 0x1",
+            "    MUL r6, r5, 0x2",
+            "    NOP"));
+
+    /**
+    *   Test case for instructions issuing to a free ALU instead of waiting behind a long MUL
+    */
+    @Test
+    public void issuesToFreeUnit() {
+
+        Configuration configuration = new Configuration();
+        configuration.setExecutionUnits(2);
+        configuration.setLatency(Operand.MUL, MUL_LATENCY);
+
+        Processor processor = simulate(program, configuration.build());
+        Statistics statistics = processor.getStatistics();
+
+        assertEquals("Wrong result", 0x9, processor.getRegisterFile().getRegister(1).getValue());
+        assertEquals("Wrong result", 0xE, processor.getRegisterFile().getRegister(6).getValue());
+
+        // Dependent ADDs run in the other ALU, so the second MUL overlaps the first one
+        assertTrue("ADDs waited for MUL", statistics.getCycles() < 2 * MUL_LATENCY + 4);
+        assertTrue("ALUs mostly idle", statistics.getAluUtilization() > 0.5);
+    }
+}
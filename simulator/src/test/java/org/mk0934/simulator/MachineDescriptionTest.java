@@ -0,0 +1,95 @@
+package org.mk0934.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mk0934.simulator.Simulations.simulate;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.junit.Test;
+import org.mk0934.simulator.instructions.Operand;
+
+public class MachineDescriptionTest {
+
+    private static final Program program = new Program(Arrays.asList(
+            "    MOV r0, 0x3",
+            "    MUL r1, r0, r0",
+            "    ADD r2, r0, 0x1",
+            "    MUL r3, r0, 0x2",
+            "    ADD r4, r0, 0x2",
+            "    MUL r5, r0, 0x4",
+            "    ADD r6, r0, 0x3",
+            "    NOP"));
+
+    /**
+    *   Test case for reading units and widths from a machine description
+    */
+    @Test
+    public void appliesMachineDescription() {
+
+        Properties properties = new Properties();
+        properties.setProperty("alu.units", "3");
+        properties.setProperty("mul.units", "1");
+        properties.setProperty("memory.units", "2");
+        properties.setProperty("issue.width", "3");
+
+        Configuration configuration = new Configuration();
+        configuration.setExecutionUnits(4);
+        configuration.applyMachineDescription(properties);
+
+        SimulatorConfig config = configuration.build();
+
+        assertEquals("Wrong number of ALUs", 3, config.getExecutionUnits());
+        assertEquals("Wrong number of multipliers", 1, config.getMultiplierUnits());
+        assertEquals("Wrong number of memory units", 2, config.getMemoryUnits());
+        assertEquals("Wrong number of vector units", 1, config.getVectorUnits());
+        assertEquals("Wrong issue width", 3, config.getIssueWidth());
+
+        // Widths that weren't described stay as they were
+        assertEquals("Wrong fetch width", 4, config.getFetchWidth());
+        assertEquals("Wrong decode width", 4, config.getDecodeWidth());
+        assertEquals("Wrong commit width", 4, config.getCommitWidth());
+    }
+
+    /**
+    *   Test case for unknown keys of a machine description
+    */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownKey() {
+
+        Properties properties = new Properties();
+        properties.setProperty("alus", "3");
+
+        new Configuration().applyMachineDescription(properties);
+    }
+
+    /**
+    *   Test case for MUL executing in its own unit next to the ALU
+    */
+    @Test
+    public void multiplierRunsNextToAlu() {
+
+        for(SimulatorConfig.CoreType coreType : SimulatorConfig.CoreType.values()) {
+
+            Configuration configuration = new Configuration();
+            configuration.setCoreType(coreType);
+            configuration.setLatency(Operand.MUL, 4);
+            configuration.setAluUnits(1);
+
+            Processor shared = simulate(program, configuration.build());
+
+            configuration.setMultiplierUnits(1);
+            Processor separate = simulate(program, configuration.build());
+
+            for(int i = 1; i <= 6; i++) {
+                assertEquals("Wrong result", shared.getRegisterFile().getRegister(i).getValue(),
+                        separate.getRegisterFile().getRegister(i).getValue());
+            }
+
+            assertEquals("Wrong result", 0x9, separate.getRegisterFile().getRegister(1).getValue());
+            assertTrue("ADD waited for MUL in " + coreType,
+                    separate.getStatistics().getCycles() < shared.getStatistics().getCycles());
+        }
+    }
+}
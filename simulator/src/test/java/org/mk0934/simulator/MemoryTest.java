@@ -27,4 +27,30 @@ public class MemoryTest {
         assertEquals("Value at 0x8 is not right", valueToStore, memory.getFromMemory(0x8));
         assertEquals("Value at 0xC is not right", valueToStore, memory.getFromMemory(0xC));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testStoreWordPastEnd() {
+
+        Memory memory = new Memory();
+        memory.storeWord(0x10000, 0x42);
+
+        assertEquals("Value at 0x10000 is not right", 0x42, memory.loadWord(0x10000));
+        assertEquals("Untouched memory should read as zero", 0x0, memory.loadWord(0x8000));
+        assertEquals("Memory past the end should read as zero", 0x0, memory.loadWord(0x20000));
+    }
+
+    @Test
+    public void testSparseMemoryAllocatesTouchedPagesOnly() {
+
+        Memory memory = new Memory();
+        memory.storeWord(0x0, 0x1);
+        memory.storeWord(0x40000000, 0x2);
+        memory.storeWord(0x40000004, 0x3);
+
+        assertEquals("Value at 0x0 is not right", 0x1, memory.loadWord(0x0));
+        assertEquals("Value at 0x40000000 is not right", 0x2, memory.loadWord(0x40000000));
+        assertEquals("Value at 0x40000004 is not right", 0x3, memory.loadWord(0x40000004));
+        assertEquals("Only touched pages should be allocated", 2, memory.getPageCount());
+        assertEquals("Gap should be skipped", 0x40000000, memory.nextMappedAddress(0x1000));
+    }
+}
@@ -0,0 +1,51 @@
+package org.mk0934.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class RingBufferTest {
+
+    /**
+    *   Test case for keeping FIFO order when indices wrap around
+    */
+    @Test
+    public void keepsOrderAcrossWrapAround() {
+
+        RingBuffer<Integer> buffer = new RingBuffer<>(3);
+
+        for(int i = 0; i < 10; i++) {
+            buffer.addLast(i);
+            buffer.addLast(i + 100);
+
+            assertEquals("Wrong first element", i, (int)buffer.removeFirst());
+            assertEquals("Wrong second element", i + 100, (int)buffer.removeFirst());
+        }
+
+        assertTrue("Buffer should be empty", buffer.isEmpty());
+
+        buffer.addLast(1);
+        buffer.addLast(2);
+        buffer.addLast(3);
+
+        assertTrue("Buffer should be full", buffer.isFull());
+        assertEquals("Wrong element by index", 2, (int)buffer.get(1));
+
+        buffer.clear();
+
+        assertFalse("Buffer should not be full", buffer.isFull());
+        assertEquals("Buffer should be empty", null, buffer.peek());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsElementsPastCapacity() {
+
+        RingBuffer<Integer> buffer = new RingBuffer<>(2);
+
+        buffer.addLast(1);
+        buffer.addLast(2);
+        buffer.addLast(3);
+    }
+}
@@ -0,0 +1,39 @@
+package org.mk0934.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.mk0934.simulator.instructions.DecodedInstruction;
+import org.mk0934.simulator.instructions.EncodedInstruction;
+
+public class ScoreboardTest {
+
+    /**
+    *   Test case for read after write and write after write hazards
+    */
+    @Test
+    public void detectsHazardsUntilRelease() {
+
+        Processor proc = new Processor(new Memory());
+        Scoreboard scoreboard = new Scoreboard(proc.getRegisterFile().getCount());
+
+        DecodedInstruction writer = new EncodedInstruction("ADD r1, r2, r3").decode(proc);
+        DecodedInstruction reader = new EncodedInstruction("SUB r4, r1, r5").decode(proc);
+        DecodedInstruction overwriter = new EncodedInstruction("MOV r1, 0x1").decode(proc);
+        DecodedInstruction independent = new EncodedInstruction("MUL r6, r2, r3").decode(proc);
+
+        scoreboard.issue(writer);
+
+        assertTrue("RAW hazard not detected", scoreboard.hasHazard(reader));
+        assertTrue("WAW hazard not detected", scoreboard.hasHazard(overwriter));
+        assertFalse("Independent instruction blocked", scoreboard.hasHazard(independent));
+        assertEquals("Wrong blocking instruction", writer, scoreboard.getBlockingInstruction(reader));
+
+        scoreboard.release(writer);
+
+        assertFalse("Hazard after release", scoreboard.hasHazard(reader));
+        assertTrue("Scoreboard not empty", scoreboard.isEmpty());
+    }
+}
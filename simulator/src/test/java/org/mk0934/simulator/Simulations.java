@@ -0,0 +1,49 @@
+package org.mk0934.simulator;
+
+/**
+ * Fixture shared by the tests simulating whole programs
+ *
+ * @author Maciej Kumorek
+ */
+public final class Simulations {
+
+    /**
+     * Line size of the default caches
+     */
+    public static final int LINE = 64;
+
+    /**
+     * Default cycles of an access missing every cache
+     */
+    public static final int MEMORY_LATENCY = 100;
+
+    /**
+     * Cycles between accesses that don't overlap
+     */
+    public static final int LATER = 1000;
+
+    private Simulations() {
+    }
+
+    /**
+     * @return Processor with the program loaded into its memory, not simulated yet
+     */
+    public static Processor load(Program program, SimulatorConfig config) {
+
+        Memory memory = new Memory();
+        memory.LoadProgram(program);
+
+        return new Processor(memory, config);
+    }
+
+    /**
+     * @return Processor that ran the program to the end
+     */
+    public static Processor simulate(Program program, SimulatorConfig config) {
+
+        Processor processor = load(program, config);
+        processor.simulate();
+
+        return processor;
+    }
+}
@@ -0,0 +1,149 @@
+package org.mk0934.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mk0934.simulator.Simulations.simulate;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.mk0934.simulator.instructions.Operand;
+
+public class StoreBufferTest {
+
+    private static final int MUL_LATENCY = 20;
+
+    /**
+    *   Test case for a load finishing in another unit in the same cycle as an older store to its address
+    */
+    @Test
+    public void loadWaitsForStoreWriteBack() {
+
+        Program program = new Program(Arrays.asList(
+                "    MOV r0, 0x0",
+                "    MOV r5, 0x7",
+                "    STM r5, r0, data",
+                "    LDM r1, r0, data",
+                "    ADD r2, r1, 0x1",
+                "    NOP",
+                "data:",
+                "    0x1"));
+
+        for(int storeBufferSize : new int[] { 0, 1, 4 }) {
+
+            Configuration configuration = new Configuration();
+            configuration.setExecutionUnits(2);
+            configuration.setStoreBufferSize(storeBufferSize);
+
+            Processor processor = simulate(program, configuration.build());
+
+            assertEquals("Stale value loaded", 0x8, processor.getRegisterFile().getRegister(2).getValue());
+        }
+    }
+
+    /**
+    *   Test case for a load taking the value of an older store that can't commit yet
+    */
+    @Test
+    public void forwardsBeforeCommit() {
+
+        Program program = new Program(Arrays.asList(
+                "    MOV r0, 0x0",
+                "    MOV r5, 0x7",
+                "    MUL r6, r5, r5",
+                "    STM r5, r0, data",
+                "    LDM r1, r0, data",
+                "    MUL r2, r1, r1",
+                "    NOP",
+                "data:",
+                "    0x1"));
+
+        Configuration configuration = new Configuration();
+        configuration.parseConfigurationOption("-ooo");
+        configuration.setLatency(Operand.MUL, MUL_LATENCY);
+
+        Processor serialized = simulate(program, configuration.build());
+
+        configuration.setStoreBufferSize(4);
+
+        Processor forwarded = simulate(program, configuration.build());
+
+        assertEquals("Wrong result", 0x31, forwarded.getRegisterFile().getRegister(2).getValue());
+        assertEquals("Load not forwarded", 1, forwarded.getStoreBuffer().getForwardedLoads());
+
+        // Load doesn't wait for the first MUL to commit
+        assertTrue("Forwarding didn't help",
+                forwarded.getStatistics().getCycles() + MUL_LATENCY / 2 < serialized.getStatistics().getCycles());
+    }
+
+    /**
+    *   Test case for vector loads waiting for values a vector store reads when it commits
+    */
+    @Test
+    public void vectorLoadWaitsForStoreValues() {
+
+        Program program = new Program(Arrays.asList(
+                "    MOV r0, 0x0",
+                "    MOV r4, 0x1",
+                "    MOV r5, 0x2",
+                "    MOV r6, 0x3",
+                "    MOV r7, 0x4",
+                "    STM r4, r0, array",
+                "    VSTM r4, r0, array",
+                "    LDM r1, r0, array",
+                "    VLDM r8, r0, array",
+                "    NOP",
+                "array:",
+                "    0x0",
+                "    0x0",
+                "    0x0",
+                "    0x0"));
+
+        for(boolean isOutOfOrder : new boolean[] { false, true }) {
+
+            Configuration configuration = new Configuration();
+            configuration.setStoreBufferSize(2);
+
+            if(isOutOfOrder) {
+                configuration.parseConfigurationOption("-ooo");
+            }
+
+            Processor processor = simulate(program, configuration.build());
+            RegisterFile registerFile = processor.getRegisterFile();
+
+            assertEquals("Wrong scalar load", 0x1, registerFile.getRegister(1).getValue());
+
+            for(int i = 0; i < 4; i++) {
+                assertEquals("Wrong vector load", i + 1, registerFile.getRegister(8 + i).getValue());
+            }
+
+            assertTrue("Buffer didn't drain", processor.getStoreBuffer().isEmpty());
+        }
+    }
+
+    /**
+    *   Test case for decode stalling while the buffer is full and stores draining through the caches
+    */
+    @Test
+    public void stallsWhenFull() {
+
+        Program program = new Program(Arrays.asList(
+                "    MOV r0, 0x0",
+                "    MOV r1, 0x5",
+                "    STM r1, r0, 0x400",
+                "    STM r1, r0, 0x800",
+                "    STM r1, r0, 0xC00",
+                "    LDM r2, r0, 0x800",
+                "    NOP"));
+
+        Configuration configuration = new Configuration();
+        configuration.setCaches(true);
+        configuration.setStoreBufferSize(1);
+
+        Processor processor = simulate(program, configuration.build());
+
+        assertEquals("Wrong result", 0x5, processor.getRegisterFile().getRegister(2).getValue());
+        assertEquals("Store lost", 0x5, processor.getMemory().loadWord(0xC00));
+        assertTrue("Decode didn't stall", processor.getStoreBuffer().getFullStalls() > 0);
+    }
+}
@@ -0,0 +1,233 @@
+package org.mk0934.simulator.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mk0934.simulator.Simulations.LATER;
+import static org.mk0934.simulator.Simulations.LINE;
+import static org.mk0934.simulator.Simulations.MEMORY_LATENCY;
+import static org.mk0934.simulator.Simulations.simulate;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.junit.Test;
+import org.mk0934.simulator.Configuration;
+import org.mk0934.simulator.Processor;
+import org.mk0934.simulator.Program;
+import org.mk0934.simulator.SimulatorConfig;
+
+public class CacheTest {
+
+    /**
+    *   Test case for evicting the least recently used line
+    */
+    @Test
+    public void lruEvictsLeastRecentlyUsed() {
+
+        Cache cache = newCache(ReplacementPolicy.LRU, 4);
+
+        touchAll(cache, 0, 1, 2, 3, 0);
+        cache.access(4 * LINE, false, 5 * LATER);
+
+        assertTrue("Recently used line evicted", cache.contains(0));
+        assertFalse("Least recently used line stayed", cache.contains(LINE));
+    }
+
+    /**
+    *   Test case for evicting the line the pseudo-LRU tree points to
+    */
+    @Test
+    public void plruFollowsTree() {
+
+        Cache cache = newCache(ReplacementPolicy.PLRU, 4);
+
+        // Using line 0 points the root to lines 2 and 3, using line 3 points to line 2
+        touchAll(cache, 0, 1, 2, 3, 0);
+        cache.access(4 * LINE, false, 5 * LATER);
+
+        assertTrue("Line 1 evicted", cache.contains(LINE));
+        assertFalse("Line 2 stayed", cache.contains(2 * LINE));
+    }
+
+    /**
+    *   Test case for random replacement repeating between simulations
+    */
+    @Test
+    public void randomIsRepeatable() {
+
+        Cache first = newCache(ReplacementPolicy.RANDOM, 4);
+        Cache second = newCache(ReplacementPolicy.RANDOM, 4);
+
+        for(int i = 0; i < 100; i++) {
+            int line = (i * 7) % 9;
+            first.access(line * LINE, false, i * LATER);
+            second.access(line * LINE, false, i * LATER);
+        }
+
+        assertEquals("Different misses", first.getMisses(), second.getMisses());
+        assertTrue("Nothing was evicted", first.getMisses() > 9);
+    }
+
+    /**
+    *   Test case for miss latency adding up over levels, and dirty lines written back on eviction
+    */
+    @Test
+    public void missesGoToNextLevel() {
+
+        Cache l2 = new Cache(new CacheConfig(4 * LINE, 4, LINE, ReplacementPolicy.LRU, true, true, 12, 4),
+                null, MEMORY_LATENCY);
+        Cache l1 = new Cache(new CacheConfig(LINE, 1, LINE, ReplacementPolicy.LRU, true, true, 4, 4),
+                l2, MEMORY_LATENCY);
+
+        assertEquals("Wrong miss latency", 4 + 12 + MEMORY_LATENCY, l1.access(0x0, true, 0));
+        assertEquals("Wrong hit latency", 4, l1.access(0x4, false, LATER));
+
+        // Evicts the dirty line, which then hits in the L2
+        assertEquals("Wrong miss latency", 4 + 12 + MEMORY_LATENCY, l1.access(LINE, false, 2 * LATER));
+        assertEquals("Wrong write-backs", 1, l1.getWriteBacks());
+        assertEquals("Wrong L2 hits", 1, l2.getHits());
+        assertEquals("Wrong L2 misses", 2, l2.getMisses());
+    }
+
+    /**
+    *   Test case for stores going through to the next level
+    */
+    @Test
+    public void writeThroughNoAllocate() {
+
+        Cache cache = new Cache(new CacheConfig(LINE, 1, LINE, ReplacementPolicy.LRU, false, false, 4, 4),
+                null, MEMORY_LATENCY);
+
+        assertEquals("Wrong store miss latency", 4 + MEMORY_LATENCY, cache.access(0x0, true, 0));
+        assertFalse("Store miss allocated the line", cache.contains(0x0));
+
+        cache.access(0x0, false, LATER);
+
+        assertEquals("Wrong store hit latency", 4 + MEMORY_LATENCY, cache.access(0x0, true, 2 * LATER));
+        cache.access(LINE, false, 3 * LATER);
+        assertEquals("Clean lines written back", 0, cache.getWriteBacks());
+    }
+
+    /**
+    *   Test case for a load of the same line hitting in the L1D once the line arrived
+    */
+    @Test
+    public void loadsHitAfterMiss() {
+
+        Program program = new Program(Arrays.asList(
+                "    MOV r0, 0x0",
+                "    LDM r1, r0, data",
+                "    SUB r4, r1, r1",
+                "    LDM r2, r4, data",
+                "    ADD r3, r1, r2",
+                "    NOP",
+                "data:",
+                "    0x5"));
+
+        Properties properties = new Properties();
+        properties.setProperty("l1d.ways", "2");
+        properties.setProperty("l1d.size", "256");
+
+        Configuration configuration = new Configuration();
+        configuration.setCaches(true);
+        configuration.applyMachineDescription(properties);
+
+        SimulatorConfig config = configuration.build();
+
+        assertEquals("Wrong L1D size", 256, config.getCacheConfig(CacheLevel.L1D).getSize());
+
+        Processor processor = simulate(program, config);
+        int cycles = processor.getStatistics().getCycles();
+
+        Cache l1d = processor.getMemoryHierarchy().getCache(CacheLevel.L1D);
+
+        assertEquals("Wrong result", 0xA, processor.getRegisterFile().getRegister(3).getValue());
+        assertEquals("Wrong L1D accesses", 2, l1d.getAccesses());
+        assertEquals("Wrong L1D hits", 1, l1d.getHits());
+        assertTrue("Miss didn't reach the memory", cycles > MEMORY_LATENCY);
+    }
+
+    /**
+    *   Test case for misses to a line on its way waiting for the same fill
+    */
+    @Test
+    public void mergesMissesToSameLine() {
+
+        Cache cache = new Cache(new CacheConfig(4 * LINE, 4, LINE, ReplacementPolicy.LRU, true, true, 4, 4),
+                null, MEMORY_LATENCY);
+
+        assertEquals("Wrong miss latency", 4 + MEMORY_LATENCY, cache.access(0x0, false, 0));
+        assertEquals("Wrong merged latency", 4 + MEMORY_LATENCY - 10, cache.access(0x8, false, 10));
+        assertEquals("Wrong hit latency", 4, cache.access(0xC, false, LATER));
+
+        assertEquals("Wrong merged misses", 1, cache.getMergedMisses());
+        assertEquals("Wrong hits", 1, cache.getHits());
+    }
+
+    /**
+    *   Test case for misses waiting for a free MSHR, and a blocking cache
+    */
+    @Test
+    public void missesWaitForFreeMshr() {
+
+        Cache cache = new Cache(new CacheConfig(4 * LINE, 4, LINE, ReplacementPolicy.LRU, true, true, 4, 2),
+                null, MEMORY_LATENCY);
+
+        cache.access(0x0, false, 0);
+        cache.access(LINE, false, 0);
+
+        // Both registers wait for lines until cycle 104
+        assertEquals("Wrong miss latency", 2 * (4 + MEMORY_LATENCY), cache.access(2 * LINE, false, 0));
+        assertEquals("Wrong hit latency", 4, cache.access(2 * LINE, false, LATER));
+        assertEquals("Wrong MSHR stalls", 1, cache.getMshrStalls());
+
+        Cache blocking = new Cache(new CacheConfig(4 * LINE, 4, LINE, ReplacementPolicy.LRU, true, true, 4, 0),
+                null, MEMORY_LATENCY);
+
+        blocking.access(0x0, false, 0);
+        blocking.access(LINE, false, LATER);
+
+        // Hit starts once the outstanding miss is filled
+        assertEquals("Hit under miss", 4 + MEMORY_LATENCY + 4, blocking.access(0x0, false, LATER));
+    }
+
+    /**
+    *   Test case for independent loads of different lines overlapping their misses
+    */
+    @Test
+    public void overlapsMissesInMemoryUnit() {
+
+        Program program = new Program(Arrays.asList(
+                "    MOV r0, 0x0",
+                "    LDM r1, r0, 0x400",
+                "    LDM r2, r0, 0x800",
+                "    LDM r3, r0, 0xC00",
+                "    LDM r4, r0, 0x1000",
+                "    NOP"));
+
+        Configuration configuration = new Configuration();
+        configuration.setCaches(true);
+        configuration.setMemoryUnits(1);
+
+        int overlapped = simulate(program, configuration.build()).getStatistics().getCycles();
+
+        // Port keeps a single access in flight
+        configuration.setMemoryOutstanding(1);
+
+        int serialized = simulate(program, configuration.build()).getStatistics().getCycles();
+
+        // Three of the four misses are hidden behind the first one
+        assertTrue("Misses didn't overlap", overlapped + 3 * MEMORY_LATENCY < serialized);
+    }
+
+    private static Cache newCache(ReplacementPolicy policy, int ways) {
+        return new Cache(new CacheConfig(ways * LINE, ways, LINE, policy, true, true, 1, 4), null, MEMORY_LATENCY);
+    }
+
+    private static void touchAll(Cache cache, int... lines) {
+        for(int i = 0; i < lines.length; i++) {
+            cache.access(lines[i] * LINE, false, i * LATER);
+        }
+    }
+}
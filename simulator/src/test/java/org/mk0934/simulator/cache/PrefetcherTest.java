@@ -0,0 +1,126 @@
+package org.mk0934.simulator.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mk0934.simulator.Simulations.LATER;
+import static org.mk0934.simulator.Simulations.LINE;
+import static org.mk0934.simulator.Simulations.MEMORY_LATENCY;
+import static org.mk0934.simulator.Simulations.simulate;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.mk0934.simulator.Configuration;
+import org.mk0934.simulator.Program;
+
+public class PrefetcherTest {
+
+    private static final int LOAD = 0x40;
+
+    /**
+    *   Test case for the stride prefetcher waiting for a load to repeat its stride
+    */
+    @Test
+    public void strideFollowsRepeatedStride() {
+
+        Prefetcher prefetcher = new StridePrefetcher(16, 2, 1);
+        int[] addresses = new int[2];
+
+        assertEquals("Prefetched untrained load", 0, prefetcher.train(LOAD, 0x100, true, addresses));
+        assertEquals("Prefetched after one stride", 0, prefetcher.train(LOAD, 0x110, true, addresses));
+        assertEquals("Prefetched after two strides", 0, prefetcher.train(LOAD, 0x120, true, addresses));
+        assertEquals("Stride not prefetched", 2, prefetcher.train(LOAD, 0x130, false, addresses));
+        assertEquals("Wrong first address", 0x140, addresses[0]);
+        assertEquals("Wrong second address", 0x150, addresses[1]);
+
+        // Another load at the same entry starts over
+        assertEquals("Kept entry of another load", 0, prefetcher.train(LOAD + 16 * 4, 0x140, true, addresses));
+    }
+
+    /**
+    *   Test case for the stream prefetcher running ahead of loads walking the lines in order
+    */
+    @Test
+    public void streamRunsAheadOfLoads() {
+
+        MemoryHierarchy hierarchy = newHierarchy(new PrefetchConfig(PrefetcherType.STREAM, 2, 1, 64));
+        Cache cache = hierarchy.getDataCache();
+
+        for(int line = 0; line < 8; line++) {
+            hierarchy.accessData(LOAD, line * LINE, 1, false, line * LATER);
+        }
+
+        // Only the first line misses, each prefetched line brings the one after the next
+        assertEquals("Wrong misses", 1, cache.getMisses());
+        assertEquals("Wrong prefetches", 9, cache.getPrefetches());
+        assertEquals("Wrong prefetch hits", 7, cache.getPrefetchHits());
+        assertEquals("Wrong coverage", 7 / 8.0, cache.getPrefetchCoverage(), 1e-9);
+        assertEquals("Wrong timeliness", 1.0, cache.getPrefetchTimeliness(), 1e-9);
+    }
+
+    /**
+    *   Test case for a load using a prefetched line still on its way
+    */
+    @Test
+    public void countsLatePrefetches() {
+
+        MemoryHierarchy hierarchy = newHierarchy(new PrefetchConfig(PrefetcherType.STREAM, 1, 1, 64));
+        Cache cache = hierarchy.getDataCache();
+
+        hierarchy.accessData(LOAD, 0x0, 1, false, 0);
+
+        // Prefetch of the next line started in cycle 0 and arrives in cycle 104
+        assertEquals("Didn't wait for prefetch", 4 + MEMORY_LATENCY - 10,
+                hierarchy.accessData(LOAD, LINE, 1, false, 10));
+        assertEquals("Wrong late prefetches", 1, cache.getLatePrefetches());
+        assertEquals("Wrong timeliness", 0.0, cache.getPrefetchTimeliness(), 1e-9);
+
+        // Stores don't train the prefetcher
+        hierarchy.accessData(LOAD, 8 * LINE, 1, true, LATER);
+
+        assertEquals("Store trained prefetcher", 2, cache.getPrefetches());
+    }
+
+    /**
+    *   Test case for prefetching hiding misses of a loop loading a word of each line
+    */
+    @Test
+    public void hidesMissesOfLoop() {
+
+        Program program = new Program(Arrays.asList(
+                "    MOV r0, 0x0",
+                "    MOV r2, 0x0",
+                "loop:",
+                "    CMP r3, r0, 0x800",
+                "    BGE r3, end",
+                "    LDM r1, r0, 0x1000",
+                "    ADD r2, r2, r1",
+                "    ADD r0, r0, 0x40",
+                "    JMP loop",
+                "end:",
+                "    NOP"));
+
+        Configuration configuration = new Configuration();
+        configuration.setCaches(true);
+
+        int withoutPrefetcher = simulate(program, configuration.build()).getStatistics().getCycles();
+
+        for(PrefetcherType type : PrefetcherType.values()) {
+
+            configuration.setPrefetch(PrefetchConfig.getDefault(type));
+
+            int withPrefetcher = simulate(program, configuration.build()).getStatistics().getCycles();
+
+            assertTrue("Prefetching didn't help " + type, withPrefetcher + 2 * MEMORY_LATENCY < withoutPrefetcher);
+        }
+    }
+
+    private static MemoryHierarchy newHierarchy(PrefetchConfig prefetchConfig) {
+
+        CacheConfig[] configs = new CacheConfig[CacheLevel.values().length];
+        configs[CacheLevel.L1D.ordinal()] = new CacheConfig(64 * LINE, 4, LINE, ReplacementPolicy.LRU,
+                true, true, 4, 4);
+
+        return new MemoryHierarchy(configs, MEMORY_LATENCY, prefetchConfig, null);
+    }
+}
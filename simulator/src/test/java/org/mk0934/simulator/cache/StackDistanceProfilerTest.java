@@ -0,0 +1,121 @@
+package org.mk0934.simulator.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mk0934.simulator.Simulations.LATER;
+import static org.mk0934.simulator.Simulations.LINE;
+import static org.mk0934.simulator.Simulations.MEMORY_LATENCY;
+import static org.mk0934.simulator.Simulations.simulate;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import org.mk0934.simulator.Configuration;
+import org.mk0934.simulator.Program;
+import org.mk0934.simulator.SimulatorConfig;
+
+public class StackDistanceProfilerTest {
+
+    /**
+    *   Test case for stack distances of a small trace
+    */
+    @Test
+    public void countsDistinctLinesSinceLastUse() {
+
+        StackDistanceProfiler profiler = new StackDistanceProfiler(LINE);
+
+        // Lines A B C B A, the second A has two other lines since
+        for(int line : new int[] { 0, 1, 2, 1, 0 }) {
+            profiler.access(line * LINE, 1);
+        }
+
+        assertEquals("Wrong accesses", 5, profiler.getAccesses());
+        assertEquals("Wrong cold misses", 3, profiler.getColdMisses());
+        assertEquals("Wrong misses of 2 lines", 4, profiler.getMisses(2 * LINE, 0));
+        assertEquals("Wrong misses of 4 lines", 3, profiler.getMisses(4 * LINE, 0));
+
+        // Words in two lines are two accesses
+        profiler.access(LINE - 4, 2);
+
+        assertEquals("Wrong accesses", 7, profiler.getAccesses());
+    }
+
+    /**
+    *   Test case for the misses of every geometry matching simulated LRU caches
+    */
+    @Test
+    public void matchesSimulatedCaches() {
+
+        Random random = new Random(42);
+        int[] addresses = new int[20000];
+
+        // Mostly a small working set, with a few far away lines to make the trees compact
+        for(int i = 0; i < addresses.length; i++) {
+            addresses[i] = random.nextInt(4) == 0
+                    ? random.nextInt(16 * 1024) * LINE
+                    : random.nextInt(96) * LINE + random.nextInt(LINE / 4) * 4;
+        }
+
+        StackDistanceProfiler profiler = new StackDistanceProfiler(LINE);
+
+        for(int address : addresses) {
+            profiler.access(address, 1);
+        }
+
+        for(int size = LINE; size <= 16 * 1024; size *= 2) {
+            for(int associativity = 1; associativity <= 16 && associativity * LINE <= size; associativity *= 2) {
+
+                Cache cache = new Cache(new CacheConfig(size, associativity, LINE, ReplacementPolicy.LRU,
+                        true, true, 1, 4), null, MEMORY_LATENCY);
+
+                for(int i = 0; i < addresses.length; i++) {
+                    cache.access(addresses[i], false, i * LATER);
+                }
+
+                assertEquals("Wrong misses of " + size + "B " + associativity + "-way",
+                        cache.getMisses(), profiler.getMisses(size, associativity));
+            }
+        }
+    }
+
+    /**
+    *   Test case for the processor recording the loads and stores it retires
+    */
+    @Test
+    public void processorRecordsRetiredAccesses() {
+
+        Program program = new Program(Arrays.asList(
+                "    MOV r0, 0x0",
+                "loop:",
+                "    CMP r3, r0, 0x100",
+                "    BGE r3, end",
+                "    LDM r1, r0, 0x1000",
+                "    STM r1, r0, 0x2000",
+                "    ADD r0, r0, 0x4",
+                "    JMP loop",
+                "end:",
+                "    NOP"));
+
+        Configuration configuration = new Configuration();
+
+        assertNull("Profiled without the option", simulate(program, configuration.build()).getStackDistanceProfiler());
+
+        configuration.setMissRatioLineSize(LINE);
+
+        for(SimulatorConfig.CoreType coreType : SimulatorConfig.CoreType.values()) {
+
+            configuration.setCoreType(coreType);
+
+            StackDistanceProfiler profiler = simulate(program, configuration.build()).getStackDistanceProfiler();
+
+            assertNotNull("Not profiled", profiler);
+            assertEquals("Wrong accesses", 128, profiler.getAccesses());
+
+            // Four lines loaded and four stored, each missing once
+            assertEquals("Wrong cold misses", 8, profiler.getColdMisses());
+            assertEquals("Wrong misses of a large cache", 8, profiler.getMisses(1024, 0));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.mk0934.simulator.dram;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mk0934.simulator.Simulations.LATER;
+import static org.mk0934.simulator.Simulations.LINE;
+import static org.mk0934.simulator.Simulations.simulate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Test;
+import org.mk0934.simulator.Configuration;
+import org.mk0934.simulator.Processor;
+import org.mk0934.simulator.Program;
+
+public class DramControllerTest {
+
+    /**
+     * Row of the default configuration in the same bank as row 0
+     */
+    private static final int OTHER_ROW = 8 * 2048;
+
+    private static final int CONTROLLER = 20;
+    private static final int RCD = 30;
+    private static final int CAS = 30;
+    private static final int RP = 30;
+    private static final int BURST = 8;
+
+    /**
+    *   Test case for latencies of row misses, row hits and row conflicts
+    */
+    @Test
+    public void rowHitsAreCheaperThanConflicts() {
+
+        DramController dram = new DramController(DramConfig.getDefault(), LINE);
+
+        assertEquals("Wrong row miss latency", CONTROLLER + RCD + CAS + BURST, dram.access(0x0, false, 0));
+        assertEquals("Wrong row hit latency", CONTROLLER + CAS + BURST, dram.access(LINE, false, LATER));
+        assertEquals("Wrong row conflict latency", CONTROLLER + RP + RCD + CAS + BURST,
+                dram.access(OTHER_ROW, false, 2 * LATER));
+
+        assertEquals("Wrong row hits", 1, dram.getRowHits());
+        assertEquals("Wrong row misses", 1, dram.getRowMisses());
+        assertEquals("Wrong row conflicts", 1, dram.getRowConflicts());
+
+        DramController closed = new DramController(
+                DramConfig.getDefault().withParameters(parameters("policy", "closed")), LINE);
+
+        closed.access(0x0, false, 0);
+
+        assertEquals("Closed page kept the row", CONTROLLER + RCD + CAS + BURST, closed.access(LINE, false, LATER));
+        assertEquals("Wrong row hits", 0, closed.getRowHits());
+    }
+
+    /**
+    *   Test case for transfers taking turns on the bus of a channel
+    */
+    @Test
+    public void channelsLimitBandwidth() {
+
+        for(int channels : new int[] { 1, 2 }) {
+
+            DramController dram = new DramController(
+                    DramConfig.getDefault().withParameters(parameters("channels", Integer.toString(channels))), LINE);
+            int latency = 0;
+
+            for(int line = 0; line < 8; line++) {
+                latency = dram.access(line * LINE, false, 0);
+            }
+
+            // First line of each channel opens its row, the rest wait for the bus
+            assertEquals("Wrong latency of last line", CONTROLLER + RCD + CAS + (8 / channels) * BURST, latency);
+        }
+    }
+
+    /**
+    *   Test case for a row hit going ahead of an older request closing the row
+    */
+    @Test
+    public void servesOpenRowFirst() {
+
+        DramController dram = new DramController(DramConfig.getDefault(), LINE);
+
+        dram.access(0x0, false, 0);
+        dram.access(OTHER_ROW, false, 0);
+
+        // Row 0 stays open until the first access finishes, its line is on the bus first
+        int firstDone = CONTROLLER + RCD + CAS + BURST;
+
+        assertEquals("Waited for the row conflict", firstDone + BURST - 10, dram.access(LINE, false, 10));
+        assertEquals("Wrong reordered requests", 1, dram.getReorderedRequests());
+
+        // Conflict closed row 0 in the meantime
+        assertEquals("Wrong row conflict latency", CONTROLLER + RP + RCD + CAS + BURST,
+                dram.access(2 * LINE, false, LATER));
+    }
+
+    /**
+    *   Test case for row hits going ahead of a conflict taking turns on the bus
+    */
+    @Test
+    public void reorderedHitsShareBus() {
+
+        DramController dram = new DramController(DramConfig.getDefault(), LINE);
+
+        // Row 0 opens while its bank and the bus are idle
+        dram.access(0x0, false, 0);
+        dram.access(OTHER_ROW, false, 0);
+
+        int first = dram.access(LINE, false, 0);
+        int second = dram.access(2 * LINE, false, 0);
+        int third = dram.access(3 * LINE, false, 0);
+
+        assertEquals("Wrong reordered requests", 3, dram.getReorderedRequests());
+        assertEquals("Hits overlapped on the bus", first + BURST, second);
+        assertEquals("Hits overlapped on the bus", second + BURST, third);
+
+        // Conflict kept its latency, later requests wait for the hits on the bus
+        assertTrue("Bus wasn't busy with the hits", dram.access(4 * LINE + OTHER_ROW, false, 0) > third + BURST);
+    }
+
+    /**
+    *   Test case for independent loads of many lines running into the bandwidth of one channel
+    */
+    @Test
+    public void widerMachineIsBandwidthLimited() {
+
+        List<String> lines = new ArrayList<>();
+
+        lines.add("    MOV r0, 0x0");
+
+        // Registers are reused as late as possible, so loads don't wait for older ones
+        for(int i = 0; i < 30; i++) {
+            lines.add(String.format("    LDM r%d, r0, 0x%x", 1 + i % 15, 0x1000 + i * LINE));
+        }
+
+        lines.add("    NOP");
+
+        Program program = new Program(lines);
+
+        Configuration configuration = new Configuration();
+        configuration.setExecutionUnits(4);
+        configuration.setCaches(true);
+        configuration.setDram(DramConfig.getDefault());
+
+        // Enough misses in flight to keep the bus busy
+        Properties properties = new Properties();
+        properties.setProperty("l1d.mshrs", "32");
+        properties.setProperty("l2.mshrs", "32");
+        configuration.applyMachineDescription(properties);
+
+        Processor narrow = simulate(program, configuration.build());
+
+        configuration.setDram(DramConfig.getDefault().withParameters(parameters("channels", "4")));
+
+        Processor wide = simulate(program, configuration.build());
+
+        int narrowCycles = narrow.getStatistics().getCycles();
+        int wideCycles = wide.getStatistics().getCycles();
+
+        // Every line is a transfer on the bus
+        assertTrue("Bus didn't limit bandwidth", wideCycles + 10 * BURST < narrowCycles);
+        assertTrue("Bus wasn't busy",
+                narrow.getMemoryHierarchy().getDram().getBusUtilization(narrowCycles) > 0.4);
+    }
+
+    private static Map<String, String> parameters(String name, String value) {
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(name, value);
+
+        return parameters;
+    }
+}
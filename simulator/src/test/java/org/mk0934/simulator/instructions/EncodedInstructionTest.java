@@ -9,6 +9,7 @@ import org.junit.runners.JUnit4;
 import org.mk0934.simulator.Memory;
 import org.mk0934.simulator.Processor;
 import org.mk0934.simulator.RegisterFile;
+import org.mk0934.simulator.Status;
 import org.mk0934.simulator.instructions.DecodedInstruction;
 import org.mk0934.simulator.instructions.Instruction;
 import org.mk0934.simulator.instructions.EncodedInstruction;
@@ -61,4 +62,58 @@ public class EncodedInstructionTest {
         assertEquals("MUL operand not parsed", expectedOperand, decodedInstruction.getOperand());
         assertEquals("Label is not assigned", "label1", instruction.getLabel());
     }
-}
\ No newline at end of file
+
+    /**
+    *   Test case for decoding instruction assembled into the instruction segment
+    */
+    @Test
+    public void decodesFromInstructionSegment() {
+
+        int[] segment = new int[2 * EncodedInstruction.ENCODED_WORDS];
+
+        EncodedInstruction instruction = new EncodedInstruction("CMP r3, r2, 0x44");
+        instruction.assemble(segment, EncodedInstruction.ENCODED_WORDS);
+
+        Processor proc = new Processor(new Memory());
+        proc.getRegisterFile().getRegister(2).setValue(0x44);
+
+        DecodedInstruction decodedInstruction = instruction.decode(proc);
+        decodedInstruction.execute(proc);
+        decodedInstruction.writeBack(proc);
+
+        assertEquals("CMP operand not decoded", Operand.CMP, decodedInstruction.getOperand());
+        assertEquals("Destination register not decoded", 3, (int)decodedInstruction.getDestinationRegisterNumber());
+        assertEquals("Source register not decoded", 2, (int)decodedInstruction.getFirstSourceRegisterNumber());
+        assertEquals("Immediate not decoded", Status.EQ.getValue(), proc.getRegisterFile().getRegister(3).getValue());
+    }
+
+    /**
+    *   Test case for reusing static decode with values read at issue
+    */
+    @Test
+    public void readsOperandsAfterStaticDecode() {
+
+        EncodedInstruction instruction = new EncodedInstruction("SUB r1, r2, 0x3");
+
+        Processor proc = new Processor(new Memory());
+        proc.getRegisterFile().getRegister(2).setValue(0x10);
+
+        DecodedInstruction first = instruction.decodeStatic();
+        first.readOperands(proc.getRegisterFile());
+        first.execute(proc);
+
+        assertEquals("Wrong result", 0xD, first.getResult(1));
+
+        first.recycle();
+        proc.getRegisterFile().getRegister(2).setValue(0x20);
+
+        DecodedInstruction second = instruction.decodeStatic();
+        assertEquals("Decoded instance not reused", first, second);
+        assertEquals("Source register not decoded", 2, (int)second.getFirstSourceRegisterNumber());
+
+        second.readOperands(proc.getRegisterFile());
+        second.execute(proc);
+
+        assertEquals("New register value not read", 0x1D, second.getResult(1));
+    }
+}
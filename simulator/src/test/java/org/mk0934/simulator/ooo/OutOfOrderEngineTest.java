@@ -0,0 +1,131 @@
+package org.mk0934.simulator.ooo;
+
+import org.junit.Test;
+import org.mk0934.simulator.Configuration;
+import org.mk0934.simulator.Processor;
+import org.mk0934.simulator.Program;
+import org.mk0934.simulator.SimulatorConfig;
+import org.mk0934.simulator.Simulations;
+import org.mk0934.simulator.Statistics;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the out-of-order core
+ */
+public class OutOfOrderEngineTest {
+
+    private static Processor simulate(Program program, SimulatorConfig.CoreType coreType) {
+
+        Configuration configuration = new Configuration();
+        configuration.setCoreType(coreType);
+
+        return Simulations.simulate(program, configuration.build());
+    }
+
+    @Test
+    public void independentInstructionsPassStalledLoad() {
+
+        Program program = new Program(Arrays.asList(
+                "    LDM r1, r0, data",
+                "    MUL r2, r1, r1",
+                "    MUL r3, r2, 0x3",
+                "    MOV r4, 0x1",
+                "    MOV r5, 0x2",
+                "    ADD r6, r4, r5",
+                "    ADD r7, r6, r6",
+                "    SUB r8, r7, 0x1",
+                "    NOP",
+                "data: 0x5"));
+
+        Processor inOrder = simulate(program, SimulatorConfig.CoreType.IN_ORDER);
+        Processor outOfOrder = simulate(program, SimulatorConfig.CoreType.OUT_OF_ORDER);
+
+        for(int i = 0; i < 16; i++) {
+            assertEquals("Wrong value of r" + i,
+                    inOrder.getRegisterFile().getRegister(i).getValue(),
+                    outOfOrder.getRegisterFile().getRegister(i).getValue());
+        }
+
+        assertEquals("Wrong result", 75, outOfOrder.getRegisterFile().getRegister(3).getValue());
+
+        Statistics statistics = outOfOrder.getStatistics();
+
+        assertEquals("Wrong instruction count", 9, statistics.getInstructionsExecuted());
+        assertTrue("Independent instructions didn't execute out of order",
+                statistics.getCycles() < inOrder.getStatistics().getCycles());
+    }
+
+    @Test
+    public void loadWaitsForOlderStoreAndMispredictionIsSquashed() {
+
+        Program program = new Program(Arrays.asList(
+                "    MOV r0, 0x0",
+                "loop:",
+                "    LDM r1, r0, data",
+                "    ADD r1, r1, 0x1",
+                "    STM r1, r0, data",
+                "    ADD r0, r0, 0x0",
+                "    LDM r2, r0, data",
+                "    CMP r3, r2, 0x4",
+                "    BGT r3, end",
+                "    JMP loop",
+                "end:",
+                "    NOP",
+                "data: 0x0"));
+
+        Processor processor = simulate(program, SimulatorConfig.CoreType.OUT_OF_ORDER);
+
+        assertEquals("Load passed the store", 5, processor.getRegisterFile().getRegister(2).getValue());
+        assertEquals("Wrong value in memory", 5, processor.getMemory().loadWord(0x28));
+
+        Statistics statistics = processor.getStatistics();
+
+        assertEquals("Squashed instructions were counted", 1 + 4 * 8 + 7 + 1, statistics.getInstructionsExecuted());
+        assertEquals("Wrong number of branches", 9, statistics.getTotalBranches());
+    }
+
+    @Test
+    public void renamingRemovesFalseDependencies() {
+
+        // Every iteration reuses r1 and r2, only r0 carries a dependency
+        Program program = new Program(Arrays.asList(
+                "    MOV r0, 0x0",
+                "loop:",
+                "    LDM r1, r0, data",
+                "    MUL r2, r1, r1",
+                "    STM r2, r0, data",
+                "    ADD r0, r0, 0x4",
+                "    CMP r3, r0, 0x10",
+                "    BGT r3, end",
+                "    JMP loop",
+                "end:",
+                "    NOP",
+                "data: 0x1",
+                "      0x2",
+                "      0x3",
+                "      0x4",
+                "      0x5"));
+
+        Configuration configuration = new Configuration();
+        configuration.setCoreType(SimulatorConfig.CoreType.OUT_OF_ORDER);
+        configuration.setExecutionUnits(4);
+
+        configuration.setPhysicalRegisterCount(20);
+        Processor small = Simulations.simulate(program, configuration.build());
+
+        configuration.setPhysicalRegisterCount(128);
+        Processor large = Simulations.simulate(program, configuration.build());
+
+        for(int i = 0; i < 5; i++) {
+            assertEquals("Wrong value in memory", (i + 1) * (i + 1), large.getMemory().loadWord(0x24 + i * 4));
+            assertEquals("Wrong value in memory", (i + 1) * (i + 1), small.getMemory().loadWord(0x24 + i * 4));
+        }
+
+        assertTrue("More physical registers didn't help",
+                large.getStatistics().getCycles() < small.getStatistics().getCycles());
+    }
+}
@@ -0,0 +1,60 @@
+package org.mk0934.simulator.sweep;
+
+import org.junit.Test;
+import org.mk0934.simulator.Assembler;
+import org.mk0934.simulator.Program;
+import org.mk0934.simulator.Simulator;
+import org.mk0934.simulator.Statistics;
+import org.mk0934.simulator.instructions.Operand;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the design-space sweep
+ */
+public class SweepRunnerTest {
+
+    private static final Program program = new Program(Arrays.asList(
+            "    MOV r0, 0x0",
+            "loop:",
+            "    MUL r1, r0, 0x3",
+            "    MUL r2, r1, r1",
+            "    ADD r0, r0, 0x1",
+            "    CMP r3, r0, 0x8",
+            "    BGE r3, loop",
+            "    NOP"));
+
+    @Test
+    public void parallelResultsMatchSingleSimulations() {
+
+        SweepRunner runner = new SweepRunner();
+        runner.addProgram("mul", program);
+        runner.setExecutionUnits(Arrays.asList(1, 2, 4));
+        runner.setLatencies(Operand.MUL, Arrays.asList(1, 4));
+        runner.setParallelism(4);
+
+        List<SweepResult> results = runner.run();
+
+        assertEquals("Wrong number of results", 6, results.size());
+
+        for(SweepResult result : results) {
+
+            Statistics expected = new Simulator(result.getConfig()).simulate(new Assembler(program));
+
+            assertEquals("Wrong cycles for " + result.getConfig(),
+                    expected.getCycles(), result.getStatistics().getCycles());
+            assertEquals("Wrong instruction count for " + result.getConfig(),
+                    expected.getInstructionsExecuted(), result.getStatistics().getInstructionsExecuted());
+        }
+
+        // Grid order, latency varies fastest
+        assertEquals("Wrong grid order", 1, results.get(0).getConfig().getLatencyOverride(Operand.MUL));
+        assertEquals("Wrong grid order", 4, results.get(1).getConfig().getLatencyOverride(Operand.MUL));
+        assertTrue("Longer MUL latency didn't slow down the program",
+                results.get(1).getStatistics().getCycles() > results.get(0).getStatistics().getCycles());
+    }
+}
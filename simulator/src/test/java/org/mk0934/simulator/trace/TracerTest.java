@@ -0,0 +1,44 @@
+package org.mk0934.simulator.trace;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.mk0934.simulator.Memory;
+import org.mk0934.simulator.Program;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+public class TracerTest {
+
+    /**
+    *   Test case for formatting records only when they are flushed
+    */
+    @Test
+    public void formatsRecordsOnFlush() {
+
+        Memory memory = new Memory();
+        memory.LoadProgram(new Program(Arrays.asList("MOV r0, 0x1", "ADD r1, r0, r0")));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        Tracer tracer = new Tracer(memory, 2);
+        tracer.setTextOutput(new PrintStream(bytes));
+
+        tracer.setCycle(3);
+        tracer.trace(TraceStage.NONE, Tracer.NO_UNIT, TraceEvent.CYCLE);
+        tracer.trace(TraceStage.EXECUTE, 1, TraceEvent.EXECUTING_CYCLE, 0x4, 1, 2);
+
+        assertEquals("Records formatted before flush", 0, bytes.size());
+
+        tracer.trace(TraceStage.DECODE, Tracer.NO_UNIT, TraceEvent.DEPENDENCY, 0x4, 0x0, 0);
+        tracer.flush();
+
+        assertEquals("Wrong trace output",
+                "Cycle #3\n"
+                + "EXECUTE(1): Executing ADD r1, r0, r0 (1/2)\n"
+                + "DECODE: Can't decode, there's dependency in ADD r1, r0, r0 due to MOV r0, 0x1\n",
+                bytes.toString());
+    }
+}
@@ -0,0 +1,56 @@
+package org.mk0934.simulator.units;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.mk0934.simulator.Configuration;
+import org.mk0934.simulator.Processor;
+import org.mk0934.simulator.Program;
+import org.mk0934.simulator.SimulatorConfig;
+import org.mk0934.simulator.Simulations;
+import org.mk0934.simulator.instructions.Operand;
+
+public class PipelinedUnitTest {
+
+    /**
+    *   Test case for starting an instruction every initiation interval
+    */
+    @Test
+    public void pipelinedMultiplierStartsEveryCycle() {
+
+        Program program = new Program(Arrays.asList(
+                "    MUL r1, r0, 0x2",
+                "    MUL r2, r0, 0x3",
+                "    MUL r3, r0, 0x4",
+                "    MUL r4, r0, 0x5",
+                "    NOP"));
+
+        Configuration configuration = new Configuration();
+        configuration.setExecutionUnits(1);
+        configuration.setLatency(Operand.MUL, 4);
+
+        Processor unpipelined = simulate(program, configuration.build());
+
+        configuration.setInitiationInterval(Operand.MUL, 1);
+        Processor pipelined = simulate(program, configuration.build());
+
+        assertEquals("Wrong result", 0x5, pipelined.getRegisterFile().getRegister(4).getValue());
+
+        // Every multiplication after the first one overlaps with the previous one
+        assertEquals("Wrong cycles",
+                unpipelined.getStatistics().getCycles() - 3 * 3,
+                pipelined.getStatistics().getCycles());
+    }
+
+    private static Processor simulate(Program program, SimulatorConfig config) {
+
+        // Multiplications read r0 without waiting for an older instruction
+        Processor processor = Simulations.load(program, config);
+        processor.getRegisterFile().getRegister(0).setValue(0x1);
+        processor.simulate();
+
+        return processor;
+    }
+}